@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.functions.gradle.handler;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.microsoft.azure.gradle.util.GradleAzureMessager;
+import com.microsoft.azure.plugin.functions.gradle.JavaProject;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureExecutionException;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import com.microsoft.azure.toolkit.lib.legacy.function.configurations.FunctionConfiguration;
+import com.microsoft.azure.toolkit.lib.legacy.function.handlers.AnnotationHandler;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.logging.Logging;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The stages of {@link PackageHandler} on a synthetic project, run with `gradle :azure-functions-gradle-plugin-benchmarks:jmh`.
+ * The extension installation is not covered, as it runs the Azure Functions Core Tools.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PackageHandlerBenchmark {
+    @Param({"10", "100"})
+    public int functions;
+
+    @Param({"10", "100"})
+    public int jars;
+
+    @Param({"256"})
+    public int jarSizeKb;
+
+    private File directory;
+    private File stagingDirectory;
+    private File zipFile;
+    private JavaProject project;
+    private PackageHandler handler;
+    private AnnotationHandler annotationHandler;
+    private ObjectWriter writer;
+    private Set<Method> methods;
+    private Map<String, FunctionConfiguration> configurations;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, AzureExecutionException {
+        // messages of the handler go to the (disabled) gradle logging instead of the console
+        AzureMessager.setDefaultMessager(new GradleAzureMessager(Logging.getLogger(PackageHandlerBenchmark.class)));
+        directory = Files.createTempDirectory("functions-benchmark").toFile();
+        stagingDirectory = new File(directory, "staging");
+        zipFile = new File(directory, "staging.zip");
+        project = SyntheticProject.create(new File(directory, "project"), functions, jars, jarSizeKb);
+        handler = new PackageHandler(project, stagingDirectory.getAbsolutePath());
+        annotationHandler = handler.getAnnotationHandler();
+        writer = handler.getObjectWriter();
+        methods = handler.findAnnotatedMethods(annotationHandler);
+        configurations = handler.getFunctionConfigurations(annotationHandler, methods);
+        // a staged app to zip
+        handler.copyHostJsonFile();
+        handler.copyLocalSettingJsonFile();
+        handler.writeFunctionJsonFiles(writer, configurations);
+        handler.copyJarsToStageDirectory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public Set<Method> discoverFunctions() throws IOException {
+        return handler.findAnnotatedMethods(annotationHandler);
+    }
+
+    @Benchmark
+    public Map<String, FunctionConfiguration> generateConfigurations() throws AzureExecutionException {
+        return handler.getFunctionConfigurations(annotationHandler, methods);
+    }
+
+    @Benchmark
+    public Map<String, FunctionConfiguration> validateConfigurations() {
+        handler.validateFunctionConfigurations(configurations);
+        return configurations;
+    }
+
+    @Benchmark
+    public File writeFunctionJsons(FunctionJsonState state) throws IOException {
+        state.handler.writeFunctionJsonFiles(writer, configurations);
+        return state.directory;
+    }
+
+    @Benchmark
+    public List<File> stageJars() throws IOException {
+        return handler.copyJarsToStageDirectory();
+    }
+
+    @Benchmark
+    public File zip() {
+        PackageHandler.zipStagingDirectory(stagingDirectory, zipFile);
+        return zipFile;
+    }
+
+    /**
+     * A staging directory of its own, emptied before each invocation as `function.json` cannot be written into an
+     * existing function folder
+     */
+    @State(Scope.Benchmark)
+    public static class FunctionJsonState {
+        private File directory;
+        private PackageHandler handler;
+
+        @Setup(Level.Trial)
+        public void setUp(PackageHandlerBenchmark benchmark) throws IOException {
+            directory = new File(benchmark.directory, "function-json");
+            FileUtils.forceMkdir(directory);
+            handler = new PackageHandler(benchmark.project, directory.getAbsolutePath());
+        }
+
+        @Setup(Level.Invocation)
+        public void clean() throws IOException {
+            FileUtils.cleanDirectory(directory);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.functions.gradle.handler;
+
+import com.microsoft.azure.functions.annotation.FunctionName;
+import com.microsoft.azure.plugin.functions.gradle.JavaProject;
+import com.microsoft.azure.plugin.functions.gradle.util.GradleProjectUtils;
+import org.apache.commons.io.FileUtils;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * A generated functions project: an artifact with the given number of functions (http and timer triggers alternately),
+ * and the given number of dependency jars with incompressible content, as staging copies and zips them as they are.
+ */
+final class SyntheticProject {
+    private static final String PACKAGE = "com.example.functions";
+    private static final String HTTP_FUNCTION = String.join("\n",
+        "package " + PACKAGE + ";",
+        "import com.microsoft.azure.functions.*;",
+        "import com.microsoft.azure.functions.annotation.*;",
+        "import java.util.Optional;",
+        "public class %1$s {",
+        "    @FunctionName(\"%2$s\")",
+        "    public HttpResponseMessage run(@HttpTrigger(name = \"req\", methods = {HttpMethod.GET, HttpMethod.POST}, authLevel = AuthorizationLevel.ANONYMOUS)",
+        "                                   HttpRequestMessage<Optional<String>> request, final ExecutionContext context) {",
+        "        return request.createResponseBuilder(HttpStatus.OK).body(\"%2$s\").build();",
+        "    }",
+        "}");
+    private static final String TIMER_FUNCTION = String.join("\n",
+        "package " + PACKAGE + ";",
+        "import com.microsoft.azure.functions.*;",
+        "import com.microsoft.azure.functions.annotation.*;",
+        "public class %1$s {",
+        "    @FunctionName(\"%2$s\")",
+        "    public void run(@TimerTrigger(name = \"timer\", schedule = \"0 */5 * * * *\") String timer, final ExecutionContext context) {",
+        "        context.getLogger().info(timer);",
+        "    }",
+        "}");
+
+    private SyntheticProject() {
+    }
+
+    static JavaProject create(final File directory, final int functions, final int jars, final int jarSizeKb) throws IOException {
+        FileUtils.forceMkdir(directory);
+        FileUtils.cleanDirectory(directory);
+        final File sources = new File(directory, "src");
+        final File classes = new File(directory, "classes");
+        FileUtils.forceMkdir(classes);
+        final List<String> arguments = new ArrayList<>();
+        arguments.add("-nowarn");
+        arguments.add("-proc:none");
+        arguments.add("-cp");
+        arguments.add(getLibrary().getAbsolutePath());
+        arguments.add("-d");
+        arguments.add(classes.getAbsolutePath());
+        for (int i = 0; i < functions; i++) {
+            final String className = String.format("Function%04d", i);
+            final File source = new File(sources, PACKAGE.replace('.', '/') + "/" + className + ".java");
+            FileUtils.write(source, String.format(i % 2 == 0 ? HTTP_FUNCTION : TIMER_FUNCTION, className, "function" + i), StandardCharsets.UTF_8);
+            arguments.add(source.getAbsolutePath());
+        }
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null || compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IOException("Failed to compile the synthetic functions, benchmarks must run on a JDK.");
+        }
+        final File artifact = new File(directory, "build/libs/synthetic-1.0.0.jar");
+        jar(artifact, classes);
+
+        final List<File> dependencies = new ArrayList<>();
+        dependencies.add(getLibrary());
+        final Random random = new Random(jars);
+        for (int i = 0; i < jars; i++) {
+            final File jar = new File(directory, String.format("dependencies/dependency-%04d-1.0.0.jar", i));
+            jar(jar, random, jarSizeKb);
+            dependencies.add(jar);
+        }
+        return GradleProjectUtils.toJavaProject(directory, new File(directory, "build"), artifact, dependencies);
+    }
+
+    /**
+     * @return the functions java library on the classpath of the benchmarks, which is excluded from staging
+     */
+    static File getLibrary() {
+        try {
+            return new File(FunctionName.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void jar(final File jar, final File classes) throws IOException {
+        FileUtils.forceMkdirParent(jar);
+        try (JarOutputStream output = new JarOutputStream(new FileOutputStream(jar))) {
+            final String root = classes.getAbsolutePath();
+            final Collection<File> files = FileUtils.listFiles(classes, null, true);
+            for (final File file : files) {
+                output.putNextEntry(new JarEntry(file.getAbsolutePath().substring(root.length() + 1).replace(File.separatorChar, '/')));
+                FileUtils.copyFile(file, output);
+                output.closeEntry();
+            }
+        }
+    }
+
+    private static void jar(final File jar, final Random random, final int sizeKb) throws IOException {
+        FileUtils.forceMkdirParent(jar);
+        final byte[] content = new byte[sizeKb * 1024];
+        random.nextBytes(content);
+        try (JarOutputStream output = new JarOutputStream(new FileOutputStream(jar))) {
+            output.putNextEntry(new JarEntry("data.bin"));
+            output.write(content);
+            output.closeEntry();
+        }
+    }
+}
@@ -5,78 +5,110 @@
 
 package com.microsoft.azure.plugin.functions.gradle;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.annotation.JsonSetter;
 import com.microsoft.azure.gradle.auth.GradleAuthConfig;
+import com.microsoft.azure.gradle.configuration.CommandLineParameters;
 import com.microsoft.azure.gradle.configuration.GradleDeploymentSlotConfig;
 import com.microsoft.azure.gradle.configuration.GradleRuntimeConfig;
 import com.microsoft.azure.plugin.functions.gradle.configuration.deploy.Deployment;
+import com.microsoft.azure.plugin.functions.gradle.configuration.warmup.WarmUp;
 import groovy.lang.Closure;
-import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.Setter;
-import org.gradle.api.Project;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
-@NoArgsConstructor
-public class AzureFunctionsExtension {
+/**
+ * Settings of the `azurefunctions` block. Values are resolved lazily by the tasks (see {@link GradleFunctionContext}),
+ * where `-D<name>=<value>` and `-Pazure.<name>=<value>` on the command line take precedence over the build script.
+ */
+public abstract class AzureFunctionsExtension {
 
     @Nullable
-    private Boolean allowTelemetry;
+    private GradleAuthConfig auth;
 
     @Nullable
-    private String localDebug;
+    private Deployment deployment;
 
     @Nullable
-    private String subscription;
+    private WarmUp warmUp;
 
     @Nullable
-    private String resourceGroup;
-
-    private String appName;
+    private GradleRuntimeConfig runtime;
 
     @Nullable
-    private String region;
+    private GradleDeploymentSlotConfig deploymentSlot;
 
-    @Nullable
-    private String pricingTier;
+    @Inject
+    protected abstract ProviderFactory getProviders();
 
-    @Nullable
-    private String appServicePlanResourceGroup;
+    @Input
+    @Optional
+    public abstract Property<Boolean> getAllowTelemetry();
 
-    @Nullable
-    private String appServicePlanName;
+    @Input
+    @Optional
+    public abstract Property<String> getLocalDebug();
 
-    @Nullable
-    private GradleAuthConfig auth;
+    @Input
+    @Optional
+    public abstract Property<String> getSubscription();
 
-    @Nullable
-    private Deployment deployment;
+    @Input
+    @Optional
+    public abstract Property<String> getResourceGroup();
 
-    @Nullable
-    private GradleRuntimeConfig runtime;
+    @Input
+    @Optional
+    public abstract Property<String> getAppName();
 
-    @Nullable
-    private GradleDeploymentSlotConfig deploymentSlot;
+    @Input
+    @Optional
+    public abstract Property<String> getRegion();
 
-    private Map<String, String> appSettings;
+    @Input
+    @Optional
+    public abstract Property<String> getPricingTier();
 
-    @JsonIgnore
-    private Project project;
+    @Input
+    @Optional
+    public abstract Property<String> getAppServicePlanResourceGroup();
 
-    @Nullable
-    private String appInsightsInstance;
+    @Input
+    @Optional
+    public abstract Property<String> getAppServicePlanName();
 
-    @Nullable
-    private String appInsightsKey;
+    @Input
+    @Optional
+    public abstract MapProperty<String, String> getAppSettings();
 
-    @Nullable
-    private Boolean disableAppInsights;
+    @Input
+    @Optional
+    public abstract Property<String> getAppInsightsInstance();
+
+    @Input
+    @Optional
+    public abstract Property<String> getAppInsightsKey();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getDisableAppInsights();
+
+    /**
+     * The number of previously deployed packages kept locally for `azureFunctionsRollback`, 0 to disable it.
+     * Default value is 3
+     */
+    @Input
+    @Optional
+    public abstract Property<Integer> getRollbackCacheSize();
 
     /**
      *  Set the amount of memory allocated to each instance of the function app in MB.
@@ -84,157 +116,77 @@ public class AzureFunctionsExtension {
      *  Values must be one of 512, 2048, 4096
      *  Default value is 2048
      */
-    @Nullable
-    @Getter
-    @Setter
     @Input
     @Optional
-    private Integer instanceMemory;
+    public abstract Property<Integer> getInstanceMemory();
 
     /**
      * The maximum number of instances for the function app.
      * Value must be in range [40, 1000]
      * Default value is 100
      */
-    @Nullable
-    @Getter
-    @Setter
     @Input
     @Optional
-    private Integer maximumInstances;
+    public abstract Property<Integer> getMaximumInstances();
 
     /**
      * The storage account which is used to store deployment artifacts.
      * If not specified, will use account defined with 'storageAccountName' for deployment
      */
-    @Nullable
-    @Getter
-    @Setter
     @Input
     @Optional
-    protected String deploymentStorageAccount;
+    public abstract Property<String> getDeploymentStorageAccount();
 
     /**
      * The resource group of the storage account which is used to store deployment artifacts.
      */
-    @Nullable
-    @Getter
-    @Setter
     @Input
     @Optional
-    protected String deploymentStorageResourceGroup;
+    public abstract Property<String> getDeploymentStorageResourceGroup();
 
     /**
      * The container in the storage account which is used to store deployment artifacts.
      */
-    @Nullable
-    @Getter
-    @Setter
     @Input
     @Optional
-    protected String deploymentStorageContainer;
+    public abstract Property<String> getDeploymentStorageContainer();
 
     /**
      * The authentication method to access the storage account for deployment.
      * Available options: SystemAssignedIdentity, UserAssignedIdentity, StorageAccountConnectionString.
      */
-    @Nullable
-    @Getter
-    @Setter
     @Input
     @Optional
-    protected String storageAuthenticationMethod;
+    public abstract Property<String> getStorageAuthenticationMethod();
 
     /**
      * Use this property for UserAssignedIdentity.
      * Set the resource ID of the identity.
      */
-    @Nullable
-    @Getter
-    @Setter
     @Input
     @Optional
-    protected String userAssignedIdentityResourceId;
+    public abstract Property<String> getUserAssignedIdentityResourceId();
 
     /**
      * Use this property for StorageAccountConnectionString.
      * Set the name of the app setting that has the storage account connection string.
      */
-    @Nullable
-    @Getter
-    @Setter
     @Input
     @Optional
-    protected String storageAccountConnectionString;
+    public abstract Property<String> getStorageAccountConnectionString();
 
     /**
      * always ready instances config for flex consumption function app, in the form of name-value pairs.
      *
      * For additional information see https://aka.ms/flexconsumption/alwaysready.
      */
-    @Nullable
-    @Getter
-    @Input
-    @Optional
-    protected Map<String, Object> alwaysReadyInstances;
-
-    @Nullable
-    @Getter
-    @Setter
-    @Input
-    @Optional
-    protected Integer httpInstanceConcurrency;
-
-    public AzureFunctionsExtension(Project project) {
-        this.project = project;
-    }
-
-    @Input
-    @Optional
-    public String getLocalDebug() {
-        return this.localDebug;
-    }
-
-    @Input
-    @Optional
-    public String getResourceGroup() {
-        return resourceGroup;
-    }
-
-    @Input
-    public String getAppName() {
-        return appName;
-    }
-
     @Input
     @Optional
-    public String getRegion() {
-        return region;
-    }
-
-    @Input
-    @Optional
-    public String getSubscription() {
-        return subscription;
-    }
+    public abstract MapProperty<String, String> getAlwaysReadyInstances();
 
     @Input
     @Optional
-    public String getPricingTier() {
-        return pricingTier;
-    }
-
-    @Input
-    @Optional
-    public String getAppServicePlanName() {
-        return appServicePlanName;
-    }
-
-    @Input
-    @Optional
-    public String getAppServicePlanResourceGroup() {
-        return appServicePlanResourceGroup;
-    }
+    public abstract Property<Integer> getHttpInstanceConcurrency();
 
     @Input
     @Optional
@@ -250,8 +202,8 @@ public class AzureFunctionsExtension {
 
     @Input
     @Optional
-    public Map<String, String> getAppSettings() {
-        return appSettings;
+    public WarmUp getWarmUp() {
+        return warmUp;
     }
 
     @Input
@@ -262,140 +214,155 @@ public class AzureFunctionsExtension {
 
     @Input
     @Optional
-    public Boolean getAllowTelemetry() {
-        return allowTelemetry;
-    }
-
-    @Input
-    @Optional
-    public String getAppInsightsInstance() {
-        return appInsightsInstance;
+    public GradleDeploymentSlotConfig getDeploymentSlot() {
+        return deploymentSlot;
     }
 
-    @Input
-    @Optional
-    public String getAppInsightsKey() {
-        return appInsightsKey;
+    /**
+     * @return settings passed on the command line, which take precedence over the ones above
+     */
+    @Internal
+    public CommandLineParameters getCommandLineParameters() {
+        return new CommandLineParameters(getProviders());
     }
 
-    @Input
-    @Optional
-    public Boolean isDisableAppInsights() {
-        return disableAppInsights;
+    public void setAuth(Closure closure) {
+        this.auth = configure(closure, new GradleAuthConfig());
     }
 
-    @Input
-    @Optional
-    public GradleDeploymentSlotConfig getDeploymentSlot() {
-        return deploymentSlot;
+    @Deprecated
+    public void setAuthentication(Closure closure) {
+        this.auth = configure(closure, new GradleAuthConfig());
     }
 
-    public void setAllowTelemetry(Boolean allowTelemetry) {
-        this.allowTelemetry = allowTelemetry;
+    public void setDeployment(Closure closure) {
+        this.deployment = configure(closure, new Deployment());
     }
 
-    public void setResourceGroup(String resourceGroup) {
-        this.resourceGroup = resourceGroup;
+    public void setWarmUp(Closure closure) {
+        this.warmUp = configure(closure, new WarmUp());
     }
 
-    public void setAppName(String appName) {
-        this.appName = appName;
+    public void setRuntime(Closure closure) {
+        this.runtime = configure(closure, new GradleRuntimeConfig());
     }
 
-    public void setRegion(String region) {
-        this.region = region;
+    public void setDeploymentSlot(Closure closure) {
+        this.deploymentSlot = configure(closure, new GradleDeploymentSlotConfig());
     }
 
-    public void setSubscription(String subscription) {
-        this.subscription = subscription;
+    public void setAppSettings(Closure closure) {
+        getAppSettings().set(toStringMap(configure(closure, new HashMap<>())));
     }
 
-    public void setPricingTier(String pricingTier) {
-        this.pricingTier = pricingTier;
+    public void setAlwaysReadyInstances(Closure closure) {
+        getAlwaysReadyInstances().set(toStringMap(configure(closure, new HashMap<>())));
     }
 
-    public void setAuth(Closure closure) {
-        this.auth = new GradleAuthConfig();
-        project.configure(auth, closure);
+    public void setAuth(@Nullable GradleAuthConfig auth) {
+        this.auth = auth;
     }
 
-    @Deprecated
-    public void setAuthentication(Closure closure) {
-        this.auth = new GradleAuthConfig();
-        project.configure(auth, closure);
+    public void setDeployment(@Nullable Deployment deployment) {
+        this.deployment = deployment;
     }
 
-    public void setDeployment(Closure closure) {
-        deployment = new Deployment();
-        project.configure(deployment, closure);
+    public void setWarmUp(@Nullable WarmUp warmUp) {
+        this.warmUp = warmUp;
     }
 
-    public void setRuntime(Closure closure) {
-        runtime = new GradleRuntimeConfig();
-        project.configure(runtime, closure);
+    public void setRuntime(@Nullable GradleRuntimeConfig runtime) {
+        this.runtime = runtime;
     }
 
-    public void setDeploymentSlot(Closure closure) {
-        deploymentSlot = new GradleDeploymentSlotConfig();
-        project.configure(deploymentSlot, closure);
+    public void setDeploymentSlot(@Nullable GradleDeploymentSlotConfig deploymentSlot) {
+        this.deploymentSlot = deploymentSlot;
     }
 
-    public void setAppServicePlanName(String appServicePlanName) {
-        this.appServicePlanName = appServicePlanName;
+    /*
+     * Setters of the settings as they were before the settings became lazy properties, kept for the Kotlin DSL and
+     * the programmatic callers, `get<Name>().set(value)` is preferred.
+     */
+    @Deprecated
+    public void setLocalDebug(@Nullable String localDebug) {
+        getLocalDebug().set(localDebug);
     }
 
-    public void setAppServicePlanResourceGroup(String appServicePlanResourceGroup) {
-        this.appServicePlanResourceGroup = appServicePlanResourceGroup;
+    @Deprecated
+    public void setAllowTelemetry(@Nullable Boolean allowTelemetry) {
+        getAllowTelemetry().set(allowTelemetry);
     }
 
-    public void setAppSettings(Closure closure) {
-        this.appSettings = new HashMap<>();
-        project.configure(appSettings, closure);
+    @Deprecated
+    public void setSubscription(@Nullable String subscription) {
+        getSubscription().set(subscription);
     }
 
-    public void setLocalDebug(String localDebug) {
-        this.localDebug = localDebug;
+    @Deprecated
+    public void setResourceGroup(@Nullable String resourceGroup) {
+        getResourceGroup().set(resourceGroup);
     }
 
-    public void setAppInsightsInstance(@Nullable String appInsightsInstance) {
-        this.appInsightsInstance = appInsightsInstance;
+    @Deprecated
+    public void setAppName(@Nullable String appName) {
+        getAppName().set(appName);
     }
 
-    public void setAppInsightsKey(@Nullable String appInsightsKey) {
-        this.appInsightsKey = appInsightsKey;
+    @Deprecated
+    public void setRegion(@Nullable String region) {
+        getRegion().set(region);
     }
 
-    public void setDisableAppInsights(@Nullable Boolean disableAppInsights) {
-        this.disableAppInsights = disableAppInsights;
+    @Deprecated
+    public void setPricingTier(@Nullable String pricingTier) {
+        getPricingTier().set(pricingTier);
     }
 
-    @JsonSetter
-    public void setAuth(@Nullable GradleAuthConfig auth) {
-        this.auth = auth;
+    @Deprecated
+    public void setAppServicePlanName(@Nullable String appServicePlanName) {
+        getAppServicePlanName().set(appServicePlanName);
     }
 
-    @JsonSetter
-    public void setDeployment(@Nullable Deployment deployment) {
-        this.deployment = deployment;
+    @Deprecated
+    public void setAppServicePlanResourceGroup(@Nullable String appServicePlanResourceGroup) {
+        getAppServicePlanResourceGroup().set(appServicePlanResourceGroup);
     }
 
-    @JsonSetter
-    public void setRuntime(@Nullable GradleRuntimeConfig runtime) {
-        this.runtime = runtime;
+    @Deprecated
+    public void setAppInsightsInstance(@Nullable String appInsightsInstance) {
+        getAppInsightsInstance().set(appInsightsInstance);
     }
 
-    @JsonSetter
-    public void setDeploymentSlot(@Nullable GradleDeploymentSlotConfig deploymentSlot) {
-        this.deploymentSlot = deploymentSlot;
+    @Deprecated
+    public void setAppInsightsKey(@Nullable String appInsightsKey) {
+        getAppInsightsKey().set(appInsightsKey);
     }
 
-    @JsonSetter
-    public void setAppSettings(Map<String, String> appSettings) {
-        this.appSettings = appSettings;
+    @Deprecated
+    public void setDisableAppInsights(@Nullable Boolean disableAppInsights) {
+        getDisableAppInsights().set(disableAppInsights);
     }
 
-    public void setAlwaysReadyInstances(Closure closure) {
-        this.alwaysReadyInstances = new HashMap<>();
-        project.configure(alwaysReadyInstances, closure);
+    @Deprecated
+    public void setAppSettings(@Nullable Map<String, String> appSettings) {
+        getAppSettings().set(appSettings == null ? null : toStringMap(appSettings));
+    }
+
+    private static <T> T configure(final Closure<?> closure, final T target) {
+        final Closure<?> copy = (Closure<?>) closure.clone();
+        copy.setResolveStrategy(Closure.DELEGATE_FIRST);
+        copy.setDelegate(target);
+        if (copy.getMaximumNumberOfParameters() == 0) {
+            copy.call();
+        } else {
+            copy.call(target);
+        }
+        return target;
+    }
+
+    private static Map<String, String> toStringMap(final Map<?, ?> map) {
+        // values of a map property cannot be null
+        return map.entrySet().stream().filter(e -> e.getValue() != null)
+                .collect(Collectors.toMap(e -> Objects.toString(e.getKey()), e -> Objects.toString(e.getValue())));
     }
 }
@@ -4,115 +4,113 @@
  */
 package com.microsoft.azure.plugin.functions.gradle;
 
-import com.azure.core.http.policy.HttpLogDetailLevel;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.dataformat.javaprop.JavaPropsMapper;
-import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
-import com.microsoft.azure.gradle.util.GradleAzureMessager;
+import com.microsoft.azure.gradle.auth.AzureAuthService;
+import com.microsoft.azure.gradle.cache.AzureCacheService;
+import com.microsoft.azure.gradle.common.AzureToolkitService;
+import com.microsoft.azure.gradle.trace.PerformanceReportTask;
 import com.microsoft.azure.plugin.functions.gradle.task.DeployTask;
 import com.microsoft.azure.plugin.functions.gradle.task.LocalRunTask;
 import com.microsoft.azure.plugin.functions.gradle.task.PackageTask;
 import com.microsoft.azure.plugin.functions.gradle.task.PackageZipTask;
-import com.microsoft.azure.toolkit.lib.Azure;
-import com.microsoft.azure.toolkit.lib.common.bundle.AzureString;
-import com.microsoft.azure.toolkit.lib.common.cache.CacheEvict;
-import com.microsoft.azure.toolkit.lib.common.cache.CacheManager;
-import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
-import com.microsoft.azure.toolkit.lib.common.utils.InstallationIdUtils;
-import com.microsoft.azure.toolkit.lib.common.utils.Utils;
-import org.apache.commons.lang3.BooleanUtils;
-import org.apache.commons.lang3.StringUtils;
+import com.microsoft.azure.plugin.functions.gradle.task.RollbackTask;
+import com.microsoft.azure.plugin.functions.gradle.util.GradleProjectUtils;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskProvider;
 
-import java.io.IOException;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.concurrent.ExecutionException;
-
-import static com.microsoft.azure.gradle.temeletry.TelemetryConstants.INSTALLATION_ID_KEY;
-import static com.microsoft.azure.gradle.temeletry.TelemetryConstants.SESSION_ID_KEY;
+import java.util.Collections;
+import java.util.concurrent.Callable;
 
 public class AzureFunctionsPlugin implements Plugin<Project> {
     public static final String GRADLE_PLUGIN_NAME = "azure-functions-gradle-plugin";
     private static final String GRADLE_FUNCTION_EXTENSION = "azurefunctions";
+    private static final String PACKAGE_ISOLATION_KEY = "azure.functions.package.isolation";
+    private static final String PACKAGE_MAX_HEAP_SIZE_KEY = "azure.functions.package.maxHeapSize";
 
     @Override
     public void apply(final Project project) {
-        final AzureFunctionsExtension extension = project.getExtensions().create(GRADLE_FUNCTION_EXTENSION,
-                AzureFunctionsExtension.class, project);
-        try {
-            CacheManager.evictCache(CacheEvict.ALL, CacheEvict.ALL);
-        } catch (ExecutionException e) {
-            //ignore
-        }
-
+        final AzureFunctionsExtension extension = project.getExtensions().create(GRADLE_FUNCTION_EXTENSION, AzureFunctionsExtension.class);
         final TaskContainer tasks = project.getTasks();
+        final Provider<AzureToolkitService> toolkitService = AzureToolkitService.register(project, GRADLE_PLUGIN_NAME, AzureFunctionsPlugin.class);
+        final Provider<AzureAuthService> authService = AzureAuthService.register(project);
+        final Provider<AzureCacheService> cacheService = AzureCacheService.register(project);
 
         final TaskProvider<PackageTask> packageTask = tasks.register("azureFunctionsPackage", PackageTask.class, task -> {
             task.setGroup("AzureFunctions");
             task.setDescription("Package current project to staging folder.");
             task.setFunctionsExtension(extension);
+            GradleProjectUtils.configure(project, task);
+            task.setToolkitService(toolkitService);
+            task.usesService(toolkitService);
+            task.getDependencies().from(GradleProjectUtils.getDependencies(project));
+            task.getConfigurationFiles().from(GradleProjectUtils.getConfigurationFiles(project));
+            task.getStagingDirectory().set(GradleProjectUtils.getStagingDirectory(project, extension));
+            task.getIsolation().set(extension.getCommandLineParameters().get(PACKAGE_ISOLATION_KEY));
+            task.getMaxHeapSize().set(extension.getCommandLineParameters().get(PACKAGE_MAX_HEAP_SIZE_KEY));
+            task.dependsOn("jar");
         });
 
-        final TaskProvider<PackageZipTask> packageZipTask = tasks.register("azureFunctionsPackageZip", PackageZipTask.class, task -> {
+        tasks.register("azureFunctionsPackageZip", PackageZipTask.class, task -> {
             task.setGroup("AzureFunctions");
             task.setDescription("Package current project to staging folder.");
             task.setFunctionsExtension(extension);
+            GradleProjectUtils.configure(project, task);
+            task.setToolkitService(toolkitService);
+            task.usesService(toolkitService);
+            task.getStagingDirectory().set(GradleProjectUtils.getStagingDirectory(project, extension));
+            task.getZipFile().set(GradleProjectUtils.getStagingZipFile(project, extension));
+            task.getFingerprintFile().set(GradleProjectUtils.getStagingZipFingerprintFile(project, extension));
+            task.dependsOn(packageTask);
         });
 
-        final TaskProvider<LocalRunTask> runTask = tasks.register("azureFunctionsRun", LocalRunTask.class, task -> {
+        tasks.register("azureFunctionsRun", LocalRunTask.class, task -> {
             task.setGroup("AzureFunctions");
             task.setDescription("Builds a local folder structure ready to run on azure functions environment.");
             task.setFunctionsExtension(extension);
+            GradleProjectUtils.configure(project, task);
+            task.setToolkitService(toolkitService);
+            task.usesService(toolkitService);
+            task.dependsOn(packageTask);
         });
 
-        final TaskProvider<DeployTask> deployTask = tasks.register("azureFunctionsDeploy", DeployTask.class, task -> {
+        tasks.register("azureFunctionsDeploy", DeployTask.class, task -> {
             task.setGroup("AzureFunctions");
             task.setDescription("Deploy current project to azure cloud.");
             task.setFunctionsExtension(extension);
+            GradleProjectUtils.configure(project, task);
+            task.setToolkitService(toolkitService);
+            task.usesService(toolkitService);
+            task.setAuthService(authService);
+            task.usesService(authService);
+            task.setCacheService(cacheService);
+            task.usesService(cacheService);
+            // a prebuilt package is deployed as is, without touching the compile or package tasks
+            task.dependsOn((Callable<Object>) () -> task.isPrebuiltPackageDeployment() ? Collections.emptyList() : packageTask);
         });
 
-        project.afterEvaluate(projectAfterEvaluation -> {
-            mergeCommandLineParameters(extension);
-
-            AzureMessager.setDefaultMessager(new GradleAzureMessager(project.getLogger()));
-            Azure.az().config().setLogLevel(HttpLogDetailLevel.NONE.name());
-            Azure.az().config().setProduct(GRADLE_PLUGIN_NAME);
-            final String pluginVersion = StringUtils.firstNonBlank(AzureFunctionsPlugin.class.getPackage().getImplementationVersion(), "develop");
-            Azure.az().config().setVersion(pluginVersion);
-            final boolean enableTelemetry = BooleanUtils.isNotFalse(extension.getAllowTelemetry());
-            Azure.az().config().setTelemetryEnabled(enableTelemetry);
-            final String installationId = InstallationIdUtils.getHashMac();
-            Azure.az().config().setMachineId(installationId);
-            final String sessionId = UUID.randomUUID().toString();
-            Azure.az().config().setSessionId(sessionId);
-            final String userAgent = enableTelemetry ?
-                    String.format("%s/%s %s:%s %s:%s", GRADLE_PLUGIN_NAME, pluginVersion,
-                            INSTALLATION_ID_KEY, installationId, SESSION_ID_KEY, sessionId)
-                    : String.format("%s/%s", GRADLE_PLUGIN_NAME, pluginVersion);
-            Azure.az().config().setUserAgent(userAgent);
-
-            TelemetryAgent.getInstance().showPrivacyStatement();
-
-            packageTask.configure(task -> task.dependsOn("jar"));
-            packageZipTask.configure(task -> task.dependsOn(packageTask));
-            runTask.configure(task -> task.dependsOn(packageTask));
-            deployTask.configure(task -> task.dependsOn(packageTask));
+        tasks.register("azureFunctionsRollback", RollbackTask.class, task -> {
+            task.setGroup("AzureFunctions");
+            task.setDescription("Redeploy a previously deployed package from the local rollback cache.");
+            task.setFunctionsExtension(extension);
+            GradleProjectUtils.configure(project, task);
+            task.setToolkitService(toolkitService);
+            task.usesService(toolkitService);
+            task.setAuthService(authService);
+            task.usesService(authService);
+            task.setCacheService(cacheService);
+            task.usesService(cacheService);
         });
-    }
 
-    private static void mergeCommandLineParameters(final AzureFunctionsExtension config) {
-        final JavaPropsMapper mapper = new JavaPropsMapper();
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        final Properties properties = System.getProperties();
-        try {
-            final AzureFunctionsExtension commandLineParameters = mapper.readPropertiesAs(properties, AzureFunctionsExtension.class);
-            Utils.copyProperties(config, commandLineParameters, false);
-        } catch (IOException | IllegalAccessException e) {
-            AzureMessager.getMessager().warning(AzureString.format("Failed to read parameters from command line : %s", e.getMessage()));
-        }
+        tasks.register("azureFunctionsPerformanceReport", PerformanceReportTask.class, task -> {
+            task.setGroup("AzureFunctions");
+            task.setDescription("Report the phases of package and deploy which got slower than the previous runs.");
+            task.getProjectDirectory().set(project.getLayout().getProjectDirectory());
+            task.getAppName().set(extension.getCommandLineParameters().get("appName").orElse(extension.getAppName()));
+            task.getThreshold().set(extension.getCommandLineParameters().get(PerformanceReportTask.THRESHOLD_KEY).map(Double::valueOf));
+            task.getBaselineSize().set(extension.getCommandLineParameters().get(PerformanceReportTask.BASELINE_SIZE_KEY).map(Integer::valueOf));
+            task.getFailOnRegression().set(extension.getCommandLineParameters().get(PerformanceReportTask.FAIL_ON_REGRESSION_KEY).map(Boolean::valueOf));
+        });
     }
 }
@@ -4,11 +4,18 @@
  */
 package com.microsoft.azure.plugin.functions.gradle;
 
+import com.microsoft.azure.gradle.auth.AzureAuthService;
 import com.microsoft.azure.gradle.auth.GradleAuthConfig;
 import com.microsoft.azure.gradle.auth.GradleAuthHelper;
+import com.microsoft.azure.gradle.cache.AzureCacheService;
+import com.microsoft.azure.gradle.configuration.CommandLineParameters;
 import com.microsoft.azure.gradle.configuration.GradleDeploymentSlotConfig;
 import com.microsoft.azure.gradle.configuration.GradleRuntimeConfig;
-import com.microsoft.azure.plugin.functions.gradle.util.GradleProjectUtils;
+import com.microsoft.azure.gradle.deploy.DeploymentCache;
+import com.microsoft.azure.gradle.trace.Span;
+import com.microsoft.azure.gradle.trace.Tracer;
+import com.microsoft.azure.plugin.functions.gradle.configuration.deploy.Deployment;
+import com.microsoft.azure.plugin.functions.gradle.configuration.warmup.WarmUp;
 import com.microsoft.azure.toolkit.lib.Azure;
 import com.microsoft.azure.toolkit.lib.appservice.function.AzureFunctions;
 import com.microsoft.azure.toolkit.lib.appservice.function.FunctionAppModule;
@@ -18,14 +25,13 @@ import com.microsoft.azure.toolkit.lib.common.IProject;
 import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.gradle.api.Project;
 
 import java.io.File;
 import java.nio.file.Paths;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class GradleFunctionContext {
+    public static final String STAGING_FOLDER_NAME = AzureFunctionsPlugin.GRADLE_PLUGIN_NAME.replaceAll(GRADLE_PLUGIN_POSTFIX, "");
     private static final String FUNCTION_JAVA_VERSION_KEY = "functionJavaVersion";
     private static final String DISABLE_APP_INSIGHTS_KEY = "disableAppInsights";
     private static final String FUNCTION_RUNTIME_KEY = "os";
@@ -34,15 +40,23 @@ public class GradleFunctionContext {
     private static final String FUNCTION_PRICING_KEY = "pricingTier";
     private static final String DEPLOY_TO_SLOT_KEY = "isDeployToFunctionSlot";
     private static final String GRADLE_PLUGIN_POSTFIX = "-gradle-plugin";
+    private static final int DEFAULT_SWAP_LATENCY_THRESHOLD = 1000;
     private volatile File stagingDirectory;
     private final JavaProject javaProject;
     private final AzureFunctionsExtension functionsExtension;
+    private final CommandLineParameters parameters;
     private Map<String, String> appSettings;
     private FunctionAppModule appServiceClient;
+    private String deploymentPackage;
+    private String deploymentFingerprint;
+    private AzureAuthService authService;
+    private Object authOwner;
+    private AzureCacheService cacheService;
 
-    public GradleFunctionContext(Project project, AzureFunctionsExtension functionsExtension) {
+    public GradleFunctionContext(JavaProject javaProject, AzureFunctionsExtension functionsExtension) {
         this.functionsExtension = functionsExtension;
-        this.javaProject = GradleProjectUtils.convert(project);
+        this.parameters = functionsExtension.getCommandLineParameters();
+        this.javaProject = javaProject;
     }
 
     public IProject getProject() {
@@ -51,9 +65,14 @@ public class GradleFunctionContext {
 
     public FunctionAppModule getOrCreateAzureAppServiceClient() {
         if (appServiceClient == null) {
-            try {
-                final String subscriptionId = GradleAuthHelper.login(functionsExtension.getAuth(), functionsExtension.getSubscription());
-                appServiceClient = Azure.az(AzureFunctions.class).functionApps(subscriptionId);
+            try (final Span ignored = Tracer.span("auth")) {
+                final String subscriptionId = authService != null ? authService.login(authOwner, getAuth(), getSubscription()) :
+                    GradleAuthHelper.login(getAuth(), getSubscription());
+                final FunctionAppModule module = Azure.az(AzureFunctions.class).functionApps(subscriptionId);
+                if (cacheService != null) {
+                    cacheService.beforeRead(module);
+                }
+                appServiceClient = module;
             } catch (AzureToolkitRuntimeException e) {
                 throw new AzureToolkitRuntimeException(String.format("Cannot authenticate due to error %s", e.getMessage()), e);
             }
@@ -61,14 +80,28 @@ public class GradleFunctionContext {
         return appServiceClient;
     }
 
+    /**
+     * @param authService shared authentication of the build, so that the signed-in account can be reused by other tasks
+     * @param owner       the task holding the signed-in account, which releases it once done
+     */
+    public void setAuthService(AzureAuthService authService, Object owner) {
+        this.authService = authService;
+        this.authOwner = owner;
+    }
+
+    /**
+     * @param cacheService invalidation of the toolkit caches, the function apps of the subscription are reloaded once stale
+     */
+    public void setCacheService(AzureCacheService cacheService) {
+        this.cacheService = cacheService;
+    }
+
     public String getDeploymentStagingDirectoryPath() {
         if (stagingDirectory == null) {
             synchronized (this) {
                 if (stagingDirectory == null) {
-                    final String outputFolder = AzureFunctionsPlugin.GRADLE_PLUGIN_NAME.replaceAll(GRADLE_PLUGIN_POSTFIX, "");
-
                     final String stagingDirectoryPath = Paths.get(this.javaProject.getBuildDirectory().toString(),
-                        outputFolder, this.functionsExtension.getAppName()).toString();
+                        STAGING_FOLDER_NAME, getAppName()).toString();
 
                     stagingDirectory = new File(stagingDirectoryPath);
                     // If staging directory doesn't exist, create one and delete it on exit
@@ -82,127 +115,165 @@ public class GradleFunctionContext {
     }
 
     public String getSubscription() {
-        return functionsExtension.getSubscription();
+        return parameters.resolve("subscription", functionsExtension.getSubscription());
     }
 
     public String getAppName() {
-        return functionsExtension.getAppName();
+        return parameters.resolve("appName", functionsExtension.getAppName());
     }
 
     public String getResourceGroup() {
-        return functionsExtension.getResourceGroup();
+        return parameters.resolve("resourceGroup", functionsExtension.getResourceGroup());
     }
 
     public GradleRuntimeConfig getRuntime() {
-        return functionsExtension.getRuntime();
+        return parameters.resolve("runtime", functionsExtension.getRuntime(), GradleRuntimeConfig.class);
     }
 
     public String getRegion() {
-        return functionsExtension.getRegion();
+        return parameters.resolve("region", functionsExtension.getRegion());
     }
 
     public String getPricingTier() {
-        return functionsExtension.getPricingTier();
+        return parameters.resolve("pricingTier", functionsExtension.getPricingTier());
     }
 
     public String getAppServicePlanResourceGroup() {
-        return functionsExtension.getAppServicePlanResourceGroup();
+        return parameters.resolve("appServicePlanResourceGroup", functionsExtension.getAppServicePlanResourceGroup());
     }
 
     public String getAppServicePlanName() {
-        return functionsExtension.getAppServicePlanName();
+        return parameters.resolve("appServicePlanName", functionsExtension.getAppServicePlanName());
     }
 
     public Map<String, String> getAppSettings() {
         if (appSettings == null) {
             // we need to cache app settings since gradle will always return a new app settings.
-            final Map<String, String> map = functionsExtension.getAppSettings() != null ? functionsExtension.getAppSettings() : new HashMap<>();
-            // convert <string, object> map to <string, string> map
-            appSettings = map.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, e -> Objects.toString(e.getValue(), null)));
+            appSettings = parameters.resolveMap("appSettings", functionsExtension.getAppSettings());
         }
         return appSettings;
     }
 
     public GradleAuthConfig getAuth() {
-        return functionsExtension.getAuth();
+        return parameters.resolve("auth", functionsExtension.getAuth(), GradleAuthConfig.class);
     }
 
     public String getDeploymentType() {
-        if (this.functionsExtension.getDeployment() == null) {
-            return null;
-        }
+        return Optional.ofNullable(getDeployment()).map(Deployment::getType).orElse(null);
+    }
+
+    /**
+     * @return path of the prebuilt package to deploy, null if the staging directory should be packaged
+     */
+    public String getDeploymentPackage() {
+        return StringUtils.firstNonBlank(deploymentPackage,
+                Optional.ofNullable(getDeployment()).map(Deployment::getPackageFile).orElse(null));
+    }
+
+    public void setDeploymentPackage(String deploymentPackage) {
+        this.deploymentPackage = deploymentPackage;
+    }
+
+    public String getDeploymentFingerprint() {
+        return StringUtils.firstNonBlank(deploymentFingerprint,
+                Optional.ofNullable(getDeployment()).map(Deployment::getFingerprint).orElse(null));
+    }
 
-        return functionsExtension.getDeployment().getType();
+    public void setDeploymentFingerprint(String deploymentFingerprint) {
+        this.deploymentFingerprint = deploymentFingerprint;
+    }
+
+    public boolean isPrebuiltPackageDeployment() {
+        return StringUtils.isNotBlank(getDeploymentPackage()) || StringUtils.isNotBlank(getDeploymentFingerprint());
+    }
+
+    public boolean isSwapDeployment() {
+        return Optional.ofNullable(getDeployment()).map(Deployment::getSwap).map(BooleanUtils::isTrue).orElse(false);
+    }
+
+    public int getSwapLatencyThreshold() {
+        return Optional.ofNullable(getDeployment()).map(Deployment::getSwapLatencyThreshold).orElse(DEFAULT_SWAP_LATENCY_THRESHOLD);
+    }
+
+    public WarmUp getWarmUp() {
+        return parameters.resolve("warmUp", functionsExtension.getWarmUp(), WarmUp.class);
+    }
+
+    public int getRollbackCacheSize() {
+        return Optional.ofNullable(parameters.resolveInteger("rollbackCacheSize", functionsExtension.getRollbackCacheSize())).orElse(DeploymentCache.DEFAULT_CAPACITY);
     }
 
     public String getAppInsightsInstance() {
-        return functionsExtension.getAppInsightsInstance();
+        return parameters.resolve("appInsightsInstance", functionsExtension.getAppInsightsInstance());
     }
 
     public String getAppInsightsKey() {
-        return functionsExtension.getAppInsightsKey();
+        return parameters.resolve("appInsightsKey", functionsExtension.getAppInsightsKey());
     }
 
     public String getDeploymentSlotName() {
-        return Optional.ofNullable(functionsExtension.getDeploymentSlot()).map(GradleDeploymentSlotConfig::name).orElse(null);
+        return Optional.ofNullable(getDeploymentSlot()).map(GradleDeploymentSlotConfig::name).orElse(null);
     }
 
     public String getDeploymentSlotConfigurationSource() {
-        return Optional.ofNullable(functionsExtension.getDeploymentSlot()).map(GradleDeploymentSlotConfig::configurationSource).orElse(null);
+        return Optional.ofNullable(getDeploymentSlot()).map(GradleDeploymentSlotConfig::configurationSource).orElse(null);
     }
 
     public boolean isDisableAppInsights() {
-        return BooleanUtils.isTrue(functionsExtension.isDisableAppInsights());
+        return BooleanUtils.isTrue(parameters.resolveBoolean("disableAppInsights", functionsExtension.getDisableAppInsights()));
     }
 
     public String getLocalDebugConfig() {
-        return this.functionsExtension.getLocalDebug();
+        return parameters.resolve("localDebug", functionsExtension.getLocalDebug());
     }
 
     public String getStorageAccountConnectionString() {
-        return functionsExtension.getStorageAccountConnectionString();
+        return parameters.resolve("storageAccountConnectionString", functionsExtension.getStorageAccountConnectionString());
     }
 
     public CharSequence getUserAssignedIdentityResourceId() {
-        return functionsExtension.getUserAssignedIdentityResourceId();
+        return parameters.resolve("userAssignedIdentityResourceId", functionsExtension.getUserAssignedIdentityResourceId());
     }
 
     public String getStorageAuthenticationMethod() {
-        return functionsExtension.getStorageAuthenticationMethod();
+        return parameters.resolve("storageAuthenticationMethod", functionsExtension.getStorageAuthenticationMethod());
     }
 
     public Integer getInstanceMemory() {
-        return functionsExtension.getInstanceMemory();
+        return parameters.resolveInteger("instanceMemory", functionsExtension.getInstanceMemory());
     }
 
     public Integer getMaximumInstances() {
-        return functionsExtension.getMaximumInstances();
+        return parameters.resolveInteger("maximumInstances", functionsExtension.getMaximumInstances());
     }
 
     public Integer getHttpInstanceConcurrency() {
-        return functionsExtension.getHttpInstanceConcurrency();
+        return parameters.resolveInteger("httpInstanceConcurrency", functionsExtension.getHttpInstanceConcurrency());
     }
 
     public FlexConsumptionConfiguration getFlexConsumptionConfiguration() {
-        final Map<String, String> alwaysReadyInstances = Optional.ofNullable(functionsExtension.getAlwaysReadyInstances())
-                .map(map -> map.entrySet().stream()
-                        .collect(Collectors.toMap(Map.Entry::getKey, e -> Objects.toString(e.getValue(), null))))
-                .orElse(Collections.emptyMap());
         return FlexConsumptionConfiguration.builder()
-                .alwaysReadyInstances(alwaysReadyInstances)
-                .instanceSize(functionsExtension.getInstanceMemory())
-                .httpInstanceConcurrency(functionsExtension.getHttpInstanceConcurrency())
-                .maximumInstances(functionsExtension.getMaximumInstances())
-                .deploymentAccount(functionsExtension.getDeploymentStorageAccount())
-                .deploymentResourceGroup(functionsExtension.getDeploymentStorageResourceGroup())
-                .deploymentContainer(functionsExtension.getDeploymentStorageContainer())
-                .authenticationMethod(StorageAuthenticationMethod.fromString(functionsExtension.getStorageAuthenticationMethod()))
-                .userAssignedIdentityResourceId(functionsExtension.getUserAssignedIdentityResourceId())
-                .storageAccountConnectionString(functionsExtension.getStorageAccountConnectionString())
+                .alwaysReadyInstances(parameters.resolveMap("alwaysReadyInstances", functionsExtension.getAlwaysReadyInstances()))
+                .instanceSize(getInstanceMemory())
+                .httpInstanceConcurrency(getHttpInstanceConcurrency())
+                .maximumInstances(getMaximumInstances())
+                .deploymentAccount(parameters.resolve("deploymentStorageAccount", functionsExtension.getDeploymentStorageAccount()))
+                .deploymentResourceGroup(parameters.resolve("deploymentStorageResourceGroup", functionsExtension.getDeploymentStorageResourceGroup()))
+                .deploymentContainer(parameters.resolve("deploymentStorageContainer", functionsExtension.getDeploymentStorageContainer()))
+                .authenticationMethod(StorageAuthenticationMethod.fromString(getStorageAuthenticationMethod()))
+                .userAssignedIdentityResourceId(getUserAssignedIdentityResourceId())
+                .storageAccountConnectionString(getStorageAccountConnectionString())
                 .build();
     }
 
+    private Deployment getDeployment() {
+        return parameters.resolve("deployment", functionsExtension.getDeployment(), Deployment.class);
+    }
+
+    private GradleDeploymentSlotConfig getDeploymentSlot() {
+        return parameters.resolve("deploymentSlot", functionsExtension.getDeploymentSlot(), GradleDeploymentSlotConfig.class);
+    }
+
     public Map<String, String> getTelemetryProperties() {
         final Map<String, String> result = new HashMap<>();
         final GradleRuntimeConfig runtime = getRuntime();
@@ -5,6 +5,7 @@
 package com.microsoft.azure.plugin.functions.gradle.configuration.deploy;
 
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
 
 import java.io.Serializable;
 
@@ -12,13 +13,74 @@ public class Deployment implements Serializable {
     private static final long serialVersionUID = 1L;
     private String type;
 
+    /**
+     * Path of a prebuilt package to deploy, packaging is skipped if it is specified
+     */
+    private String packageFile;
+
+    /**
+     * Expected SHA-256 fingerprint of the package, if {@link #packageFile} is not specified, the package with this fingerprint
+     * will be looked up in the local deployment cache
+     */
+    private String fingerprint;
+
+    /**
+     * Deploy to the configured deployment slot, warm it up and swap it into production once it is healthy
+     */
+    private Boolean swap;
+
+    /**
+     * Max latency in milliseconds of the health probe before the slot is swapped, default value is 1000
+     */
+    private Integer swapLatencyThreshold;
+
     @Input
     public String getType() {
         return this.type;
     }
 
+    @Input
+    @Optional
+    public String getPackageFile() {
+        return this.packageFile;
+    }
+
+    @Input
+    @Optional
+    public String getFingerprint() {
+        return this.fingerprint;
+    }
+
+    @Input
+    @Optional
+    public Boolean getSwap() {
+        return this.swap;
+    }
+
+    @Input
+    @Optional
+    public Integer getSwapLatencyThreshold() {
+        return this.swapLatencyThreshold;
+    }
+
     public void setType(String type) {
         this.type = type;
     }
 
+    public void setPackageFile(String packageFile) {
+        this.packageFile = packageFile;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public void setSwap(Boolean swap) {
+        this.swap = swap;
+    }
+
+    public void setSwapLatencyThreshold(Integer swapLatencyThreshold) {
+        this.swapLatencyThreshold = swapLatencyThreshold;
+    }
+
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.functions.gradle.configuration.warmup;
+
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Post-deploy warm-up of the function app, so that the first user request doesn't pay the cold start of the Java worker.
+ */
+public class WarmUp implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Whether to warm up the app after deployment, default value is true once the `warmUp` block is configured
+     */
+    private Boolean enabled;
+
+    /**
+     * Routes to request, relative to the app root (e.g. `/api/hello`). If not specified, anonymous http triggers
+     * in the deployed function.json files will be used, or the admin ping endpoint if there is none
+     */
+    private List<String> routes;
+
+    /**
+     * Max number of concurrent warm-up requests, default value is 4
+     */
+    private Integer concurrency;
+
+    /**
+     * Max number of warm-up requests in total, default value is 100
+     */
+    private Integer maxRequests;
+
+    /**
+     * How long to wait for the app to be warm, default value is 120 seconds
+     */
+    private Integer timeoutInSeconds;
+
+    /**
+     * Whether to fail the deployment if the app is not warm before timeout, default value is false (only a warning is shown)
+     */
+    private Boolean failOnTimeout;
+
+    @Input
+    @Optional
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    @Input
+    @Optional
+    public List<String> getRoutes() {
+        return routes;
+    }
+
+    @Input
+    @Optional
+    public Integer getConcurrency() {
+        return concurrency;
+    }
+
+    @Input
+    @Optional
+    public Integer getMaxRequests() {
+        return maxRequests;
+    }
+
+    @Input
+    @Optional
+    public Integer getTimeoutInSeconds() {
+        return timeoutInSeconds;
+    }
+
+    @Input
+    @Optional
+    public Boolean getFailOnTimeout() {
+        return failOnTimeout;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setRoutes(List<String> routes) {
+        this.routes = routes;
+    }
+
+    public void setConcurrency(Integer concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public void setMaxRequests(Integer maxRequests) {
+        this.maxRequests = maxRequests;
+    }
+
+    public void setTimeoutInSeconds(Integer timeoutInSeconds) {
+        this.timeoutInSeconds = timeoutInSeconds;
+    }
+
+    public void setFailOnTimeout(Boolean failOnTimeout) {
+        this.failOnTimeout = failOnTimeout;
+    }
+}
@@ -7,8 +7,15 @@ package com.microsoft.azure.plugin.functions.gradle.handler;
 
 import com.azure.core.management.AzureEnvironment;
 import com.google.common.base.Preconditions;
+import com.microsoft.azure.gradle.cache.AzureCacheService;
 import com.microsoft.azure.gradle.configuration.GradleRuntimeConfig;
+import com.microsoft.azure.gradle.deploy.DeploymentCache;
+import com.microsoft.azure.gradle.deploy.DeploymentCacheEntry;
+import com.microsoft.azure.gradle.deploy.PackageFingerprint;
+import com.microsoft.azure.gradle.trace.Span;
+import com.microsoft.azure.gradle.trace.Tracer;
 import com.microsoft.azure.plugin.functions.gradle.GradleFunctionContext;
+import com.microsoft.azure.plugin.functions.gradle.configuration.warmup.WarmUp;
 import com.microsoft.azure.toolkit.lib.Azure;
 import com.microsoft.azure.toolkit.lib.appservice.AzureAppService;
 import com.microsoft.azure.toolkit.lib.appservice.config.AppServiceConfig;
@@ -18,6 +25,7 @@ import com.microsoft.azure.toolkit.lib.appservice.entity.FunctionEntity;
 import com.microsoft.azure.toolkit.lib.appservice.function.AzureFunctions;
 import com.microsoft.azure.toolkit.lib.appservice.function.FunctionApp;
 import com.microsoft.azure.toolkit.lib.appservice.function.FunctionAppBase;
+import com.microsoft.azure.toolkit.lib.appservice.function.FunctionAppDeploymentSlot;
 import com.microsoft.azure.toolkit.lib.appservice.function.FunctionsServiceSubscription;
 import com.microsoft.azure.toolkit.lib.appservice.function.core.AzureFunctionsAnnotationConstants;
 import com.microsoft.azure.toolkit.lib.appservice.model.*;
@@ -33,8 +41,9 @@ import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
 import com.microsoft.azure.toolkit.lib.common.operation.OperationContext;
 import com.microsoft.azure.toolkit.lib.common.utils.Utils;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.zeroturnaround.zip.ZipUtil;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
@@ -42,7 +51,9 @@ import reactor.util.retry.Retry;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -70,8 +81,40 @@ public class DeployHandler {
     private static final String DISABLE_APP_INSIGHTS_KEY = "disableAppInsights";
     private static final String JVM_UP_TIME = "jvmUpTime";
     private static final String SKIP_DEPLOYMENT_FOR_DOCKER_APP_SERVICE = "Skip deployment for docker app service";
-    private static final String LOCAL_SETTINGS_FILE = "local.settings.json";
     private static final String DEPLOY = "deploy";
+    private static final String ROLLBACK = "rollback";
+    private static final String PACKAGE_CACHED = "Package %s has been cached for rollback.";
+    private static final String FAILED_TO_CACHE_PACKAGE = "Failed to cache the deployed package for rollback: %s";
+    private static final String NO_CACHED_PACKAGES = "No cached packages found for function app %s.";
+    private static final String NO_PREVIOUS_PACKAGE = "No previously deployed package found in the local rollback cache of function app %s.";
+    private static final String PACKAGE_NOT_CACHED = "Package %s cannot be found in the local rollback cache, run 'gradle azureFunctionsRollback --list' to see the cached packages.";
+    private static final String CACHED_PACKAGES = "Cached packages of function app %s (the most recently deployed first):";
+    private static final String CACHED_PACKAGE = "\t %s%s  %s  %s  %d bytes";
+    private static final String ROLLBACK_START = "Trying to redeploy package %s (deployed at %s)...";
+    private static final String APP_NOT_FOUND = "Function app %s cannot be found in resource group %s, rollback is only supported for existing apps.";
+    private static final String SLOT_NOT_FOUND = "Deployment slot %s of function app %s cannot be found.";
+    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final String DEPLOY_PREBUILT_PACKAGE = "Deploying prebuilt package %s (fingerprint %s), packaging is skipped.";
+    private static final String PREBUILT_PACKAGE_NOT_FOUND = "Prebuilt package %s does not exist.";
+    private static final String PREBUILT_PACKAGE_NOT_CACHED = "Package with fingerprint %s cannot be found in the local deployment cache, " +
+        "please specify the package file with '--package'.";
+    private static final String PREBUILT_PACKAGE_CORRUPTED = "Integrity check failed for package %s, expected fingerprint %s but was %s.";
+    private static final String PREBUILT_PACKAGE_UNVERIFIED = "No fingerprint found for package %s, skip integrity check.";
+    private static final String WARM_UP = "warmup";
+    private static final String WARM_UP_START = "Warming up the function app with %d route(s): %s";
+    private static final String WARM_UP_FINISH = "Function app is warm, first successful response after %d ms (%d requests in %d ms).";
+    private static final String WARM_UP_TIMEOUT = "Function app is not warm after %d ms (%d requests), routes without successful response: %s";
+    private static final String WARM_UP_FAILED = "Failed to warm up the function app: %s";
+    private static final String SWAP = "swap";
+    private static final String SWAP_WITHOUT_SLOT = "Please config the 'deploymentSlot' to deploy with 'swap'.";
+    private static final String SWAP_SLOT_NOT_WARM = "Deployment slot %s is not warm, skip swapping it into production.";
+    private static final String SWAP_SLOT_UNHEALTHY = "Deployment slot %s doesn't respond within %d ms after %d probe rounds (last latency %d ms), " +
+        "skip swapping it into production.";
+    private static final String SWAP_SLOT_HEALTHY = "Deployment slot %s is healthy (last latency %d ms).";
+    private static final String SWAP_START = "Swapping deployment slot %s into production...";
+    private static final String SWAP_FINISH = "Deployment slot %s has been swapped into production.";
+    private static final int SWAP_PROBE_ROUNDS = 3;
+    private static final String PREBUILT_PACKAGE_FTP = "FTP deployment uploads the staging directory, it cannot be used to deploy a prebuilt package.";
     private static final String APP_NAME_PATTERN = "[a-zA-Z0-9\\-]{2,60}";
     private static final String RESOURCE_GROUP_PATTERN = "[a-zA-Z0-9._\\-()]{1,90}";
     private static final String APP_SERVICE_PLAN_NAME_PATTERN = "[a-zA-Z0-9\\-]{1,40}";
@@ -119,12 +162,22 @@ public class DeployHandler {
     public void execute() {
         OperationContext.current().setTelemetryProperty(FUNCTION_JAVA_VERSION_KEY, StringUtils.firstNonBlank(getJavaVersion(), "N/A"));
         OperationContext.current().setTelemetryProperty(DISABLE_APP_INSIGHTS_KEY, String.valueOf(ctx.isDisableAppInsights()));
-        ((FunctionsServiceSubscription) ctx.getOrCreateAzureAppServiceClient().getParent()).loadRuntimes();
-        doValidate();
-        final FunctionAppBase<?, ?, ?> app = createOrUpdateFunctionApp();
+        final FunctionsServiceSubscription subscription = (FunctionsServiceSubscription) ctx.getOrCreateAzureAppServiceClient().getParent();
+        try (final Span ignored = Tracer.span("runtime load")) {
+            subscription.loadRuntimes();
+        }
+        try (final Span ignored = Tracer.span("validation")) {
+            doValidate();
+        }
+        final FunctionAppBase<?, ?, ?> app;
+        try (final Span ignored = Tracer.span("create/update")) {
+            app = createOrUpdateFunctionApp();
+        }
         deployArtifact(app);
         if (app instanceof FunctionApp) {
             listHTTPTriggerUrls((FunctionApp) app);
+        } else if (ctx.isSwapDeployment()) {
+            listHTTPTriggerUrls(getFunctionApp());
         }
     }
 
@@ -149,8 +202,9 @@ public class DeployHandler {
      * @param target the target function
      */
     protected void listHTTPTriggerUrls(FunctionApp target) {
-        try {
+        try (final Span span = Tracer.span("trigger sync")) {
             final List<FunctionEntity> triggers = listFunctionsWithRetry(target);
+            span.count(triggers.size());
             final List<FunctionEntity> httpFunction = triggers.stream()
                 .filter(function -> function.getTrigger() != null &&
                     StringUtils.equalsIgnoreCase(function.getTrigger().getType(), HTTP_TRIGGER))
@@ -299,7 +353,14 @@ public class DeployHandler {
         if (StringUtils.isNotEmpty(pricingTier) && PricingTier.fromString(pricingTier) == null) {
             throw new AzureToolkitRuntimeException(String.format(EXPANDABLE_PRICING_TIER_WARNING, pricingTier));
         }
-        Optional.ofNullable(getRuntimeConfig()).ifPresent(this::validateArtifactCompileVersion);
+        // checked before anything is uploaded, the package would be deployed to production otherwise
+        if (ctx.isSwapDeployment() && StringUtils.isBlank(ctx.getDeploymentSlotName())) {
+            throw new AzureToolkitRuntimeException(SWAP_WITHOUT_SLOT);
+        }
+        // the project artifact may not be built when deploying a prebuilt package
+        if (!ctx.isPrebuiltPackageDeployment()) {
+            Optional.ofNullable(getRuntimeConfig()).ifPresent(this::validateArtifactCompileVersion);
+        }
         validateApplicationInsightsConfiguration();
     }
 
@@ -343,25 +404,274 @@ public class DeployHandler {
             return;
         }
         AzureMessager.getMessager().info(DEPLOY_START);
-        String deploymentType = ctx.getDeploymentType();
-        FunctionDeployType deployType;
+        final FunctionDeployType deployType = parseDeployType(ctx.getDeploymentType());
+
+        final File file;
+        if (ctx.isPrebuiltPackageDeployment()) {
+            if (deployType == FunctionDeployType.FTP) {
+                throw new AzureToolkitRuntimeException(PREBUILT_PACKAGE_FTP);
+            }
+            file = getPrebuiltPackage();
+        } else {
+            // For ftp deploy, we need to upload entire staging directory not the zipped package
+            file = deployType == FunctionDeployType.FTP ? new File(ctx.getDeploymentStagingDirectoryPath()) : packageStagingDirectory();
+        }
+        final RunnableWithException deployRunnable = deployType == null ? () -> target.deploy(file) : () -> target.deploy(file, deployType);
+        final long size = FileUtils.sizeOf(file);
+        Tracer.metric("packageBytes", size);
+        try (final Span ignored = Tracer.span("upload").bytes(size)) {
+            executeWithTimeRecorder(deployRunnable, DEPLOY);
+        }
+        AzureCacheService.afterWrite(target);
+        // todo: check function status after deployment
+        startIfNotRunning(target);
+        if (ctx.isSwapDeployment()) {
+            warmUpAndSwap(target, file);
+        } else {
+            warmUp(target, file);
+        }
+        if (deployType != FunctionDeployType.FTP) {
+            cacheDeployedPackage(file, ctx.getDeploymentSlotName());
+            if (ctx.isSwapDeployment()) {
+                // the package is served by production after the swap, so that it is the base of the rollback of production
+                cacheDeployedPackage(file, null);
+            }
+        }
+        AzureMessager.getMessager().info(String.format(DEPLOY_FINISH, getResourcePortalUrl(target.getId())));
+    }
+
+    /**
+     * Warm up the deployed app if it is configured, block until the app is warm or the warm-up times out
+     *
+     * @param deployedPackage the deployed zip or staging directory, whose function.json files are used to find the http triggers
+     */
+    private void warmUp(@Nonnull final FunctionAppBase<?, ?, ?> target, @Nonnull final File deployedPackage) {
+        final WarmUp config = ctx.getWarmUp();
+        if (config == null || BooleanUtils.isFalse(config.getEnabled())) {
+            return;
+        }
+        final WarmUpHandler handler = new WarmUpHandler(config);
+        final List<String> routes;
         try {
-            deployType = StringUtils.isEmpty(deploymentType) ? null : FunctionDeployType.fromString(deploymentType);
-        } catch (AzureToolkitRuntimeException ex) {
-            throw new AzureToolkitRuntimeException(UNKNOWN_DEPLOYMENT_TYPE, ex);
+            routes = handler.resolveRoutes(deployedPackage);
+        } catch (IOException e) {
+            AzureMessager.getMessager().warning(String.format(WARM_UP_FAILED, e.getMessage()));
+            return;
+        }
+        final WarmUpHandler.Result result = warmUp(handler, target, routes);
+        if (!result.isWarm()) {
+            final String message = String.format(WARM_UP_TIMEOUT, result.getElapsed(), result.getRequests(), String.join(", ", result.getColdRoutes()));
+            if (BooleanUtils.isTrue(config.getFailOnTimeout())) {
+                throw new AzureToolkitRuntimeException(message);
+            }
+            AzureMessager.getMessager().warning(message);
+        }
+    }
+
+    /**
+     * Warm up the deployment slot and probe it until it responds within the latency threshold, then swap it into production,
+     * production is left untouched if the slot doesn't get healthy
+     */
+    private void warmUpAndSwap(@Nonnull final FunctionAppBase<?, ?, ?> target, @Nonnull final File deployedPackage) {
+        if (!(target instanceof FunctionAppDeploymentSlot)) {
+            throw new AzureToolkitRuntimeException(SWAP_WITHOUT_SLOT);
+        }
+        final String slotName = target.getName();
+        // swap always warms up the slot, even if the warm-up is not configured
+        final WarmUpHandler handler = new WarmUpHandler(Optional.ofNullable(ctx.getWarmUp()).orElseGet(WarmUp::new));
+        final List<String> routes;
+        try {
+            routes = handler.resolveRoutes(deployedPackage);
+        } catch (IOException e) {
+            throw new AzureToolkitRuntimeException(String.format(WARM_UP_FAILED, e.getMessage()), e);
+        }
+        final WarmUpHandler.Result result = warmUp(handler, target, routes);
+        if (!result.isWarm()) {
+            throw new AzureToolkitRuntimeException(String.format(SWAP_SLOT_NOT_WARM, slotName));
+        }
+        final WarmUpHandler.ProbeResult probe;
+        try {
+            probe = handler.probe("https://" + target.getHostName(), routes, ctx.getSwapLatencyThreshold(), SWAP_PROBE_ROUNDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AzureToolkitRuntimeException(String.format(WARM_UP_FAILED, "interrupted"), e);
+        }
+        if (!probe.isHealthy()) {
+            throw new AzureToolkitRuntimeException(String.format(SWAP_SLOT_UNHEALTHY, slotName, ctx.getSwapLatencyThreshold(),
+                probe.getRounds(), probe.getLastLatency()));
+        }
+        AzureMessager.getMessager().info(String.format(SWAP_SLOT_HEALTHY, slotName, probe.getLastLatency()));
+        AzureMessager.getMessager().info(String.format(SWAP_START, slotName));
+        final FunctionApp app = ((FunctionAppDeploymentSlot) target).getParent();
+        try (final Span ignored = Tracer.span("swap")) {
+            executeWithTimeRecorder(() -> app.swap(slotName), SWAP);
+        }
+        AzureCacheService.afterWrite(app);
+        AzureCacheService.afterWrite(target);
+        AzureMessager.getMessager().info(String.format(SWAP_FINISH, slotName));
+    }
+
+    @Nonnull
+    private WarmUpHandler.Result warmUp(@Nonnull final WarmUpHandler handler, @Nonnull final FunctionAppBase<?, ?, ?> target,
+                                        @Nonnull final List<String> routes) {
+        final WarmUpHandler.Result result;
+        try (final Span span = Tracer.span("warm up").count(routes.size())) {
+            AzureMessager.getMessager().info(String.format(WARM_UP_START, routes.size(), String.join(", ", routes)));
+            result = handler.warmUp("https://" + target.getHostName(), routes);
+            span.argument("requests", result.getRequests());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AzureToolkitRuntimeException(String.format(WARM_UP_FAILED, "interrupted"), e);
+        }
+        OperationContext.current().setTelemetryProperty(String.format("%s-cost", WARM_UP), String.valueOf(result.getElapsed()));
+        OperationContext.current().setTelemetryProperty(String.format("%s-first-success", WARM_UP), String.valueOf(result.getTimeToFirstSuccess()));
+        if (result.isWarm()) {
+            AzureMessager.getMessager().info(String.format(WARM_UP_FINISH, result.getTimeToFirstSuccess(), result.getRequests(), result.getElapsed()));
+        }
+        return result;
+    }
+
+    /**
+     * Resolve the prebuilt package to deploy, either from the configured path or by fingerprint from the local deployment cache,
+     * and verify its integrity against the expected fingerprint (or the `.sha256` file next to it).
+     */
+    @Nonnull
+    private File getPrebuiltPackage() {
+        final String path = ctx.getDeploymentPackage();
+        final String expected = ctx.getDeploymentFingerprint();
+        try {
+            final File file;
+            if (StringUtils.isNotBlank(path)) {
+                final File packageFile = new File(path);
+                file = packageFile.isAbsolute() ? packageFile : ctx.getProject().getBaseDirectory().resolve(path).toFile();
+                if (!file.isFile()) {
+                    throw new AzureToolkitRuntimeException(String.format(PREBUILT_PACKAGE_NOT_FOUND, file.getAbsolutePath()));
+                }
+            } else {
+                file = DeploymentCache.findPackage(expected)
+                    .orElseThrow(() -> new AzureToolkitRuntimeException(String.format(PREBUILT_PACKAGE_NOT_CACHED, expected)));
+            }
+            final String actual = PackageFingerprint.of(file);
+            final String expectedFingerprint = StringUtils.isNotBlank(expected) ? expected.trim() : PackageFingerprint.readSidecar(file).orElse(null);
+            if (StringUtils.isBlank(expectedFingerprint)) {
+                AzureMessager.getMessager().warning(String.format(PREBUILT_PACKAGE_UNVERIFIED, file.getAbsolutePath()));
+            } else if (StringUtils.isNotBlank(path) ? !StringUtils.equalsIgnoreCase(actual, expectedFingerprint) :
+                !StringUtils.startsWithIgnoreCase(actual, expectedFingerprint)) {
+                // a fingerprint prefix is enough to look up a cached package, but the cached file itself must not be changed
+                throw new AzureToolkitRuntimeException(String.format(PREBUILT_PACKAGE_CORRUPTED, file.getAbsolutePath(), expectedFingerprint, actual));
+            }
+            AzureMessager.getMessager().info(String.format(DEPLOY_PREBUILT_PACKAGE, file.getAbsolutePath(), PackageFingerprint.shortId(actual)));
+            return file;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new AzureToolkitRuntimeException(e.getMessage(), e);
         }
+    }
 
-        // For ftp deploy, we need to upload entire staging directory not the zipped package
-        final File file = deployType == FunctionDeployType.FTP ? new File(ctx.getDeploymentStagingDirectoryPath()) : packageStagingDirectory();
+    /**
+     * Redeploy a package from the local rollback cache to the existing function app (or deployment slot),
+     * without compiling or packaging the project.
+     *
+     * @param packageId fingerprint (prefix) of the cached package, the previously deployed package will be used if it is empty
+     */
+    public void rollback(@Nullable final String packageId) {
+        final DeploymentCache cache = getDeploymentCache();
+        final DeploymentCacheEntry entry = StringUtils.isBlank(packageId) ?
+                cache.getPrevious().orElseThrow(() -> new AzureToolkitRuntimeException(String.format(NO_PREVIOUS_PACKAGE, ctx.getAppName()))) :
+                cache.find(packageId).orElseThrow(() -> new AzureToolkitRuntimeException(String.format(PACKAGE_NOT_CACHED, packageId)));
+        final FunctionAppBase<?, ?, ?> target = getExistingDeployTarget();
+        AzureMessager.getMessager().info(String.format(ROLLBACK_START, entry.getId(), formatTime(entry.getDeployedAt())));
+        final File file = cache.getPackage(entry);
+        final FunctionDeployType deployType = parseDeployType(entry.getDeployType());
         final RunnableWithException deployRunnable = deployType == null ? () -> target.deploy(file) : () -> target.deploy(file, deployType);
-        executeWithTimeRecorder(deployRunnable, DEPLOY);
-        // todo: check function status after deployment
-        if (!target.getFormalStatus().isRunning()) {
-            target.start();
+        try (final Span ignored = Tracer.span("upload").bytes(file.length())) {
+            executeWithTimeRecorder(deployRunnable, ROLLBACK);
+        }
+        AzureCacheService.afterWrite(target);
+        startIfNotRunning(target);
+        warmUp(target, file);
+        try {
+            cache.markDeployed(entry);
+        } catch (IOException e) {
+            AzureMessager.getMessager().warning(String.format(FAILED_TO_CACHE_PACKAGE, e.getMessage()));
         }
         AzureMessager.getMessager().info(String.format(DEPLOY_FINISH, getResourcePortalUrl(target.getId())));
     }
 
+    public void listCachedPackages() {
+        final DeploymentCache cache = getDeploymentCache();
+        final List<DeploymentCacheEntry> entries = cache.list();
+        if (entries.isEmpty()) {
+            AzureMessager.getMessager().info(String.format(NO_CACHED_PACKAGES, ctx.getAppName()));
+            return;
+        }
+        AzureMessager.getMessager().info(String.format(CACHED_PACKAGES, ctx.getAppName()));
+        entries.forEach(entry -> AzureMessager.getMessager().info(String.format(CACHED_PACKAGE, entry.getId(),
+                StringUtils.equals(entry.getFingerprint(), cache.getCurrent()) ? " (current)" : StringUtils.EMPTY,
+                formatTime(entry.getDeployedAt()), entry.getFileName(), entry.getSize())));
+    }
+
+    private void cacheDeployedPackage(@Nonnull final File file, @Nullable final String slotName) {
+        if (ctx.getRollbackCacheSize() <= 0 || !file.isFile()) {
+            return;
+        }
+        try {
+            final DeploymentCacheEntry metadata = new DeploymentCacheEntry();
+            metadata.setSubscriptionId(ctx.getOrCreateAzureAppServiceClient().getSubscriptionId());
+            metadata.setResourceGroup(ctx.getResourceGroup());
+            metadata.setAppName(ctx.getAppName());
+            metadata.setDeploymentSlot(slotName);
+            metadata.setDeployType(ctx.getDeploymentType());
+            final DeploymentCacheEntry entry = getDeploymentCache(slotName).record(file, metadata);
+            AzureMessager.getMessager().info(String.format(PACKAGE_CACHED, entry.getId()));
+        } catch (IOException | RuntimeException e) {
+            // never fail a deployment because of the rollback cache
+            AzureMessager.getMessager().warning(String.format(FAILED_TO_CACHE_PACKAGE, e.getMessage()));
+        }
+    }
+
+    private DeploymentCache getDeploymentCache() {
+        return getDeploymentCache(ctx.getDeploymentSlotName());
+    }
+
+    private DeploymentCache getDeploymentCache(@Nullable final String slotName) {
+        try {
+            return DeploymentCache.forApp(ctx.getOrCreateAzureAppServiceClient().getSubscriptionId(), ctx.getResourceGroup(), ctx.getAppName(),
+                    slotName, ctx.getRollbackCacheSize());
+        } catch (IOException e) {
+            throw new AzureToolkitRuntimeException(String.format("Failed to load the local rollback cache: %s", e.getMessage()), e);
+        }
+    }
+
+    @Nonnull
+    private FunctionAppBase<?, ?, ?> getExistingDeployTarget() {
+        final FunctionApp app = getFunctionApp();
+        if (app == null || !app.exists()) {
+            throw new AzureToolkitRuntimeException(String.format(APP_NOT_FOUND, ctx.getAppName(), ctx.getResourceGroup()));
+        }
+        final String slotName = ctx.getDeploymentSlotName();
+        if (StringUtils.isBlank(slotName)) {
+            return app;
+        }
+        final FunctionAppDeploymentSlot slot = app.slots().get(slotName, ctx.getResourceGroup());
+        if (slot == null || !slot.exists()) {
+            throw new AzureToolkitRuntimeException(String.format(SLOT_NOT_FOUND, slotName, ctx.getAppName()));
+        }
+        return slot;
+    }
+
+    @Nullable
+    private static FunctionDeployType parseDeployType(@Nullable final String deploymentType) {
+        try {
+            return StringUtils.isEmpty(deploymentType) ? null : FunctionDeployType.fromString(deploymentType);
+        } catch (AzureToolkitRuntimeException ex) {
+            throw new AzureToolkitRuntimeException(UNKNOWN_DEPLOYMENT_TYPE, ex);
+        }
+    }
+
+    private static String formatTime(long timestamp) {
+        return new SimpleDateFormat(DATE_FORMAT).format(new Date(timestamp));
+    }
+
     private interface RunnableWithException {
         void run() throws Exception;
     }
@@ -383,11 +693,21 @@ public class DeployHandler {
         final File zipFile = new File(ctx.getDeploymentStagingDirectoryPath() + ".zip");
         final File stagingDirectory = new File(ctx.getDeploymentStagingDirectoryPath());
 
-        ZipUtil.pack(stagingDirectory, zipFile);
-        ZipUtil.removeEntry(zipFile, LOCAL_SETTINGS_FILE);
+        try (final Span span = Tracer.span("zip")) {
+            PackageHandler.zipStagingDirectory(stagingDirectory, zipFile);
+            span.bytes(zipFile.length());
+        }
         return zipFile;
     }
 
+    private void startIfNotRunning(@Nonnull final FunctionAppBase<?, ?, ?> target) {
+        if (!target.getFormalStatus().isRunning()) {
+            try (final Span ignored = Tracer.span("start")) {
+                target.start();
+            }
+        }
+    }
+
     public String getResourcePortalUrl(String id) {
         final AzureEnvironment environment = Azure.az(AzureAccount.class).account().getEnvironment();
         return String.format(PORTAL_URL_PATTERN, getPortalUrl(environment), id);
@@ -14,6 +14,9 @@ import com.google.common.base.Preconditions;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.microsoft.azure.gradle.trace.Span;
+import com.microsoft.azure.gradle.trace.Tracer;
+import com.microsoft.azure.gradle.util.GradleAzureMessager;
 import com.microsoft.azure.toolkit.lib.common.IProject;
 import com.microsoft.azure.toolkit.lib.common.exception.AzureExecutionException;
 import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
@@ -29,6 +32,7 @@ import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.zeroturnaround.zip.ZipUtil;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -66,8 +70,10 @@ public class PackageHandler {
     private static final String SAVE_SKIP = "No configurations found. Skip save.";
     private static final String SAVE_FUNCTION_JSON = "Starting processing function: ";
     private static final String SAVE_SUCCESS = "Successfully saved to ";
+    private static final String SAVE_FUNCTION_JSONS_PROGRESS = "Saved function.json of functions";
     private static final String COPY_JARS = "Step 7 of 8: Copying JARs to staging directory: ";
     private static final String COPY_SUCCESS = "Copied successfully.";
+    private static final String COPY_JARS_PROGRESS = "Copied dependencies";
     private static final String INSTALL_EXTENSIONS = "Step 8 of 8: Installing function extensions if needed";
     private static final String SKIP_INSTALL_EXTENSIONS_HTTP = "Skip install Function extension for HTTP Trigger Functions";
     private static final String INSTALL_EXTENSIONS_FINISH = "Function extension installation done.";
@@ -101,38 +107,65 @@ public class PackageHandler {
 
     public void execute() throws AzureExecutionException, IOException {
         final AnnotationHandler annotationHandler = getAnnotationHandler();
-        final Set<Method> methods = findAnnotatedMethods(annotationHandler);
+        final Set<Method> methods;
+        try (final Span span = Tracer.span("discover functions")) {
+            methods = findAnnotatedMethods(annotationHandler);
+            span.count(methods.size());
+            Tracer.metric("functions", methods.size());
+        }
 
         if (CollectionUtils.isEmpty(methods)) {
             throw new AzureToolkitRuntimeException(NO_FUNCTIONS);
         }
 
-        final Map<String, FunctionConfiguration> configMap = getFunctionConfigurations(annotationHandler, methods);
+        final Map<String, FunctionConfiguration> configMap;
+        try (final Span span = Tracer.span("generate configurations")) {
+            configMap = getFunctionConfigurations(annotationHandler, methods);
+            span.count(configMap.size());
+        }
 
-        validateFunctionConfigurations(configMap);
+        try (final Span ignored = Tracer.span("validation")) {
+            validateFunctionConfigurations(configMap);
+        }
 
-        copyHostJsonFile();
+        try (final Span ignored = Tracer.span("save host.json")) {
+            copyHostJsonFile();
+        }
 
-        copyLocalSettingJsonFile();
+        try (final Span ignored = Tracer.span("save local.settings.json")) {
+            copyLocalSettingJsonFile();
+        }
 
-        writeFunctionJsonFiles(getObjectWriter(), configMap);
+        try (final Span span = Tracer.span("save function.json")) {
+            writeFunctionJsonFiles(getObjectWriter(), configMap);
+            span.count(configMap.size());
+        }
 
-        copyJarsToStageDirectory();
+        try (final Span span = Tracer.span("copy jars")) {
+            final List<File> copied = copyJarsToStageDirectory();
+            final long bytes = copied.stream().mapToLong(File::length).sum();
+            span.count(copied.size()).bytes(bytes);
+            // the artifact of the project is copied as well
+            Tracer.metric("dependencies", copied.size() - 1);
+            Tracer.metric("packageBytes", bytes);
+        }
 
         final CommandHandler commandHandler = new CommandHandlerImpl();
         final FunctionCoreToolsHandler functionCoreToolsHandler = getFunctionCoreToolsHandler(commandHandler);
         final Set<BindingEnum> bindingClasses = this.getFunctionBindingEnums(configMap);
 
-        installExtension(functionCoreToolsHandler, bindingClasses);
+        try (final Span ignored = Tracer.span("install extensions")) {
+            installExtension(functionCoreToolsHandler, bindingClasses);
+        }
 
         AzureMessager.getMessager().info(BUILD_SUCCESS);
     }
 
-    private AnnotationHandler getAnnotationHandler() {
+    AnnotationHandler getAnnotationHandler() {
         return new AnnotationHandlerImpl();
     }
 
-    private Set<Method> findAnnotatedMethods(final AnnotationHandler handler) throws MalformedURLException {
+    Set<Method> findAnnotatedMethods(final AnnotationHandler handler) throws MalformedURLException {
         AzureMessager.getMessager().info(LINE_FEED + SEARCH_FUNCTIONS);
         Set<Method> functions;
         try {
@@ -173,8 +206,8 @@ public class PackageHandler {
         return urlList;
     }
 
-    private Map<String, FunctionConfiguration> getFunctionConfigurations(final AnnotationHandler handler,
-                                                                         final Set<Method> methods) throws AzureExecutionException {
+    Map<String, FunctionConfiguration> getFunctionConfigurations(final AnnotationHandler handler,
+                                                                 final Set<Method> methods) throws AzureExecutionException {
         AzureMessager.getMessager().info(LINE_FEED + GENERATE_CONFIG);
         final Map<String, FunctionConfiguration> configMap = handler.generateConfigurations(methods);
         if (CollectionUtils.isEmpty(methods)) {
@@ -192,7 +225,7 @@ public class PackageHandler {
         return "../" + project.getArtifactFile().getFileName().toString();
     }
 
-    private void validateFunctionConfigurations(final Map<String, FunctionConfiguration> configMap) {
+    void validateFunctionConfigurations(final Map<String, FunctionConfiguration> configMap) {
         AzureMessager.getMessager().info(LINE_FEED + VALIDATE_CONFIG);
         if (MapUtils.isEmpty(configMap)) {
             AzureMessager.getMessager().info(VALIDATE_SKIP);
@@ -203,28 +236,30 @@ public class PackageHandler {
         trackFunctionProperties(configMap);
     }
 
-    private void writeFunctionJsonFiles(final ObjectWriter objectWriter,
-                                        final Map<String, FunctionConfiguration> configMap) throws IOException {
+    void writeFunctionJsonFiles(final ObjectWriter objectWriter,
+                                final Map<String, FunctionConfiguration> configMap) throws IOException {
         AzureMessager.getMessager().info(LINE_FEED + SAVE_FUNCTION_JSONS);
         if (MapUtils.isEmpty(configMap)) {
             AzureMessager.getMessager().info(SAVE_SKIP);
         } else {
+            int done = 0;
             for (final Map.Entry<String, FunctionConfiguration> config : configMap.entrySet()) {
                 writeFunctionJsonFile(objectWriter, config.getKey(), config.getValue());
+                GradleAzureMessager.progress(SAVE_FUNCTION_JSONS_PROGRESS, ++done, configMap.size());
             }
         }
     }
 
     private void writeFunctionJsonFile(final ObjectWriter objectWriter, final String functionName,
                                        final FunctionConfiguration config) throws IOException {
-        AzureMessager.getMessager().info(SAVE_FUNCTION_JSON + functionName);
+        GradleAzureMessager.detail(SAVE_FUNCTION_JSON + functionName);
         final File functionJsonFile = Paths.get(deploymentStagingDirectoryPath, functionName, FUNCTION_JSON)
             .toFile();
         writeObjectToFile(objectWriter, config, functionJsonFile);
-        AzureMessager.getMessager().info(SAVE_SUCCESS + functionJsonFile.getAbsolutePath());
+        GradleAzureMessager.detail(SAVE_SUCCESS + functionJsonFile.getAbsolutePath());
     }
 
-    private void copyHostJsonFile() throws IOException {
+    void copyHostJsonFile() throws IOException {
         AzureMessager.getMessager().info(LINE_FEED + SAVE_HOST_JSON);
         final File sourceHostJsonFile = new File(project.getBaseDirectory().toFile(), HOST_JSON);
         final File hostJsonFile = Paths.get(this.deploymentStagingDirectoryPath, HOST_JSON).toFile();
@@ -232,7 +267,7 @@ public class PackageHandler {
         AzureMessager.getMessager().info(SAVE_SUCCESS + hostJsonFile.getAbsolutePath());
     }
 
-    private void copyLocalSettingJsonFile() throws IOException {
+    void copyLocalSettingJsonFile() throws IOException {
         AzureMessager.getMessager().info(LINE_FEED + SAVE_LOCAL_SETTINGS_JSON);
         final File localSettingJsonTargetFile = Paths.get(this.deploymentStagingDirectoryPath, LOCAL_SETTINGS_JSON)
             .toFile();
@@ -264,13 +299,16 @@ public class PackageHandler {
         objectWriter.writeValue(targetFile, object);
     }
 
-    private ObjectWriter getObjectWriter() {
+    ObjectWriter getObjectWriter() {
         final DefaultPrettyPrinter.Indenter indenter = DefaultIndenter.SYSTEM_LINEFEED_INSTANCE.withLinefeed("\n");
         final PrettyPrinter prettyPrinter = new DefaultPrettyPrinter().withObjectIndenter(indenter);
         return new ObjectMapper().configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false).writer(prettyPrinter);
     }
 
-    private void copyJarsToStageDirectory() throws IOException {
+    /**
+     * @return the jars copied to the staging directory
+     */
+    List<File> copyJarsToStageDirectory() throws IOException {
         AzureMessager.getMessager().info(LINE_FEED + COPY_JARS + deploymentStagingDirectoryPath);
         final File libFolder = new File(deploymentStagingDirectoryPath, "lib");
         if (libFolder.exists()) {
@@ -281,16 +319,30 @@ public class PackageHandler {
                 .map(PackageHandler::getArtifactIdFromFile)
                 .filter(name -> StringUtils.equalsAnyIgnoreCase(name, AZURE_FUNCTIONS_JAVA_CORE_LIBRARY))
                 .findFirst().orElse(AZURE_FUNCTIONS_JAVA_LIBRARY);
+        final List<File> copied = new ArrayList<>();
+        int done = 0;
         for (final File file : artifacts) {
             if (!StringUtils.equalsIgnoreCase(getArtifactIdFromFile(file), libraryToExclude)) {
                 if (!file.exists()) {
                     throw new AzureToolkitRuntimeException(String.format("Dependency artifact (%s) not found, please correct the dependency and try again", file.getAbsolutePath()));
                 }
                 FileUtils.copyFileToDirectory(file, libFolder);
+                copied.add(file);
             }
+            GradleAzureMessager.progress(COPY_JARS_PROGRESS, ++done, artifacts.size());
         }
         FileUtils.copyFileToDirectory(project.getArtifactFile().toFile(), new File(deploymentStagingDirectoryPath));
+        copied.add(project.getArtifactFile().toFile());
         AzureMessager.getMessager().info(COPY_SUCCESS);
+        return copied;
+    }
+
+    /**
+     * Zip the staging directory to deploy, the local settings are for local run only
+     */
+    public static void zipStagingDirectory(@Nonnull final File stagingDirectory, @Nonnull final File zipFile) {
+        ZipUtil.pack(stagingDirectory, zipFile);
+        ZipUtil.removeEntry(zipFile, LOCAL_SETTINGS_JSON);
     }
 
     private static String getArtifactIdFromFile(@Nonnull final File file) {
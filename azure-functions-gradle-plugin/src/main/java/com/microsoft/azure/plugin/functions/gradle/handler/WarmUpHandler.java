@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.functions.gradle.handler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.microsoft.azure.plugin.functions.gradle.configuration.warmup.WarmUp;
+import com.microsoft.azure.toolkit.lib.appservice.function.core.AzureFunctionsAnnotationConstants;
+import lombok.Getter;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Send a bounded number of concurrent requests to the warm-up routes of a deployed function app, until every route
+ * has responded successfully once (which means the host and the Java worker are started) or the timeout is reached.
+ */
+public class WarmUpHandler {
+    public static final String ADMIN_PING = "/admin/host/ping";
+    private static final String FUNCTION_JSON = "function.json";
+    private static final String HOST_JSON = "host.json";
+    private static final String DEFAULT_ROUTE_PREFIX = "api";
+    private static final String HTTP_TRIGGER = "httpTrigger";
+    private static final int DEFAULT_CONCURRENCY = 4;
+    private static final int DEFAULT_MAX_REQUESTS = 100;
+    private static final int DEFAULT_TIMEOUT_IN_SECONDS = 120;
+    private static final int CONNECT_TIMEOUT_IN_MILLIS = 10 * 1000;
+    private static final int READ_TIMEOUT_IN_MILLIS = 30 * 1000;
+    private static final long RETRY_INTERVAL_IN_MILLIS = 1000;
+
+    private final int concurrency;
+    private final int maxRequests;
+    private final long timeoutInMillis;
+    @Nullable
+    private final List<String> routes;
+
+    public WarmUpHandler(@Nonnull final WarmUp config) {
+        Preconditions.checkNotNull(config);
+        this.concurrency = Math.max(1, Optional.ofNullable(config.getConcurrency()).orElse(DEFAULT_CONCURRENCY));
+        this.maxRequests = Math.max(1, Optional.ofNullable(config.getMaxRequests()).orElse(DEFAULT_MAX_REQUESTS));
+        this.timeoutInMillis = TimeUnit.SECONDS.toMillis(Math.max(1, Optional.ofNullable(config.getTimeoutInSeconds()).orElse(DEFAULT_TIMEOUT_IN_SECONDS)));
+        this.routes = config.getRoutes();
+    }
+
+    /**
+     * Resolve the routes to warm up, the configured ones first, then the anonymous GET http triggers in the function.json
+     * files of the deployed package (staging directory or zip), and the admin ping endpoint if there is none.
+     */
+    @Nonnull
+    public List<String> resolveRoutes(@Nonnull final File deployedPackage) throws IOException {
+        if (CollectionUtils.isNotEmpty(routes)) {
+            final List<String> result = new ArrayList<>();
+            routes.stream().filter(StringUtils::isNotBlank).forEach(route -> result.add(StringUtils.prependIfMissing(route.trim(), "/")));
+            return result;
+        }
+        final Map<String, String> functionJsons = new LinkedHashMap<>();
+        String hostJson = null;
+        if (deployedPackage.isDirectory()) {
+            final File host = new File(deployedPackage, HOST_JSON);
+            hostJson = host.isFile() ? new String(Files.readAllBytes(host.toPath()), StandardCharsets.UTF_8) : null;
+            for (final File folder : Optional.ofNullable(deployedPackage.listFiles(File::isDirectory)).orElse(new File[0])) {
+                final File functionJson = new File(folder, FUNCTION_JSON);
+                if (functionJson.isFile()) {
+                    functionJsons.put(folder.getName(), new String(Files.readAllBytes(functionJson.toPath()), StandardCharsets.UTF_8));
+                }
+            }
+        } else {
+            try (final ZipFile zip = new ZipFile(deployedPackage)) {
+                final Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    final ZipEntry entry = entries.nextElement();
+                    final String[] segments = StringUtils.split(entry.getName().replace('\\', '/'), '/');
+                    if (segments.length == 1 && StringUtils.equals(segments[0], HOST_JSON)) {
+                        hostJson = read(zip, entry);
+                    } else if (segments.length == 2 && StringUtils.equals(segments[1], FUNCTION_JSON)) {
+                        functionJsons.put(segments[0], read(zip, entry));
+                    }
+                }
+            }
+        }
+        final String routePrefix = getRoutePrefix(hostJson);
+        final Set<String> result = new LinkedHashSet<>();
+        functionJsons.forEach((name, json) -> getAnonymousHttpRoute(name, json)
+                .ifPresent(route -> result.add("/" + StringUtils.strip(StringUtils.isEmpty(routePrefix) ? route : routePrefix + "/" + route, "/"))));
+        return result.isEmpty() ? Collections.singletonList(ADMIN_PING) : new ArrayList<>(result);
+    }
+
+    /**
+     * Request the routes until each of them has responded successfully once, or the timeout/request limit is reached.
+     *
+     * @param baseUrl url of the app, e.g. https://{app}.azurewebsites.net
+     */
+    @Nonnull
+    public Result warmUp(@Nonnull final String baseUrl, @Nonnull final List<String> paths) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        final long deadline = start + timeoutInMillis;
+        final List<String> pending = Collections.synchronizedList(new ArrayList<>(paths));
+        final Set<String> warmRoutes = ConcurrentHashMap.newKeySet();
+        final AtomicInteger sent = new AtomicInteger();
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicLong firstSuccess = new AtomicLong(-1);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, maxRequests),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azure-functions-warmup-%d").build());
+        for (int i = 0; i < Math.min(concurrency, maxRequests); i++) {
+            executor.execute(() -> {
+                while (System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted()) {
+                    final String path;
+                    synchronized (pending) {
+                        if (pending.isEmpty() || sent.get() >= maxRequests) {
+                            return;
+                        }
+                        sent.incrementAndGet();
+                        path = pending.get(Math.floorMod(next.getAndIncrement(), pending.size()));
+                    }
+                    final int status = request(StringUtils.removeEnd(baseUrl, "/") + path, deadline);
+                    if (isSuccess(status)) {
+                        firstSuccess.compareAndSet(-1, System.currentTimeMillis() - start);
+                        warmRoutes.add(path);
+                        pending.remove(path);
+                    } else {
+                        try {
+                            Thread.sleep(RETRY_INTERVAL_IN_MILLIS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutInMillis + READ_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+        return new Result(pending.isEmpty(), firstSuccess.get(), System.currentTimeMillis() - start, sent.get(), warmRoutes, new ArrayList<>(pending));
+    }
+
+    /**
+     * Probe the routes one by one until all of them respond successfully within the latency threshold for the given
+     * number of consecutive rounds, or the timeout is reached.
+     *
+     * @param thresholdInMillis max latency of a healthy response
+     * @param requiredRounds    number of consecutive healthy rounds
+     */
+    @Nonnull
+    public ProbeResult probe(@Nonnull final String baseUrl, @Nonnull final List<String> paths, final long thresholdInMillis,
+                             final int requiredRounds) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        final long deadline = start + timeoutInMillis;
+        int rounds = 0;
+        int healthyRounds = 0;
+        long maxLatency = -1;
+        while (healthyRounds < requiredRounds && System.currentTimeMillis() < deadline) {
+            rounds++;
+            boolean healthy = true;
+            maxLatency = 0;
+            for (final String path : paths) {
+                final long begin = System.nanoTime();
+                final int status = request(StringUtils.removeEnd(baseUrl, "/") + path, deadline);
+                final long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+                maxLatency = Math.max(maxLatency, latency);
+                healthy = healthy && isSuccess(status) && latency <= thresholdInMillis;
+            }
+            healthyRounds = healthy ? healthyRounds + 1 : 0;
+            if (!healthy) {
+                Thread.sleep(RETRY_INTERVAL_IN_MILLIS);
+            }
+        }
+        return new ProbeResult(healthyRounds >= requiredRounds, rounds, maxLatency, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return http status code, or -1 if the request failed
+     */
+    static int request(@Nonnull final String url, final long deadline) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("GET");
+            connection.setInstanceFollowRedirects(false);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_IN_MILLIS);
+            connection.setReadTimeout((int) Math.max(1, Math.min(READ_TIMEOUT_IN_MILLIS, deadline - System.currentTimeMillis())));
+            final int status = connection.getResponseCode();
+            // drain the body so that the connection could be reused by the following requests
+            try (final InputStream stream = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (stream != null) {
+                    IOUtils.consume(stream);
+                }
+            }
+            return status;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    static boolean isSuccess(final int status) {
+        // 404 means the route is not registered yet (triggers are still syncing), 5xx means the host/worker is not ready
+        return status > 0 && status < 500 && status != HttpURLConnection.HTTP_NOT_FOUND;
+    }
+
+    @Nullable
+    private static String getRoutePrefix(@Nullable final String hostJson) {
+        if (StringUtils.isBlank(hostJson)) {
+            return DEFAULT_ROUTE_PREFIX;
+        }
+        try {
+            final JsonObject host = JsonParser.parseString(hostJson).getAsJsonObject();
+            return Optional.ofNullable(host.getAsJsonObject("extensions")).map(extensions -> extensions.getAsJsonObject("http"))
+                    .map(http -> http.get("routePrefix")).filter(JsonElement::isJsonPrimitive).map(JsonElement::getAsString)
+                    .orElse(DEFAULT_ROUTE_PREFIX);
+        } catch (RuntimeException e) {
+            return DEFAULT_ROUTE_PREFIX;
+        }
+    }
+
+    private static Optional<String> getAnonymousHttpRoute(@Nonnull final String functionName, @Nonnull final String functionJson) {
+        try {
+            final JsonArray bindings = JsonParser.parseString(functionJson).getAsJsonObject().getAsJsonArray("bindings");
+            for (final JsonElement element : Optional.ofNullable(bindings).orElse(new JsonArray())) {
+                final JsonObject binding = element.getAsJsonObject();
+                if (!StringUtils.equalsIgnoreCase(getString(binding, "type"), HTTP_TRIGGER) ||
+                        !StringUtils.equalsIgnoreCase(getString(binding, "authLevel"), AzureFunctionsAnnotationConstants.ANONYMOUS)) {
+                    continue;
+                }
+                final JsonArray methods = binding.getAsJsonArray("methods");
+                boolean allowGet = methods == null || methods.size() == 0;
+                for (final JsonElement method : Optional.ofNullable(methods).orElse(new JsonArray())) {
+                    allowGet = allowGet || StringUtils.equalsIgnoreCase(method.getAsString(), "get");
+                }
+                final String route = StringUtils.firstNonBlank(getString(binding, "route"), functionName);
+                // routes with parameters cannot be requested without knowing valid values
+                if (allowGet && !StringUtils.contains(route, "{")) {
+                    return Optional.of(route);
+                }
+            }
+        } catch (RuntimeException e) {
+            // ignore invalid function.json, it will be reported by the functions host
+        }
+        return Optional.empty();
+    }
+
+    @Nullable
+    private static String getString(@Nonnull final JsonObject object, @Nonnull final String key) {
+        final JsonElement element = object.get(key);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    private static String read(@Nonnull final ZipFile zip, @Nonnull final ZipEntry entry) throws IOException {
+        try (final Reader reader = new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8)) {
+            return IOUtils.toString(reader);
+        }
+    }
+
+    @Getter
+    public static class Result {
+        private final boolean warm;
+        /**
+         * Milliseconds until the first successful response, -1 if there is none
+         */
+        private final long timeToFirstSuccess;
+        private final long elapsed;
+        private final int requests;
+        private final Set<String> warmRoutes;
+        private final List<String> coldRoutes;
+
+        Result(boolean warm, long timeToFirstSuccess, long elapsed, int requests, Set<String> warmRoutes, List<String> coldRoutes) {
+            this.warm = warm;
+            this.timeToFirstSuccess = timeToFirstSuccess;
+            this.elapsed = elapsed;
+            this.requests = requests;
+            this.warmRoutes = warmRoutes;
+            this.coldRoutes = coldRoutes;
+        }
+    }
+
+    @Getter
+    public static class ProbeResult {
+        private final boolean healthy;
+        private final int rounds;
+        /**
+         * Max latency in milliseconds of the last probe round
+         */
+        private final long lastLatency;
+        private final long elapsed;
+
+        ProbeResult(boolean healthy, int rounds, long lastLatency, long elapsed) {
+            this.healthy = healthy;
+            this.rounds = rounds;
+            this.lastLatency = lastLatency;
+            this.elapsed = elapsed;
+        }
+    }
+}
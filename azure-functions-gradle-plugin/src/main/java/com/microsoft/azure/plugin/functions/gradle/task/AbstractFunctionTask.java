@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.functions.gradle.task;
+
+import com.microsoft.azure.gradle.common.AzureToolkitService;
+import com.microsoft.azure.gradle.trace.BuildHistory;
+import com.microsoft.azure.gradle.trace.Profiler;
+import com.microsoft.azure.gradle.trace.Tracer;
+import com.microsoft.azure.gradle.util.GradleAzureMessager;
+import com.microsoft.azure.plugin.functions.gradle.AzureFunctionsExtension;
+import com.microsoft.azure.plugin.functions.gradle.GradleFunctionContext;
+import com.microsoft.azure.plugin.functions.gradle.JavaProject;
+import com.microsoft.azure.plugin.functions.gradle.util.GradleProjectUtils;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import org.apache.commons.lang3.BooleanUtils;
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Task;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Base of the function tasks, which only read the project model through the properties below (set by the plugin at
+ * configuration time), so that the tasks can be loaded from the configuration cache.
+ */
+public abstract class AbstractFunctionTask extends DefaultTask implements IFunctionTask {
+    @Nullable
+    private AzureFunctionsExtension functionsExtension;
+
+    @Nullable
+    private Provider<AzureToolkitService> toolkitService;
+
+    public AbstractFunctionTask() {
+        // the toolkit is initialized when a task runs rather than when the plugin is applied, see AzureToolkitService
+        doFirst(new InitializeAzureAction());
+    }
+
+    public IFunctionTask setFunctionsExtension(final AzureFunctionsExtension functionsExtension) {
+        this.functionsExtension = functionsExtension;
+        return this;
+    }
+
+    @Nested
+    @Nullable
+    public AzureFunctionsExtension getFunctionsExtension() {
+        return functionsExtension;
+    }
+
+    @Internal
+    @Nullable
+    public Provider<AzureToolkitService> getToolkitService() {
+        return toolkitService;
+    }
+
+    public void setToolkitService(@Nullable final Provider<AzureToolkitService> toolkitService) {
+        this.toolkitService = toolkitService;
+    }
+
+    @Internal
+    public abstract DirectoryProperty getProjectDirectory();
+
+    @Internal
+    public abstract DirectoryProperty getBuildDirectory();
+
+    @Internal
+    public abstract RegularFileProperty getArtifactFile();
+
+    /**
+     * Whether the task is profiled, `-Pazure.profile=true`, see {@link Profiler}
+     */
+    @Internal
+    public abstract Property<Boolean> getProfile();
+
+    /**
+     * Whether the messages are summarized, `-Pazure.log.summary=true`, see {@link GradleAzureMessager#SUMMARY_KEY}
+     */
+    @Internal
+    public abstract Property<Boolean> getLogSummary();
+
+    protected GradleFunctionContext createContext() {
+        return new GradleFunctionContext(createJavaProject(Collections.emptySet()), getFunctionsExtension());
+    }
+
+    protected JavaProject createJavaProject(final Set<File> dependencies) {
+        return GradleProjectUtils.toJavaProject(getProjectDirectory().get().getAsFile(), getBuildDirectory().get().getAsFile(),
+                getArtifactFile().get().getAsFile(), dependencies);
+    }
+
+    /**
+     * Write the phases traced while the task ran to `build/reports/azure/<task>.json`, and record them in the build
+     * history of the app
+     */
+    protected void writeTrace(@Nonnull final Tracer tracer) {
+        final File file = tracer.stop(getBuildDirectory().get().getAsFile());
+        if (file != null) {
+            getLogger().info("Trace of task {} is written to {}", getName(), file.getAbsolutePath());
+        }
+        BuildHistory.record(tracer, getProjectDirectory().get().getAsFile(), resolveAppName());
+    }
+
+    protected Profiler startProfiler() {
+        return getProfile().getOrElse(false) ? Profiler.start(getName()) : Profiler.NOOP;
+    }
+
+    protected void writeProfile(@Nonnull final Profiler profiler) {
+        profiler.stop(getBuildDirectory().get().getAsFile())
+                .forEach(file -> getLogger().lifecycle("Profile of task {} is written to {}", getName(), file.getAbsolutePath()));
+    }
+
+    @Nullable
+    protected String resolveAppName() {
+        final AzureFunctionsExtension extension = getFunctionsExtension();
+        return extension == null ? null : extension.getCommandLineParameters().resolve("appName", extension.getAppName());
+    }
+
+    private static class InitializeAzureAction implements Action<Task> {
+        @Override
+        public void execute(final Task task) {
+            final AbstractFunctionTask functionTask = (AbstractFunctionTask) task;
+            final AzureFunctionsExtension extension = functionTask.getFunctionsExtension();
+            final boolean allowTelemetry = extension == null ||
+                    BooleanUtils.isNotFalse(extension.getCommandLineParameters().resolveBoolean("allowTelemetry", extension.getAllowTelemetry()));
+            if (functionTask.getToolkitService() != null) {
+                functionTask.getToolkitService().get().initialize(allowTelemetry, task.getLogger());
+            } else {
+                AzureMessager.setDefaultMessager(new GradleAzureMessager(task.getLogger()));
+            }
+        }
+    }
+}
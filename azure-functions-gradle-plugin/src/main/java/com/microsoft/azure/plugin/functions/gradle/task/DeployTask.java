@@ -5,55 +5,131 @@
 package com.microsoft.azure.plugin.functions.gradle.task;
 
 
+import com.microsoft.azure.gradle.auth.AzureAuthService;
+import com.microsoft.azure.gradle.cache.AzureCacheService;
+import com.microsoft.azure.gradle.http.HttpMetrics;
 import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
-import com.microsoft.azure.plugin.functions.gradle.AzureFunctionsExtension;
+import com.microsoft.azure.gradle.trace.Profiler;
+import com.microsoft.azure.gradle.trace.Tracer;
+import com.microsoft.azure.gradle.util.GradleUploadProgress;
 import com.microsoft.azure.plugin.functions.gradle.GradleFunctionContext;
+import com.microsoft.azure.plugin.functions.gradle.configuration.deploy.Deployment;
 import com.microsoft.azure.plugin.functions.gradle.handler.DeployHandler;
 import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
 import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
 import com.microsoft.azure.toolkit.lib.common.operation.OperationContext;
 import com.microsoft.azure.toolkit.lib.common.proxy.ProxyManager;
-import org.gradle.api.DefaultTask;
+import org.apache.commons.lang3.StringUtils;
 import org.gradle.api.GradleException;
-import org.gradle.api.tasks.Nested;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 
 import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.Optional;
 
-public class DeployTask extends DefaultTask implements IFunctionTask {
+public abstract class DeployTask extends AbstractFunctionTask {
     private static final String PROXY = "proxy";
     private static final String DEPLOY_FAILURE = "Cannot deploy functions due to error: ";
 
+    @Option(option = "package", description = "Path of a prebuilt package to deploy, packaging is skipped if it is specified")
+    private String packageFile;
+
+    @Option(option = "fingerprint", description = "Expected SHA-256 fingerprint of the package, or the fingerprint of a package in the local deployment cache")
+    private String fingerprint;
+
+    @Nullable
+    private Provider<AzureAuthService> authService;
+
     @Nullable
-    private AzureFunctionsExtension functionsExtension;
+    private Provider<AzureCacheService> cacheService;
 
-    public IFunctionTask setFunctionsExtension(final AzureFunctionsExtension functionsExtension) {
-        this.functionsExtension = functionsExtension;
-        return this;
+    @Internal
+    @Nullable
+    public Provider<AzureAuthService> getAuthService() {
+        return authService;
+    }
+
+    public void setAuthService(@Nullable Provider<AzureAuthService> authService) {
+        this.authService = authService;
     }
 
-    @Nested
+    @Internal
     @Nullable
-    public AzureFunctionsExtension getFunctionsExtension() {
-        return functionsExtension;
+    public Provider<AzureCacheService> getCacheService() {
+        return cacheService;
+    }
+
+    public void setCacheService(@Nullable Provider<AzureCacheService> cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    /**
+     * Internal API of Gradle, the only one showing progress in the console
+     */
+    @Inject
+    protected abstract ProgressLoggerFactory getProgressLoggerFactory();
+
+    public void setPackageFile(String packageFile) {
+        this.packageFile = packageFile;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @return whether a prebuilt package is deployed, in which case the packaging tasks are not needed
+     */
+    @Internal
+    public boolean isPrebuiltPackageDeployment() {
+        final Deployment deployment = Optional.ofNullable(getFunctionsExtension())
+                .map(ext -> ext.getCommandLineParameters().resolve("deployment", ext.getDeployment(), Deployment.class)).orElse(null);
+        return StringUtils.isNotBlank(packageFile) || StringUtils.isNotBlank(fingerprint) ||
+                Optional.ofNullable(deployment).map(d -> StringUtils.isNotBlank(d.getPackageFile()) || StringUtils.isNotBlank(d.getFingerprint())).orElse(false);
     }
 
     @TaskAction
     @AzureOperation(name = "user/functionapp.deploy_app")
     public void deploy() throws GradleException {
+        final Tracer tracer = Tracer.start(getName());
+        final Profiler profiler = startProfiler();
+        final HttpMetrics metrics = HttpMetrics.start(getName());
         try {
             ProxyManager.getInstance().applyProxy();
             OperationContext.current().setTelemetryProperty(PROXY, String.valueOf(ProxyManager.getInstance().isProxyEnabled()));
             TelemetryAgent.getInstance().trackTaskStart(this.getClass());
-            final GradleFunctionContext ctx = new GradleFunctionContext(getProject(), this.getFunctionsExtension());
+            if (cacheService != null) {
+                // applies the evictions requested on the command line once per build
+                cacheService.get();
+            }
+            final GradleFunctionContext ctx = createContext();
+            ctx.setAuthService(authService == null ? null : authService.get(), this);
+            ctx.setCacheService(cacheService == null ? null : cacheService.get());
+            ctx.setDeploymentPackage(packageFile);
+            ctx.setDeploymentFingerprint(fingerprint);
             OperationContext.current().setTelemetryProperties(ctx.getTelemetryProperties());
             final DeployHandler deployHandler = new DeployHandler(ctx);
-            deployHandler.execute();
+            try (final GradleUploadProgress ignored = GradleUploadProgress.watch(getProgressLoggerFactory(), getLogger(), ctx.getAppName(), ctx.getDeploymentSlotName())) {
+                deployHandler.execute();
+            }
             TelemetryAgent.getInstance().trackTaskSuccess(this.getClass());
         } catch (final Exception e) {
+            tracer.fail(e);
             AzureMessager.getMessager().error(e);
             TelemetryAgent.getInstance().traceException(this.getClass(), e);
             throw new GradleException(DEPLOY_FAILURE + e.getMessage(), e);
+        } finally {
+            if (authService != null) {
+                authService.get().release(this);
+            }
+            metrics.stop();
+            metrics.report(getBuildDirectory().get().getAsFile());
+            writeTrace(tracer);
+            writeProfile(profiler);
         }
     }
 }
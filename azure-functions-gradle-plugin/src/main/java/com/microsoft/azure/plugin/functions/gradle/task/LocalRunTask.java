@@ -5,7 +5,7 @@
 package com.microsoft.azure.plugin.functions.gradle.task;
 
 import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
-import com.microsoft.azure.plugin.functions.gradle.AzureFunctionsExtension;
+import com.microsoft.azure.gradle.trace.Profiler;
 import com.microsoft.azure.plugin.functions.gradle.GradleFunctionContext;
 import com.microsoft.azure.plugin.functions.gradle.util.FunctionUtils;
 import com.microsoft.azure.toolkit.lib.appservice.utils.FunctionCliResolver;
@@ -13,20 +13,17 @@ import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
 import com.microsoft.azure.toolkit.lib.legacy.function.utils.CommandUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
-import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.TaskAction;
 import org.gradle.api.tasks.options.Option;
 import org.gradle.process.ExecOperations;
 import org.gradle.process.ExecResult;
 
-import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.File;
 import java.util.Optional;
 
-public abstract class LocalRunTask extends DefaultTask implements IFunctionTask {
+public abstract class LocalRunTask extends AbstractFunctionTask {
 
     private static final String FUNC_CORE_CLI_NOT_FOUND = "Cannot run functions locally due to error: Azure Functions Core Tools can not be found.";
 
@@ -39,9 +36,6 @@ public abstract class LocalRunTask extends DefaultTask implements IFunctionTask
     @Option(option = "enableDebug", description = "Enable debug when running functions")
     private Boolean enableDebug;
 
-    @Nullable
-    private AzureFunctionsExtension functionsExtension;
-
     @Inject
     public abstract ExecOperations getExecOperations();
 
@@ -51,17 +45,6 @@ public abstract class LocalRunTask extends DefaultTask implements IFunctionTask
         getOutputs().cacheIf(task -> false);
     }
 
-    public IFunctionTask setFunctionsExtension(final AzureFunctionsExtension functionsExtension) {
-        this.functionsExtension = functionsExtension;
-        return this;
-    }
-
-    @Nested
-    @Nullable
-    public AzureFunctionsExtension getFunctionsExtension() {
-        return functionsExtension;
-    }
-
     public void setEnableDebug(Boolean enableDebug) {
         this.enableDebug = enableDebug;
     }
@@ -69,9 +52,11 @@ public abstract class LocalRunTask extends DefaultTask implements IFunctionTask
     @TaskAction
     @AzureOperation(name = "user/functionapp.run")
     public void runFunction() {
+        // the functions host runs in its own process, the recording covers resolving and starting it
+        final Profiler profiler = startProfiler();
         try {
             TelemetryAgent.getInstance().trackTaskStart(this.getClass());
-            final GradleFunctionContext ctx = new GradleFunctionContext(getProject(), this.getFunctionsExtension());
+            final GradleFunctionContext ctx = createContext();
             String cliExec = FunctionCliResolver.resolveFunc();
             if (StringUtils.isEmpty(cliExec)) {
                 // Fallback: toolkit resolver requires func.dll co-located with func.exe,
@@ -114,6 +99,8 @@ public abstract class LocalRunTask extends DefaultTask implements IFunctionTask
         } catch (Exception e) {
             TelemetryAgent.getInstance().traceException(this.getClass(), e);
             throw new GradleException("Cannot run functions locally due to error:" + e.getMessage(), e);
+        } finally {
+            writeProfile(profiler);
         }
 
     }
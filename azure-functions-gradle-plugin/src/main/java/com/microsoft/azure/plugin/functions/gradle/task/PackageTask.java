@@ -7,32 +7,92 @@ package com.microsoft.azure.plugin.functions.gradle.task;
 import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
 import com.microsoft.azure.plugin.functions.gradle.AzureFunctionsExtension;
 import com.microsoft.azure.plugin.functions.gradle.GradleFunctionContext;
-import com.microsoft.azure.plugin.functions.gradle.handler.PackageHandler;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
 import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
 import com.microsoft.azure.toolkit.lib.common.operation.OperationContext;
 import org.apache.commons.io.FileUtils;
-import org.gradle.api.DefaultTask;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.gradle.api.GradleException;
-import org.gradle.api.tasks.Nested;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutionException;
+import org.gradle.workers.WorkerExecutor;
 
-import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.io.File;
 
-public class PackageTask extends DefaultTask implements IFunctionTask {
+/**
+ * Stage the functions, the staging folder only depends on the inputs below (by name and content, regardless of the
+ * location of the project), so that it can be loaded from the build cache on another machine.
+ */
+@CacheableTask
+public abstract class PackageTask extends AbstractFunctionTask {
     private static final String PACKAGE_FAILURE = "Cannot package functions due to error: ";
-    @Nullable
-    private AzureFunctionsExtension functionsExtension;
+    private static final String ISOLATION_CLASSLOADER = "classloader";
+    private static final String ISOLATION_PROCESS = "process";
+    private static final String ISOLATION_NONE = "none";
 
-    public IFunctionTask setFunctionsExtension(final AzureFunctionsExtension functionsExtension) {
-        this.functionsExtension = functionsExtension;
-        return this;
-    }
+    /**
+     * Runtime classpath of the project (without its own classes), which is copied to the staging folder.
+     * Names of the jars are part of the output, so they are part of the input as well
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getDependencies();
+
+    /**
+     * The jar of the project, which is referred by name in `function.json`
+     */
+    @Override
+    @InputFile
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract RegularFileProperty getArtifactFile();
+
+    /**
+     * `host.json` and `local.settings.json` of the project, which may not exist
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getConfigurationFiles();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getStagingDirectory();
+
+    /**
+     * Isolation of the packaging worker: `classloader` (default), `process` or `none`
+     */
+    @Internal
+    public abstract Property<String> getIsolation();
 
-    @Nested
-    @Nullable
+    /**
+     * Maximum heap size of the packaging worker process, e.g. `512m`, only used for `process` isolation
+     */
+    @Internal
+    public abstract Property<String> getMaxHeapSize();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    /**
+     * Settings other than the app name (which is part of the staging path) don't change the staged functions
+     */
+    @Override
+    @Internal
     public AzureFunctionsExtension getFunctionsExtension() {
-        return functionsExtension;
+        return super.getFunctionsExtension();
     }
 
     @TaskAction
@@ -40,22 +100,56 @@ public class PackageTask extends DefaultTask implements IFunctionTask {
     public void build() throws GradleException {
         try {
             TelemetryAgent.getInstance().trackTaskStart(this.getClass());
-            final GradleFunctionContext ctx = new GradleFunctionContext(getProject(), this.getFunctionsExtension());
+            final GradleFunctionContext ctx = createContext();
             OperationContext.current().setTelemetryProperties(ctx.getTelemetryProperties());
-            final File stagingFolder = new File(ctx.getDeploymentStagingDirectoryPath());
+            final File stagingFolder = getStagingDirectory().get().getAsFile();
             // package task will start from a empty staging folder
             if (stagingFolder.exists()) {
                 FileUtils.cleanDirectory(stagingFolder);
             } else {
                 stagingFolder.mkdirs();
             }
-            final PackageHandler packageHandler = new PackageHandler(ctx.getProject(), ctx.getDeploymentStagingDirectoryPath());
-            packageHandler.execute();
+            getWorkQueue().submit(PackageWorkAction.class, parameters -> {
+                parameters.getTaskName().set(getName());
+                parameters.getAppName().set(resolveAppName());
+                parameters.getProjectDirectory().set(getProjectDirectory());
+                parameters.getBuildDirectory().set(getBuildDirectory());
+                parameters.getArtifactFile().set(getArtifactFile());
+                parameters.getDependencies().from(getDependencies());
+                parameters.getStagingDirectory().set(getStagingDirectory());
+                parameters.getLogSummary().set(getLogSummary().orElse(false));
+                parameters.getProfile().set(getProfile().orElse(false));
+            });
+            // wait for the worker, so that its outcome is tracked as the outcome of this task. Telemetry is not
+            // initialized in isolated workers, so it can't be tracked by the work action itself
+            getWorkerExecutor().await();
             TelemetryAgent.getInstance().trackTaskSuccess(this.getClass());
+        } catch (WorkerExecutionException e) {
+            final Throwable cause = ObjectUtils.firstNonNull(ExceptionUtils.getRootCause(e), e);
+            TelemetryAgent.getInstance().traceException(this.getClass(), e);
+            throw new GradleException(PACKAGE_FAILURE + cause.getMessage(), e);
         } catch (Exception e) {
             TelemetryAgent.getInstance().traceException(this.getClass(), e);
             throw new GradleException(PACKAGE_FAILURE + e.getMessage(), e);
         }
     }
 
+    private WorkQueue getWorkQueue() {
+        final String isolation = StringUtils.lowerCase(StringUtils.trim(getIsolation().getOrElse(ISOLATION_CLASSLOADER)));
+        switch (isolation) {
+            case ISOLATION_NONE:
+                return getWorkerExecutor().noIsolation();
+            case ISOLATION_PROCESS:
+                return getWorkerExecutor().processIsolation(spec -> spec.forkOptions(options -> {
+                    if (getMaxHeapSize().isPresent()) {
+                        options.setMaxHeapSize(getMaxHeapSize().get());
+                    }
+                }));
+            case ISOLATION_CLASSLOADER:
+                return getWorkerExecutor().classLoaderIsolation();
+            default:
+                throw new AzureToolkitRuntimeException(String.format("Invalid package isolation '%s', supported values are: %s, %s and %s.",
+                        isolation, ISOLATION_CLASSLOADER, ISOLATION_PROCESS, ISOLATION_NONE));
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.functions.gradle.task;
+
+import com.microsoft.azure.gradle.trace.BuildHistory;
+import com.microsoft.azure.gradle.trace.Profiler;
+import com.microsoft.azure.gradle.trace.Tracer;
+import com.microsoft.azure.gradle.util.GradleAzureMessager;
+import com.microsoft.azure.plugin.functions.gradle.JavaProject;
+import com.microsoft.azure.plugin.functions.gradle.handler.PackageHandler;
+import com.microsoft.azure.plugin.functions.gradle.util.GradleProjectUtils;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureExecutionException;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Stage the functions of a project in a worker, so that the classes of the project are loaded by the class loader (or
+ * process) of the worker rather than the one of the daemon, and projects are packaged concurrently in parallel builds.
+ */
+public abstract class PackageWorkAction implements WorkAction<PackageWorkAction.Parameters> {
+    public interface Parameters extends WorkParameters {
+        Property<String> getTaskName();
+
+        Property<String> getAppName();
+
+        DirectoryProperty getProjectDirectory();
+
+        DirectoryProperty getBuildDirectory();
+
+        RegularFileProperty getArtifactFile();
+
+        ConfigurableFileCollection getDependencies();
+
+        DirectoryProperty getStagingDirectory();
+
+        /**
+         * Whether the messages are summarized, see {@link GradleAzureMessager#SUMMARY_KEY}
+         */
+        Property<Boolean> getLogSummary();
+
+        /**
+         * Whether the packaging is profiled, see {@link Profiler}
+         */
+        Property<Boolean> getProfile();
+    }
+
+    @Override
+    public void execute() {
+        final Parameters parameters = getParameters();
+        // toolkit classes are loaded again by an isolated worker, so is its messager
+        AzureMessager.setDefaultMessager(new GradleAzureMessager(Logging.getLogger(PackageWorkAction.class), parameters.getLogSummary().getOrElse(false)));
+        final JavaProject project = GradleProjectUtils.toJavaProject(parameters.getProjectDirectory().get().getAsFile(),
+                parameters.getBuildDirectory().get().getAsFile(), parameters.getArtifactFile().get().getAsFile(), parameters.getDependencies().getFiles());
+        final File stagingFolder = parameters.getStagingDirectory().get().getAsFile();
+        // traced on the thread of the worker, which is not the one of the task
+        final Tracer tracer = Tracer.start(parameters.getTaskName().get());
+        // a process isolated worker is recorded in its own process rather than in the daemon
+        final Profiler profiler = parameters.getProfile().getOrElse(false) ? Profiler.start(parameters.getTaskName().get()) : Profiler.NOOP;
+        try {
+            new PackageHandler(project, stagingFolder.getAbsolutePath()).execute();
+        } catch (AzureExecutionException | IOException e) {
+            tracer.fail(e);
+            // checked exceptions cannot be thrown by a work action
+            throw new AzureToolkitRuntimeException(e.getMessage(), e);
+        } catch (RuntimeException e) {
+            tracer.fail(e);
+            throw e;
+        } finally {
+            profiler.stop(parameters.getBuildDirectory().get().getAsFile())
+                    .forEach(file -> Logging.getLogger(PackageWorkAction.class).lifecycle("Profile of task {} is written to {}", parameters.getTaskName().get(), file.getAbsolutePath()));
+            tracer.stop(parameters.getBuildDirectory().get().getAsFile());
+            BuildHistory.record(tracer, parameters.getProjectDirectory().get().getAsFile(), parameters.getAppName().getOrNull());
+        }
+    }
+}
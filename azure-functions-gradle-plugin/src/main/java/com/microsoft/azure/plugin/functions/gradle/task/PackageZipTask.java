@@ -4,48 +4,63 @@
  */
 package com.microsoft.azure.plugin.functions.gradle.task;
 
+import com.microsoft.azure.gradle.deploy.PackageFingerprint;
 import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
 import com.microsoft.azure.plugin.functions.gradle.AzureFunctionsExtension;
-import com.microsoft.azure.plugin.functions.gradle.GradleFunctionContext;
 import com.microsoft.azure.plugin.functions.gradle.handler.PackageHandler;
 import com.microsoft.azure.plugin.functions.gradle.util.FunctionUtils;
 import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
-import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
-import org.gradle.api.tasks.Nested;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 import org.gradle.api.tasks.TaskAction;
-import org.zeroturnaround.zip.ZipUtil;
 
-import javax.annotation.Nullable;
 import java.io.File;
 
-public class PackageZipTask extends DefaultTask implements IFunctionTask {
+/**
+ * Zip the staging folder, the zip only depends on the relative paths and contents of the staged files, so that it can
+ * be loaded from the build cache as well as the staging folder itself
+ */
+@CacheableTask
+public abstract class PackageZipTask extends AbstractFunctionTask {
     private static final String PACKAGE_ZIP_FAILURE = "Cannot build zip for azure functions due to error: ";
 
-    @Nullable
-    private AzureFunctionsExtension functionsExtension;
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getStagingDirectory();
 
-    public IFunctionTask setFunctionsExtension(final AzureFunctionsExtension functionsExtension) {
-        this.functionsExtension = functionsExtension;
-        return this;
-    }
+    @OutputFile
+    public abstract RegularFileProperty getZipFile();
+
+    /**
+     * The sidecar file with the fingerprint of the zip, see {@link PackageFingerprint}
+     */
+    @OutputFile
+    public abstract RegularFileProperty getFingerprintFile();
 
-    @Nested
-    @Nullable
+    @Override
+    @Internal
     public AzureFunctionsExtension getFunctionsExtension() {
-        return functionsExtension;
+        return super.getFunctionsExtension();
     }
 
     @TaskAction
     public void buildZip() throws GradleException {
         try {
             TelemetryAgent.getInstance().trackTaskStart(this.getClass());
-            final GradleFunctionContext ctx = new GradleFunctionContext(getProject(), this.getFunctionsExtension());
-            FunctionUtils.checkStagingDirectory(ctx.getDeploymentStagingDirectoryPath());
-            final File zipFile = new File(ctx.getDeploymentStagingDirectoryPath() + ".zip");
-            ZipUtil.pack(new File(ctx.getDeploymentStagingDirectoryPath()), zipFile);
-            ZipUtil.removeEntry(zipFile, PackageHandler.LOCAL_SETTINGS_JSON);
+            final File stagingDirectory = getStagingDirectory().get().getAsFile();
+            FunctionUtils.checkStagingDirectory(stagingDirectory.getAbsolutePath());
+            final File zipFile = getZipFile().get().getAsFile();
+            PackageHandler.zipStagingDirectory(stagingDirectory, zipFile);
+            final String fingerprint = PackageFingerprint.writeSidecar(zipFile);
             AzureMessager.getMessager().info("Build zip from staging folder successfully: " + zipFile.getAbsolutePath());
+            AzureMessager.getMessager().info("Package fingerprint (SHA-256): " + fingerprint);
             TelemetryAgent.getInstance().trackTaskSuccess(this.getClass());
         } catch (Exception e) {
             TelemetryAgent.getInstance().traceException(this.getClass(), e);
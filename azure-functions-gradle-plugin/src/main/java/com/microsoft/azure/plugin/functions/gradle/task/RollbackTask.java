@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.functions.gradle.task;
+
+import com.microsoft.azure.gradle.auth.AzureAuthService;
+import com.microsoft.azure.gradle.cache.AzureCacheService;
+import com.microsoft.azure.gradle.http.HttpMetrics;
+import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
+import com.microsoft.azure.gradle.trace.Tracer;
+import com.microsoft.azure.plugin.functions.gradle.GradleFunctionContext;
+import com.microsoft.azure.plugin.functions.gradle.handler.DeployHandler;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
+import com.microsoft.azure.toolkit.lib.common.proxy.ProxyManager;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import javax.annotation.Nullable;
+
+public abstract class RollbackTask extends AbstractFunctionTask {
+    private static final String ROLLBACK_FAILURE = "Cannot rollback functions due to error: ";
+
+    @Nullable
+    private Provider<AzureAuthService> authService;
+
+    @Nullable
+    private Provider<AzureCacheService> cacheService;
+
+    @Internal
+    @Option(option = "package", description = "Id of the cached package to redeploy, defaults to the previously deployed package")
+    public abstract Property<String> getPackageId();
+
+    @Internal
+    @Option(option = "list", description = "List the cached packages instead of redeploying one of them")
+    public abstract Property<Boolean> getList();
+
+    @Internal
+    @Nullable
+    public Provider<AzureAuthService> getAuthService() {
+        return authService;
+    }
+
+    public void setAuthService(@Nullable Provider<AzureAuthService> authService) {
+        this.authService = authService;
+    }
+
+    @Internal
+    @Nullable
+    public Provider<AzureCacheService> getCacheService() {
+        return cacheService;
+    }
+
+    public void setCacheService(@Nullable Provider<AzureCacheService> cacheService) {
+        this.cacheService = cacheService;
+    }
+
+    @Deprecated
+    public void setPackageId(String packageId) {
+        getPackageId().set(packageId);
+    }
+
+    @Deprecated
+    public void setList(Boolean list) {
+        getList().set(list);
+    }
+
+    @TaskAction
+    @AzureOperation(name = "user/functionapp.rollback_app")
+    public void rollback() throws GradleException {
+        final Tracer tracer = Tracer.start(getName());
+        final HttpMetrics metrics = HttpMetrics.start(getName());
+        try {
+            ProxyManager.getInstance().applyProxy();
+            TelemetryAgent.getInstance().trackTaskStart(this.getClass());
+            if (cacheService != null) {
+                // applies the evictions requested on the command line once per build
+                cacheService.get();
+            }
+            final GradleFunctionContext ctx = createContext();
+            ctx.setAuthService(authService == null ? null : authService.get(), this);
+            ctx.setCacheService(cacheService == null ? null : cacheService.get());
+            final DeployHandler deployHandler = new DeployHandler(ctx);
+            if (getList().getOrElse(false)) {
+                deployHandler.listCachedPackages();
+            } else {
+                deployHandler.rollback(getPackageId().getOrNull());
+            }
+            TelemetryAgent.getInstance().trackTaskSuccess(this.getClass());
+        } catch (final Exception e) {
+            tracer.fail(e);
+            AzureMessager.getMessager().error(e);
+            TelemetryAgent.getInstance().traceException(this.getClass(), e);
+            throw new GradleException(ROLLBACK_FAILURE + e.getMessage(), e);
+        } finally {
+            if (authService != null) {
+                authService.get().release(this);
+            }
+            metrics.stop();
+            metrics.report(getBuildDirectory().get().getAsFile());
+            writeTrace(tracer);
+        }
+    }
+}
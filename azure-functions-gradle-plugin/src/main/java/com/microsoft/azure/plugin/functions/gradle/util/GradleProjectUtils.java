@@ -4,57 +4,105 @@
  */
 package com.microsoft.azure.plugin.functions.gradle.util;
 
+import com.microsoft.azure.gradle.configuration.CommandLineParameters;
+import com.microsoft.azure.gradle.deploy.PackageFingerprint;
+import com.microsoft.azure.gradle.trace.Profiler;
+import com.microsoft.azure.gradle.util.GradleAzureMessager;
+import com.microsoft.azure.plugin.functions.gradle.AzureFunctionsExtension;
+import com.microsoft.azure.plugin.functions.gradle.GradleFunctionContext;
 import com.microsoft.azure.plugin.functions.gradle.JavaProject;
+import com.microsoft.azure.plugin.functions.gradle.handler.PackageHandler;
+import com.microsoft.azure.plugin.functions.gradle.task.AbstractFunctionTask;
 import com.microsoft.azure.toolkit.lib.common.bundle.AzureString;
 import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
 import org.apache.commons.collections4.CollectionUtils;
 import org.gradle.api.Project;
+import org.gradle.api.file.Directory;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
 import org.gradle.api.plugins.BasePluginExtension;
 import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
- * Convert a Gradle project to a common project
+ * Map a Gradle project to the inputs of the function tasks, and the inputs to a common project
  */
 public class GradleProjectUtils {
     private static final String MAIN_SOURCE_SET_NAME = "main";
     private static final String DEPENDENCY_WARNING = "The following dependencies could not be found, " +
             "please check whether related modules have been packaged \n %s";
 
-    public static JavaProject convert(final Project project) {
-        final JavaPluginExtension javaPluginConvention = project.getExtensions().getByType(JavaPluginExtension.class);
-        Objects.requireNonNull(javaPluginConvention, "Project " + project.getName() + " is not java project.");
+    public static void configure(final Project project, final AbstractFunctionTask task) {
+        task.getProjectDirectory().set(project.getLayout().getProjectDirectory());
+        task.getBuildDirectory().set(project.getLayout().getBuildDirectory());
+        task.getArtifactFile().set(getArtifactFile(project));
+        final CommandLineParameters parameters = new CommandLineParameters(project.getProviders());
+        task.getProfile().set(parameters.get(Profiler.ENABLED_KEY).map(Boolean::valueOf));
+        task.getLogSummary().set(parameters.get(GradleAzureMessager.SUMMARY_KEY).map(Boolean::valueOf));
+    }
+
+    /**
+     * @return runtime classpath of the main source set without its own output, resolved lazily
+     */
+    public static FileCollection getDependencies(final Project project) {
+        final JavaPluginExtension javaPluginExtension = project.getExtensions().getByType(JavaPluginExtension.class);
+        final SourceSet mainSourceSet = javaPluginExtension.getSourceSets().getByName(MAIN_SOURCE_SET_NAME);
+        return mainSourceSet.getRuntimeClasspath().minus(mainSourceSet.getOutput());
+    }
+
+    /**
+     * @return the folder the functions are staged to, named after the app which may be overridden on the command line
+     */
+    public static Provider<Directory> getStagingDirectory(final Project project, final AzureFunctionsExtension extension) {
+        return project.getLayout().getBuildDirectory().dir(getStagingPath(extension));
+    }
+
+    public static Provider<RegularFile> getStagingZipFile(final Project project, final AzureFunctionsExtension extension) {
+        return project.getLayout().getBuildDirectory().file(getStagingPath(extension).map(path -> path + ".zip"));
+    }
+
+    public static Provider<RegularFile> getStagingZipFingerprintFile(final Project project, final AzureFunctionsExtension extension) {
+        return project.getLayout().getBuildDirectory().file(getStagingPath(extension).map(path -> path + ".zip" + PackageFingerprint.SIDECAR_EXTENSION));
+    }
+
+    /**
+     * @return host.json and local.settings.json of the project, which are copied to the staging folder if they exist
+     */
+    public static FileCollection getConfigurationFiles(final Project project) {
+        return project.files(PackageHandler.HOST_JSON, PackageHandler.LOCAL_SETTINGS_JSON);
+    }
 
-        final SourceSet mainSourceSet = javaPluginConvention.getSourceSets().getByName(MAIN_SOURCE_SET_NAME);
+    public static Provider<RegularFile> getArtifactFile(final Project project) {
+        final BasePluginExtension basePlugin = project.getExtensions().getByType(BasePluginExtension.class);
+        final Provider<String> version = project.provider(() -> String.valueOf(project.getVersion()));
+        return basePlugin.getLibsDirectory().file(basePlugin.getArchivesName().zip(version, (name, value) -> name + "-" + value + ".jar"));
+    }
 
-        final FileCollection classesOutputDirectories = mainSourceSet.getOutput().getClassesDirs().filter(File::exists);
-        final Path resourcesOutputDirectory = Objects.requireNonNull(mainSourceSet.getOutput().getResourcesDir()).toPath();
-        final FileCollection allFiles = mainSourceSet.getRuntimeClasspath();
+    private static Provider<String> getStagingPath(final AzureFunctionsExtension extension) {
+        final Provider<String> appName = extension.getCommandLineParameters().get("appName").orElse(extension.getAppName());
+        return appName.map(name -> GradleFunctionContext.STAGING_FOLDER_NAME + "/" + name);
+    }
 
-        final FileCollection allDependencies = allFiles.minus(classesOutputDirectories)
-            .filter(file -> !file.toPath().equals(resourcesOutputDirectory));
+    public static JavaProject toJavaProject(final File baseDirectory, final File buildDirectory, final File artifactFile,
+                                            final Collection<File> allDependencies) {
         final JavaProject func = new JavaProject();
-        func.setBaseDirectory(project.getProjectDir().toPath());
-        func.setBuildDirectory(project.getLayout().getBuildDirectory().get().getAsFile().toPath());
+        func.setBaseDirectory(baseDirectory.toPath());
+        func.setBuildDirectory(buildDirectory.toPath());
 
-        final List<Path> dependencies = allDependencies.getFiles().stream().filter(File::exists).map(File::toPath).collect(Collectors.toList());
-        final List<String> nonExistDependencies = allDependencies.getFiles().stream().filter(file -> !file.exists()).map(File::getPath).collect(Collectors.toList());
+        final List<Path> dependencies = allDependencies.stream().filter(File::exists).map(File::toPath).collect(Collectors.toList());
+        final List<String> nonExistDependencies = allDependencies.stream().filter(file -> !file.exists()).map(File::getPath).collect(Collectors.toList());
         if (CollectionUtils.isNotEmpty(nonExistDependencies)) {
             AzureMessager.getMessager().warning(AzureString.format(DEPENDENCY_WARNING, String.join("\n", "\t" + nonExistDependencies)));
         }
         func.setDependencies(dependencies);
-
-        final BasePluginExtension basePlugin = project.getExtensions().getByType(BasePluginExtension.class);
-        func.setArtifactFile(Paths.get(basePlugin.getLibsDirectory().get().getAsFile().getAbsolutePath(),
-            basePlugin.getArchivesName().get() + "-" + project.getVersion() + ".jar"));
+        func.setArtifactFile(artifactFile.toPath());
         return func;
     }
 }
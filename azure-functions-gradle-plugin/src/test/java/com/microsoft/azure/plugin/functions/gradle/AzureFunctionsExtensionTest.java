@@ -4,6 +4,7 @@
  */
 package com.microsoft.azure.plugin.functions.gradle;
 
+import com.microsoft.azure.gradle.configuration.GradleRuntimeConfig;
 import org.gradle.api.Project;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.Assert;
@@ -17,14 +18,49 @@ public class AzureFunctionsExtensionTest {
     @Before
     public void setUp() {
         fakeProject = ProjectBuilder.builder().build();
-        testExtension = fakeProject.getExtensions().create("azurefunctions", AzureFunctionsExtension.class,
-                fakeProject);
-
+        testExtension = fakeProject.getExtensions().create("azurefunctions", AzureFunctionsExtension.class);
     }
 
     @Test
     public void testAppName() {
+        testExtension.getAppName().set("app1");
+        Assert.assertEquals("app1", testExtension.getAppName().get());
+    }
+
+    @Test
+    public void testCommandLineOverride() {
+        testExtension.getAppName().set("app1");
+        System.setProperty("appName", "app2");
+        try {
+            Assert.assertEquals("app2", testExtension.getCommandLineParameters().resolve("appName", testExtension.getAppName()));
+        } finally {
+            System.clearProperty("appName");
+        }
+        Assert.assertEquals("app1", testExtension.getCommandLineParameters().resolve("appName", testExtension.getAppName()));
+    }
+
+    @Test
+    public void testNestedOverrideDoesNotChangeTheBuildScript() {
+        final GradleRuntimeConfig runtime = new GradleRuntimeConfig().os("windows").javaVersion("17");
+        testExtension.setRuntime(runtime);
+        System.setProperty("runtime.os", "linux");
+        try {
+            final GradleRuntimeConfig resolved = testExtension.getCommandLineParameters().resolve("runtime", testExtension.getRuntime(), GradleRuntimeConfig.class);
+            Assert.assertEquals("linux", resolved.os());
+            Assert.assertEquals("17", resolved.javaVersion());
+        } finally {
+            System.clearProperty("runtime.os");
+        }
+        Assert.assertEquals("windows", runtime.os());
+        Assert.assertSame(runtime, testExtension.getCommandLineParameters().resolve("runtime", testExtension.getRuntime(), GradleRuntimeConfig.class));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testSettersOfPreviousVersions() {
         testExtension.setAppName("app1");
-        Assert.assertEquals("app1", testExtension.getAppName());
+        testExtension.setDisableAppInsights(true);
+        Assert.assertEquals("app1", testExtension.getAppName().get());
+        Assert.assertTrue(testExtension.getDisableAppInsights().get());
     }
 }
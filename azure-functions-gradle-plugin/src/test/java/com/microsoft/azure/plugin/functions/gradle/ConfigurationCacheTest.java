@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.functions.gradle;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigurationCacheTest {
+    // isolated projects implies the configuration cache
+    private static final String ISOLATED_PROJECTS = "-Dorg.gradle.unsafe.isolated-projects=true";
+    // resolved by the build of the plugin, so that the test projects are built offline
+    private static final String FUNCTIONS_LIBRARY = System.getProperty("azure.test.functionsLibrary");
+
+    @Rule
+    public TemporaryFolder projectDir = new TemporaryFolder();
+
+    @Test
+    public void testConfigurationIsReused() throws IOException {
+        write("settings.gradle", "rootProject.name = 'functions-demo'");
+        write("build.gradle", String.join("\n",
+                "plugins {",
+                "    id 'java'",
+                "    id 'com.microsoft.azure.azurefunctions'",
+                "}",
+                "azurefunctions {",
+                "    appName = 'demo-app'",
+                "    allowTelemetry = false",
+                "}"));
+        // a staged app, so that the zip task can run without packaging the project
+        write("build/azure-functions/demo-app/host.json", "{}");
+        write("build/azure-functions/demo-app/local.settings.json", "{}");
+
+        final BuildResult first = packageZip();
+        assertTrue(first.getOutput().contains("Configuration cache entry stored"));
+
+        final BuildResult second = packageZip();
+        assertTrue(second.getOutput().contains("Reusing configuration cache"));
+        // the zip is up-to-date once it has been built from the same staging folder
+        assertEquals(TaskOutcome.UP_TO_DATE, second.task(":azureFunctionsPackageZip").getOutcome());
+        assertTrue(new File(projectDir.getRoot(), "build/azure-functions/demo-app.zip").isFile());
+    }
+
+    @Test
+    public void testPackageIsReused() throws IOException {
+        write("settings.gradle", "rootProject.name = 'functions-demo'");
+        write("build.gradle", String.join("\n",
+                "plugins {",
+                "    id 'java'",
+                "    id 'com.microsoft.azure.azurefunctions'",
+                "}",
+                "dependencies {",
+                "    implementation files('" + new File(FUNCTIONS_LIBRARY).getAbsolutePath().replace('\\', '/') + "')",
+                "}",
+                "azurefunctions {",
+                "    appName = 'demo-app'",
+                "    allowTelemetry = false",
+                "}"));
+        write("host.json", "{\"version\": \"2.0\"}");
+        write("src/main/java/com/example/Hello.java", String.join("\n",
+                "package com.example;",
+                "",
+                "import com.microsoft.azure.functions.ExecutionContext;",
+                "import com.microsoft.azure.functions.HttpMethod;",
+                "import com.microsoft.azure.functions.HttpRequestMessage;",
+                "import com.microsoft.azure.functions.annotation.AuthorizationLevel;",
+                "import com.microsoft.azure.functions.annotation.FunctionName;",
+                "import com.microsoft.azure.functions.annotation.HttpTrigger;",
+                "",
+                "public class Hello {",
+                "    @FunctionName(\"hello\")",
+                "    public String run(@HttpTrigger(name = \"req\", methods = {HttpMethod.GET}, authLevel = AuthorizationLevel.ANONYMOUS)",
+                "                      HttpRequestMessage<String> request, ExecutionContext context) {",
+                "        return \"hello\";",
+                "    }",
+                "}"));
+
+        final BuildResult first = run("azureFunctionsPackage", "--configuration-cache");
+        assertTrue(first.getOutput().contains("Configuration cache entry stored"));
+        assertEquals(TaskOutcome.SUCCESS, first.task(":azureFunctionsPackage").getOutcome());
+        assertTrue(new File(projectDir.getRoot(), "build/azure-functions/demo-app/hello/function.json").isFile());
+        assertTrue(new File(projectDir.getRoot(), "build/azure-functions/demo-app/host.json").isFile());
+
+        final BuildResult second = run("azureFunctionsPackage", "--configuration-cache");
+        assertTrue(second.getOutput().contains("Reusing configuration cache"));
+        assertEquals(TaskOutcome.UP_TO_DATE, second.task(":azureFunctionsPackage").getOutcome());
+    }
+
+    @Test
+    public void testIsolatedProjects() throws IOException {
+        write("settings.gradle", "rootProject.name = 'functions-demo'");
+        write("build.gradle", String.join("\n",
+                "plugins {",
+                "    id 'java'",
+                "    id 'com.microsoft.azure.azurefunctions'",
+                "}",
+                "azurefunctions {",
+                "    resourceGroup = 'demo-group'",
+                "    appName = 'demo-app'",
+                "    allowTelemetry = false",
+                "}"));
+
+        final BuildResult help = run("help", ISOLATED_PROJECTS);
+        assertTrue(help.getOutput().contains("Configuration cache entry stored"));
+
+        // the task graph of a deployment is configured, but none of its tasks run
+        final BuildResult deploy = run("azureFunctionsDeploy", "--dry-run", ISOLATED_PROJECTS);
+        assertTrue(deploy.getOutput().contains("Configuration cache entry stored"));
+        assertTrue(deploy.getOutput().contains(":azureFunctionsDeploy SKIPPED"));
+
+        // the options of the command line are stored with the task
+        final BuildResult rollback = run("azureFunctionsRollback", "--package", "2cf24dba5fb0", "--dry-run", ISOLATED_PROJECTS);
+        assertTrue(rollback.getOutput().contains("Configuration cache entry stored"));
+        assertTrue(rollback.getOutput().contains(":azureFunctionsRollback SKIPPED"));
+    }
+
+    private BuildResult packageZip() {
+        return run("azureFunctionsPackageZip", "-x", "azureFunctionsPackage", "--configuration-cache");
+    }
+
+    private BuildResult run(String... arguments) {
+        final List<String> offline = new ArrayList<>(Arrays.asList(arguments));
+        offline.add("--offline");
+        return GradleRunner.create()
+                .withProjectDir(projectDir.getRoot())
+                .withPluginClasspath()
+                .withArguments(offline)
+                .build();
+    }
+
+    private void write(String path, String content) throws IOException {
+        FileUtils.write(new File(projectDir.getRoot(), path), content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.functions.gradle.handler;
+
+import com.microsoft.azure.plugin.functions.gradle.configuration.warmup.WarmUp;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WarmUpHandlerTest {
+    // a successful response slower than the latency threshold of the probe
+    private static final int SLOW = 0;
+    private static final long THRESHOLD_IN_MILLIS = 200;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Queue<Integer> statuses = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger defaultStatus = new AtomicInteger(200);
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            final Integer next = statuses.poll();
+            int status = next == null ? defaultStatus.get() : next;
+            if (status == SLOW) {
+                try {
+                    Thread.sleep(THRESHOLD_IN_MILLIS + 300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                status = 200;
+            }
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = String.format("http://%s:%d/", server.getAddress().getHostString(), server.getAddress().getPort());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testConfiguredRoutes() throws IOException {
+        final WarmUp config = new WarmUp();
+        config.setRoutes(Arrays.asList("api/hello", " /health ", " "));
+        assertEquals(Arrays.asList("/api/hello", "/health"), new WarmUpHandler(config).resolveRoutes(temporaryFolder.getRoot()));
+    }
+
+    @Test
+    public void testRoutesOfStagingDirectory() throws IOException {
+        final File staging = temporaryFolder.newFolder("staging");
+        writeFunctions(staging, getFunctions());
+        assertEquals(new HashSet<>(Arrays.asList("/api/anonymous", "/api/all-methods", "/api/custom/route")),
+                new HashSet<>(new WarmUpHandler(new WarmUp()).resolveRoutes(staging)));
+    }
+
+    @Test
+    public void testRoutePrefixOfHostJson() throws IOException {
+        final File staging = temporaryFolder.newFolder("staging");
+        final Map<String, String> functions = getFunctions();
+        writeFunctions(staging, functions);
+        FileUtils.write(new File(staging, "host.json"), "{\"version\": \"2.0\", \"extensions\": {\"http\": {\"routePrefix\": \"\"}}}", StandardCharsets.UTF_8);
+        assertEquals(new HashSet<>(Arrays.asList("/anonymous", "/all-methods", "/custom/route")),
+                new HashSet<>(new WarmUpHandler(new WarmUp()).resolveRoutes(staging)));
+        // the default prefix is used if host.json doesn't define one
+        FileUtils.write(new File(staging, "host.json"), "{\"version\": \"2.0\"}", StandardCharsets.UTF_8);
+        assertEquals(new HashSet<>(Arrays.asList("/api/anonymous", "/api/all-methods", "/api/custom/route")),
+                new HashSet<>(new WarmUpHandler(new WarmUp()).resolveRoutes(staging)));
+    }
+
+    @Test
+    public void testRoutesOfZip() throws IOException {
+        final File zip = new File(temporaryFolder.getRoot(), "app.zip");
+        try (ZipOutputStream output = new ZipOutputStream(new FileOutputStream(zip))) {
+            putEntry(output, "host.json", "{\"version\": \"2.0\", \"extensions\": {\"http\": {\"routePrefix\": \"v1\"}}}");
+            for (final Map.Entry<String, String> function : getFunctions().entrySet()) {
+                putEntry(output, function.getKey() + "/function.json", function.getValue());
+            }
+            // function.json files which are not in the folder of a function are ignored
+            putEntry(output, "lib/nested/function.json", httpTrigger("anonymous", "get", null));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("/v1/anonymous", "/v1/all-methods", "/v1/custom/route")),
+                new HashSet<>(new WarmUpHandler(new WarmUp()).resolveRoutes(zip)));
+    }
+
+    @Test
+    public void testAdminPingWithoutAnonymousGetTrigger() throws IOException {
+        final File staging = temporaryFolder.newFolder("staging");
+        final Map<String, String> functions = new LinkedHashMap<>();
+        functions.put("post", httpTrigger("anonymous", "post", null));
+        functions.put("function-key", httpTrigger("function", "get", null));
+        functions.put("invalid", "{");
+        writeFunctions(staging, functions);
+        assertEquals(Collections.singletonList(WarmUpHandler.ADMIN_PING), new WarmUpHandler(new WarmUp()).resolveRoutes(staging));
+        assertEquals(Collections.singletonList(WarmUpHandler.ADMIN_PING), new WarmUpHandler(new WarmUp()).resolveRoutes(temporaryFolder.newFolder("empty")));
+    }
+
+    @Test
+    public void testWarmUpRetriesUntilSuccess() throws InterruptedException {
+        // 404 until the triggers are synced, 503 until the worker is started
+        statuses.addAll(Arrays.asList(404, 503));
+        final WarmUp config = new WarmUp();
+        config.setConcurrency(1);
+        final WarmUpHandler.Result result = new WarmUpHandler(config).warmUp(baseUrl, Collections.singletonList("/api/hello"));
+        assertTrue(result.isWarm());
+        assertEquals(3, result.getRequests());
+        assertEquals(Collections.singleton("/api/hello"), result.getWarmRoutes());
+        assertTrue(result.getColdRoutes().isEmpty());
+    }
+
+    @Test
+    public void testProbeIsHealthyAfterConsecutiveRounds() throws InterruptedException {
+        final WarmUpHandler.ProbeResult result = new WarmUpHandler(new WarmUp()).probe(baseUrl, Arrays.asList("/api/a", "/api/b"), THRESHOLD_IN_MILLIS, 3);
+        assertTrue(result.isHealthy());
+        assertEquals(3, result.getRounds());
+        assertEquals(6, requests.get());
+    }
+
+    @Test
+    public void testFailedRoundResetsTheProbe() throws InterruptedException {
+        statuses.addAll(Arrays.asList(200, 200, 200, 503));
+        final WarmUpHandler.ProbeResult result = new WarmUpHandler(new WarmUp()).probe(baseUrl, Arrays.asList("/api/a", "/api/b"), THRESHOLD_IN_MILLIS, 3);
+        // the second round fails on its second route, so the 3 healthy rounds are the 3rd to the 5th one
+        assertTrue(result.isHealthy());
+        assertEquals(5, result.getRounds());
+        assertEquals(10, requests.get());
+    }
+
+    @Test
+    public void testSlowRoundResetsTheProbe() throws InterruptedException {
+        statuses.addAll(Arrays.asList(200, 200, SLOW));
+        final WarmUpHandler.ProbeResult result = new WarmUpHandler(new WarmUp()).probe(baseUrl, Collections.singletonList("/api/a"), THRESHOLD_IN_MILLIS, 3);
+        assertTrue(result.isHealthy());
+        assertEquals(6, result.getRounds());
+        assertTrue(result.getLastLatency() <= THRESHOLD_IN_MILLIS);
+    }
+
+    @Test
+    public void testProbeTimeout() throws InterruptedException {
+        defaultStatus.set(503);
+        final WarmUp config = new WarmUp();
+        config.setTimeoutInSeconds(1);
+        final WarmUpHandler.ProbeResult result = new WarmUpHandler(config).probe(baseUrl, Collections.singletonList("/api/a"), THRESHOLD_IN_MILLIS, 3);
+        assertFalse(result.isHealthy());
+        assertTrue(result.getRounds() >= 1);
+    }
+
+    private static Map<String, String> getFunctions() {
+        final Map<String, String> functions = new LinkedHashMap<>();
+        functions.put("anonymous", httpTrigger("anonymous", "get", null));
+        functions.put("all-methods", "{\"bindings\": [{\"type\": \"httpTrigger\", \"authLevel\": \"ANONYMOUS\", \"direction\": \"in\", \"name\": \"req\"}]}");
+        functions.put("custom", httpTrigger("anonymous", "GET", "custom/route"));
+        functions.put("post", httpTrigger("anonymous", "post", null));
+        functions.put("function-key", httpTrigger("function", "get", null));
+        functions.put("parameterized", httpTrigger("anonymous", "get", "items/{id}"));
+        functions.put("queue", "{\"bindings\": [{\"type\": \"queueTrigger\", \"direction\": \"in\", \"name\": \"message\", \"queueName\": \"items\"}]}");
+        return functions;
+    }
+
+    private static String httpTrigger(String authLevel, String method, String route) {
+        return String.format("{\"bindings\": [{\"type\": \"httpTrigger\", \"authLevel\": \"%s\", \"methods\": [\"%s\"], \"direction\": \"in\", \"name\": \"req\"%s}, " +
+                "{\"type\": \"http\", \"direction\": \"out\", \"name\": \"$return\"}]}", authLevel, method, route == null ? "" : String.format(", \"route\": \"%s\"", route));
+    }
+
+    private static void writeFunctions(File staging, Map<String, String> functions) throws IOException {
+        for (final Map.Entry<String, String> function : functions.entrySet()) {
+            FileUtils.write(new File(new File(staging, function.getKey()), "function.json"), function.getValue(), StandardCharsets.UTF_8);
+        }
+        // folders of the dependencies don't have function.json
+        FileUtils.forceMkdir(new File(staging, "lib"));
+    }
+
+    private static void putEntry(ZipOutputStream output, String name, String content) throws IOException {
+        output.putNextEntry(new ZipEntry(name));
+        output.write(content.getBytes(StandardCharsets.UTF_8));
+        output.closeEntry();
+    }
+}
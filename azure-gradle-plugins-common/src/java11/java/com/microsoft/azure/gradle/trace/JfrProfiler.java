@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.trace;
+
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.commons.io.FileUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * The flight recorder implementation of {@link Profiler}, compiled for Java 11 and loaded by {@link Profiler#start}.
+ * It records with the `profile` settings of the JDK, which sample the CPU every 10 ms and record the allocations and
+ * the socket and file I/O longer than 10 ms. The recording covers the whole daemon, the summary tells the thread
+ * which started it, i.e. the one running the task, from the rest.
+ */
+public class JfrProfiler extends Profiler {
+    private static final int TOP = 20;
+    private static final List<String> PLATFORM_PACKAGES = Arrays.asList("java.", "javax.", "jdk.", "sun.", "com.sun.", "kotlin.", "groovy.", "org.codehaus.groovy.");
+
+    private final String name;
+    private final long threadId;
+    private final Recording recording;
+
+    public JfrProfiler(@Nonnull final String name) throws IOException, ParseException {
+        this.name = name;
+        this.threadId = Thread.currentThread().getId();
+        this.recording = new Recording(Configuration.getConfiguration("profile"));
+        this.recording.setName("azure-" + name);
+        this.recording.setToDisk(true);
+        this.recording.start();
+    }
+
+    @Nonnull
+    @Override
+    public List<File> stop(@Nonnull final File buildDirectory) {
+        final File directory = new File(buildDirectory, Tracer.REPORT_DIRECTORY);
+        final File jfrFile = new File(directory, name + ".jfr");
+        final File summaryFile = new File(directory, name + "-profile.txt");
+        try {
+            recording.stop();
+            FileUtils.forceMkdir(directory);
+            recording.dump(jfrFile.toPath());
+            FileUtils.write(summaryFile, summarize(RecordingFile.readAllEvents(jfrFile.toPath()), name, threadId), StandardCharsets.UTF_8);
+            return Arrays.asList(jfrFile, summaryFile);
+        } catch (IOException | RuntimeException e) {
+            AzureMessager.getMessager().warning(String.format("Failed to write the profile of %s: %s", name, e.getMessage()));
+            return Collections.emptyList();
+        } finally {
+            recording.close();
+        }
+    }
+
+    /**
+     * Summarize the events of the task thread, then the ones of the whole daemon: the recording is daemon-wide, so the
+     * latter include the threads the task hands its work to (HTTP clients, thread pools), but also other tasks and
+     * builds running in parallel
+     */
+    static String summarize(@Nonnull final List<RecordedEvent> events, @Nonnull final String taskName, final long taskThreadId) {
+        final Summary task = new Summary();
+        final Summary daemon = new Summary();
+        for (final RecordedEvent event : events) {
+            daemon.add(event);
+            if (getThreadId(event) == taskThreadId) {
+                task.add(event);
+            }
+        }
+        final StringBuilder result = new StringBuilder();
+        result.append(String.format("Events of the thread which ran %s%n%n", taskName));
+        task.append(result);
+        result.append(String.format("%nEvents of the whole Gradle daemon while %s ran, including the threads it hands work to and any task or build " +
+            "running in parallel%n%n", taskName));
+        daemon.append(result);
+        return result.toString();
+    }
+
+    /**
+     * @return id of the thread the event is about (the sampled thread of execution samples), -1 if unknown
+     */
+    private static long getThreadId(final RecordedEvent event) {
+        final RecordedThread thread = event.hasField("sampledThread") ? event.getThread("sampledThread") : event.getThread();
+        return thread == null ? -1 : thread.getJavaThreadId();
+    }
+
+    private static class Summary {
+        private final Map<String, Long> cpu = new HashMap<>();
+        private final Map<String, Long> pluginCpu = new HashMap<>();
+        private final Map<String, Long> allocations = new HashMap<>();
+        private final Map<String, Long> io = new HashMap<>();
+        private final Map<String, Long> ioCounts = new HashMap<>();
+        private long samples = 0;
+
+        private void add(final RecordedEvent event) {
+            switch (event.getEventType().getName()) {
+                case "jdk.ExecutionSample":
+                    samples++;
+                    cpu.merge(getFrame(event.getStackTrace(), frame -> true), 1L, Long::sum);
+                    pluginCpu.merge(getFrame(event.getStackTrace(), JfrProfiler::isApplicationFrame), 1L, Long::sum);
+                    break;
+                case "jdk.ObjectAllocationSample":
+                    addAllocation(event, event.getLong("weight"));
+                    break;
+                case "jdk.ObjectAllocationInNewTLAB":
+                    addAllocation(event, event.getLong("tlabSize"));
+                    break;
+                case "jdk.ObjectAllocationOutsideTLAB":
+                    addAllocation(event, event.getLong("allocationSize"));
+                    break;
+                case "jdk.SocketRead":
+                case "jdk.SocketWrite":
+                    addIo(event, String.format("%s:%d", event.getString("host"), event.getInt("port")));
+                    break;
+                case "jdk.FileRead":
+                case "jdk.FileWrite":
+                    addIo(event, event.getString("path"));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void append(final StringBuilder result) {
+            result.append(String.format("Top CPU frames (%d samples)%n", samples));
+            appendTop(result, cpu, (key, value) -> String.format("%6d", value));
+            result.append(String.format("%nTop CPU frames of the plugins and their libraries, i.e. the first frame outside of the JDK and Gradle%n"));
+            appendTop(result, pluginCpu, (key, value) -> String.format("%6d", value));
+            result.append(String.format("%nAllocation hotspots (sampled bytes)%n"));
+            appendTop(result, allocations, (key, value) -> String.format("%12d", value));
+            result.append(String.format("%nBlocking I/O waits longer than 10 ms (total ms, count)%n"));
+            appendTop(result, io, (key, value) -> String.format("%8d %6d", value, ioCounts.get(key)));
+        }
+
+        private void addAllocation(final RecordedEvent event, final long bytes) {
+            final String type = event.getClass("objectClass") == null ? "?" : event.getClass("objectClass").getName();
+            allocations.merge(type + " at " + getFrame(event.getStackTrace(), JfrProfiler::isApplicationFrame), bytes, Long::sum);
+        }
+
+        private void addIo(final RecordedEvent event, final String target) {
+            final String key = String.format("%s %s at %s", event.getEventType().getLabel(), target, getFrame(event.getStackTrace(), JfrProfiler::isApplicationFrame));
+            io.merge(key, event.getDuration().toMillis(), Long::sum);
+            ioCounts.merge(key, 1L, Long::sum);
+        }
+    }
+
+    private static void appendTop(final StringBuilder result, final Map<String, Long> values, final BiFunction<String, Long, String> format) {
+        values.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .limit(TOP)
+            .forEach(entry -> result.append(format.apply(entry.getKey(), entry.getValue())).append("  ").append(entry.getKey()).append(System.lineSeparator()));
+    }
+
+    /**
+     * @return the first frame of the stack trace matching the filter, or its top frame if none does
+     */
+    private static String getFrame(@Nullable final RecordedStackTrace stackTrace, final Predicate<RecordedFrame> filter) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "<unknown>";
+        }
+        final RecordedFrame frame = stackTrace.getFrames().stream().filter(RecordedFrame::isJavaFrame).filter(filter).findFirst()
+            .orElse(stackTrace.getFrames().get(0));
+        return String.format("%s.%s:%d", frame.getMethod().getType().getName(), frame.getMethod().getName(), frame.getLineNumber());
+    }
+
+    private static boolean isApplicationFrame(final RecordedFrame frame) {
+        final String type = frame.getMethod().getType().getName();
+        return !type.startsWith("org.gradle.") && PLATFORM_PACKAGES.stream().noneMatch(type::startsWith);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.auth;
+
+import com.microsoft.azure.toolkit.lib.auth.AzureToolkitAuthenticationException;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Leases of the account signed in by the toolkit, which keeps a single account per class loader: tasks with the same
+ * auth configuration share the account, a task with another configuration waits until all of them release it instead
+ * of signing them out in the middle of a deployment (and being signed out in turn by the next one)
+ */
+class AuthSessions {
+    interface Login {
+        /**
+         * @return id of the selected subscription
+         */
+        String login(@Nonnull GradleAuthConfig auth, @Nullable String subscriptionId, boolean reuseSession);
+    }
+
+    private final Login login;
+    private final BooleanSupplier isLoggedIn;
+    private final Object lock = new Object();
+    // owners (tasks) using the signed-in account
+    private final Set<Object> holders = Collections.newSetFromMap(new IdentityHashMap<>());
+    private String signedInAuth;
+
+    AuthSessions(@Nonnull Login login, @Nonnull BooleanSupplier isLoggedIn) {
+        this.login = login;
+        this.isLoggedIn = isLoggedIn;
+    }
+
+    /**
+     * Sign in with the auth configuration, or reuse the signed-in account if it is signed in with the same configuration,
+     * the account is held by the owner until {@link #release(Object)}
+     *
+     * @param key digest of the auth configuration
+     * @return id of the selected subscription
+     */
+    String login(@Nonnull Object owner, @Nonnull String key, @Nonnull GradleAuthConfig auth, @Nullable String subscriptionId) {
+        synchronized (lock) {
+            // an owner signing in again doesn't wait for itself
+            release(owner);
+            try {
+                while (!holders.isEmpty() && !StringUtils.equals(key, signedInAuth)) {
+                    lock.wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AzureToolkitAuthenticationException("Interrupted while waiting for other tasks to finish with their Azure account.");
+            }
+            final boolean reuse = StringUtils.equals(key, signedInAuth) && isLoggedIn.getAsBoolean();
+            signedInAuth = null;
+            final String result = login.login(auth, subscriptionId, reuse);
+            signedInAuth = key;
+            holders.add(owner);
+            return result;
+        }
+    }
+
+    /**
+     * Release the account held by the owner, if any
+     */
+    void release(@Nonnull Object owner) {
+        synchronized (lock) {
+            if (holders.remove(owner)) {
+                lock.notifyAll();
+            }
+        }
+    }
+}
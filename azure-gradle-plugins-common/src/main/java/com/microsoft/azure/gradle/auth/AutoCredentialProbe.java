@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.auth;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.microsoft.azure.toolkit.lib.auth.AuthType;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Probe the credential sources of AUTO authentication concurrently with short timeouts, instead of waiting for each
+ * source of the sequential credential chain to time out, and remember the winning source on this machine for the
+ * tenant, client and environment it was probed for. Environment credentials come first in the chain and are not
+ * probed, so the chain is used as is when they are set. Only managed identity and Azure CLI are probed, the other
+ * sources of the chain (e.g. shared token cache, IDE credentials) are left to the chain itself.
+ */
+public class AutoCredentialProbe {
+    // not the configuration file of the telemetry, which is rewritten by every build
+    private static final String CONFIGURATION_PATH = Paths.get(System.getProperty("user.home"),
+        ".azure", "gradleplugins-auth.properties").toString();
+    private static final String PREFERRED_AUTH_KEY = "auth.auto.preferred";
+    private static final String CLIENT_ID_VARIABLE = "AZURE_CLIENT_ID";
+    // any of them along with the client id makes the environment credential (or workload identity) available
+    private static final List<String> CLIENT_CREDENTIAL_VARIABLES = Arrays.asList("AZURE_CLIENT_SECRET", "AZURE_CLIENT_CERTIFICATE_PATH",
+        "AZURE_USERNAME", "AZURE_FEDERATED_TOKEN_FILE");
+    private static final long PROBE_TIMEOUT_IN_SECONDS = 15;
+    private static final int IMDS_TIMEOUT_IN_MILLIS = 1000;
+    private static final String IMDS_TOKEN_URL = "http://169.254.169.254/metadata/identity/oauth2/token" +
+        "?api-version=2018-02-01&resource=https%3A%2F%2Fmanagement.azure.com%2F";
+    // set in App Service, Functions, Cloud Shell and Azure Arc where the managed identity endpoint is not IMDS
+    private static final List<String> MANAGED_IDENTITY_ENDPOINT_VARIABLES = Arrays.asList("IDENTITY_ENDPOINT", "MSI_ENDPOINT");
+
+    /**
+     * @return whether credentials are set in the environment variables, which the credential chain uses before the
+     * probed sources
+     */
+    public static boolean hasEnvironmentCredential(@Nonnull Map<String, String> environment) {
+        return StringUtils.isNotBlank(environment.get(CLIENT_ID_VARIABLE)) &&
+            CLIENT_CREDENTIAL_VARIABLES.stream().map(environment::get).anyMatch(StringUtils::isNotBlank);
+    }
+
+    /**
+     * @return the key the preferred source of the given tenant, client and environment is stored with
+     */
+    @Nonnull
+    public static String getPreferredKey(@Nullable String tenant, @Nullable String client, @Nullable String environment) {
+        return String.join(".", PREFERRED_AUTH_KEY, StringUtils.lowerCase(StringUtils.defaultString(StringUtils.trim(tenant))),
+            StringUtils.lowerCase(StringUtils.defaultString(StringUtils.trim(client))), StringUtils.lowerCase(StringUtils.defaultString(StringUtils.trim(environment))));
+    }
+
+    /**
+     * @return the credential source which succeeded last time on this machine for the key, null if there is none
+     */
+    @Nullable
+    public static AuthType getPreferred(@Nonnull String key) {
+        return getPreferred(new File(CONFIGURATION_PATH), key);
+    }
+
+    public static void setPreferred(@Nonnull String key, @Nullable AuthType type) {
+        setPreferred(new File(CONFIGURATION_PATH), key, type);
+    }
+
+    @Nullable
+    static synchronized AuthType getPreferred(@Nonnull File configurationFile, @Nonnull String key) {
+        final String value = loadConfiguration(configurationFile).getProperty(key);
+        return Arrays.stream(AuthType.values()).filter(type -> StringUtils.equalsIgnoreCase(type.name(), value)).findFirst().orElse(null);
+    }
+
+    /**
+     * Update the preferred source under a file lock, so that concurrent builds on this machine don't lose each other's
+     * updates, the file is replaced atomically so that it is never read half written
+     */
+    static synchronized void setPreferred(@Nonnull File configurationFile, @Nonnull String key, @Nullable AuthType type) {
+        final File directory = configurationFile.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        final Path lockFile = new File(directory, configurationFile.getName() + ".lock").toPath();
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            final Properties prop = loadConfiguration(configurationFile);
+            // the preference of previous versions, which was shared by all the tenants and clients
+            prop.remove(PREFERRED_AUTH_KEY);
+            if (type == null) {
+                prop.remove(key);
+            } else {
+                prop.setProperty(key, type.name());
+            }
+            final Path temp = Files.createTempFile(directory.toPath(), configurationFile.getName(), ".tmp");
+            try {
+                try (OutputStream output = Files.newOutputStream(temp)) {
+                    prop.store(output, "Azure Gradle Plugin configurations");
+                }
+                Files.move(temp, configurationFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            // it is only an optimization for the next build, the lock may be held by a plugin of another class loader
+        }
+    }
+
+    /**
+     * Probe managed identity and Azure CLI concurrently, the sources used by build agents and developer machines
+     *
+     * @return the first credential source which is available, null if none is available before timeout
+     */
+    @Nullable
+    public static AuthType probe() {
+        final List<Callable<AuthType>> probes = Arrays.asList(
+            () -> check(AuthType.MANAGED_IDENTITY, AutoCredentialProbe::isManagedIdentityAvailable),
+            () -> check(AuthType.AZURE_CLI, AutoCredentialProbe::isAzureCliSignedIn));
+        final ExecutorService executor = Executors.newFixedThreadPool(probes.size(),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("azure-auth-probe-%d").build());
+        try {
+            return executor.invokeAny(probes, PROBE_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            // terminate the slower probes, e.g. an `az` process which is still running
+            executor.shutdownNow();
+        }
+    }
+
+    private static AuthType check(@Nonnull AuthType type, @Nonnull Callable<Boolean> probe) throws Exception {
+        if (!Boolean.TRUE.equals(probe.call())) {
+            throw new IllegalStateException(String.format("%s is not available", type));
+        }
+        return type;
+    }
+
+    static boolean isManagedIdentityAvailable() {
+        if (MANAGED_IDENTITY_ENDPOINT_VARIABLES.stream().map(System::getenv).anyMatch(StringUtils::isNotBlank)) {
+            return true;
+        }
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(IMDS_TOKEN_URL).openConnection();
+            connection.setRequestProperty("Metadata", "true");
+            connection.setConnectTimeout(IMDS_TIMEOUT_IN_MILLIS);
+            connection.setReadTimeout(IMDS_TIMEOUT_IN_MILLIS * 2);
+            // IMDS responds 400 if there is no identity assigned to the machine
+            return connection.getResponseCode() == HttpURLConnection.HTTP_OK;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    static boolean isAzureCliSignedIn() throws InterruptedException {
+        final ProcessBuilder builder = new ProcessBuilder(SystemUtils.IS_OS_WINDOWS ? "az.cmd" : "az", "account", "get-access-token", "--output", "none");
+        final File nul = new File(SystemUtils.IS_OS_WINDOWS ? "NUL" : "/dev/null");
+        builder.redirectOutput(nul).redirectError(nul);
+        final Process process;
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            // az is not installed
+            return false;
+        }
+        try {
+            return process.waitFor(PROBE_TIMEOUT_IN_SECONDS, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } finally {
+            process.destroy();
+        }
+    }
+
+    private static Properties loadConfiguration(@Nonnull File configurationFile) {
+        final Properties prop = new Properties();
+        if (configurationFile.exists()) {
+            try (InputStream input = Files.newInputStream(configurationFile.toPath())) {
+                prop.load(input);
+            } catch (IOException e) {
+                // ignore, probe again
+            }
+        } else {
+            configurationFile.getParentFile().mkdirs();
+        }
+        return prop;
+    }
+}
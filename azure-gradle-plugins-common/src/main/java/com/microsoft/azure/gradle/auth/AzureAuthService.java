@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.auth;
+
+import com.google.common.hash.Hashing;
+import com.microsoft.azure.toolkit.lib.Azure;
+import com.microsoft.azure.toolkit.lib.auth.AzureAccount;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Shared authentication of the Azure plugins: the account signed in by one task is reused by the following tasks
+ * (and builds run by the same daemon) as long as the auth configuration doesn't change, instead of signing out and in
+ * again for every task. Tokens of the account are refreshed by the credential itself once they expire. Tasks with
+ * different auth configurations take turns, see {@link AuthSessions}.
+ */
+public abstract class AzureAuthService implements BuildService<BuildServiceParameters.None> {
+    // the toolkit keeps a single signed-in account per class loader, so do the leases of it
+    private static final AuthSessions SESSIONS = new AuthSessions(GradleAuthHelper::login, () -> Azure.az(AzureAccount.class).isLoggedIn());
+
+    public static Provider<AzureAuthService> register(@Nonnull final Project project) {
+        // plugins loaded by different class loaders have their own copy of this class, so the name must be unique per class
+        final String name = String.format("azureAuth-%x", System.identityHashCode(AzureAuthService.class));
+        return project.getGradle().getSharedServices().registerIfAbsent(name, AzureAuthService.class, spec -> {
+        });
+    }
+
+    /**
+     * Sign in with the auth configuration, or reuse the signed-in account if it is signed in with the same configuration,
+     * the account is held by the owner until it is released, waiting for the holders of another configuration if needed
+     *
+     * @param owner the task using the account
+     * @return id of the selected subscription
+     */
+    public String login(@Nonnull final Object owner, @Nullable final GradleAuthConfig auth, @Nullable final String subscriptionId) {
+        final GradleAuthConfig config = ObjectUtils.firstNonNull(auth, new GradleAuthConfig());
+        return SESSIONS.login(owner, getAuthKey(config), config, subscriptionId);
+    }
+
+    /**
+     * Release the account held by the owner once its task is done, so that tasks with other auth configurations can sign in
+     */
+    public void release(@Nonnull final Object owner) {
+        SESSIONS.release(owner);
+    }
+
+    /**
+     * @return digest of the auth configuration, so that secrets are not kept in memory longer than needed
+     */
+    static String getAuthKey(@Nonnull final GradleAuthConfig auth) {
+        final String content = String.join("\n", Objects.toString(StringUtils.lowerCase(auth.getType()), ""),
+            Objects.toString(auth.getEnvironment(), ""), Objects.toString(auth.getClient(), ""), Objects.toString(auth.getTenant(), ""),
+            Objects.toString(auth.getKey(), ""), Objects.toString(auth.getCertificate(), ""), Objects.toString(auth.getCertificatePassword(), ""));
+        return Hashing.sha256().hashString(content, StandardCharsets.UTF_8).toString();
+    }
+}
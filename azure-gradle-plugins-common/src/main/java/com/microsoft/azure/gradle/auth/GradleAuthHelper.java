@@ -6,6 +6,9 @@
 package com.microsoft.azure.gradle.auth;
 
 import com.azure.core.management.AzureEnvironment;
+import com.azure.core.management.exception.ManagementException;
+import com.azure.core.management.profile.AzureProfile;
+import com.azure.resourcemanager.resources.ResourceManager;
 import com.microsoft.azure.gradle.temeletry.TelemetryConstants;
 import com.microsoft.azure.toolkit.lib.Azure;
 import com.microsoft.azure.toolkit.lib.auth.*;
@@ -20,10 +23,16 @@ import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 
 public class GradleAuthHelper {
@@ -32,13 +41,25 @@ public class GradleAuthHelper {
     private static final String SUBSCRIPTION_NOT_FOUND = "Subscription %s was not found in current account.";
     private static final String INVALID_AZURE_ENVIRONMENT = "Invalid environment string '%s', please replace it with one of " +
         AzureEnvironment.knownEnvironments().stream().map(AzureEnvironmentUtils::getCloudName).collect(Collectors.joining(",")) + ".";
+    // ids of the subscriptions validated for the signed-in accounts by (lower case) id, released together with the account
+    private static final Map<Account, Map<String, String>> VALIDATED_SUBSCRIPTIONS = new WeakHashMap<>();
 
     public static String login(GradleAuthConfig auth, String subscriptionId) {
+        return login(auth, subscriptionId, false);
+    }
+
+    /**
+     * @param reuseSession whether to reuse the signed-in account instead of signing in again, the caller should make sure
+     *                     it is signed in with the same auth configuration, see {@link AzureAuthService}
+     */
+    public static String login(GradleAuthConfig auth, String subscriptionId, boolean reuseSession) {
         try {
-            Account account = login(toAuthConfiguration(ObjectUtils.firstNonNull(auth, new GradleAuthConfig())));
-            final List<Subscription> subscriptions = account.getSubscriptions();
-            final String targetSubscriptionId = getTargetSubscriptionId(subscriptionId, subscriptions, account.getSelectedSubscriptions());
-            checkSubscription(subscriptions, targetSubscriptionId);
+            final AzureAccount azureAccount = Azure.az(AzureAccount.class);
+            final Account account = reuseSession && azureAccount.isLoggedIn() ? azureAccount.account() :
+                login(toAuthConfiguration(ObjectUtils.firstNonNull(auth, new GradleAuthConfig())));
+            final String tenantId = auth == null ? null : auth.getTenant();
+            final String targetSubscriptionId = StringUtils.isNotBlank(subscriptionId) ? checkSubscription(account, tenantId, subscriptionId) :
+                getDefaultSubscriptionId(account);
             Azure.az(AzureAccount.class).account().setSelectedSubscriptions(Collections.singletonList(targetSubscriptionId));
             printCurrentSubscription(account);
             return targetSubscriptionId;
@@ -57,27 +78,61 @@ public class GradleAuthHelper {
         }
     }
 
-    private static void checkSubscription(List<Subscription> subscriptions, String targetSubscriptionId) {
-        if (StringUtils.isEmpty(targetSubscriptionId)) {
-            return;
+    /**
+     * Validate an explicit subscription with a single `GET /subscriptions/{id}` rather than listing all the
+     * subscriptions of the account, the result is kept for the signed-in account
+     *
+     * @param tenantId tenant of the auth configuration, the subscription is looked up in the tenants of the account if
+     *                 there is none
+     * @return id of the subscription
+     */
+    private static String checkSubscription(@Nonnull Account account, @Nullable String tenantId, @Nonnull String targetSubscriptionId) {
+        final String key = StringUtils.lowerCase(targetSubscriptionId.trim());
+        String result;
+        synchronized (VALIDATED_SUBSCRIPTIONS) {
+            result = VALIDATED_SUBSCRIPTIONS.getOrDefault(account, Collections.emptyMap()).get(key);
         }
-        final Optional<Subscription> optionalSubscription = subscriptions.stream()
-            .filter(subscription -> StringUtils.equals(subscription.getId(), targetSubscriptionId))
-            .findAny();
-        if (!optionalSubscription.isPresent()) {
-            throw new AzureToolkitAuthenticationException(String.format(SUBSCRIPTION_NOT_FOUND, targetSubscriptionId));
+        if (result == null) {
+            result = getSubscriptionId(account, tenantId, key);
+            if (result == null) {
+                throw new AzureToolkitAuthenticationException(String.format(SUBSCRIPTION_NOT_FOUND, targetSubscriptionId));
+            }
+            synchronized (VALIDATED_SUBSCRIPTIONS) {
+                VALIDATED_SUBSCRIPTIONS.computeIfAbsent(account, ignore -> new HashMap<>()).put(key, result);
+            }
         }
+        AzureTelemeter.getClient().addDefaultProperty(TelemetryConstants.SUBSCRIPTION_ID_KEY, result);
+        return result;
     }
 
-    private static String getTargetSubscriptionId(String defaultSubscriptionId,
-                                                  List<Subscription> subscriptions,
-                                                  List<Subscription> selectedSubscriptions) {
-        String targetSubscriptionId = defaultSubscriptionId;
-        if (StringUtils.isBlank(targetSubscriptionId) && !selectedSubscriptions.isEmpty()) {
+    /**
+     * @return id of the subscription as returned by ARM, null if the account has no access to it in any of its tenants
+     */
+    @Nullable
+    private static String getSubscriptionId(@Nonnull Account account, @Nullable String tenantId, @Nonnull String subscriptionId) {
+        final Set<String> tenantIds = StringUtils.isNotBlank(tenantId) ? Collections.singleton(tenantId) : new LinkedHashSet<>(account.getTenantIds());
+        for (final String tenant : tenantIds) {
+            final AzureProfile profile = new AzureProfile(tenant, subscriptionId, account.getEnvironment());
+            try {
+                return ResourceManager.authenticate(account.getTenantTokenCredential(tenant), profile).subscriptions().getById(subscriptionId).subscriptionId();
+            } catch (ManagementException e) {
+                // the subscription is not found (or not accessible) in this tenant, try the next one
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolve the subscription to use if it is not specified, the full subscription list is only used if there is no selected one
+     */
+    private static String getDefaultSubscriptionId(@Nonnull Account account) {
+        final List<Subscription> selectedSubscriptions = account.getSelectedSubscriptions();
+        String targetSubscriptionId = null;
+        if (CollectionUtils.isNotEmpty(selectedSubscriptions)) {
             targetSubscriptionId = selectedSubscriptions.stream().filter(Subscription::isSelected).map(Subscription::getId).findFirst().orElse(null);
         }
-        if (StringUtils.isBlank(targetSubscriptionId) && !subscriptions.isEmpty()) {
-            targetSubscriptionId = subscriptions.stream().map(Subscription::getId).findFirst().orElse(null);
+        if (StringUtils.isBlank(targetSubscriptionId)) {
+            targetSubscriptionId = account.getSubscriptions().stream().map(Subscription::getId).findFirst().orElse(null);
         }
         AzureTelemeter.getClient().addDefaultProperty(TelemetryConstants.SUBSCRIPTION_ID_KEY, Optional.ofNullable(targetSubscriptionId).orElse(StringUtils.EMPTY));
         return targetSubscriptionId;
@@ -102,13 +157,12 @@ public class GradleAuthHelper {
 
     private static void printCredentialDescription(Account account, boolean isInteractiveLogin) {
         if (isInteractiveLogin) {
-            if (CollectionUtils.isNotEmpty(account.getSubscriptions())) {
-                final List<Subscription> selectedSubscriptions = account.getSelectedSubscriptions();
-                if (selectedSubscriptions != null && selectedSubscriptions.size() == 1) {
-                    AzureMessager.getMessager().info(AzureString.format("Default subscription: %s(%s)",
-                        selectedSubscriptions.get(0).getName(),
-                        selectedSubscriptions.get(0).getId()));
-                }
+            // the selected subscriptions only, listing all of them is the slowest part of a login
+            final List<Subscription> selectedSubscriptions = account.getSelectedSubscriptions();
+            if (selectedSubscriptions != null && selectedSubscriptions.size() == 1) {
+                AzureMessager.getMessager().info(AzureString.format("Default subscription: %s(%s)",
+                    selectedSubscriptions.get(0).getName(),
+                    selectedSubscriptions.get(0).getId()));
             }
         }
         AzureMessager.getMessager().info(account.toString());
@@ -136,7 +190,7 @@ public class GradleAuthHelper {
         }
         if (auth.getType() == AuthType.AUTO) {
             if (StringUtils.isAllBlank(auth.getCertificate(), auth.getCertificatePassword(), auth.getKey())) {
-                return azureAccount.login(auth, false);
+                return autoLogin(azureAccount, auth);
             } else {
                 auth.setType(AuthType.SERVICE_PRINCIPAL);
                 return azureAccount.login(auth);
@@ -146,6 +200,52 @@ public class GradleAuthHelper {
         }
     }
 
+    /**
+     * Sign in with the credential source which succeeded last time on this machine for the tenant, client and
+     * environment, or the first available one found by probing the sources concurrently, and fall back to the
+     * sequential credential chain of the toolkit. The chain is used directly if credentials are set in the environment
+     * variables, which it tries first.
+     */
+    private static Account autoLogin(AzureAccount azureAccount, AuthConfiguration auth) {
+        if (AutoCredentialProbe.hasEnvironmentCredential(System.getenv())) {
+            return azureAccount.login(auth, false);
+        }
+        final String key = AutoCredentialProbe.getPreferredKey(auth.getTenant(), auth.getClient(), auth.getEnvironment());
+        final AuthType preferred = AutoCredentialProbe.getPreferred(key);
+        if (preferred != null) {
+            final Account account = tryLogin(azureAccount, auth, preferred);
+            if (account != null) {
+                return account;
+            }
+            AutoCredentialProbe.setPreferred(key, null);
+        }
+        final AuthType probed = AutoCredentialProbe.probe();
+        if (probed != null && probed != preferred) {
+            final Account account = tryLogin(azureAccount, auth, probed);
+            if (account != null) {
+                AutoCredentialProbe.setPreferred(key, probed);
+                return account;
+            }
+        }
+        return azureAccount.login(auth, false);
+    }
+
+    @Nullable
+    private static Account tryLogin(AzureAccount azureAccount, AuthConfiguration auth, AuthType type) {
+        final AuthConfiguration config = new AuthConfiguration(type);
+        config.setTenant(auth.getTenant());
+        config.setClient(auth.getClient());
+        config.setEnvironment(auth.getEnvironment());
+        try {
+            return azureAccount.login(config, false);
+        } catch (RuntimeException e) {
+            if (azureAccount.isLoggedIn() || azureAccount.isLoggingIn()) {
+                azureAccount.logout();
+            }
+            return null;
+        }
+    }
+
     private static AuthConfiguration toAuthConfiguration(GradleAuthConfig gradleAuthConfig) throws InvalidConfigurationException {
         final AuthConfiguration authConfiguration = new AuthConfiguration(AuthType.parseAuthType(gradleAuthConfig.getType()));
         authConfiguration.setClient(gradleAuthConfig.getClient());
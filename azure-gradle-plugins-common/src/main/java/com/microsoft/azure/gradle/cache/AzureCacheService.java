@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.cache;
+
+import com.microsoft.azure.toolkit.lib.common.cache.CacheEvict;
+import com.microsoft.azure.toolkit.lib.common.cache.CacheManager;
+import com.microsoft.azure.toolkit.lib.common.model.AbstractAzResource;
+import com.microsoft.azure.toolkit.lib.common.model.AbstractAzResourceModule;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invalidation of the toolkit caches, tied to the build lifecycle: caches are kept across projects in one build and
+ * across builds in one daemon, the resources of a type in a subscription are evicted before a task reads them once they
+ * are older than the TTL, see {@link CacheScopes}. Specific caches can be evicted with `-Dazure.cache.evict=name[#key],...`
+ * (or `all`), and resources written by the plugins are refreshed right after the writes.
+ */
+public abstract class AzureCacheService implements BuildService<AzureCacheService.Parameters> {
+    public static final String TTL_KEY = "azure.cache.ttl";
+    public static final String EVICT_KEY = "azure.cache.evict";
+    private static final long DEFAULT_TTL_IN_SECONDS = 600;
+    private static final String EVICT_ALL = "all";
+    private static final String KEY_SEPARATOR = "#";
+    // survives across builds as long as the daemon keeps the plugin class loader
+    private static final CacheScopes SCOPES = new CacheScopes();
+
+    public interface Parameters extends BuildServiceParameters {
+        Property<Long> getTtlInSeconds();
+
+        Property<String> getEvict();
+    }
+
+    public AzureCacheService() {
+        evict();
+    }
+
+    public static Provider<AzureCacheService> register(@Nonnull final Project project) {
+        final ProviderFactory providers = project.getProviders();
+        // plugins loaded by different class loaders have their own copy of this class, so the name must be unique per class
+        final String name = String.format("azureCache-%x", System.identityHashCode(AzureCacheService.class));
+        return project.getGradle().getSharedServices().registerIfAbsent(name, AzureCacheService.class, spec -> {
+            spec.getParameters().getTtlInSeconds().set(getProperty(providers, TTL_KEY)
+                .map(value -> NumberUtils.toLong(value, DEFAULT_TTL_IN_SECONDS)).orElse(DEFAULT_TTL_IN_SECONDS));
+            spec.getParameters().getEvict().set(getProperty(providers, EVICT_KEY));
+        });
+    }
+
+    /**
+     * Evict the cached resources of the module (a resource type in a subscription) before a task reads them, if they
+     * are older than the TTL, resources of other types and subscriptions are kept
+     */
+    public void beforeRead(@Nonnull final AbstractAzResourceModule<?, ?, ?> module) {
+        final long ttl = TimeUnit.SECONDS.toMillis(getParameters().getTtlInSeconds().getOrElse(DEFAULT_TTL_IN_SECONDS));
+        SCOPES.evictIfExpired(module.getSubscriptionId(), module.getName(), ttl, module::refresh);
+    }
+
+    /**
+     * Refresh a resource written by the plugin, so that the following tasks and builds don't read the stale one
+     */
+    public static void afterWrite(@Nullable final AbstractAzResource<?, ?, ?> resource) {
+        if (resource != null) {
+            SCOPES.afterWrite(resource::refresh);
+        }
+    }
+
+    private void evict() {
+        synchronized (AzureCacheService.class) {
+            final String evict = getParameters().getEvict().getOrNull();
+            if (StringUtils.equalsIgnoreCase(StringUtils.trim(evict), EVICT_ALL)) {
+                evictCache(CacheEvict.ALL, CacheEvict.ALL);
+                SCOPES.expireAll();
+                return;
+            }
+            for (final String item : StringUtils.split(StringUtils.defaultString(evict), ',')) {
+                final String name = StringUtils.trim(StringUtils.substringBefore(item, KEY_SEPARATOR));
+                final String key = StringUtils.trim(StringUtils.substringAfter(item, KEY_SEPARATOR));
+                if (StringUtils.isNotBlank(name)) {
+                    evictCache(name, StringUtils.isBlank(key) ? CacheEvict.ALL : key);
+                }
+            }
+        }
+    }
+
+    private static void evictCache(@Nonnull final String name, @Nonnull final String key) {
+        try {
+            CacheManager.evictCache(name, key);
+        } catch (ExecutionException e) {
+            // stale entries will be evicted by the TTL later
+        }
+    }
+
+    private static Provider<String> getProperty(@Nonnull final ProviderFactory providers, @Nonnull final String key) {
+        return providers.systemProperty(key).orElse(providers.gradleProperty(key));
+    }
+}
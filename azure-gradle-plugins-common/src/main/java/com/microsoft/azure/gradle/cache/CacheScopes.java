@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.cache;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Expiry of the cached resources by scope, i.e. resource type in a subscription: each scope is evicted once it is
+ * older than the TTL when a task is about to read it, independently of the other scopes, and a write only refreshes
+ * the written resource
+ */
+class CacheScopes {
+    private final LongSupplier clock;
+    // last eviction of each scope (subscription and resource type, in lower case)
+    private final Map<String, Long> evictions = new HashMap<>();
+
+    CacheScopes() {
+        this(System::currentTimeMillis);
+    }
+
+    CacheScopes(@Nonnull LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Evict the scope if it has never been evicted or its last eviction is older than the TTL
+     *
+     * @return whether the scope is evicted
+     */
+    synchronized boolean evictIfExpired(@Nonnull String subscriptionId, @Nonnull String resourceType, long ttlInMillis, @Nonnull Runnable evict) {
+        final String scope = getScope(subscriptionId, resourceType);
+        final long now = clock.getAsLong();
+        final Long last = evictions.get(scope);
+        if (last != null && now - last < ttlInMillis) {
+            return false;
+        }
+        evict.run();
+        evictions.put(scope, now);
+        return true;
+    }
+
+    /**
+     * Refresh a resource written by the plugin, the other resources of its scope (and other scopes) are kept
+     */
+    void afterWrite(@Nonnull Runnable refresh) {
+        refresh.run();
+    }
+
+    /**
+     * Expire all the scopes, so that each of them is evicted the next time it is read
+     */
+    synchronized void expireAll() {
+        evictions.clear();
+    }
+
+    private static String getScope(@Nonnull String subscriptionId, @Nonnull String resourceType) {
+        return StringUtils.lowerCase(subscriptionId) + "/" + StringUtils.lowerCase(resourceType);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.common;
+
+import com.azure.core.http.policy.HttpLogDetailLevel;
+import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
+import com.microsoft.azure.gradle.util.GradleAzureMessager;
+import com.microsoft.azure.toolkit.lib.Azure;
+import com.microsoft.azure.toolkit.lib.AzureConfiguration;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import com.microsoft.azure.toolkit.lib.common.utils.InstallationIdUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import javax.annotation.Nonnull;
+import java.util.UUID;
+
+import static com.microsoft.azure.gradle.temeletry.TelemetryConstants.INSTALLATION_ID_KEY;
+import static com.microsoft.azure.gradle.temeletry.TelemetryConstants.SESSION_ID_KEY;
+
+/**
+ * Initialization of the toolkit (product, telemetry, user agent and the privacy statement), done when the first Azure
+ * task of a build runs rather than when the plugins are applied, so that builds not running any Azure task, e.g.
+ * `gradle tasks`, don't pay for it.
+ */
+public abstract class AzureToolkitService implements BuildService<AzureToolkitService.Parameters>, AutoCloseable {
+    // enumerating the network interfaces is slow, and the result doesn't change as long as the daemon lives
+    private static String machineId;
+
+    private final String sessionId = UUID.randomUUID().toString();
+    private boolean privacyStatementShown;
+
+    public interface Parameters extends BuildServiceParameters {
+        Property<String> getProduct();
+
+        Property<String> getVersion();
+    }
+
+    public static Provider<AzureToolkitService> register(@Nonnull final Project project, @Nonnull final String product, @Nonnull final Class<?> pluginClass) {
+        // plugins loaded by different class loaders have their own copy of this class, so the name must be unique per class
+        final String name = String.format("azureToolkit-%s-%x", product, System.identityHashCode(AzureToolkitService.class));
+        return project.getGradle().getSharedServices().registerIfAbsent(name, AzureToolkitService.class, spec -> {
+            spec.getParameters().getProduct().set(product);
+            spec.getParameters().getVersion().set(StringUtils.firstNonBlank(pluginClass.getPackage().getImplementationVersion(), "develop"));
+        });
+    }
+
+    /**
+     * Configure the toolkit for a task which is about to run, the privacy statement is shown once per build
+     */
+    public synchronized void initialize(final boolean allowTelemetry, @Nonnull final Logger logger) {
+        AzureMessager.setDefaultMessager(new GradleAzureMessager(logger));
+        final String product = getParameters().getProduct().get();
+        final String version = getParameters().getVersion().get();
+        final String installationId = getMachineId();
+        final AzureConfiguration config = Azure.az().config();
+        config.setLogLevel(HttpLogDetailLevel.NONE.name());
+        config.setProduct(product);
+        config.setVersion(version);
+        config.setTelemetryEnabled(allowTelemetry);
+        config.setMachineId(installationId);
+        config.setSessionId(sessionId);
+        config.setUserAgent(allowTelemetry ?
+                String.format("%s/%s %s:%s %s:%s", product, version, INSTALLATION_ID_KEY, installationId, SESSION_ID_KEY, sessionId) :
+                String.format("%s/%s", product, version));
+        TelemetryAgent.getInstance().setEnabled(allowTelemetry);
+        if (!privacyStatementShown) {
+            TelemetryAgent.getInstance().showPrivacyStatement();
+            privacyStatementShown = true;
+        }
+    }
+
+    /**
+     * The build has ended, the telemetry events not sent within a short time are spooled rather than delaying it
+     */
+    @Override
+    public void close() {
+        TelemetryAgent.getInstance().flush();
+    }
+
+    private static synchronized String getMachineId() {
+        if (machineId == null) {
+            machineId = InstallationIdUtils.getHashMac();
+        }
+        return machineId;
+    }
+}
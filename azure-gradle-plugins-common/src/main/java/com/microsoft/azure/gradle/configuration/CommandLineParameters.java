@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.configuration;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.dataformat.javaprop.JavaPropsMapper;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import com.microsoft.azure.toolkit.lib.common.utils.Utils;
+import org.apache.commons.lang3.StringUtils;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Settings passed on the command line with `-D<name>=<value>` or `-Pazure.<name>=<value>`, which take precedence over
+ * the ones in the build script. Only the settings read by a task are looked up, when the task runs. Project properties
+ * are namespaced, so that an unrelated `appName` or `region` in a `gradle.properties` (e.g. the one of the user home)
+ * doesn't override the build scripts.
+ */
+public class CommandLineParameters {
+    private static final String PROJECT_PROPERTY_PREFIX = "azure.";
+    private static final JavaPropsMapper MAPPER = (JavaPropsMapper) new JavaPropsMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final ProviderFactory providers;
+
+    public CommandLineParameters(@Nonnull final ProviderFactory providers) {
+        this.providers = providers;
+    }
+
+    public Provider<String> get(@Nonnull final String name) {
+        return providers.systemProperty(name).orElse(providers.gradleProperty(toProjectProperty(name)));
+    }
+
+    @Nullable
+    public String resolve(@Nonnull final String name, @Nonnull final Provider<String> value) {
+        return get(name).orElse(value).getOrNull();
+    }
+
+    @Nullable
+    public Integer resolveInteger(@Nonnull final String name, @Nonnull final Provider<Integer> value) {
+        return get(name).map(Integer::valueOf).orElse(value).getOrNull();
+    }
+
+    @Nullable
+    public Boolean resolveBoolean(@Nonnull final String name, @Nonnull final Provider<Boolean> value) {
+        return get(name).map(Boolean::valueOf).orElse(value).getOrNull();
+    }
+
+    /**
+     * @return entries of the map, `-D<name>.<key>=<value>` (or `-Pazure.<name>.<key>=<value>`) adds or replaces an entry
+     */
+    @Nonnull
+    public Map<String, String> resolveMap(@Nonnull final String name, @Nonnull final Provider<Map<String, String>> value) {
+        final Map<String, String> result = new LinkedHashMap<>(value.getOrElse(new LinkedHashMap<>()));
+        result.putAll(getPrefixed(name));
+        return result;
+    }
+
+    /**
+     * @return the nested configuration, fields of which can be overridden with `-D<name>.<field>=<value>`
+     */
+    @Nullable
+    public <T> T resolve(@Nonnull final String name, @Nullable final T value, @Nonnull final Class<T> type) {
+        final Map<String, String> parameters = getPrefixed(name);
+        if (parameters.isEmpty()) {
+            return value;
+        }
+        final Properties properties = new Properties();
+        properties.putAll(parameters);
+        try {
+            final T override = MAPPER.readPropertiesAs(properties, type);
+            if (value == null) {
+                return override;
+            }
+            // the configuration of the build script is left untouched, the overrides are applied to a copy of it
+            final T result = type.getDeclaredConstructor().newInstance();
+            Utils.copyProperties(result, value, false);
+            Utils.copyProperties(result, override, false);
+            return result;
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new AzureToolkitRuntimeException(String.format("Failed to read parameter '%s' from command line: %s", name, e.getMessage()), e);
+        }
+    }
+
+    private Map<String, String> getPrefixed(@Nonnull final String name) {
+        final String prefix = name + ".";
+        final String projectPropertyPrefix = toProjectProperty(prefix);
+        final Map<String, String> result = new LinkedHashMap<>();
+        // system properties take precedence over project properties
+        providers.gradlePropertiesPrefixedBy(projectPropertyPrefix).get()
+            .forEach((key, value) -> result.put(StringUtils.removeStart(key, projectPropertyPrefix), value));
+        providers.systemPropertiesPrefixedBy(prefix).get().forEach((key, value) -> result.put(StringUtils.removeStart(key, prefix), value));
+        return result;
+    }
+
+    /**
+     * @return the name of the project property of a setting, e.g. `azure.appName` for `appName`, settings of the
+     * plugins themselves (e.g. `azure.profile`) are already namespaced
+     */
+    static String toProjectProperty(@Nonnull final String name) {
+        return StringUtils.startsWith(name, PROJECT_PROPERTY_PREFIX) ? name : PROJECT_PROPERTY_PREFIX + name;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.deploy;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.NameFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A bounded, least-recently-used cache of the packages deployed to one app (or deployment slot), so that a
+ * previous package can be redeployed without rebuilding it. Packages are kept under
+ * {@code ~/.azure/gradleplugins/deployments/<subscription>/<resource group>/<app>[/<slot>]}.
+ */
+public class DeploymentCache {
+    public static final int DEFAULT_CAPACITY = 3;
+    private static final String INDEX_FILE = "index.json";
+    private static final String DEFAULT_SLOT_FOLDER = "_production";
+    private static final File CACHE_ROOT = Paths.get(System.getProperty("user.home"), ".azure", "gradleplugins", "deployments").toFile();
+    private static final ObjectMapper MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final File directory;
+    private final int capacity;
+    // access ordered, the eldest entry is the least recently used one
+    private final LinkedHashMap<String, DeploymentCacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    @Nullable
+    private String current;
+
+    public DeploymentCache(@Nonnull final File directory, final int capacity) throws IOException {
+        this.directory = directory;
+        this.capacity = capacity;
+        load();
+    }
+
+    public static DeploymentCache forApp(@Nonnull String subscriptionId, @Nonnull String resourceGroup, @Nonnull String appName,
+                                         @Nullable String deploymentSlot, int capacity) throws IOException {
+        final File directory = Paths.get(CACHE_ROOT.getAbsolutePath(), subscriptionId, resourceGroup.toLowerCase(), appName.toLowerCase(),
+                StringUtils.isBlank(deploymentSlot) ? DEFAULT_SLOT_FOLDER : deploymentSlot.toLowerCase()).toFile();
+        return new DeploymentCache(directory, capacity);
+    }
+
+    /**
+     * Look up a cached package by its fingerprint in the caches of all apps, so that a package which was deployed to
+     * one app can be promoted to another one without rebuilding it.
+     *
+     * @param id full fingerprint or an unambiguous prefix of it
+     */
+    public static Optional<File> findPackage(@Nonnull final String id) throws IOException {
+        return findPackage(CACHE_ROOT, id);
+    }
+
+    static Optional<File> findPackage(@Nonnull final File root, @Nonnull final String id) throws IOException {
+        if (!root.isDirectory()) {
+            return Optional.empty();
+        }
+        final Map<String, File> matches = new LinkedHashMap<>();
+        for (final File index : FileUtils.listFiles(root, new NameFileFilter(INDEX_FILE), TrueFileFilter.INSTANCE)) {
+            final DeploymentCache cache = new DeploymentCache(index.getParentFile(), Integer.MAX_VALUE);
+            for (final DeploymentCacheEntry entry : cache.entries.values()) {
+                final File file = cache.getPackage(entry);
+                if (StringUtils.startsWithIgnoreCase(entry.getFingerprint(), id.trim()) && file.isFile()) {
+                    matches.putIfAbsent(entry.getFingerprint(), file);
+                }
+            }
+        }
+        if (matches.size() > 1) {
+            throw new IllegalArgumentException(String.format("Package id '%s' is ambiguous, please use a longer prefix of the fingerprint.", id));
+        }
+        return matches.values().stream().findFirst();
+    }
+
+    /**
+     * Keep a copy of a package which was just deployed, evicting the least recently used packages beyond capacity.
+     */
+    public synchronized DeploymentCacheEntry record(@Nonnull final File artifact, @Nonnull final DeploymentCacheEntry metadata) throws IOException {
+        final String fingerprint = PackageFingerprint.of(artifact);
+        final long now = System.currentTimeMillis();
+        DeploymentCacheEntry entry = entries.get(fingerprint);
+        if (entry == null || !getPackage(entry).isFile()) {
+            entry = metadata;
+            entry.setFingerprint(fingerprint);
+            entry.setFileName(artifact.getName());
+            entry.setSize(artifact.length());
+            final File target = getPackage(entry);
+            FileUtils.forceMkdir(target.getParentFile());
+            Files.copy(artifact.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            entries.put(fingerprint, entry);
+        }
+        entry.setDeployedAt(now);
+        entry.setLastUsedAt(now);
+        current = fingerprint;
+        evict();
+        save();
+        return entry;
+    }
+
+    /**
+     * Mark a cached package as deployed again, e.g. after rolling back to it.
+     */
+    public synchronized void markDeployed(@Nonnull final DeploymentCacheEntry entry) throws IOException {
+        final long now = System.currentTimeMillis();
+        Optional.ofNullable(entries.get(entry.getFingerprint())).ifPresent(e -> {
+            e.setDeployedAt(now);
+            e.setLastUsedAt(now);
+        });
+        current = entry.getFingerprint();
+        save();
+    }
+
+    /**
+     * @return cached packages, the most recently deployed first
+     */
+    public synchronized List<DeploymentCacheEntry> list() {
+        final List<DeploymentCacheEntry> result = new ArrayList<>(entries.values());
+        result.sort(Comparator.comparingLong(DeploymentCacheEntry::getDeployedAt).reversed());
+        return result;
+    }
+
+    /**
+     * @param id full fingerprint or an unambiguous prefix of it
+     */
+    public synchronized Optional<DeploymentCacheEntry> find(@Nonnull final String id) {
+        final List<DeploymentCacheEntry> matches = new ArrayList<>();
+        for (final DeploymentCacheEntry entry : entries.values()) {
+            if (StringUtils.startsWithIgnoreCase(entry.getFingerprint(), id.trim())) {
+                matches.add(entry);
+            }
+        }
+        if (matches.size() > 1) {
+            throw new IllegalArgumentException(String.format("Package id '%s' is ambiguous, please use a longer prefix of the fingerprint.", id));
+        }
+        return matches.stream().findFirst();
+    }
+
+    /**
+     * @return the most recently deployed package other than the one which is currently deployed
+     */
+    public synchronized Optional<DeploymentCacheEntry> getPrevious() {
+        return list().stream().filter(entry -> !StringUtils.equals(entry.getFingerprint(), current)).findFirst();
+    }
+
+    @Nullable
+    public synchronized String getCurrent() {
+        return current;
+    }
+
+    public File getPackage(@Nonnull final DeploymentCacheEntry entry) {
+        return new File(new File(directory, entry.getFingerprint()), entry.getFileName());
+    }
+
+    private void evict() throws IOException {
+        final Iterator<Map.Entry<String, DeploymentCacheEntry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > Math.max(capacity, 1) && iterator.hasNext()) {
+            final DeploymentCacheEntry eldest = iterator.next().getValue();
+            if (StringUtils.equals(eldest.getFingerprint(), current)) {
+                continue;
+            }
+            iterator.remove();
+            FileUtils.deleteDirectory(getPackage(eldest).getParentFile());
+        }
+    }
+
+    private void load() throws IOException {
+        final File indexFile = new File(directory, INDEX_FILE);
+        if (!indexFile.isFile()) {
+            return;
+        }
+        final Index index = MAPPER.readValue(indexFile, Index.class);
+        final List<DeploymentCacheEntry> stored = new ArrayList<>(Optional.ofNullable(index.getEntries()).orElse(Collections.emptyList()));
+        stored.sort(Comparator.comparingLong(DeploymentCacheEntry::getLastUsedAt));
+        stored.forEach(entry -> entries.put(entry.getFingerprint(), entry));
+        current = index.getCurrent();
+    }
+
+    private void save() throws IOException {
+        FileUtils.forceMkdir(directory);
+        final Index index = new Index();
+        index.setCurrent(current);
+        index.setEntries(new ArrayList<>(entries.values()));
+        // write to a temporary file first so that a concurrent reader never sees a partial index
+        final File temp = File.createTempFile(INDEX_FILE, ".tmp", directory);
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(temp, index);
+        Files.move(temp.toPath(), new File(directory, INDEX_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Getter
+    @Setter
+    static class Index {
+        private String current;
+        private List<DeploymentCacheEntry> entries;
+    }
+}
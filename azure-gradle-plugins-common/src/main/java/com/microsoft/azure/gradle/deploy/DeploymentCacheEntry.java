@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.deploy;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * Metadata of a package kept in {@link DeploymentCache}.
+ */
+@Getter
+@Setter
+public class DeploymentCacheEntry implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String fingerprint;
+    private String fileName;
+    private long size;
+    private String subscriptionId;
+    private String resourceGroup;
+    private String appName;
+    private String deploymentSlot;
+    private String deployType;
+    private long deployedAt;
+    private long lastUsedAt;
+
+    @JsonIgnore
+    public String getId() {
+        return PackageFingerprint.shortId(fingerprint);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.deploy;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * SHA-256 fingerprint of a deployment package, used to identify the same package across builds.
+ */
+public class PackageFingerprint {
+    public static final int SHORT_ID_LENGTH = 12;
+    public static final String SIDECAR_EXTENSION = ".sha256";
+
+    @Nonnull
+    public static String of(@Nonnull final File file) throws IOException {
+        return Files.asByteSource(file).hash(Hashing.sha256()).toString();
+    }
+
+    @Nonnull
+    public static String shortId(@Nonnull final String fingerprint) {
+        return fingerprint.length() > SHORT_ID_LENGTH ? fingerprint.substring(0, SHORT_ID_LENGTH) : fingerprint;
+    }
+
+    /**
+     * Write the fingerprint of a package next to it (in `sha256sum` format), so that it can be verified when the
+     * package is deployed by another build.
+     *
+     * @return the fingerprint of the package
+     */
+    @Nonnull
+    public static String writeSidecar(@Nonnull final File file) throws IOException {
+        final String fingerprint = of(file);
+        Files.asCharSink(getSidecar(file), StandardCharsets.UTF_8).write(String.format("%s  %s%n", fingerprint, file.getName()));
+        return fingerprint;
+    }
+
+    /**
+     * @return the fingerprint recorded next to the package, empty if there is no sidecar file
+     */
+    @Nonnull
+    public static Optional<String> readSidecar(@Nonnull final File file) throws IOException {
+        final File sidecar = getSidecar(file);
+        if (!sidecar.isFile()) {
+            return Optional.empty();
+        }
+        final String content = StringUtils.trim(Files.asCharSource(sidecar, StandardCharsets.UTF_8).readFirstLine());
+        return Optional.ofNullable(StringUtils.substringBefore(content, " ")).filter(StringUtils::isNotBlank);
+    }
+
+    @Nonnull
+    public static File getSidecar(@Nonnull final File file) {
+        return new File(file.getParentFile(), file.getName() + SIDECAR_EXTENSION);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.HttpPipelineNextPolicy;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.AfterRetryPolicyProvider;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Rate limit the Azure REST calls with the shared {@link AdaptiveRateLimiter}, and feed the throttling signals of the
+ * responses (429, `Retry-After` and the `x-ms-ratelimit-remaining-*` headers) back to it. The policy is registered
+ * after the retry policy of the Azure SDK, so every retry takes a token as well. Only the calls sent by the tasks of the
+ * plugins are limited (see {@link HttpMetrics}), the calls of other clients in the daemon (e.g. the SDK clients of other
+ * plugins) neither wait for a token nor slow down the calls of the plugins.
+ */
+public class AdaptiveRateLimitPolicy implements HttpPipelinePolicy {
+    public static final String ENABLED_KEY = "azure.http.rateLimit";
+    static final String ATTEMPT_KEY = "azure-gradle-plugins-attempt";
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final String[] RETRY_AFTER_MS = {"retry-after-ms", "x-ms-retry-after-ms"};
+    private static final String[] REMAINING_REQUESTS = {
+        "x-ms-ratelimit-remaining-subscription-reads",
+        "x-ms-ratelimit-remaining-subscription-writes",
+        "x-ms-ratelimit-remaining-subscription-global-reads",
+        "x-ms-ratelimit-remaining-subscription-global-writes",
+        "x-ms-ratelimit-remaining-tenant-reads",
+        "x-ms-ratelimit-remaining-tenant-writes"
+    };
+
+    private final AdaptiveRateLimiter limiter;
+
+    public AdaptiveRateLimitPolicy(AdaptiveRateLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public Mono<HttpResponse> process(HttpPipelineCallContext context, HttpPipelineNextPolicy next) {
+        final HttpMetrics metrics = HttpMetrics.of(context);
+        if (!metrics.isScoped()) {
+            return next.process();
+        }
+        // the context is shared by all the attempts of a call
+        final int attempt = context.getData(ATTEMPT_KEY).map(value -> (Integer) value).orElse(0) + 1;
+        context.setData(ATTEMPT_KEY, attempt);
+        metrics.onRequest();
+        if (attempt > 1) {
+            metrics.onRetried();
+        }
+        final long wait = limiter.reserve();
+        final Mono<HttpResponse> response;
+        if (wait > 0) {
+            metrics.onRateLimitWait(wait);
+            response = Mono.delay(Duration.ofMillis(wait)).then(Mono.defer(next::process));
+        } else {
+            response = next.process();
+        }
+        return response.doOnNext(result -> onResponse(result, metrics));
+    }
+
+    private void onResponse(HttpResponse response, HttpMetrics metrics) {
+        final int status = response.getStatusCode();
+        final long retryAfter = getRetryAfterMillis(response);
+        if (status == TOO_MANY_REQUESTS || (status == SERVICE_UNAVAILABLE && retryAfter >= 0)) {
+            metrics.onThrottled();
+            limiter.onThrottled(retryAfter);
+        } else {
+            limiter.onSuccess(getRemainingRequests(response));
+        }
+    }
+
+    /**
+     * @return the min remaining requests in the rate limit headers, -1 if there is none
+     */
+    static long getRemainingRequests(HttpResponse response) {
+        long result = -1;
+        for (final String header : REMAINING_REQUESTS) {
+            final long remaining = NumberUtils.toLong(StringUtils.trim(response.getHeaderValue(header)), -1);
+            if (remaining >= 0) {
+                result = result < 0 ? remaining : Math.min(result, remaining);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return milliseconds to wait before retrying, -1 if the response doesn't have a `Retry-After` header
+     */
+    static long getRetryAfterMillis(HttpResponse response) {
+        for (final String header : RETRY_AFTER_MS) {
+            final long millis = NumberUtils.toLong(StringUtils.trim(response.getHeaderValue(header)), -1);
+            if (millis >= 0) {
+                return millis;
+            }
+        }
+        final String retryAfter = StringUtils.trim(response.getHeaderValue(RETRY_AFTER));
+        if (StringUtils.isBlank(retryAfter)) {
+            return -1;
+        }
+        if (NumberUtils.isDigits(retryAfter)) {
+            return Duration.ofSeconds(Long.parseLong(retryAfter)).toMillis();
+        }
+        try {
+            final ZonedDateTime time = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(time.getZone()), time).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    public static class Provider implements AfterRetryPolicyProvider {
+        @Override
+        public HttpPipelinePolicy create() {
+            return Boolean.parseBoolean(System.getProperty(ENABLED_KEY, "true")) ?
+                new AdaptiveRateLimitPolicy(AdaptiveRateLimiter.getInstance()) : (context, next) -> next.process();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.http;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket shared by all the Azure REST calls in current JVM. The refill rate is adapted to the throttling
+ * signals of Azure Resource Manager (additive increase, multiplicative decrease), and all calls are paused for the
+ * `Retry-After` period (plus jitter) once a call is throttled, instead of letting every caller retry on its own.
+ */
+public class AdaptiveRateLimiter {
+    public static final int DEFAULT_CAPACITY = 50;
+    public static final double DEFAULT_MAX_RATE = 25;
+    public static final double DEFAULT_MIN_RATE = 1;
+    // below this number of remaining requests reported by ARM, the rate is reduced proportionally
+    private static final long REMAINING_LOW_WATERMARK = 100;
+    private static final double RATE_STEP = 0.5;
+    private static final long BASE_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30 * 1000;
+
+    private static final AdaptiveRateLimiter instance = new AdaptiveRateLimiter(DEFAULT_CAPACITY, DEFAULT_MAX_RATE, DEFAULT_MIN_RATE);
+
+    private final int capacity;
+    private final double maxRate;
+    private final double minRate;
+    private final LongSupplier nanoClock;
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+    private int consecutiveThrottles;
+
+    public AdaptiveRateLimiter(int capacity, double maxRate, double minRate) {
+        this(capacity, maxRate, minRate, System::nanoTime);
+    }
+
+    AdaptiveRateLimiter(int capacity, double maxRate, double minRate, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.maxRate = maxRate;
+        this.minRate = minRate;
+        this.nanoClock = nanoClock;
+        this.rate = maxRate;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    public static AdaptiveRateLimiter getInstance() {
+        return instance;
+    }
+
+    /**
+     * Take a token from the bucket
+     *
+     * @return milliseconds the caller should wait before sending the request
+     */
+    public synchronized long reserve() {
+        final long now = nanoClock.getAsLong();
+        refill(now);
+        tokens -= 1;
+        final long waitForToken = tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        final long wait = Math.max(waitForToken, pausedUntilNanos - now);
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(0, wait));
+    }
+
+    /**
+     * A call is throttled, pause all calls for the given period (or an exponential backoff if there is none) with jitter
+     *
+     * @param retryAfterMillis the period from `Retry-After`, negative if the response doesn't have one
+     */
+    public synchronized void onThrottled(long retryAfterMillis) {
+        consecutiveThrottles++;
+        rate = Math.max(minRate, rate / 2);
+        final long backoff = retryAfterMillis >= 0 ? retryAfterMillis :
+                Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(consecutiveThrottles - 1, 5));
+        // jitter so that the paused calls don't hit the server at the same time again
+        final long jitter = ThreadLocalRandom.current().nextLong(backoff / 5 + 1);
+        final long now = nanoClock.getAsLong();
+        pausedUntilNanos = Math.max(pausedUntilNanos, now + TimeUnit.MILLISECONDS.toNanos(backoff + jitter));
+        refill(now);
+        tokens = Math.min(tokens, 0);
+    }
+
+    /**
+     * A call succeeded, recover the rate slowly
+     *
+     * @param remaining the remaining requests reported by ARM, negative if the response doesn't have it
+     */
+    public synchronized void onSuccess(long remaining) {
+        consecutiveThrottles = 0;
+        if (remaining >= 0 && remaining < REMAINING_LOW_WATERMARK) {
+            rate = Math.max(minRate, maxRate * remaining / REMAINING_LOW_WATERMARK);
+        } else {
+            rate = Math.min(maxRate, rate + RATE_STEP);
+        }
+    }
+
+    public synchronized boolean isThrottled() {
+        return consecutiveThrottles > 0 || nanoClock.getAsLong() < pausedUntilNanos;
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill(long now) {
+        if (now > lastRefillNanos) {
+            tokens = Math.min(capacity, tokens + (double) (now - lastRefillNanos) / TimeUnit.SECONDS.toNanos(1) * rate);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.HttpPipelineNextPolicy;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.AfterRetryPolicyProvider;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import org.apache.commons.lang3.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Send every Azure REST call (ARM and Kudu) to another server, e.g. the offline stand-in server of the tests and
+ * benchmarks, with `-Dazure.http.endpointOverride=http://localhost:<port>`. The path and query are kept, and the
+ * original host is passed in the `X-Original-Host` header. The policy runs after the authentication policy, which
+ * requires https, and is registered last so that the metrics still record the original endpoints.
+ */
+public class EndpointOverridePolicy implements HttpPipelinePolicy {
+    public static final String ENDPOINT_KEY = "azure.http.endpointOverride";
+    public static final String ORIGINAL_HOST_HEADER = "X-Original-Host";
+
+    private final URL endpoint;
+
+    public EndpointOverridePolicy(URL endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    @Override
+    public Mono<HttpResponse> process(HttpPipelineCallContext context, HttpPipelineNextPolicy next) {
+        final HttpRequest request = context.getHttpRequest();
+        final URL url = request.getUrl();
+        try {
+            request.setUrl(new URL(endpoint.getProtocol(), endpoint.getHost(), endpoint.getPort(), url.getFile()));
+        } catch (MalformedURLException e) {
+            return Mono.error(new AzureToolkitRuntimeException(String.format("Cannot send '%s' to '%s'.", url, endpoint), e));
+        }
+        request.setHeader(ORIGINAL_HOST_HEADER, url.getHost());
+        return next.process();
+    }
+
+    public static class Provider implements AfterRetryPolicyProvider {
+        @Override
+        public HttpPipelinePolicy create() {
+            final String endpoint = System.getProperty(ENDPOINT_KEY);
+            if (StringUtils.isBlank(endpoint)) {
+                return (context, next) -> next.process();
+            }
+            try {
+                return new EndpointOverridePolicy(new URL(StringUtils.trim(endpoint)));
+            } catch (MalformedURLException e) {
+                throw new AzureToolkitRuntimeException(String.format("Invalid value '%s' of '%s'.", endpoint, ENDPOINT_KEY), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpPipeline;
+import com.azure.core.http.HttpPipelineBuilder;
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.HttpPipelineNextPolicy;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.AfterRetryPolicyProvider;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import com.azure.core.util.Context;
+import com.google.common.base.Suppliers;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedge the idempotent GET calls: if a call doesn't respond within the p95 latency of the recent GET calls, send the
+ * same request again and take whichever responds first. Hedging is limited to a small ratio of the calls and is
+ * suspended while the calls are throttled, so that it never adds load to a busy server. Only the calls sent by the tasks
+ * of the plugins are hedged (see {@link HttpMetrics}), the calls of other clients in the daemon are left alone. The hedge
+ * is sent as a call of its own, so that the context (and the request) of the primary attempt, which the retry policy may
+ * retry, is never modified.
+ */
+public class HedgingPolicy implements HttpPipelinePolicy {
+    public static final String ENABLED_KEY = "azure.http.hedging";
+    private static final int WINDOW_SIZE = 200;
+    private static final int MIN_SAMPLES = 20;
+    private static final double PERCENTILE = 0.95;
+    private static final long MIN_DELAY_MILLIS = 200;
+    private static final double MAX_HEDGE_RATIO = 0.1;
+    private static final Supplier<HttpClient> HEDGE_CLIENT = Suppliers.memoize(HttpClient::createDefault);
+
+    private final AdaptiveRateLimiter limiter;
+    private final HttpPipeline hedgePipeline;
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private int samples;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    /**
+     * @param hedgePipeline the pipeline the hedges are sent with, which has the policies registered after this one
+     */
+    public HedgingPolicy(AdaptiveRateLimiter limiter, HttpPipeline hedgePipeline) {
+        this.limiter = limiter;
+        this.hedgePipeline = hedgePipeline;
+    }
+
+    @Override
+    public Mono<HttpResponse> process(HttpPipelineCallContext context, HttpPipelineNextPolicy next) {
+        final HttpMetrics metrics = HttpMetrics.of(context);
+        if (!metrics.isScoped() || context.getHttpRequest().getHttpMethod() != HttpMethod.GET) {
+            return next.process();
+        }
+        requests.incrementAndGet();
+        final long start = System.nanoTime();
+        final long delay = getHedgeDelay();
+        if (delay < 0) {
+            return next.process().doOnNext(response -> record(start));
+        }
+        // the policies after this one (e.g. the endpoint override) modify the request, so the hedge is sent on a copy
+        // of the request taken before the primary attempt is sent. The copy has the headers of the authentication
+        // policy, and the data of the call (e.g. its metrics) are passed to the hedge with the context.
+        final HttpRequest hedgeRequest = context.getHttpRequest().copy();
+        final Context hedgeContext = context.getContext();
+        final Mono<HttpResponse> primary = Mono.defer(next::process);
+        final Mono<HttpResponse> hedge = Mono.delay(Duration.ofMillis(delay)).flatMap(ignore -> {
+            if (!tryHedge()) {
+                return Mono.<HttpResponse>never();
+            }
+            metrics.onHedged();
+            return hedgePipeline.send(hedgeRequest, hedgeContext).doOnNext(response -> metrics.onHedgeWin());
+        }).onErrorResume(error -> Mono.never());
+        // the hedge never completes empty nor fails, so that the outcome of the primary attempt (including its error,
+        // which the retry policy handles) is the outcome of the call unless the hedge responds first. The other one is
+        // cancelled as soon as one of them signals.
+        return Mono.firstWithSignal(primary, hedge).doOnNext(response -> record(start));
+    }
+
+    /**
+     * @return whether a hedge may be sent, hedges are limited to a ratio of the calls and suspended while throttled
+     */
+    synchronized boolean tryHedge() {
+        if (limiter.isThrottled() || hedges.get() >= requests.get() * MAX_HEDGE_RATIO) {
+            return false;
+        }
+        hedges.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return the p95 latency of the recent GET calls in milliseconds, -1 if there are not enough samples
+     */
+    synchronized long getHedgeDelay() {
+        if (samples < MIN_SAMPLES) {
+            return -1;
+        }
+        final long[] sorted = Arrays.copyOf(latencies, Math.min(samples, WINDOW_SIZE));
+        Arrays.sort(sorted);
+        final int index = (int) Math.ceil(PERCENTILE * sorted.length) - 1;
+        return Math.max(MIN_DELAY_MILLIS, sorted[Math.max(0, index)]);
+    }
+
+    private void record(long startNanos) {
+        recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    synchronized void recordLatency(long millis) {
+        latencies[samples % WINDOW_SIZE] = millis;
+        samples++;
+    }
+
+    public static class Provider implements AfterRetryPolicyProvider {
+        @Override
+        public HttpPipelinePolicy create() {
+            if (!Boolean.parseBoolean(System.getProperty(ENABLED_KEY, "true"))) {
+                return (context, next) -> next.process();
+            }
+            // the policies registered after this one which apply to GET calls, the client is shared by all the hedges
+            final HttpPipeline hedgePipeline = new HttpPipelineBuilder().httpClient(HEDGE_CLIENT.get())
+                .policies(new HttpRecordingPolicy.Provider().create(), new EndpointOverridePolicy.Provider().create())
+                .build();
+            return new HedgingPolicy(AdaptiveRateLimiter.getInstance(), hedgePipeline);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.http;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A single attempt of an Azure REST call, sizes are -1 if they are unknown (e.g. chunked responses)
+ */
+@Getter
+@AllArgsConstructor
+public class HttpCallRecord {
+    private final long timestamp;
+    private final String method;
+    private final String endpoint;
+    private final int status;
+    private final long latencyMillis;
+    private final long requestBytes;
+    private final long responseBytes;
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.policy.BeforeRetryPolicyProvider;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.gradle.trace.Tracer;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Counters and records of the Azure REST calls made by a task, started when the task starts and reported when it ends.
+ * Tasks running in parallel in the same daemon have their own metrics: the metrics of a task are bound to its thread
+ * (and to the reactor threads it schedules work on), and a call is attributed to the metrics bound to the thread it is
+ * sent from, which are kept in the context of the call for its retries and hedges. Calls sent from other threads (e.g.
+ * by the SDK clients of other plugins) are counted by none of them, and are neither rate limited nor hedged.
+ */
+public class HttpMetrics {
+    public static final String RECORDS_KEY = "azure.http.records";
+    private static final String CONTEXT_KEY = "azure-gradle-http-metrics";
+    // enough for any deployment, the records of a runaway loop are dropped instead of filling the daemon heap
+    private static final int MAX_RECORDS = 10000;
+    private static final String SUMMARY_HEADER = String.format("%6s %8s %8s %8s %10s  %s", "calls", "p50(ms)", "p95(ms)", "max(ms)", "bytes", "endpoint");
+    private static final ThreadLocal<HttpMetrics> CURRENT = new ThreadLocal<>();
+    // calls which are not sent by a task of the plugins, which are counted but never reported
+    private static final HttpMetrics UNSCOPED = new HttpMetrics("");
+
+    static {
+        // bind the metrics of a task to the reactor threads running the work it schedules, e.g. `subscribeOn`
+        Schedulers.onScheduleHook(CONTEXT_KEY, task -> {
+            final HttpMetrics metrics = CURRENT.get();
+            return metrics == null ? task : () -> {
+                final HttpMetrics previous = CURRENT.get();
+                CURRENT.set(metrics);
+                try {
+                    task.run();
+                } finally {
+                    CURRENT.set(previous);
+                }
+            };
+        });
+    }
+
+    private final String name;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong hedged = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong rateLimitWaitMillis = new AtomicLong();
+    private final List<HttpCallRecord> records = new ArrayList<>();
+
+    private HttpMetrics(@Nonnull final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Start recording the calls of the task of the given name sent from the current thread, until {@link #stop()}
+     */
+    @Nonnull
+    public static HttpMetrics start(@Nonnull final String name) {
+        final HttpMetrics metrics = new HttpMetrics(name);
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    /**
+     * Stop recording the calls sent from the current thread, the responses of the calls already sent are still recorded
+     */
+    public void stop() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * @return the metrics the call is attributed to, which are the ones bound to the thread the call is sent from
+     */
+    @Nonnull
+    static HttpMetrics of(@Nonnull final HttpPipelineCallContext context) {
+        final Object data = context.getData(CONTEXT_KEY).orElse(null);
+        if (data instanceof HttpMetrics) {
+            return (HttpMetrics) data;
+        }
+        final HttpMetrics current = CURRENT.get();
+        if (current == null) {
+            return UNSCOPED;
+        }
+        context.setData(CONTEXT_KEY, current);
+        return current;
+    }
+
+    /**
+     * @return whether the metrics are the ones of a task, i.e. the calls attributed to them are sent by the plugins
+     */
+    boolean isScoped() {
+        return this != UNSCOPED;
+    }
+
+    void onRequest() {
+        requests.incrementAndGet();
+    }
+
+    void onThrottled() {
+        throttled.incrementAndGet();
+    }
+
+    void onRetried() {
+        retried.incrementAndGet();
+    }
+
+    void onHedged() {
+        hedged.incrementAndGet();
+    }
+
+    void onHedgeWin() {
+        hedgeWins.incrementAndGet();
+    }
+
+    void onRateLimitWait(long millis) {
+        rateLimitWaitMillis.addAndGet(millis);
+    }
+
+    synchronized void onResponse(HttpCallRecord record) {
+        if (this != UNSCOPED && records.size() < MAX_RECORDS) {
+            records.add(record);
+        }
+    }
+
+    public synchronized List<HttpCallRecord> getRecords() {
+        return new ArrayList<>(records);
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getRetried() {
+        return retried.get();
+    }
+
+    public long getHedged() {
+        return hedged.get();
+    }
+
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    public long getRateLimitWaitMillis() {
+        return rateLimitWaitMillis.get();
+    }
+
+    /**
+     * Print the counters if any call was throttled, retried or hedged, and the calls per endpoint (slowest first), the
+     * raw records are written to `<buildDirectory>/reports/azure/<task>-http.json` if `-Dazure.http.records=true`
+     */
+    public void report(@Nonnull final File buildDirectory) {
+        if (getThrottled() + getRetried() + getHedged() > 0) {
+            AzureMessager.getMessager().info(toString());
+        }
+        final List<HttpCallRecord> calls = getRecords();
+        if (calls.isEmpty()) {
+            return;
+        }
+        AzureMessager.getMessager().info(getSummary(calls));
+        if (Boolean.parseBoolean(System.getProperty(RECORDS_KEY))) {
+            final File file = new File(new File(buildDirectory, Tracer.REPORT_DIRECTORY), name + "-http.json");
+            try {
+                file.getParentFile().mkdirs();
+                new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, calls);
+                AzureMessager.getMessager().info(String.format("Azure REST calls are written to %s", file.getAbsolutePath()));
+            } catch (IOException e) {
+                AzureMessager.getMessager().warning(String.format("Failed to write Azure REST calls: %s", e.getMessage()));
+            }
+        }
+    }
+
+    static String getSummary(@Nonnull final List<HttpCallRecord> calls) {
+        final Map<String, List<HttpCallRecord>> endpoints = calls.stream()
+            .collect(Collectors.groupingBy(call -> call.getMethod() + " " + call.getEndpoint(), LinkedHashMap::new, Collectors.toList()));
+        final StringBuilder result = new StringBuilder(String.format("Azure REST calls per endpoint:%n%s", SUMMARY_HEADER));
+        endpoints.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, List<HttpCallRecord>> e) -> getTotalLatency(e.getValue())).reversed())
+            .forEach(e -> {
+                final long[] latencies = e.getValue().stream().mapToLong(HttpCallRecord::getLatencyMillis).sorted().toArray();
+                final long bytes = e.getValue().stream().mapToLong(call -> Math.max(0, call.getRequestBytes()) + Math.max(0, call.getResponseBytes())).sum();
+                final long errors = e.getValue().stream().filter(call -> call.getStatus() >= 400).count();
+                result.append(String.format("%n%6d %8d %8d %8d %10d  %s%s", latencies.length, percentile(latencies, 0.5), percentile(latencies, 0.95),
+                    latencies[latencies.length - 1], bytes, e.getKey(), errors > 0 ? String.format(" (%d failed)", errors) : ""));
+            });
+        return result.toString();
+    }
+
+    private static long getTotalLatency(List<HttpCallRecord> calls) {
+        return calls.stream().mapToLong(HttpCallRecord::getLatencyMillis).sum();
+    }
+
+    /**
+     * @param sorted latencies in ascending order, not empty
+     */
+    private static long percentile(long[] sorted, double percentile) {
+        final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Azure REST calls: %d requests, %d throttled, %d retried, %d hedged (%d won), %d ms waited for rate limit.",
+                getRequests(), getThrottled(), getRetried(), getHedged(), getHedgeWins(), getRateLimitWaitMillis());
+    }
+
+    /**
+     * Bind the call to the metrics of the thread it is sent from, before the retry policy and the authentication
+     * policy, which may send the attempts from other threads
+     */
+    public static class Provider implements BeforeRetryPolicyProvider {
+        @Override
+        public HttpPipelinePolicy create() {
+            return (context, next) -> {
+                of(context);
+                return next.process();
+            };
+        }
+    }
+}
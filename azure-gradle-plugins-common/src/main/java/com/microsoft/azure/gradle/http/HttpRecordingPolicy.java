@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.HttpPipelineNextPolicy;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.AfterRetryPolicyProvider;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import reactor.core.publisher.Mono;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Record method, endpoint, status, latency and payload size of every Azure REST call into the {@link HttpMetrics} of
+ * the task sending it. The policy is registered after the rate limit and hedging policies, so the latency is the one
+ * of the attempt on the wire and every hedged attempt is recorded.
+ */
+public class HttpRecordingPolicy implements HttpPipelinePolicy {
+    public static final String ENABLED_KEY = "azure.http.metrics";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    // the segment after these ones is the name of a resource, e.g. `/resourceGroups/<name>`
+    private static final Set<String> COLLECTIONS = new HashSet<>(Arrays.asList("subscriptions", "resourcegroups", "sites", "slots",
+        "serverfarms", "functions", "deployments", "components", "storageaccounts", "operationresults", "operations", "tenants"));
+    // ARM and AAD endpoints, other hosts (e.g. `<app>.scm.azurewebsites.net`) are named after a resource
+    private static final Set<String> SERVICE_HOSTS = new HashSet<>(Arrays.asList("management", "login", "graph"));
+    private static final Pattern ID = Pattern.compile("^([0-9a-fA-F]{8}-([0-9a-fA-F]{4}-){3}[0-9a-fA-F]{12}|\\d+)$");
+
+    @Override
+    public Mono<HttpResponse> process(HttpPipelineCallContext context, HttpPipelineNextPolicy next) {
+        final HttpRequest request = context.getHttpRequest();
+        final long start = System.nanoTime();
+        final HttpMetrics metrics = HttpMetrics.of(context);
+        return next.process().doOnNext(response -> metrics.onResponse(new HttpCallRecord(System.currentTimeMillis(),
+            request.getHttpMethod().name(), normalize(request.getUrl()), response.getStatusCode(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+            getContentLength(request.getHeaders().getValue(CONTENT_LENGTH)), getContentLength(response.getHeaderValue(CONTENT_LENGTH)))));
+    }
+
+    /**
+     * @return the url without query and with the names of the resources replaced by placeholders, so that the calls to
+     * the same endpoint can be aggregated, e.g. `management.azure.com/subscriptions/{}/resourceGroups/{}/providers/Microsoft.Web/sites/{}`
+     */
+    static String normalize(URL url) {
+        final String host = StringUtils.lowerCase(url.getHost());
+        final String normalizedHost = SERVICE_HOSTS.contains(StringUtils.substringBefore(host, ".")) || !host.contains(".") ?
+            host : "{}." + StringUtils.substringAfter(host, ".");
+        final String[] segments = StringUtils.split(url.getPath(), '/');
+        final StringBuilder result = new StringBuilder(normalizedHost);
+        for (int i = 0; i < segments.length; i++) {
+            final boolean isName = (i > 0 && COLLECTIONS.contains(StringUtils.lowerCase(segments[i - 1]))) || ID.matcher(segments[i]).matches();
+            result.append('/').append(isName ? "{}" : segments[i]);
+        }
+        return result.toString();
+    }
+
+    private static long getContentLength(String value) {
+        return NumberUtils.toLong(StringUtils.trim(value), -1);
+    }
+
+    public static class Provider implements AfterRetryPolicyProvider {
+        @Override
+        public HttpPipelinePolicy create() {
+            return Boolean.parseBoolean(System.getProperty(ENABLED_KEY, "true")) ?
+                new HttpRecordingPolicy() : (context, next) -> next.process();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.http;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Listeners of the uploads of a deployment to the Kudu site of an app or a deployment slot (zip deploy or one deploy),
+ * notified by {@link UploadProgressPolicy}. An upload is attributed by the host it is sent to, e.g.
+ * `<app>[-<slot>].scm.azurewebsites.net`, so that apps deployed in parallel are told apart; uploads to other hosts (e.g.
+ * the storage account of a flex consumption app) are not reported. An upload may be split into several requests and a
+ * request may be retried, so listeners are told about every request and aggregate them.
+ */
+public class UploadProgress {
+    private static final List<Registration> REGISTRATIONS = new CopyOnWriteArrayList<>();
+
+    public interface Listener {
+        /**
+         * A request sending the given number of bytes starts
+         */
+        void started(long bytes);
+
+        /**
+         * More bytes of a request have been handed to the http client
+         */
+        void sent(long bytes);
+
+        /**
+         * A request has ended, a failed one (which may be retried) is not part of the progress anymore
+         */
+        void finished(long bytes, long sentBytes, boolean success);
+    }
+
+    public static class Registration implements AutoCloseable {
+        // the first label of the host names of the app or slot
+        @Nullable
+        private final String siteName;
+        private final Listener listener;
+
+        private Registration(@Nullable String siteName, @Nonnull Listener listener) {
+            this.siteName = siteName;
+            this.listener = listener;
+        }
+
+        @Override
+        public void close() {
+            REGISTRATIONS.remove(this);
+        }
+    }
+
+    /**
+     * Listen to the uploads of the given app, or of its deployment slot if any, until the registration is closed
+     */
+    public static Registration watch(@Nullable String appName, @Nullable String slotName, @Nonnull Listener listener) {
+        final String siteName = StringUtils.isBlank(appName) ? null : StringUtils.isBlank(slotName) ? appName : appName + "-" + slotName;
+        final Registration registration = new Registration(StringUtils.lowerCase(StringUtils.trim(siteName)), listener);
+        REGISTRATIONS.add(registration);
+        return registration;
+    }
+
+    /**
+     * @return the listener of the app or slot the host is named after, e.g. `<app>.scm.azurewebsites.net`, null if no
+     * deployment of it is watched
+     */
+    @Nullable
+    static Listener getListener(@Nonnull String host) {
+        final String name = StringUtils.lowerCase(StringUtils.substringBefore(host, "."));
+        for (final Registration registration : REGISTRATIONS) {
+            if (registration.siteName != null && StringUtils.equals(name, registration.siteName)) {
+                return registration.listener;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.HttpPipelineNextPolicy;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.AfterRetryPolicyProvider;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count the bytes of the large request bodies (packages and blocks of packages) while they are handed to the http
+ * client, and report them to the {@link UploadProgress} listener of the app. The policy runs after the retry policy, so
+ * every attempt is reported, and before {@link EndpointOverridePolicy}, so that the original host is matched.
+ */
+public class UploadProgressPolicy implements HttpPipelinePolicy {
+    public static final String ENABLED_KEY = "azure.http.uploadProgress";
+    private static final String CONTENT_LENGTH = "Content-Length";
+    // ARM requests are far smaller
+    private static final long MIN_BYTES = 1024 * 1024;
+
+    @Override
+    public Mono<HttpResponse> process(HttpPipelineCallContext context, HttpPipelineNextPolicy next) {
+        final HttpRequest request = context.getHttpRequest();
+        final long bytes = NumberUtils.toLong(StringUtils.trim(request.getHeaders().getValue(CONTENT_LENGTH)), -1);
+        final UploadProgress.Listener listener = bytes < MIN_BYTES || request.getBody() == null ? null : UploadProgress.getListener(request.getUrl().getHost());
+        if (listener == null) {
+            return next.process();
+        }
+        final AtomicLong sent = new AtomicLong();
+        request.setBody(request.getBody().map(buffer -> {
+            final int remaining = buffer.remaining();
+            sent.addAndGet(remaining);
+            listener.sent(remaining);
+            return buffer;
+        }));
+        return Mono.defer(() -> {
+            listener.started(bytes);
+            return next.process();
+        }).doOnSuccess(response -> listener.finished(bytes, sent.get(), response != null && response.getStatusCode() < 400))
+            .doOnError(error -> listener.finished(bytes, sent.get(), false));
+    }
+
+    public static class Provider implements AfterRetryPolicyProvider {
+        @Override
+        public HttpPipelinePolicy create() {
+            return Boolean.parseBoolean(System.getProperty(ENABLED_KEY, "true")) ?
+                new UploadProgressPolicy() : (context, next) -> next.process();
+        }
+    }
+}
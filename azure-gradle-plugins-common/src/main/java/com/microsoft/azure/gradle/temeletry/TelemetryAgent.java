@@ -11,8 +11,6 @@ import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
 import com.microsoft.azure.toolkit.lib.common.telemetry.AzureTelemeter;
 import com.microsoft.azure.toolkit.lib.common.telemetry.AzureTelemetryClient;
 import com.microsoft.azure.toolkit.lib.common.telemetry.AzureTelemetryConfigProvider;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import javax.annotation.Nonnull;
 import java.io.*;
@@ -36,10 +34,12 @@ public class TelemetryAgent {
         "Read Microsoft's privacy statement to learn more: https://privacy.microsoft.com/en-us/privacystatement." +
         "\n\nYou can change your telemetry configuration through 'allowTelemetry' property.\n" +
         "For more information, please go to https://aka.ms/azure-gradle-config.\n";
-    private static final String ERROR_MESSAGE = "error.message";
-    private static final String ERROR_STACK = "error.stack";
-    private static final String ERROR_CLASSNAME = "error.class_name";
+    private static final File SPOOL_DIRECTORY = Paths.get(System.getProperty("user.home"), ".azure", "gradleplugins", "telemetry").toFile();
+    // the time a build waits at its end for the queued events to be sent, before they are spooled
+    private static final long FLUSH_TIMEOUT_MILLIS = 1000;
     private final AzureTelemetryClient telemetryProxy = AzureTelemeter.getClient();
+    private final TelemetryQueue queue = new TelemetryQueue(event -> telemetryProxy.trackEvent(event.getName(), event.getProperties()), SPOOL_DIRECTORY);
+    private volatile boolean enabled;
 
     private static final TelemetryAgent instance = new TelemetryAgent();
 
@@ -57,14 +57,32 @@ public class TelemetryAgent {
         Optional.ofNullable(properties).ifPresent(values -> values.forEach(this::addDefaultProperty));
     }
 
+    /**
+     * Events are queued only when telemetry is allowed, so that events of builds which opted out are neither sent nor
+     * spooled. Allowing telemetry also sends again the events spooled by previous builds.
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+        if (enabled) {
+            queue.start();
+        }
+    }
+
+    /**
+     * Wait (shortly) for the queued events to be sent, called when a build ends
+     */
+    public void flush() {
+        queue.flush(FLUSH_TIMEOUT_MILLIS);
+    }
+
     @Deprecated
     public void trackEvent(String event) {
-        telemetryProxy.trackEvent(event);
+        trackEvent(event, null);
     }
 
     @Deprecated
     public void trackEvent(final String eventName, final Map<String, String> customProperties) {
-        telemetryProxy.trackEvent(eventName, customProperties);
+        track(new TelemetryEvent(eventName, customProperties, null));
     }
 
     public void showPrivacyStatement() {
@@ -92,13 +110,14 @@ public class TelemetryAgent {
 
     @Deprecated
     public void traceException(@Nonnull final Class<?> taskClass, final Exception exception) {
-        final HashMap<String, String> failureReason = new HashMap<>();
-        final String errorMessage = Optional.ofNullable(exception.getMessage())
-                .filter(StringUtils::isNotEmpty).orElseGet(exception::toString);
-        failureReason.put(ERROR_MESSAGE, errorMessage);
-        failureReason.put(ERROR_STACK, ExceptionUtils.getStackTrace(exception));
-        failureReason.put(ERROR_CLASSNAME, exception.getClass().getName());
-        trackEvent(taskClass.getSimpleName() + ".failure", failureReason);
+        // the failure properties (and the stack trace) are built by the telemetry thread
+        track(new TelemetryEvent(taskClass.getSimpleName() + ".failure", null, exception));
+    }
+
+    private void track(@Nonnull final TelemetryEvent event) {
+        if (enabled) {
+            queue.offer(event);
+        }
     }
 
     private boolean isFirstRun(Properties prop) {
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.temeletry;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An event queued by {@link TelemetryQueue}, and a line of its spool files. The properties of a failure (message, stack
+ * and class of the exception) are only built when the event is sent or spooled, off the task thread.
+ */
+@Getter
+@Setter
+public class TelemetryEvent {
+    static final String ERROR_MESSAGE = "error.message";
+    static final String ERROR_STACK = "error.stack";
+    static final String ERROR_CLASSNAME = "error.class_name";
+
+    private String name;
+    private Map<String, String> properties;
+    private long timestamp;
+    @Nullable
+    @JsonIgnore
+    private Throwable exception;
+
+    public TelemetryEvent() {
+        // for jackson
+    }
+
+    public TelemetryEvent(@Nonnull final String name, @Nullable final Map<String, String> properties, @Nullable final Throwable exception) {
+        this.name = name;
+        this.properties = properties;
+        this.exception = exception;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public Map<String, String> getProperties() {
+        if (exception != null) {
+            final Map<String, String> result = new HashMap<>(Optional.ofNullable(properties).orElseGet(HashMap::new));
+            result.put(ERROR_MESSAGE, Optional.ofNullable(exception.getMessage()).filter(StringUtils::isNotEmpty).orElseGet(exception::toString));
+            result.put(ERROR_STACK, ExceptionUtils.getStackTrace(exception));
+            result.put(ERROR_CLASSNAME, exception.getClass().getName());
+            properties = result;
+            exception = null;
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.temeletry;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Send telemetry events on a daemon thread rather than on the task thread: events are queued (and dropped once the
+ * queue is full) and sent in batches. If sending fails or stalls, e.g. on an air-gapped or proxied agent, the events
+ * of the rest of the build are spooled to disk instead, as are the events still queued when the build ends and the
+ * flush budget is exhausted. Spooled events are sent again by the next builds, when the queue is idle.
+ */
+public class TelemetryQueue {
+    private static final int CAPACITY = 1000;
+    private static final int BATCH_SIZE = 50;
+    private static final long SLOW_SEND_MILLIS = 3000;
+    // spool files beyond these are deleted, oldest first
+    private static final int MAX_SPOOL_FILES = 20;
+    private static final int MAX_SPOOLED_EVENTS = 1000;
+    private static final String SPOOL_EXTENSION = ".jsonl";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Consumer<TelemetryEvent> sender;
+    private final File spoolDirectory;
+    private final BlockingQueue<TelemetryEvent> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean offline;
+    private volatile boolean replaySpool;
+    private volatile boolean started;
+    private Thread worker;
+
+    public TelemetryQueue(@Nonnull final Consumer<TelemetryEvent> sender, @Nonnull final File spoolDirectory) {
+        this.sender = sender;
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    /**
+     * A build starts: try to send events again, including the spooled ones. Called for each task, only the first call
+     * after a {@link #flush(long)} has an effect.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        offline = false;
+        replaySpool = true;
+        ensureWorker();
+    }
+
+    public void offer(@Nonnull final TelemetryEvent event) {
+        pending.incrementAndGet();
+        if (!queue.offer(event)) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        ensureWorker();
+    }
+
+    /**
+     * Wait at most the given time for the queued events to be sent, and spool the remaining ones
+     *
+     * @return whether all the events were sent or spooled
+     */
+    public boolean flush(final long timeoutMillis) {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        final List<TelemetryEvent> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        pending.addAndGet(-remaining.size());
+        spool(remaining);
+        started = false;
+        return pending.get() <= 0;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    private synchronized void ensureWorker() {
+        if (worker == null || !worker.isAlive()) {
+            worker = new Thread(this::run, "azure-telemetry");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void run() {
+        final List<TelemetryEvent> batch = new ArrayList<>(BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                final TelemetryEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    if (replaySpool && !offline) {
+                        replaySpool = false;
+                        replay();
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                if (offline) {
+                    spool(batch);
+                } else {
+                    send(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pending.addAndGet(-batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(final List<TelemetryEvent> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            final long start = System.nanoTime();
+            try {
+                sender.accept(batch.get(i));
+            } catch (RuntimeException e) {
+                goOffline(batch.subList(i, batch.size()));
+                return;
+            }
+            if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) > SLOW_SEND_MILLIS) {
+                goOffline(batch.subList(i + 1, batch.size()));
+                return;
+            }
+        }
+    }
+
+    private void goOffline(final List<TelemetryEvent> unsent) {
+        offline = true;
+        spool(unsent);
+    }
+
+    private void spool(final List<TelemetryEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            final List<String> lines = new ArrayList<>();
+            for (final TelemetryEvent event : events) {
+                lines.add(MAPPER.writeValueAsString(event));
+            }
+            FileUtils.forceMkdir(spoolDirectory);
+            FileUtils.writeLines(new File(spoolDirectory, System.currentTimeMillis() + "-" + UUID.randomUUID() + SPOOL_EXTENSION),
+                StandardCharsets.UTF_8.name(), lines);
+            trimSpool();
+        } catch (IOException | RuntimeException e) {
+            // telemetry must never fail a build, events which cannot be spooled are dropped
+            dropped.addAndGet(events.size());
+        }
+    }
+
+    /**
+     * Queue the spooled events again, as long as there is room left for the events of the build
+     */
+    private void replay() {
+        int replayed = 0;
+        for (final File file : getSpoolFiles()) {
+            if (offline || replayed >= CAPACITY / 2 || queue.remainingCapacity() < CAPACITY / 2) {
+                return;
+            }
+            try {
+                final List<String> lines = FileUtils.readLines(file, StandardCharsets.UTF_8);
+                FileUtils.deleteQuietly(file);
+                for (final String line : lines) {
+                    if (StringUtils.isNotBlank(line)) {
+                        offer(MAPPER.readValue(line, TelemetryEvent.class));
+                        replayed++;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // a broken spool file is not worth keeping
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    private void trimSpool() {
+        final List<File> files = getSpoolFiles();
+        long events = 0;
+        for (int i = files.size() - 1; i >= 0; i--) {
+            final File file = files.get(i);
+            events += countLines(file);
+            if (files.size() - i > MAX_SPOOL_FILES || events > MAX_SPOOLED_EVENTS) {
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    private static long countLines(final File file) {
+        try {
+            return FileUtils.readLines(file, StandardCharsets.UTF_8).size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the spool files, oldest first
+     */
+    private List<File> getSpoolFiles() {
+        final File[] files = spoolDirectory.listFiles((dir, name) -> name.endsWith(SPOOL_EXTENSION));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        final List<File> result = new ArrayList<>(Arrays.asList(files));
+        result.sort(Comparator.comparing(File::getName));
+        return result;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.trace;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * An append-only log of the runs of the package and deploy tasks of one app, one json per line under
+ * {@code ~/.azure/gradleplugins/history/<project>/<app>.jsonl}, so that it survives `gradle clean`. Only the latest
+ * runs of each task are kept. The phases of the latest run are compared with the median of the previous runs to find
+ * the ones which got slower.
+ */
+public class BuildHistory {
+    private static final File HISTORY_ROOT = Paths.get(System.getProperty("user.home"), ".azure", "gradleplugins", "history").toFile();
+    public static final String TOTAL = "total";
+    public static final int DEFAULT_MAX_RUNS_PER_TASK = 100;
+    private static final ObjectMapper MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final File file;
+    private final int maxRunsPerTask;
+
+    public BuildHistory(@Nonnull final File file) {
+        this(file, DEFAULT_MAX_RUNS_PER_TASK);
+    }
+
+    public BuildHistory(@Nonnull final File file, final int maxRunsPerTask) {
+        this.file = file;
+        this.maxRunsPerTask = Math.max(1, maxRunsPerTask);
+    }
+
+    public static File getFile(@Nonnull final File projectDirectory, @Nonnull final String appName) {
+        // projects with the same name in different folders have their own history
+        final String project = String.format("%s-%08x", projectDirectory.getName(), projectDirectory.getAbsolutePath().hashCode());
+        return Paths.get(HISTORY_ROOT.getAbsolutePath(), project, appName.toLowerCase() + ".jsonl").toFile();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Append the run of a stopped tracer to the history of the app, failures are only logged
+     */
+    public static void record(@Nonnull final Tracer tracer, @Nonnull final File projectDirectory, @Nullable final String appName) {
+        if (StringUtils.isBlank(appName)) {
+            return;
+        }
+        try {
+            new BuildHistory(getFile(projectDirectory, appName)).append(BuildHistoryEntry.of(tracer, appName));
+        } catch (IOException e) {
+            AzureMessager.getMessager().warning(String.format("Failed to record the build history of %s: %s", appName, e.getMessage()));
+        }
+    }
+
+    /**
+     * Append a run, and drop the oldest runs of the tasks which have more runs than the limit
+     */
+    public synchronized void append(@Nonnull final BuildHistoryEntry entry) throws IOException {
+        FileUtils.forceMkdirParent(file);
+        FileUtils.writeStringToFile(file, MAPPER.writeValueAsString(entry) + System.lineSeparator(), StandardCharsets.UTF_8, true);
+        final List<BuildHistoryEntry> entries = read();
+        final Map<String, Integer> runs = new HashMap<>();
+        final LinkedList<BuildHistoryEntry> kept = new LinkedList<>();
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            if (runs.merge(StringUtils.defaultString(entries.get(i).getTask()), 1, Integer::sum) <= maxRunsPerTask) {
+                kept.addFirst(entries.get(i));
+            }
+        }
+        if (kept.size() < entries.size()) {
+            // write to a temporary file first so that a concurrent reader never sees a partial history
+            final File temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+            final List<String> lines = new ArrayList<>();
+            for (final BuildHistoryEntry run : kept) {
+                lines.add(MAPPER.writeValueAsString(run));
+            }
+            FileUtils.writeLines(temp, StandardCharsets.UTF_8.name(), lines);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return the recorded runs from the oldest to the latest, lines which cannot be read (e.g. written by a build
+     * killed halfway) are skipped
+     */
+    public synchronized List<BuildHistoryEntry> read() throws IOException {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+        final List<BuildHistoryEntry> result = new ArrayList<>();
+        for (final String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+            if (StringUtils.isBlank(line)) {
+                continue;
+            }
+            try {
+                result.add(MAPPER.readValue(line, BuildHistoryEntry.class));
+            } catch (IOException e) {
+                // skip the broken line
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compare the phases of the latest successful run of each task with the median of the successful runs before it
+     *
+     * @param threshold   ratio (e.g. 0.2 for 20%) by which a phase must exceed its baseline to be flagged
+     * @param window      number of previous runs the baseline is computed from
+     * @param minimumDiff phases which got slower by less milliseconds than this are not flagged, to ignore the noise of short phases
+     */
+    public static List<Regression> detect(@Nonnull final List<BuildHistoryEntry> entries, final double threshold, final int window,
+                                          final long minimumDiff) {
+        final List<Regression> result = new ArrayList<>();
+        final Set<String> tasks = entries.stream().map(BuildHistoryEntry::getTask).filter(Objects::nonNull).collect(Collectors.toCollection(TreeSet::new));
+        for (final String task : tasks) {
+            final List<BuildHistoryEntry> runs = entries.stream()
+                .filter(entry -> entry.isSuccess() && StringUtils.equals(entry.getTask(), task)).collect(Collectors.toList());
+            if (runs.size() < 2) {
+                continue;
+            }
+            final BuildHistoryEntry latest = runs.get(runs.size() - 1);
+            final List<BuildHistoryEntry> baseline = runs.subList(Math.max(0, runs.size() - 1 - window), runs.size() - 1);
+            final List<String> phases = new ArrayList<>(latest.getPhases().keySet());
+            phases.add(TOTAL);
+            for (final String phase : phases) {
+                final long value = getMillis(latest, phase);
+                final long median = median(baseline.stream().map(entry -> getMillis(entry, phase))
+                    .filter(millis -> millis >= 0).sorted().collect(Collectors.toList()));
+                if (median >= 0 && value - median >= minimumDiff && value > median * (1 + threshold)) {
+                    result.add(new Regression(task, phase, value, median, baseline.size()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return duration of the phase (or the whole task), -1 if the phase is not in the run
+     */
+    private static long getMillis(@Nonnull final BuildHistoryEntry entry, @Nonnull final String phase) {
+        return StringUtils.equals(phase, TOTAL) ? entry.getDurationMillis() : entry.getPhases().getOrDefault(phase, -1L);
+    }
+
+    private static long median(@Nonnull final List<Long> sorted) {
+        return sorted.isEmpty() ? -1 : sorted.get((sorted.size() - 1) / 2);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Regression {
+        private final String task;
+        private final String phase;
+        private final long latestMillis;
+        private final long baselineMillis;
+        private final int baselineRuns;
+
+        @Override
+        public String toString() {
+            return String.format("%s > %s: %d ms, %+.0f%% against the baseline of %d ms (median of %d runs)", task, phase, latestMillis,
+                (latestMillis - baselineMillis) * 100.0 / Math.max(1, baselineMillis), baselineMillis, baselineRuns);
+        }
+    }
+}
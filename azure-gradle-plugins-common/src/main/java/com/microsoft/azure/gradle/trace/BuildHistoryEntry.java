@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.trace;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.annotation.Nonnull;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A run of a task in the {@link BuildHistory}, with the duration of each phase and the metrics of the task (e.g.
+ * `packageBytes`, `dependencies`, `functions`)
+ */
+@Getter
+@Setter
+public class BuildHistoryEntry {
+    private long timestamp;
+    private String task;
+    private String appName;
+    private boolean success;
+    private long durationMillis;
+    // milliseconds by phase, phases with the same name (e.g. retries) are added up
+    private Map<String, Long> phases = new LinkedHashMap<>();
+    private Map<String, Object> metrics = new LinkedHashMap<>();
+
+    public static BuildHistoryEntry of(@Nonnull final Tracer tracer, @Nonnull final String appName) {
+        final BuildHistoryEntry entry = new BuildHistoryEntry();
+        final Span root = tracer.getRoot();
+        entry.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(root.getDurationNanos()));
+        entry.setTimestamp(System.currentTimeMillis() - entry.getDurationMillis());
+        entry.setTask(root.getName());
+        entry.setAppName(appName);
+        entry.setSuccess(!tracer.isFailed());
+        tracer.getSpans().forEach(span -> entry.getPhases().merge(span.getName(), TimeUnit.NANOSECONDS.toMillis(span.getDurationNanos()), Long::sum));
+        entry.getMetrics().putAll(root.getArguments());
+        entry.getMetrics().remove("error");
+        return entry;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.trace;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Print the latest run of the package and deploy tasks of an app from its {@link BuildHistory}, and flag the phases
+ * which got slower than their rolling baseline by more than the threshold.
+ */
+public abstract class PerformanceReportTask extends DefaultTask {
+    public static final String THRESHOLD_KEY = "azure.performance.threshold";
+    public static final String BASELINE_SIZE_KEY = "azure.performance.baselineSize";
+    public static final String FAIL_ON_REGRESSION_KEY = "azure.performance.failOnRegression";
+    public static final double DEFAULT_THRESHOLD = 0.2;
+    public static final int DEFAULT_BASELINE_SIZE = 10;
+    // phases which got slower by less than this are not flagged, so that short phases don't fail the report on noise
+    private static final long MINIMUM_DIFF_MILLIS = 500;
+    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    public PerformanceReportTask() {
+        // the history is out of the build, so the report is never up-to-date
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @Internal
+    public abstract DirectoryProperty getProjectDirectory();
+
+    @Internal
+    public abstract Property<String> getAppName();
+
+    /**
+     * Ratio by which a phase must exceed the median of the previous runs to be flagged, e.g. 0.2 for 20%
+     */
+    @Internal
+    public abstract Property<Double> getThreshold();
+
+    /**
+     * Number of previous successful runs the baseline is computed from
+     */
+    @Internal
+    public abstract Property<Integer> getBaselineSize();
+
+    @Internal
+    public abstract Property<Boolean> getFailOnRegression();
+
+    @TaskAction
+    public void report() throws IOException {
+        if (!getAppName().isPresent()) {
+            throw new GradleException("Please config the 'appName' of the app to report.");
+        }
+        final String appName = getAppName().get();
+        final File file = BuildHistory.getFile(getProjectDirectory().get().getAsFile(), appName);
+        final List<BuildHistoryEntry> entries = new BuildHistory(file).read();
+        if (entries.isEmpty()) {
+            getLogger().lifecycle("No package or deploy of app {} has been recorded in {} yet.", appName, file.getAbsolutePath());
+            return;
+        }
+        final Map<String, BuildHistoryEntry> latest = new LinkedHashMap<>();
+        entries.stream().filter(BuildHistoryEntry::isSuccess).forEach(entry -> latest.put(entry.getTask(), entry));
+        getLogger().lifecycle("Latest successful runs of app {} ({} runs recorded in {}):", appName, entries.size(), file.getAbsolutePath());
+        latest.values().forEach(entry -> {
+            getLogger().lifecycle("  {} at {}: {} ms {}", entry.getTask(), new SimpleDateFormat(DATE_FORMAT).format(new Date(entry.getTimestamp())),
+                entry.getDurationMillis(), entry.getMetrics());
+            entry.getPhases().forEach((phase, millis) -> getLogger().lifecycle("    {}: {} ms", phase, millis));
+        });
+        final List<BuildHistory.Regression> regressions = BuildHistory.detect(entries, getThreshold().getOrElse(DEFAULT_THRESHOLD),
+            getBaselineSize().getOrElse(DEFAULT_BASELINE_SIZE), MINIMUM_DIFF_MILLIS);
+        if (regressions.isEmpty()) {
+            getLogger().lifecycle("No phase is slower than its baseline by more than {}%.", Math.round(getThreshold().getOrElse(DEFAULT_THRESHOLD) * 100));
+            return;
+        }
+        getLogger().warn("Phases slower than their baseline by more than {}%:", Math.round(getThreshold().getOrElse(DEFAULT_THRESHOLD) * 100));
+        regressions.forEach(regression -> getLogger().warn("  {}", regression));
+        if (getFailOnRegression().getOrElse(false)) {
+            throw new GradleException(String.format("%d phase(s) of app %s regressed, see the report above.", regressions.size(), appName));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.trace;
+
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import org.apache.commons.lang3.JavaVersion;
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Opt-in profiling of a task with `-Pazure.profile=true`: a JDK Flight Recorder recording of the daemon while the task
+ * runs, written to `<build>/reports/azure/<task>.jfr` along with a text summary (`<task>-profile.txt`) of the top CPU
+ * frames, allocation sites and blocking I/O. The recording covers the whole daemon, so tasks running in parallel are
+ * recorded too: the summary has a section for the thread running the task and one for the whole daemon. The flight recorder API needs Java 11, its implementation (`JfrProfiler`) is compiled separately and
+ * profiling is skipped with a warning on older daemons.
+ */
+public abstract class Profiler {
+    public static final String ENABLED_KEY = "azure.profile";
+    public static final Profiler NOOP = new Profiler() {
+        @Nonnull
+        @Override
+        public List<File> stop(@Nonnull File buildDirectory) {
+            return Collections.emptyList();
+        }
+    };
+    private static final String JFR_PROFILER = "com.microsoft.azure.gradle.trace.JfrProfiler";
+
+    /**
+     * Start recording for the task of the given name
+     */
+    @Nonnull
+    public static Profiler start(@Nonnull final String name) {
+        if (!SystemUtils.isJavaVersionAtLeast(JavaVersion.JAVA_11)) {
+            AzureMessager.getMessager().warning(String.format("Profiling requires the Gradle daemon to run on Java 11 or later (current: %s), " +
+                "%s is not profiled.", SystemUtils.JAVA_VERSION, name));
+            return NOOP;
+        }
+        try {
+            return (Profiler) Class.forName(JFR_PROFILER).getConstructor(String.class).newInstance(name);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            AzureMessager.getMessager().warning(String.format("Failed to start profiling %s: %s", name, ExceptionUtils.getRootCauseMessage(e)));
+            return NOOP;
+        }
+    }
+
+    /**
+     * Stop recording and write the recording and its summary, failures are only warned
+     *
+     * @return the files written
+     */
+    @Nonnull
+    public abstract List<File> stop(@Nonnull File buildDirectory);
+}
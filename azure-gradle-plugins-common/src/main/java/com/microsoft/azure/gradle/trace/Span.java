@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.trace;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A phase of a task, e.g. auth or upload, closed when the phase is done.
+ */
+public class Span implements AutoCloseable {
+    static final Span NOOP = new Span(null, "noop");
+
+    @Nullable
+    private final Tracer tracer;
+    private final String name;
+    private final long threadId = Thread.currentThread().getId();
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Object> arguments = new LinkedHashMap<>();
+    private volatile long endNanos = -1;
+
+    Span(@Nullable final Tracer tracer, @Nonnull final String name) {
+        this.tracer = tracer;
+        this.name = name;
+    }
+
+    /**
+     * @param bytes size of the data processed in this phase, e.g. the uploaded package
+     */
+    public Span bytes(long bytes) {
+        return argument("bytes", bytes);
+    }
+
+    /**
+     * @param count number of the items processed in this phase, e.g. the functions found
+     */
+    public Span count(long count) {
+        return argument("count", count);
+    }
+
+    public synchronized Span argument(@Nonnull final String key, @Nullable final Object value) {
+        if (tracer != null) {
+            arguments.put(key, value);
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (tracer != null && endNanos < 0) {
+            endNanos = System.nanoTime();
+            tracer.onClose(this);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getDurationNanos() {
+        return endNanos < 0 ? System.nanoTime() - startNanos : endNanos - startNanos;
+    }
+
+    public synchronized Map<String, Object> getArguments() {
+        return new LinkedHashMap<>(arguments);
+    }
+}
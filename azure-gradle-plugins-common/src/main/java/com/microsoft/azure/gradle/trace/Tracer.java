@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the phases of a task as nested spans, and writes them as a Chrome trace (`<build>/reports/azure/<task>.json`),
+ * which can be opened with chrome://tracing or https://ui.perfetto.dev. Spans are recorded by the tracer started on the
+ * current thread, and are ignored if there is none.
+ *
+ * <pre>
+ * try (Span span = Tracer.span("upload").bytes(file.length())) {
+ *     ...
+ * }
+ * </pre>
+ */
+public class Tracer {
+    public static final String REPORT_DIRECTORY = "reports/azure";
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final ThreadLocal<Tracer> CURRENT = new ThreadLocal<>();
+
+    private final Span root;
+    private final List<Span> spans = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean failed;
+
+    private Tracer(@Nonnull final String name) {
+        this.root = new Span(this, name);
+    }
+
+    /**
+     * Start tracing the task running on the current thread
+     */
+    public static Tracer start(@Nonnull final String name) {
+        final Tracer tracer = new Tracer(name);
+        CURRENT.set(tracer);
+        return tracer;
+    }
+
+    @Nullable
+    public static Tracer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return a new span of the tracer on current thread, which is closed when the phase is done
+     */
+    public static Span span(@Nonnull final String name) {
+        final Tracer tracer = CURRENT.get();
+        return tracer == null ? Span.NOOP : new Span(tracer, name);
+    }
+
+    /**
+     * Add a metric of the whole task to the tracer on current thread, e.g. the size of the package
+     */
+    public static void metric(@Nonnull final String key, @Nullable final Object value) {
+        final Tracer tracer = CURRENT.get();
+        if (tracer != null) {
+            tracer.root.argument(key, value);
+        }
+    }
+
+    public void fail(@Nonnull final Throwable error) {
+        failed = true;
+        root.argument("error", error.getMessage());
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    void onClose(@Nonnull final Span span) {
+        spans.add(span);
+    }
+
+    public Span getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the closed spans in the order they are started, without the root span
+     */
+    public List<Span> getSpans() {
+        final List<Span> result;
+        synchronized (spans) {
+            result = new ArrayList<>(spans);
+        }
+        result.remove(root);
+        result.sort((a, b) -> Long.compare(a.getStartNanos(), b.getStartNanos()));
+        return result;
+    }
+
+    /**
+     * Stop tracing and write the trace to `<buildDirectory>/reports/azure/<name>.json`, failures are only logged
+     *
+     * @return the trace file, null if it cannot be written
+     */
+    @Nullable
+    public File stop(@Nonnull final File buildDirectory) {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        root.close();
+        final File file = new File(new File(buildDirectory, REPORT_DIRECTORY), root.getName() + ".json");
+        try {
+            file.getParentFile().mkdirs();
+            MAPPER.writeValue(file, toChromeTrace());
+            return file;
+        } catch (IOException e) {
+            AzureMessager.getMessager().warning(String.format("Failed to write trace of %s: %s", root.getName(), e.getMessage()));
+            return null;
+        }
+    }
+
+    private Map<String, Object> toChromeTrace() {
+        final List<Map<String, Object>> events = new ArrayList<>();
+        events.add(toEvent(root));
+        getSpans().forEach(span -> events.add(toEvent(span)));
+        final Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("traceEvents", events);
+        trace.put("displayTimeUnit", "ms");
+        return trace;
+    }
+
+    private Map<String, Object> toEvent(@Nonnull final Span span) {
+        // complete events, nested by their start time and duration on the same thread
+        final Map<String, Object> event = new LinkedHashMap<>();
+        event.put("name", span.getName());
+        event.put("cat", "azure");
+        event.put("ph", "X");
+        event.put("ts", TimeUnit.NANOSECONDS.toMicros(span.getStartNanos() - root.getStartNanos()));
+        event.put("dur", TimeUnit.NANOSECONDS.toMicros(span.getDurationNanos()));
+        event.put("pid", 1);
+        event.put("tid", span.getThreadId());
+        event.put("args", span.getArguments());
+        return event;
+    }
+}
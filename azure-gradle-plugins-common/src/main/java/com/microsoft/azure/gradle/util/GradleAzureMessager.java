@@ -5,18 +5,74 @@
 
 package com.microsoft.azure.gradle.util;
 
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
 import com.microsoft.azure.toolkit.lib.common.messager.IAzureMessage;
 import com.microsoft.azure.toolkit.lib.common.messager.IAzureMessager;
 import com.microsoft.azure.toolkit.lib.common.utils.TextUtils;
-import lombok.AllArgsConstructor;
 import org.gradle.api.logging.Logger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
 
-@AllArgsConstructor
 public class GradleAzureMessager implements IAzureMessager, IAzureMessage.ValueDecorator {
-    private Logger log;
+    /**
+     * `-Dazure.log.summary=true` collapses the messages about every item of a large operation (a function, a jar, ...)
+     * into a progress line every few seconds, see {@link #detail(String)} and {@link #progress(String, int, int)}
+     */
+    public static final String SUMMARY_KEY = "azure.log.summary";
+    private static final long SUMMARY_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Logger log;
+    private final boolean summary;
+    private long summaryLoggedAt;
+
+    public GradleAzureMessager(Logger log) {
+        this(log, Boolean.getBoolean(SUMMARY_KEY));
+    }
+
+    public GradleAzureMessager(Logger log, boolean summary) {
+        this.log = log;
+        this.summary = summary;
+    }
+
+    /**
+     * Show a message about an item of a large operation (a function, a jar, ...), at debug level in summary mode
+     */
+    public static void detail(@Nonnull String message) {
+        final GradleAzureMessager messager = getSummaryMessager();
+        if (messager == null) {
+            AzureMessager.getMessager().info(message);
+        } else {
+            messager.log.debug(message);
+        }
+    }
+
+    /**
+     * Report that an item of a large operation is done, shown as "operation: done/total" in summary mode only, for
+     * the first and last items and every few seconds in between
+     */
+    public static void progress(@Nonnull String operation, int done, int total) {
+        final GradleAzureMessager messager = getSummaryMessager();
+        if (messager != null) {
+            messager.showProgress(operation, done, total);
+        }
+    }
+
+    @Nullable
+    private static GradleAzureMessager getSummaryMessager() {
+        // the messager of the current operation (if any) wraps the default one
+        final IAzureMessager messager = AzureMessager.getDefaultMessager();
+        return messager instanceof GradleAzureMessager && ((GradleAzureMessager) messager).summary ? (GradleAzureMessager) messager : null;
+    }
+
+    private synchronized void showProgress(@Nonnull String operation, int done, int total) {
+        final long now = System.nanoTime();
+        if (done <= 1 || done >= total || now - summaryLoggedAt >= SUMMARY_NANOS) {
+            summaryLoggedAt = now;
+            log.lifecycle("{}: {}/{}", operation, done, total);
+        }
+    }
 
     @Override
     public boolean show(IAzureMessage message) {
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.util;
+
+import com.microsoft.azure.gradle.http.UploadProgress;
+import org.gradle.api.logging.Logger;
+import org.gradle.internal.logging.progress.ProgressLogger;
+import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Show the progress of the uploads of a deploy task (bytes sent, throughput and ETA) in the progress area of the
+ * console, and as a lifecycle line every few seconds for plain consoles, e.g. on CI agents.
+ * <pre>
+ * try (GradleUploadProgress ignored = GradleUploadProgress.watch(getProgressLoggerFactory(), getLogger(), appName, slotName)) {
+ *     // deploy
+ * }
+ * </pre>
+ */
+public class GradleUploadProgress implements UploadProgress.Listener, AutoCloseable {
+    private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long LOG_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final double MB = 1024 * 1024;
+
+    @Nullable
+    private final ProgressLoggerFactory progressLoggerFactory;
+    private final Logger logger;
+    private final String appName;
+    private UploadProgress.Registration registration;
+    @Nullable
+    private ProgressLogger progressLogger;
+    private long totalBytes;
+    private long sentBytes;
+    private long startedAt;
+    private long refreshedAt;
+    private long loggedAt;
+
+    private GradleUploadProgress(@Nullable ProgressLoggerFactory progressLoggerFactory, @Nonnull Logger logger, @Nonnull String appName) {
+        this.progressLoggerFactory = progressLoggerFactory;
+        this.logger = logger;
+        this.appName = appName;
+    }
+
+    /**
+     * Report the uploads of the given app, or of its deployment slot if any, until the result is closed
+     */
+    public static GradleUploadProgress watch(@Nullable ProgressLoggerFactory progressLoggerFactory, @Nonnull Logger logger, @Nullable String appName,
+                                             @Nullable String slotName) {
+        final GradleUploadProgress progress = new GradleUploadProgress(progressLoggerFactory, logger, String.valueOf(appName));
+        progress.registration = UploadProgress.watch(appName, slotName, progress);
+        return progress;
+    }
+
+    @Override
+    public synchronized void started(long bytes) {
+        final long now = System.nanoTime();
+        if (startedAt == 0) {
+            startedAt = now;
+            loggedAt = now;
+            if (progressLoggerFactory != null) {
+                progressLogger = progressLoggerFactory.newOperation(GradleUploadProgress.class)
+                    .start(String.format("Upload package of %s", appName), "");
+            }
+        }
+        totalBytes += bytes;
+        refresh(now, true);
+    }
+
+    @Override
+    public synchronized void sent(long bytes) {
+        sentBytes += bytes;
+        refresh(System.nanoTime(), false);
+    }
+
+    @Override
+    public synchronized void finished(long bytes, long sent, boolean success) {
+        if (!success) {
+            // the request is retried (and reported again) or the deployment fails
+            totalBytes -= bytes;
+            sentBytes -= sent;
+        }
+        refresh(System.nanoTime(), true);
+    }
+
+    @Override
+    public synchronized void close() {
+        registration.close();
+        if (startedAt == 0) {
+            return;
+        }
+        final long elapsed = System.nanoTime() - startedAt;
+        final String summary = String.format("Uploaded %s in %s (%s)", formatBytes(sentBytes), formatDuration(elapsed), formatThroughput(sentBytes, elapsed));
+        if (progressLogger != null) {
+            progressLogger.completed(summary, false);
+        }
+        logger.lifecycle(summary);
+    }
+
+    private void refresh(long now, boolean force) {
+        if (!force && now - refreshedAt < REFRESH_NANOS) {
+            return;
+        }
+        refreshedAt = now;
+        final String status = getStatus(now);
+        if (progressLogger != null) {
+            progressLogger.progress(status);
+        }
+        if (now - loggedAt >= LOG_NANOS) {
+            loggedAt = now;
+            logger.lifecycle("Uploading package of {}: {}", appName, status);
+        }
+    }
+
+    private String getStatus(long now) {
+        final long elapsed = now - startedAt;
+        final StringBuilder status = new StringBuilder(formatBytes(sentBytes)).append(" / ").append(formatBytes(totalBytes));
+        if (elapsed > 0 && sentBytes > 0) {
+            status.append(", ").append(formatThroughput(sentBytes, elapsed));
+            if (totalBytes > sentBytes) {
+                final long remaining = (long) ((totalBytes - sentBytes) * (double) elapsed / sentBytes);
+                status.append(", ETA ").append(formatDuration(remaining));
+            }
+        }
+        return status.toString();
+    }
+
+    private static String formatBytes(long bytes) {
+        return String.format("%.1f MB", bytes / MB);
+    }
+
+    private static String formatThroughput(long bytes, long nanos) {
+        return String.format("%.1f MB/s", nanos <= 0 ? 0 : bytes / MB / (nanos / 1e9));
+    }
+
+    private static String formatDuration(long nanos) {
+        final long seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+        return seconds >= 60 ? String.format("%dm %02ds", seconds / 60, seconds % 60) : String.format("%ds", seconds);
+    }
+}
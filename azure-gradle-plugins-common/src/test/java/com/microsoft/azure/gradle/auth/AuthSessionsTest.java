@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.auth;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class AuthSessionsTest {
+    // the sign-ins of the fake toolkit, by auth type, reused sessions are not sign-ins
+    private final List<String> logins = new CopyOnWriteArrayList<>();
+    private final AuthSessions sessions = new AuthSessions((auth, subscriptionId, reuse) -> {
+        if (!reuse) {
+            logins.add(auth.getType());
+        }
+        return subscriptionId;
+    }, () -> true);
+
+    @Test
+    public void testSameConfigurationIsShared() {
+        final GradleAuthConfig cli = config("azure_cli");
+        final Object deploy = new Object();
+        final Object rollback = new Object();
+        assertEquals("sub-1", login(deploy, cli, "sub-1"));
+        assertEquals("sub-2", login(rollback, cli, "sub-2"));
+        sessions.release(deploy);
+        sessions.release(rollback);
+        assertEquals("sub-1", login(deploy, cli, "sub-1"));
+        assertEquals(Collections.singletonList("azure_cli"), logins);
+    }
+
+    @Test
+    public void testTwoConfigurationsDoNotSignOutEachOther() throws Exception {
+        final GradleAuthConfig cli = config("azure_cli");
+        final GradleAuthConfig identity = config("managed_identity");
+        final Object deployA = new Object();
+        final Object deployB = new Object();
+        final Object rollbackA = new Object();
+        login(deployA, cli, null);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> other = executor.submit(() -> login(deployB, identity, "sub-b"));
+            // the task with the other configuration waits, while the tasks of the signed-in one keep sharing it
+            try {
+                other.get(200, TimeUnit.MILLISECONDS);
+                fail("the account was signed out while in use");
+            } catch (TimeoutException e) {
+                assertFalse(other.isDone());
+            }
+            login(rollbackA, cli, null);
+            sessions.release(deployA);
+            assertFalse(other.isDone());
+            sessions.release(rollbackA);
+            assertEquals("sub-b", other.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Arrays.asList("azure_cli", "managed_identity"), logins);
+    }
+
+    @Test
+    public void testOwnerSwitchingConfigurationDoesNotWaitForItself() {
+        final Object task = new Object();
+        login(task, config("azure_cli"), null);
+        login(task, config("managed_identity"), null);
+        sessions.release(task);
+        assertEquals(Arrays.asList("azure_cli", "managed_identity"), logins);
+    }
+
+    private String login(Object owner, GradleAuthConfig auth, String subscriptionId) {
+        return sessions.login(owner, AzureAuthService.getAuthKey(auth), auth, subscriptionId);
+    }
+
+    private static GradleAuthConfig config(String type) {
+        final GradleAuthConfig auth = new GradleAuthConfig();
+        auth.setType(type);
+        return auth;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.auth;
+
+import com.microsoft.azure.toolkit.lib.auth.AuthType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AutoCredentialProbeTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testHasEnvironmentCredential() {
+        final Map<String, String> environment = new HashMap<>();
+        assertFalse(AutoCredentialProbe.hasEnvironmentCredential(environment));
+        environment.put("AZURE_CLIENT_ID", "client");
+        // a client id alone is the user assigned managed identity, which is probed
+        assertFalse(AutoCredentialProbe.hasEnvironmentCredential(environment));
+        environment.put("AZURE_CLIENT_SECRET", "secret");
+        assertTrue(AutoCredentialProbe.hasEnvironmentCredential(environment));
+        environment.remove("AZURE_CLIENT_SECRET");
+        environment.put("AZURE_CLIENT_CERTIFICATE_PATH", "/path/to/cert.pem");
+        assertTrue(AutoCredentialProbe.hasEnvironmentCredential(environment));
+        environment.remove("AZURE_CLIENT_CERTIFICATE_PATH");
+        environment.put("AZURE_FEDERATED_TOKEN_FILE", "/path/to/token");
+        assertTrue(AutoCredentialProbe.hasEnvironmentCredential(environment));
+        environment.remove("AZURE_CLIENT_ID");
+        assertFalse(AutoCredentialProbe.hasEnvironmentCredential(environment));
+    }
+
+    @Test
+    public void testPreferredKey() {
+        assertEquals(AutoCredentialProbe.getPreferredKey("Tenant", " client ", "AZURE"), AutoCredentialProbe.getPreferredKey("tenant", "client", "azure"));
+        assertNotEquals(AutoCredentialProbe.getPreferredKey("tenant", "client", null), AutoCredentialProbe.getPreferredKey("tenant", null, null));
+        assertNotEquals(AutoCredentialProbe.getPreferredKey("tenant", null, null), AutoCredentialProbe.getPreferredKey("other", null, null));
+        assertNotEquals(AutoCredentialProbe.getPreferredKey(null, null, "azure"), AutoCredentialProbe.getPreferredKey(null, null, "azure_china"));
+    }
+
+    @Test
+    public void testPreferredIsStoredPerKey() throws IOException {
+        final File configuration = temporaryFolder.newFile();
+        final String key = AutoCredentialProbe.getPreferredKey("tenant", null, null);
+        final String otherKey = AutoCredentialProbe.getPreferredKey("other", null, null);
+        AutoCredentialProbe.setPreferred(configuration, key, AuthType.AZURE_CLI);
+        AutoCredentialProbe.setPreferred(configuration, otherKey, AuthType.MANAGED_IDENTITY);
+        assertEquals(AuthType.AZURE_CLI, AutoCredentialProbe.getPreferred(configuration, key));
+        assertEquals(AuthType.MANAGED_IDENTITY, AutoCredentialProbe.getPreferred(configuration, otherKey));
+        assertNull(AutoCredentialProbe.getPreferred(configuration, AutoCredentialProbe.getPreferredKey(null, null, null)));
+
+        AutoCredentialProbe.setPreferred(configuration, key, null);
+        assertNull(AutoCredentialProbe.getPreferred(configuration, key));
+        assertEquals(AuthType.MANAGED_IDENTITY, AutoCredentialProbe.getPreferred(configuration, otherKey));
+    }
+
+    @Test
+    public void testPreferredOfPreviousVersionsIsIgnored() throws IOException {
+        final File configuration = temporaryFolder.newFile();
+        final Properties previous = new Properties();
+        previous.setProperty("auth.auto.preferred", AuthType.AZURE_CLI.name());
+        try (OutputStream output = Files.newOutputStream(configuration.toPath())) {
+            previous.store(output, null);
+        }
+        final String key = AutoCredentialProbe.getPreferredKey(null, null, null);
+        assertNull(AutoCredentialProbe.getPreferred(configuration, key));
+
+        AutoCredentialProbe.setPreferred(configuration, key, AuthType.MANAGED_IDENTITY);
+        final Properties current = new Properties();
+        try (InputStream input = Files.newInputStream(configuration.toPath())) {
+            current.load(input);
+        }
+        assertNull(current.getProperty("auth.auto.preferred"));
+        assertEquals(AuthType.MANAGED_IDENTITY.name(), current.getProperty(key));
+    }
+
+    @Test
+    public void testPreferredIsReplacedAtomically() throws IOException {
+        final File directory = temporaryFolder.newFolder("azure");
+        final File configuration = new File(directory, "gradleplugins-auth.properties");
+        final String key = AutoCredentialProbe.getPreferredKey(null, null, null);
+        AutoCredentialProbe.setPreferred(configuration, key, AuthType.AZURE_CLI);
+        AutoCredentialProbe.setPreferred(configuration, key, AuthType.MANAGED_IDENTITY);
+        assertEquals(AuthType.MANAGED_IDENTITY, AutoCredentialProbe.getPreferred(configuration, key));
+        // no temporary file is left next to the configuration and its lock
+        assertEquals(new HashSet<>(Arrays.asList("gradleplugins-auth.properties", "gradleplugins-auth.properties.lock")),
+            new HashSet<>(Arrays.asList(Objects.requireNonNull(directory.list()))));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CacheScopesTest {
+    private static final long TTL = 600_000;
+    private static final String SUBSCRIPTION = "00000000-0000-0000-0000-000000000000";
+    private static final String OTHER_SUBSCRIPTION = "11111111-1111-1111-1111-111111111111";
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final CacheScopes scopes = new CacheScopes(now::get);
+    private final List<String> evictions = new ArrayList<>();
+
+    @Test
+    public void testScopesExpireIndependently() {
+        assertTrue(read(SUBSCRIPTION, "sites"));
+        now.addAndGet(TTL / 2);
+        assertTrue(read(OTHER_SUBSCRIPTION, "sites"));
+        assertTrue(read(SUBSCRIPTION, "serverfarms"));
+        assertFalse(read(SUBSCRIPTION, "sites"));
+        now.addAndGet(TTL / 2);
+        // only the scope read first is older than the TTL
+        assertTrue(read(SUBSCRIPTION, "SITES"));
+        assertFalse(read(OTHER_SUBSCRIPTION, "sites"));
+        assertFalse(read(SUBSCRIPTION, "serverfarms"));
+        assertEquals(Arrays.asList(SUBSCRIPTION + "/sites", OTHER_SUBSCRIPTION + "/sites", SUBSCRIPTION + "/serverfarms", SUBSCRIPTION + "/SITES"), evictions);
+    }
+
+    @Test
+    public void testWriteDoesNotEvictUnrelatedResources() {
+        read(SUBSCRIPTION, "sites");
+        read(OTHER_SUBSCRIPTION, "sites");
+        read(SUBSCRIPTION, "serverfarms");
+        evictions.clear();
+        scopes.afterWrite(() -> evictions.add("demo-app"));
+        now.addAndGet(1);
+        assertFalse(read(SUBSCRIPTION, "sites"));
+        assertFalse(read(OTHER_SUBSCRIPTION, "sites"));
+        assertFalse(read(SUBSCRIPTION, "serverfarms"));
+        assertEquals(Collections.singletonList("demo-app"), evictions);
+    }
+
+    @Test
+    public void testExpireAll() {
+        read(SUBSCRIPTION, "sites");
+        scopes.expireAll();
+        assertTrue(read(SUBSCRIPTION, "sites"));
+    }
+
+    private boolean read(String subscriptionId, String resourceType) {
+        return scopes.evictIfExpired(subscriptionId, resourceType, TTL, () -> evictions.add(subscriptionId + "/" + resourceType));
+    }
+}
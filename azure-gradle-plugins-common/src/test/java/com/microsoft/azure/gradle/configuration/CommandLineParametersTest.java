@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.configuration;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CommandLineParametersTest {
+    @Test
+    public void testProjectPropertiesAreNamespaced() {
+        assertEquals("azure.appName", CommandLineParameters.toProjectProperty("appName"));
+        assertEquals("azure.runtime.", CommandLineParameters.toProjectProperty("runtime."));
+        // settings of the plugins are namespaced already
+        assertEquals("azure.profile", CommandLineParameters.toProjectProperty("azure.profile"));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.deploy;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DeploymentCacheTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File root;
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        root = temporaryFolder.newFolder("deployments");
+        directory = new File(root, "subscription/group/app/_production");
+    }
+
+    @Test
+    public void testCapacity() throws IOException {
+        final DeploymentCache cache = new DeploymentCache(directory, 2);
+        final DeploymentCacheEntry first = record(cache, "first");
+        final DeploymentCacheEntry second = record(cache, "second");
+        final DeploymentCacheEntry third = record(cache, "third");
+        assertEquals(fingerprints(third, second), fingerprints(cache.list()));
+        assertFalse(cache.getPackage(first).exists());
+        assertTrue(cache.getPackage(second).isFile());
+        assertTrue(cache.getPackage(third).isFile());
+        // the index is reloaded by the next build
+        assertEquals(fingerprints(third, second), fingerprints(new DeploymentCache(directory, 2).list()));
+        assertEquals(third.getFingerprint(), new DeploymentCache(directory, 2).getCurrent());
+    }
+
+    @Test
+    public void testCurrentIsNeverEvicted() throws IOException {
+        // the package which is deployed is kept even if nothing is to be kept
+        final DeploymentCache cache = new DeploymentCache(directory, 0);
+        record(cache, "first");
+        final DeploymentCacheEntry second = record(cache, "second");
+        assertEquals(fingerprints(second), fingerprints(cache.list()));
+        assertEquals(second.getFingerprint(), cache.getCurrent());
+        assertTrue(cache.getPackage(second).isFile());
+    }
+
+    @Test
+    public void testRecordedAgainIsKept() throws IOException {
+        final DeploymentCache cache = new DeploymentCache(directory, 3);
+        final DeploymentCacheEntry first = record(cache, "first");
+        final DeploymentCacheEntry second = record(cache, "second");
+        final DeploymentCacheEntry third = record(cache, "third");
+        // the oldest package is deployed again, so the least recently used one is the second package
+        final DeploymentCache reloaded = new DeploymentCache(directory, 2);
+        record(reloaded, "first");
+        assertEquals(fingerprints(first, third), fingerprints(reloaded.list()));
+        assertTrue(reloaded.getPackage(first).isFile());
+        assertFalse(reloaded.getPackage(second).exists());
+    }
+
+    @Test
+    public void testGetPrevious() throws IOException {
+        final DeploymentCache cache = new DeploymentCache(directory, 3);
+        assertFalse(cache.getPrevious().isPresent());
+        final DeploymentCacheEntry first = record(cache, "first");
+        assertFalse(cache.getPrevious().isPresent());
+        final DeploymentCacheEntry second = record(cache, "second");
+        assertEquals(first.getFingerprint(), cache.getPrevious().map(DeploymentCacheEntry::getFingerprint).orElse(null));
+        // after rolling back to the first package, the previous one is the second package
+        sleep();
+        cache.markDeployed(first);
+        assertEquals(first.getFingerprint(), cache.getCurrent());
+        assertEquals(second.getFingerprint(), cache.getPrevious().map(DeploymentCacheEntry::getFingerprint).orElse(null));
+    }
+
+    @Test
+    public void testFind() throws IOException {
+        final DeploymentCache cache = new DeploymentCache(directory, 3);
+        final DeploymentCacheEntry first = record(cache, "first");
+        final DeploymentCacheEntry second = record(cache, "second");
+        assertEquals(first.getFingerprint(), cache.find(first.getFingerprint()).map(DeploymentCacheEntry::getFingerprint).orElse(null));
+        assertEquals(second.getFingerprint(), cache.find(" " + StringUtils.upperCase(PackageFingerprint.shortId(second.getFingerprint())))
+                .map(DeploymentCacheEntry::getFingerprint).orElse(null));
+        assertFalse(cache.find("not-a-fingerprint").isPresent());
+        try {
+            cache.find(StringUtils.getCommonPrefix(first.getFingerprint(), second.getFingerprint()));
+            fail("ambiguous prefix");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("ambiguous"));
+        }
+    }
+
+    @Test
+    public void testFindPackageInAllApps() throws IOException {
+        final DeploymentCache cache = new DeploymentCache(directory, 3);
+        final DeploymentCache other = new DeploymentCache(new File(root, "subscription/group/other/_production"), 3);
+        final DeploymentCacheEntry first = record(cache, "first");
+        final DeploymentCacheEntry second = record(other, "second");
+        // the same package deployed to both apps is not ambiguous
+        record(other, "first");
+        assertEquals(cache.getPackage(first).getName(), DeploymentCache.findPackage(root, PackageFingerprint.shortId(first.getFingerprint()))
+                .map(File::getName).orElse(null));
+        assertEquals(other.getPackage(second), DeploymentCache.findPackage(root, second.getFingerprint()).orElse(null));
+        assertFalse(DeploymentCache.findPackage(root, "not-a-fingerprint").isPresent());
+        assertFalse(DeploymentCache.findPackage(new File(root, "missing"), first.getFingerprint()).isPresent());
+        try {
+            DeploymentCache.findPackage(root, StringUtils.getCommonPrefix(first.getFingerprint(), second.getFingerprint()));
+            fail("ambiguous prefix");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("ambiguous"));
+        }
+    }
+
+    @Test
+    public void testMissingPackageIsCopiedAgain() throws IOException {
+        final DeploymentCache cache = new DeploymentCache(directory, 3);
+        final DeploymentCacheEntry first = record(cache, "first");
+        FileUtils.forceDelete(cache.getPackage(first));
+        // a package which was deleted from the cache is not found by the other apps either
+        assertFalse(DeploymentCache.findPackage(root, first.getFingerprint()).isPresent());
+        record(cache, "first");
+        assertTrue(cache.getPackage(first).isFile());
+        assertEquals("first", FileUtils.readFileToString(cache.getPackage(first), StandardCharsets.UTF_8));
+        assertEquals(1, cache.list().size());
+    }
+
+    private DeploymentCacheEntry record(DeploymentCache cache, String content) throws IOException {
+        // deployments are ordered by time, which must differ between them
+        sleep();
+        final File artifact = new File(temporaryFolder.newFolder(), "app.zip");
+        FileUtils.write(artifact, content, StandardCharsets.UTF_8);
+        return cache.record(artifact, new DeploymentCacheEntry());
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> fingerprints(DeploymentCacheEntry... entries) {
+        return fingerprints(Arrays.asList(entries));
+    }
+
+    private static List<String> fingerprints(List<DeploymentCacheEntry> entries) {
+        return entries.stream().map(DeploymentCacheEntry::getFingerprint).collect(Collectors.toList());
+    }
+}
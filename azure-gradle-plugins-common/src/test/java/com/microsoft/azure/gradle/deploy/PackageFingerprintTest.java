@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.deploy;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+public class PackageFingerprintTest {
+    // sha256 of "hello"
+    private static final String HELLO_SHA256 = "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFingerprint() throws IOException {
+        final File file = write("app.zip", "hello");
+        assertEquals(HELLO_SHA256, PackageFingerprint.of(file));
+        assertEquals(HELLO_SHA256.substring(0, PackageFingerprint.SHORT_ID_LENGTH), PackageFingerprint.shortId(HELLO_SHA256));
+        assertEquals("2cf24d", PackageFingerprint.shortId("2cf24d"));
+        assertNotEquals(HELLO_SHA256, PackageFingerprint.of(write("other.zip", "hello!")));
+    }
+
+    @Test
+    public void testSidecar() throws IOException {
+        final File file = write("app.zip", "hello");
+        assertFalse(PackageFingerprint.readSidecar(file).isPresent());
+        assertEquals(HELLO_SHA256, PackageFingerprint.writeSidecar(file));
+        final File sidecar = PackageFingerprint.getSidecar(file);
+        assertEquals(new File(file.getParentFile(), "app.zip.sha256"), sidecar);
+        // the format of `sha256sum`, so that the package can be verified with it
+        assertEquals(String.format("%s  app.zip%n", HELLO_SHA256), FileUtils.readFileToString(sidecar, StandardCharsets.UTF_8));
+        assertEquals(HELLO_SHA256, PackageFingerprint.readSidecar(file).orElse(null));
+    }
+
+    @Test
+    public void testReadSidecarWrittenByOtherTools() throws IOException {
+        final File file = write("app.zip", "hello");
+        // `sha256sum -b` marks the file name with `*`, and the line may end with CRLF on Windows
+        FileUtils.write(PackageFingerprint.getSidecar(file), String.format(" %s *app.zip\r\n", HELLO_SHA256), StandardCharsets.UTF_8);
+        assertEquals(HELLO_SHA256, PackageFingerprint.readSidecar(file).orElse(null));
+        // a fingerprint without file name
+        FileUtils.write(PackageFingerprint.getSidecar(file), HELLO_SHA256, StandardCharsets.UTF_8);
+        assertEquals(HELLO_SHA256, PackageFingerprint.readSidecar(file).orElse(null));
+        FileUtils.write(PackageFingerprint.getSidecar(file), "", StandardCharsets.UTF_8);
+        assertFalse(PackageFingerprint.readSidecar(file).isPresent());
+    }
+
+    private File write(String name, String content) throws IOException {
+        final File file = new File(temporaryFolder.getRoot(), name);
+        FileUtils.write(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+}
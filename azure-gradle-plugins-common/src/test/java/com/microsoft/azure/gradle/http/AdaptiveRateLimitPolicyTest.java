@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpRequest;
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveRateLimitPolicyTest {
+    private final HttpRequest request = new HttpRequest(HttpMethod.GET, "https://management.azure.com/subscriptions");
+
+    @Test
+    public void testRetryAfterMillisTakesPrecedence() {
+        assertEquals(1500, AdaptiveRateLimitPolicy.getRetryAfterMillis(response("retry-after-ms", "1500", "Retry-After", "10")));
+        assertEquals(250, AdaptiveRateLimitPolicy.getRetryAfterMillis(response("x-ms-retry-after-ms", " 250 ")));
+    }
+
+    @Test
+    public void testRetryAfterSeconds() {
+        assertEquals(10000, AdaptiveRateLimitPolicy.getRetryAfterMillis(response("Retry-After", "10")));
+    }
+
+    @Test
+    public void testRetryAfterDate() {
+        final String date = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        final long millis = AdaptiveRateLimitPolicy.getRetryAfterMillis(response("Retry-After", date));
+        assertTrue(String.valueOf(millis), millis > 25000 && millis <= 30000);
+        final String past = ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(30).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        assertEquals(0, AdaptiveRateLimitPolicy.getRetryAfterMillis(response("Retry-After", past)));
+    }
+
+    @Test
+    public void testMissingOrInvalidRetryAfter() {
+        assertEquals(-1, AdaptiveRateLimitPolicy.getRetryAfterMillis(response()));
+        assertEquals(-1, AdaptiveRateLimitPolicy.getRetryAfterMillis(response("Retry-After", "soon")));
+    }
+
+    @Test
+    public void testRemainingRequestsIsTheMinOfTheHeaders() {
+        assertEquals(-1, AdaptiveRateLimitPolicy.getRemainingRequests(response()));
+        assertEquals(42, AdaptiveRateLimitPolicy.getRemainingRequests(response(
+            "x-ms-ratelimit-remaining-subscription-reads", "11999",
+            "x-ms-ratelimit-remaining-tenant-reads", "42",
+            "x-ms-ratelimit-remaining-subscription-writes", "invalid")));
+    }
+
+    private TestHttpResponse response(String... headers) {
+        return new TestHttpResponse(request, 200, headers);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.http;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveRateLimiterTest {
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(2, 10, 1, now::get);
+
+    @Test
+    public void testTokensAreRefilledAtTheRate() {
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        // the bucket is empty, the next token comes in 1/10 s
+        assertEquals(100, limiter.reserve());
+        advance(1000);
+        assertEquals(0, limiter.reserve());
+    }
+
+    @Test
+    public void testRateIsHalvedWhenThrottledAndRecoversSlowly() {
+        limiter.onThrottled(0);
+        assertEquals(5, limiter.getRate(), 0.001);
+        limiter.onThrottled(0);
+        limiter.onThrottled(0);
+        limiter.onThrottled(0);
+        // never below the min rate
+        assertEquals(1, limiter.getRate(), 0.001);
+        limiter.onSuccess(-1);
+        assertEquals(1.5, limiter.getRate(), 0.001);
+        for (int i = 0; i < 100; i++) {
+            limiter.onSuccess(-1);
+        }
+        // never above the max rate
+        assertEquals(10, limiter.getRate(), 0.001);
+    }
+
+    @Test
+    public void testRateFollowsTheRemainingRequests() {
+        limiter.onSuccess(50);
+        assertEquals(5, limiter.getRate(), 0.001);
+        limiter.onSuccess(0);
+        assertEquals(1, limiter.getRate(), 0.001);
+        // plenty of remaining requests, additive increase
+        limiter.onSuccess(1000);
+        assertEquals(1.5, limiter.getRate(), 0.001);
+    }
+
+    @Test
+    public void testCallsArePausedForTheRetryAfterPeriod() {
+        limiter.onThrottled(2000);
+        assertTrue(limiter.isThrottled());
+        final long wait = limiter.reserve();
+        // retry-after plus up to 20% jitter
+        assertTrue(String.valueOf(wait), wait >= 2000 && wait <= 2400);
+        limiter.onSuccess(-1);
+        advance(2401);
+        assertFalse(limiter.isThrottled());
+    }
+
+    @Test
+    public void testBackoffIsExponentialWithoutRetryAfter() {
+        limiter.onThrottled(-1);
+        final long first = limiter.reserve();
+        assertTrue(String.valueOf(first), first >= 1000 && first <= 1200);
+        limiter.onThrottled(-1);
+        final long second = limiter.reserve();
+        assertTrue(String.valueOf(second), second >= 2000 && second <= 2400);
+    }
+
+    private void advance(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
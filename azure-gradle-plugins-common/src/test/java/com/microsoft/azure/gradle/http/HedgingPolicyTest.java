@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpPipeline;
+import com.azure.core.http.HttpPipelineBuilder;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HedgingPolicyTest {
+    private static final String URL = "https://management.azure.com/subscriptions";
+    private static final String REWRITTEN_URL = "http://localhost:1/subscriptions";
+
+    private final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(100, 100, 1);
+    private final List<String> sentUrls = new CopyOnWriteArrayList<>();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private BiFunction<Integer, HttpRequest, Mono<HttpResponse>> client;
+    // the attempts of both pipelines are numbered in the order they are sent
+    private final HttpClient httpClient = request -> client.apply(attempts.incrementAndGet(), request);
+    // modifies the request like the endpoint override policy
+    private final HttpPipelinePolicy rewrite = (context, next) -> {
+        sentUrls.add(context.getHttpRequest().getUrl().toString());
+        try {
+            context.getHttpRequest().setUrl(new URL(REWRITTEN_URL));
+        } catch (IOException e) {
+            return Mono.error(e);
+        }
+        return next.process();
+    };
+    private final HedgingPolicy policy = new HedgingPolicy(limiter, new HttpPipelineBuilder().httpClient(httpClient).policies(rewrite).build());
+
+    @Test
+    public void testHedgeDelayIsTheP95Latency() {
+        for (int i = 0; i < 19; i++) {
+            policy.recordLatency(1000);
+        }
+        // not enough samples
+        assertEquals(-1, policy.getHedgeDelay());
+        policy.recordLatency(1000);
+        assertEquals(1000, policy.getHedgeDelay());
+        for (int i = 1; i <= 200; i++) {
+            policy.recordLatency(1000 + i);
+        }
+        // the window only keeps the last 200 samples
+        assertEquals(1190, policy.getHedgeDelay());
+    }
+
+    @Test
+    public void testHedgeDelayIsNotBelowTheMinimum() {
+        for (int i = 0; i < 20; i++) {
+            policy.recordLatency(1);
+        }
+        assertEquals(200, policy.getHedgeDelay());
+    }
+
+    @Test
+    public void testHedgesAreLimitedToARatioOfTheCalls() {
+        fastCalls();
+        // every call is slower than the hedge delay, but only 1 in 10 calls is hedged
+        final HttpPipeline pipeline = pipeline((attempt, request) -> Mono.delay(Duration.ofMillis(300)).map(ignore -> new TestHttpResponse(request, 200)));
+        for (int i = 0; i < 10; i++) {
+            send(pipeline);
+        }
+        assertEquals(11, sentUrls.size());
+    }
+
+    @Test
+    public void testNoHedgeWhileThrottled() {
+        fastCalls();
+        limiter.onThrottled(0);
+        final HttpPipeline pipeline = pipeline((attempt, request) -> Mono.delay(Duration.ofMillis(300)).map(ignore -> new TestHttpResponse(request, 200)));
+        send(pipeline);
+        assertEquals(1, sentUrls.size());
+    }
+
+    @Test
+    public void testCallsNotSentByATaskAreNotHedged() {
+        fastCalls();
+        final HttpPipeline pipeline = pipeline((attempt, request) -> Mono.delay(Duration.ofMillis(300)).map(ignore -> new TestHttpResponse(request, 200)));
+        // e.g. the calls of the SDK clients of other plugins running in the same daemon
+        pipeline.send(new HttpRequest(HttpMethod.GET, URL)).block();
+        assertEquals(1, sentUrls.size());
+    }
+
+    @Test
+    public void testHedgeIsSentOnTheOriginalRequest() {
+        fastCalls();
+        final HttpPipeline pipeline = pipeline((attempt, request) -> attempt == 1 ?
+            Mono.delay(Duration.ofMillis(1000)).map(ignore -> new TestHttpResponse(request, 200)) :
+            Mono.just(new TestHttpResponse(request, 204)));
+        final HttpResponse response = send(pipeline);
+        assertEquals(204, response.getStatusCode());
+        // both attempts went through the policy rewriting the url, from the original url
+        assertEquals(2, sentUrls.size());
+        assertTrue(sentUrls.stream().allMatch(URL::equals));
+    }
+
+    @Test
+    public void testHedgeDoesNotModifyTheContextOfThePrimaryAttempt() {
+        fastCalls();
+        client = (attempt, request) -> attempt == 1 ?
+            Mono.delay(Duration.ofMillis(1000)).map(ignore -> new TestHttpResponse(request, 200)) :
+            Mono.just(new TestHttpResponse(request, 204));
+        final AtomicBoolean sameRequest = new AtomicBoolean();
+        // the request of the primary attempt is still the one of its context once the hedge won and it is cancelled
+        final HttpPipelinePolicy check = (context, next) -> {
+            final HttpRequest request = context.getHttpRequest();
+            return next.process().doFinally(signal -> sameRequest.set(context.getHttpRequest() == request));
+        };
+        final HttpRequest request = new HttpRequest(HttpMethod.GET, URL);
+        final HttpResponse response = send(new HttpPipelineBuilder().httpClient(httpClient)
+            .policies(new HttpMetrics.Provider().create(), policy, check, rewrite).build(), request);
+        assertEquals(204, response.getStatusCode());
+        assertTrue(sameRequest.get());
+        // the hedge is sent on a copy
+        assertNotSame(request, response.getRequest());
+    }
+
+    @Test
+    public void testErrorOfThePrimaryAttemptIsPropagated() {
+        fastCalls();
+        final HttpPipeline pipeline = pipeline((attempt, request) -> attempt == 1 ?
+            Mono.delay(Duration.ofMillis(400)).then(Mono.error(new IOException("connection reset"))) :
+            Mono.never());
+        try {
+            send(pipeline);
+            fail("the error of the primary attempt should be propagated");
+        } catch (RuntimeException e) {
+            assertTrue(String.valueOf(e), e.getCause() instanceof IOException);
+            assertEquals("connection reset", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testFailedHedgeIsIgnored() {
+        fastCalls();
+        final HttpPipeline pipeline = pipeline((attempt, request) -> attempt == 1 ?
+            Mono.delay(Duration.ofMillis(400)).map(ignore -> new TestHttpResponse(request, 200)) :
+            Mono.error(new IOException("hedge failed")));
+        assertEquals(200, send(pipeline).getStatusCode());
+    }
+
+    /**
+     * Fill the latency window, so that calls are hedged after the min delay (200 ms)
+     */
+    private void fastCalls() {
+        for (int i = 0; i < 200; i++) {
+            policy.recordLatency(0);
+        }
+    }
+
+    /**
+     * @param client responds to the given attempt (1 for the primary one, 2 for the hedge)
+     */
+    private HttpPipeline pipeline(BiFunction<Integer, HttpRequest, Mono<HttpResponse>> client) {
+        this.client = client;
+        return new HttpPipelineBuilder().httpClient(httpClient).policies(new HttpMetrics.Provider().create(), policy, rewrite).build();
+    }
+
+    private static HttpResponse send(HttpPipeline pipeline) {
+        return send(pipeline, new HttpRequest(HttpMethod.GET, URL));
+    }
+
+    /**
+     * Send the request from a task, only the calls of the tasks are hedged
+     */
+    private static HttpResponse send(HttpPipeline pipeline, HttpRequest request) {
+        final HttpMetrics metrics = HttpMetrics.start("task");
+        try {
+            return pipeline.send(request).block();
+        } finally {
+            metrics.stop();
+        }
+    }
+}
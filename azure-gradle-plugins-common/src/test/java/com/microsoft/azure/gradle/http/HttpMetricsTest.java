@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpPipeline;
+import com.azure.core.http.HttpPipelineBuilder;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+
+public class HttpMetricsTest {
+    private static final String URL = "https://management.azure.com/subscriptions";
+
+    // the attempts are sent from a timer thread after the scope policy, like the ones of the authentication policy
+    private final HttpPipelinePolicy asyncPolicy = (context, next) -> Mono.delay(Duration.ofMillis(10)).then(Mono.defer(next::process));
+    private final HttpPipeline pipeline = new HttpPipelineBuilder()
+            .httpClient(request -> Mono.just(new TestHttpResponse(request, 200)))
+            .policies(new HttpMetrics.Provider().create(), asyncPolicy, new HttpRecordingPolicy())
+            .build();
+
+    @Test
+    public void testCallsAreRecordedByTheTaskSendingThem() throws InterruptedException {
+        final HttpMetrics[] metrics = new HttpMetrics[2];
+        final Thread first = new Thread(() -> metrics[0] = send("first", 1));
+        final Thread second = new Thread(() -> metrics[1] = send("second", 2));
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+        assertEquals(1, metrics[0].getRecords().size());
+        assertEquals(2, metrics[1].getRecords().size());
+    }
+
+    @Test
+    public void testCallsAfterStopAreNotRecorded() {
+        final HttpMetrics metrics = send("task", 1);
+        pipeline.send(new HttpRequest(HttpMethod.GET, URL)).block();
+        assertEquals(1, metrics.getRecords().size());
+    }
+
+    @Test
+    public void testCallsScheduledByTheTaskAreRecorded() {
+        final HttpMetrics metrics = HttpMetrics.start("task");
+        try {
+            Mono.fromCallable(() -> pipeline.send(new HttpRequest(HttpMethod.GET, URL)).block()).subscribeOn(Schedulers.boundedElastic()).block();
+        } finally {
+            metrics.stop();
+        }
+        assertEquals(1, metrics.getRecords().size());
+    }
+
+    private HttpMetrics send(String task, int calls) {
+        final HttpMetrics metrics = HttpMetrics.start(task);
+        try {
+            for (int i = 0; i < calls; i++) {
+                pipeline.send(new HttpRequest(HttpMethod.GET, URL)).block();
+            }
+        } finally {
+            metrics.stop();
+        }
+        return metrics;
+    }
+}
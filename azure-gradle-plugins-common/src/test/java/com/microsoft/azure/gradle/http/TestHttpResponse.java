@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.http;
+
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.http.HttpResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A response without body, with the given status and headers
+ */
+class TestHttpResponse extends HttpResponse {
+    private final int statusCode;
+    private final HttpHeaders headers = new HttpHeaders();
+
+    TestHttpResponse(HttpRequest request, int statusCode, String... headers) {
+        super(request);
+        this.statusCode = statusCode;
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            this.headers.set(headers[i], headers[i + 1]);
+        }
+    }
+
+    @Override
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String getHeaderValue(String name) {
+        return headers.getValue(name);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public Flux<ByteBuffer> getBody() {
+        return Flux.empty();
+    }
+
+    @Override
+    public Mono<byte[]> getBodyAsByteArray() {
+        return Mono.just(new byte[0]);
+    }
+
+    @Override
+    public Mono<String> getBodyAsString() {
+        return Mono.just("");
+    }
+
+    @Override
+    public Mono<String> getBodyAsString(Charset charset) {
+        return Mono.just("");
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class UploadProgressTest {
+    @Test
+    public void testListenerOfTheHost() {
+        final UploadProgress.Listener app = new TestListener();
+        final UploadProgress.Listener slot = new TestListener();
+        try (UploadProgress.Registration ignored = UploadProgress.watch("Demo-App", null, app);
+             UploadProgress.Registration ignored2 = UploadProgress.watch("demo-app", "staging", slot)) {
+            assertSame(app, UploadProgress.getListener("demo-app.scm.azurewebsites.net"));
+            assertSame(slot, UploadProgress.getListener("DEMO-APP-STAGING.scm.azurewebsites.net"));
+            assertNull(UploadProgress.getListener("other-app.scm.azurewebsites.net"));
+        }
+        assertNull(UploadProgress.getListener("demo-app.scm.azurewebsites.net"));
+    }
+
+    @Test
+    public void testOtherHostsAreNotReported() {
+        // even if only one deployment is watched, an upload to another host may be the one of another build
+        try (UploadProgress.Registration ignored = UploadProgress.watch("demo-app", null, new TestListener())) {
+            assertNull(UploadProgress.getListener("demoaccount.blob.core.windows.net"));
+        }
+        try (UploadProgress.Registration ignored = UploadProgress.watch(null, null, new TestListener())) {
+            assertNull(UploadProgress.getListener("demo-app.scm.azurewebsites.net"));
+        }
+    }
+
+    private static class TestListener implements UploadProgress.Listener {
+        @Override
+        public void started(long bytes) {
+        }
+
+        @Override
+        public void sent(long bytes) {
+        }
+
+        @Override
+        public void finished(long bytes, long sentBytes, boolean success) {
+        }
+    }
+}
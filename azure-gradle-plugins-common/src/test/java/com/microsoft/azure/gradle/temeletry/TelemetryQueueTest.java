@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.temeletry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TelemetryQueueTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testEventsAreSpooledWhileOfflineAndSentByTheNextBuild() throws Exception {
+        final File spool = folder.newFolder("telemetry");
+        final List<TelemetryEvent> sent = new CopyOnWriteArrayList<>();
+        final AtomicBoolean reachable = new AtomicBoolean(false);
+        final TelemetryQueue queue = new TelemetryQueue(event -> {
+            if (!reachable.get()) {
+                throw new IllegalStateException("unreachable");
+            }
+            sent.add(event);
+        }, spool);
+
+        queue.start();
+        queue.offer(new TelemetryEvent("PackageTask.start", null, null));
+        queue.offer(new TelemetryEvent("PackageTask.failure", null, new IllegalStateException("boom")));
+        assertTrue(queue.flush(5000));
+        assertTrue(queue.isOffline());
+        assertEquals(0, sent.size());
+        assertTrue(spool.list().length > 0);
+
+        reachable.set(true);
+        queue.start();
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (sent.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(2, sent.size());
+        assertEquals(0, spool.list().length);
+        // spooled events are not necessarily sent in order
+        final Map<String, String> failure = sent.stream().filter(e -> e.getName().endsWith(".failure")).findFirst().get().getProperties();
+        assertEquals("boom", failure.get(TelemetryEvent.ERROR_MESSAGE));
+        assertEquals(IllegalStateException.class.getName(), failure.get(TelemetryEvent.ERROR_CLASSNAME));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.trace;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BuildHistoryTest {
+    private static final String DEPLOY = "azureFunctionsDeploy";
+    private static final String PACKAGE = "azureFunctionsPackage";
+    private static final String UPLOAD = "upload";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testBaselineIsTheMedianOfTheWindow() {
+        final List<BuildHistoryEntry> entries = runs(DEPLOY, 1000, 1000, 1000, 1000, 100, 100, 200);
+        // the median of the last 2 runs is 100
+        final List<BuildHistory.Regression> regressions = BuildHistory.detect(entries, 0.2, 2, 0);
+        assertEquals(Arrays.asList(BuildHistory.TOTAL, UPLOAD), phases(regressions));
+        assertEquals(200, regressions.get(0).getLatestMillis());
+        assertEquals(100, regressions.get(0).getBaselineMillis());
+        assertEquals(2, regressions.get(0).getBaselineRuns());
+        // the median of the last 6 runs is 1000
+        assertTrue(BuildHistory.detect(entries, 0.2, 6, 0).isEmpty());
+    }
+
+    @Test
+    public void testThreshold() {
+        final List<BuildHistoryEntry> entries = runs(DEPLOY, 100, 100, 100, 115);
+        assertTrue(BuildHistory.detect(entries, 0.2, 10, 0).isEmpty());
+        assertEquals(Arrays.asList(BuildHistory.TOTAL, UPLOAD), phases(BuildHistory.detect(entries, 0.1, 10, 0)));
+    }
+
+    @Test
+    public void testMinimumDiff() {
+        // 3 times slower, but only by 20 ms
+        final List<BuildHistoryEntry> entries = runs(DEPLOY, 10, 10, 30);
+        assertTrue(BuildHistory.detect(entries, 0.2, 10, 50).isEmpty());
+        assertEquals(Arrays.asList(BuildHistory.TOTAL, UPLOAD), phases(BuildHistory.detect(entries, 0.2, 10, 20)));
+    }
+
+    @Test
+    public void testPhasesMissingFromTheBaseline() {
+        final List<BuildHistoryEntry> entries = runs(DEPLOY, 100, 100, 100);
+        // a new phase of the latest run has no baseline, a phase of some previous runs only is compared with them
+        entries.get(2).getPhases().put("warmUp", 5000L);
+        entries.get(2).getPhases().put("swap", 5000L);
+        entries.get(0).getPhases().put("swap", 1000L);
+        final List<BuildHistory.Regression> regressions = BuildHistory.detect(entries, 0.2, 10, 0);
+        assertEquals(Collections.singletonList("swap"), phases(regressions));
+        assertEquals(1000, regressions.get(0).getBaselineMillis());
+    }
+
+    @Test
+    public void testFailedRunsAreExcluded() {
+        final List<BuildHistoryEntry> entries = runs(DEPLOY, 100, 100, 5000, 100);
+        entries.get(2).setSuccess(false);
+        // a failed run is neither the latest run nor part of the baseline
+        assertTrue(BuildHistory.detect(entries, 0.2, 10, 0).isEmpty());
+        final BuildHistoryEntry failed = run(DEPLOY, 10);
+        failed.setSuccess(false);
+        entries.add(failed);
+        assertTrue(BuildHistory.detect(entries, 0.2, 10, 0).isEmpty());
+        entries.add(run(DEPLOY, 300));
+        final List<BuildHistory.Regression> regressions = BuildHistory.detect(entries, 0.2, 10, 0);
+        assertEquals(Arrays.asList(BuildHistory.TOTAL, UPLOAD), phases(regressions));
+        assertEquals(3, regressions.get(0).getBaselineRuns());
+    }
+
+    @Test
+    public void testTasksAreComparedSeparately() {
+        final List<BuildHistoryEntry> entries = new ArrayList<>();
+        entries.addAll(runs(PACKAGE, 1000, 1000));
+        entries.addAll(runs(DEPLOY, 100, 300));
+        final List<BuildHistory.Regression> regressions = BuildHistory.detect(entries, 0.2, 10, 0);
+        assertEquals(Arrays.asList(DEPLOY, DEPLOY), regressions.stream().map(BuildHistory.Regression::getTask).collect(Collectors.toList()));
+        assertTrue(BuildHistory.detect(runs(DEPLOY, 100), 0.2, 10, 0).isEmpty());
+    }
+
+    @Test
+    public void testLatestRunsOfEachTaskAreKept() throws IOException {
+        final BuildHistory history = new BuildHistory(new File(temporaryFolder.getRoot(), "history/app.jsonl"), 3);
+        for (int i = 1; i <= 5; i++) {
+            history.append(run(DEPLOY, i));
+            if (i % 2 == 0) {
+                history.append(run(PACKAGE, i * 100));
+            }
+        }
+        final List<BuildHistoryEntry> entries = history.read();
+        assertEquals(Arrays.asList(PACKAGE, DEPLOY, DEPLOY, PACKAGE, DEPLOY), entries.stream().map(BuildHistoryEntry::getTask).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(200L, 3L, 4L, 400L, 5L), entries.stream().map(BuildHistoryEntry::getDurationMillis).collect(Collectors.toList()));
+        assertEquals(entries.size(), FileUtils.readLines(history.getFile(), StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testBrokenLinesAreSkipped() throws IOException {
+        final BuildHistory history = new BuildHistory(new File(temporaryFolder.getRoot(), "app.jsonl"));
+        history.append(run(DEPLOY, 100));
+        // the line of a build which was killed while writing it
+        FileUtils.writeStringToFile(history.getFile(), "{\"task\": \"azureFunc" + System.lineSeparator(), StandardCharsets.UTF_8, true);
+        history.append(run(DEPLOY, 200));
+        assertEquals(Arrays.asList(100L, 200L), history.read().stream().map(BuildHistoryEntry::getDurationMillis).collect(Collectors.toList()));
+    }
+
+    private static List<BuildHistoryEntry> runs(String task, long... durations) {
+        final List<BuildHistoryEntry> result = new ArrayList<>();
+        for (final long duration : durations) {
+            result.add(run(task, duration));
+        }
+        return result;
+    }
+
+    /**
+     * A successful run, which is spent in the upload
+     */
+    private static BuildHistoryEntry run(String task, long durationMillis) {
+        final BuildHistoryEntry entry = new BuildHistoryEntry();
+        entry.setTask(task);
+        entry.setAppName("demo-app");
+        entry.setSuccess(true);
+        entry.setDurationMillis(durationMillis);
+        entry.getPhases().put(UPLOAD, durationMillis);
+        return entry;
+    }
+
+    private static List<String> phases(List<BuildHistory.Regression> regressions) {
+        return regressions.stream().map(BuildHistory.Regression::getPhase).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.performance;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The stored budgets of the scenarios, `<scenario>.<mode>.wallMillis` and `<scenario>.<mode>.peakHeapMegabytes` in
+ * `performance-budgets.properties`, or in the file of the system property `azure.performance.budgets`.
+ * Measurements are appended to `results.csv` of the report directory, to update the budgets from, and along with
+ * other details of the runs to `summary.txt` for people.
+ */
+public class Budgets {
+    private static final String BUDGETS_FILE = "performance-budgets.properties";
+
+    private final Properties budgets = new Properties();
+
+    public Budgets() throws IOException {
+        final String file = System.getProperty("azure.performance.budgets");
+        try (InputStream input = file == null ? Budgets.class.getClassLoader().getResourceAsStream(BUDGETS_FILE) : new FileInputStream(file)) {
+            if (input != null) {
+                budgets.load(input);
+            }
+        }
+    }
+
+    /**
+     * Record the measurement and check it against its budgets, a scenario without budget always passes
+     *
+     * @return the budgets exceeded by the measurement
+     */
+    public List<String> check(final ScenarioRunner.Measurement measurement) throws IOException {
+        record(measurement);
+        report(measurement.toString());
+        final List<String> violations = new ArrayList<>();
+        final String prefix = measurement.getScenario() + "." + measurement.getMode() + ".";
+        check(violations, measurement, prefix + "wallMillis", measurement.getWallMillis(), "ms");
+        check(violations, measurement, prefix + "peakHeapMegabytes", measurement.getPeakHeapMegabytes(), "MB");
+        return violations;
+    }
+
+    private void check(final List<String> violations, final ScenarioRunner.Measurement measurement, final String key, final long value, final String unit) {
+        final String budget = budgets.getProperty(key);
+        if (budget != null && value > Long.parseLong(budget.trim())) {
+            violations.add(String.format("%s: %d %s exceeds the budget of %s %s (%s)", measurement.getScenario(), value, unit, budget.trim(), unit, key));
+        }
+    }
+
+    /**
+     * Append a line to `summary.txt` of the report directory, the output of the test JVM is not shown by Gradle
+     */
+    public static void report(final String line) throws IOException {
+        final String directory = System.getProperty("azure.performance.reportDirectory");
+        if (directory != null) {
+            FileUtils.write(new File(directory, "summary.txt"), line + System.lineSeparator(), StandardCharsets.UTF_8, true);
+        }
+    }
+
+    private static void record(final ScenarioRunner.Measurement measurement) throws IOException {
+        final String directory = System.getProperty("azure.performance.reportDirectory");
+        if (directory == null) {
+            return;
+        }
+        final File results = new File(directory, "results.csv");
+        if (!results.isFile()) {
+            FileUtils.write(results, "timestamp,scenario,mode,wallMillis,peakHeapMegabytes\n", StandardCharsets.UTF_8);
+        }
+        FileUtils.write(results, String.format("%d,%s,%s,%d,%d%n", System.currentTimeMillis(), measurement.getScenario(), measurement.getMode(),
+            measurement.getWallMillis(), measurement.getPeakHeapMegabytes()), StandardCharsets.UTF_8, true);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.performance;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The configuration overhead of applying the plugins to many projects: `gradle help` on builds of 1 to 500 projects
+ * applying the functions or the web app plugin, compared with the same builds without them, cold, warm and with the
+ * configuration cache. The number of projects can be set with `-Pazure.performance.projectCounts=1,50`.
+ */
+public class ConfigurationPerformanceTest {
+    private static final String FUNCTIONS_PLUGIN = "com.microsoft.azure.azurefunctions";
+    private static final String WEBAPP_PLUGIN = "com.microsoft.azure.azurewebapp";
+    private static final int WARM_ITERATIONS = 5;
+    private static final int COLD_ITERATIONS = 1;
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static ProjectGenerator generator;
+    private static ScenarioRunner runner;
+    private static Budgets budgets;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        generator = new ProjectGenerator(new File(System.getProperty("azure.performance.functionsLibrary")));
+        runner = new ScenarioRunner(ScenarioRunner.getPluginClasspath(), temporaryFolder.newFolder("work"));
+        budgets = new Budgets();
+    }
+
+    @Test
+    public void testFunctionsPlugin() throws IOException {
+        assertOverheadWithinBudgets("functions", FUNCTIONS_PLUGIN);
+    }
+
+    @Test
+    public void testWebAppPlugin() throws IOException {
+        assertOverheadWithinBudgets("webapp", WEBAPP_PLUGIN);
+    }
+
+    private static void assertOverheadWithinBudgets(final String name, final String pluginId) throws IOException {
+        final List<String> violations = new ArrayList<>();
+        for (final int projects : getProjectCounts()) {
+            final File baselineDir = temporaryFolder.newFolder(name + "-baseline-" + projects);
+            generator.generateConfigurationProject(baselineDir, projects, null);
+            final File projectDir = temporaryFolder.newFolder(name + "-" + projects);
+            generator.generateConfigurationProject(projectDir, projects, pluginId);
+
+            final String scenario = String.format("configure-%s-%d", name, projects);
+            final List<ScenarioRunner.Measurement> baselines = measure(scenario + "-baseline", baselineDir);
+            final List<ScenarioRunner.Measurement> measurements = measure(scenario, projectDir);
+            for (int i = 0; i < measurements.size(); i++) {
+                final ScenarioRunner.Measurement overhead = measurements.get(i).minus(scenario + "-overhead", baselines.get(i));
+                violations.addAll(budgets.check(measurements.get(i)));
+                violations.addAll(budgets.check(overhead));
+            }
+        }
+        assertTrue(String.join("\n", violations), violations.isEmpty());
+    }
+
+    private static List<ScenarioRunner.Measurement> measure(final String scenario, final File projectDir) throws IOException {
+        return Arrays.asList(
+            runner.measureCold(scenario, projectDir, COLD_ITERATIONS, "help"),
+            runner.measureWarm(scenario, projectDir, WARM_ITERATIONS, "help"),
+            // the heap is sampled by a task listener of the init script, which is not supported by the configuration cache
+            runner.measureWarm(scenario + "-configuration-cache", projectDir, WARM_ITERATIONS, "help", "--configuration-cache",
+                "--configuration-cache-problems=warn"));
+    }
+
+    private static List<Integer> getProjectCounts() {
+        return Arrays.stream(System.getProperty("azure.performance.projectCounts", "1,10,100,500").split(","))
+            .map(String::trim).map(Integer::parseInt).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.performance;
+
+import com.microsoft.azure.gradle.testfixtures.FakeAzureCli;
+import com.microsoft.azure.gradle.testfixtures.StandInServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * `azureWebAppDeploy` against the offline stand-in of ARM and Kudu, authenticated by a fake `az`, with a fixed latency
+ * per call, and with throttling to measure the cost of the retries.
+ */
+public class DeployPerformanceTest {
+    private static final String RESOURCE_GROUP = "perf-group";
+    private static final String APP_NAME = "perf-webapp";
+    private static final int WARM_ITERATIONS = 5;
+    private static final int COLD_ITERATIONS = 1;
+    private static final long LATENCY_MILLIS = 20;
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static StandInServer server;
+    private static ScenarioRunner runner;
+    private static Budgets budgets;
+    private static File projectDir;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        server = new StandInServer();
+        server.addWebApp(RESOURCE_GROUP, APP_NAME, "westus", "app,linux", "JAVA|17-java17");
+        final File az = FakeAzureCli.install(temporaryFolder.newFolder("az"), server);
+        final Map<String, String> environment = new HashMap<>(System.getenv());
+        // the variable is `Path` on Windows, whose environment is case insensitive
+        environment.keySet().removeIf("PATH"::equalsIgnoreCase);
+        environment.put("PATH", az.getAbsolutePath() + File.pathSeparator + System.getenv("PATH"));
+
+        runner = new ScenarioRunner(ScenarioRunner.getPluginClasspath(), temporaryFolder.newFolder("work"));
+        runner.setEnvironment(environment);
+        budgets = new Budgets();
+        projectDir = temporaryFolder.newFolder(APP_NAME);
+        new ProjectGenerator(new File(System.getProperty("azure.performance.functionsLibrary")))
+            .generateWebAppProject(projectDir, server.getSubscriptionId(), RESOURCE_GROUP, APP_NAME, 10 * 1024);
+        runner.prepare(projectDir, "jar");
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testDeploy() throws IOException {
+        server.getFaults().latencyMillis(LATENCY_MILLIS).throttleRate(0);
+        assertWithinBudgets(
+            deploy(() -> runner.measureCold("deploy-webapp", projectDir, COLD_ITERATIONS, getDeployArguments())),
+            deploy(() -> runner.measureWarm("deploy-webapp", projectDir, WARM_ITERATIONS, getDeployArguments())));
+    }
+
+    @Test
+    public void testDeployThrottled() throws IOException {
+        // one call of ten is throttled, the build still succeeds with the retries of the toolkit
+        server.getFaults().latencyMillis(LATENCY_MILLIS).throttleRate(0.1);
+        try {
+            assertWithinBudgets(deploy(() -> runner.measureWarm("deploy-webapp-throttled", projectDir, WARM_ITERATIONS, getDeployArguments())));
+        } finally {
+            server.getFaults().throttleRate(0);
+        }
+    }
+
+    private static ScenarioRunner.Measurement deploy(final Scenario scenario) throws IOException {
+        server.getStatistics().reset();
+        final ScenarioRunner.Measurement measurement = scenario.run();
+        Budgets.report(String.format("%s %s: %s", measurement.getScenario(), measurement.getMode(), server.getStatistics()));
+        assertTrue("No package was deployed to the stand-in server.", server.getStatistics().getDeployments() > 0);
+        return measurement;
+    }
+
+    private static String[] getDeployArguments() {
+        return new String[]{"azureWebAppDeploy", "-Dazure.http.endpointOverride=" + server.getEndpoint()};
+    }
+
+    private static void assertWithinBudgets(final ScenarioRunner.Measurement... measurements) throws IOException {
+        final List<String> violations = new ArrayList<>();
+        for (final ScenarioRunner.Measurement measurement : measurements) {
+            violations.addAll(budgets.check(measurement));
+        }
+        assertTrue(String.join("\n", violations), violations.isEmpty());
+    }
+
+    private interface Scenario {
+        ScenarioRunner.Measurement run() throws IOException;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.performance;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * End-to-end numbers of `azureFunctionsPackage` and `azureFunctionsPackageZip` on large generated projects, run with
+ * `gradle :azure-gradle-plugins-performance:performanceTest`. Only the measured task is re-run (`--rerun`), the
+ * compilation of the generated sources is done beforehand.
+ */
+public class PackagePerformanceTest {
+    private static final int WARM_ITERATIONS = 5;
+    private static final int COLD_ITERATIONS = 1;
+    private static final int JAR_SIZE_KB = 64;
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static ProjectGenerator generator;
+    private static ScenarioRunner runner;
+    private static Budgets budgets;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        generator = new ProjectGenerator(new File(System.getProperty("azure.performance.functionsLibrary")));
+        runner = new ScenarioRunner(ScenarioRunner.getPluginClasspath(), temporaryFolder.newFolder("work"));
+        budgets = new Budgets();
+    }
+
+    @Test
+    public void testLargeProject() throws IOException {
+        final File projectDir = temporaryFolder.newFolder("functions-1000x400");
+        generator.generateFunctionsProject(projectDir, 1000, 400, JAR_SIZE_KB);
+        runner.prepare(projectDir, "azureFunctionsPackage");
+
+        assertWithinBudgets(
+            runner.measureCold("package-1000-functions-400-dependencies", projectDir, COLD_ITERATIONS, "azureFunctionsPackage", "--rerun"),
+            runner.measureWarm("package-1000-functions-400-dependencies", projectDir, WARM_ITERATIONS, "azureFunctionsPackage", "--rerun"),
+            runner.measureCold("zip-1000-functions-400-dependencies", projectDir, COLD_ITERATIONS, "azureFunctionsPackageZip", "--rerun"),
+            runner.measureWarm("zip-1000-functions-400-dependencies", projectDir, WARM_ITERATIONS, "azureFunctionsPackageZip", "--rerun"));
+    }
+
+    @Test
+    public void testMultiModuleProject() throws IOException {
+        final File projectDir = temporaryFolder.newFolder("functions-50-modules");
+        generator.generateMultiModuleProject(projectDir, 50, 20, 10, JAR_SIZE_KB);
+        runner.prepare(projectDir, "azureFunctionsPackage");
+
+        assertWithinBudgets(
+            runner.measureCold("package-50-modules", projectDir, COLD_ITERATIONS, "azureFunctionsPackage", "--rerun"),
+            runner.measureWarm("package-50-modules", projectDir, WARM_ITERATIONS, "azureFunctionsPackage", "--rerun"));
+    }
+
+    private static void assertWithinBudgets(final ScenarioRunner.Measurement... measurements) throws IOException {
+        final List<String> violations = new ArrayList<>();
+        for (final ScenarioRunner.Measurement measurement : measurements) {
+            violations.addAll(budgets.check(measurement));
+        }
+        assertTrue(String.join("\n", violations), violations.isEmpty());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.performance;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Generate functions projects of a given shape, built offline: the functions library and the dependency jars are
+ * referenced as files, so that no repository is needed.
+ */
+public class ProjectGenerator {
+    private static final String PACKAGE = "com.example.functions";
+    private static final String HTTP_FUNCTION = String.join("\n",
+        "package " + PACKAGE + ";",
+        "import com.microsoft.azure.functions.*;",
+        "import com.microsoft.azure.functions.annotation.*;",
+        "import java.util.Optional;",
+        "public class %1$s {",
+        "    @FunctionName(\"%2$s\")",
+        "    public HttpResponseMessage run(@HttpTrigger(name = \"req\", methods = {HttpMethod.GET, HttpMethod.POST}, authLevel = AuthorizationLevel.ANONYMOUS)",
+        "                                   HttpRequestMessage<Optional<String>> request, final ExecutionContext context) {",
+        "        return request.createResponseBuilder(HttpStatus.OK).body(\"%2$s\").build();",
+        "    }",
+        "}");
+    private static final String TIMER_FUNCTION = String.join("\n",
+        "package " + PACKAGE + ";",
+        "import com.microsoft.azure.functions.*;",
+        "import com.microsoft.azure.functions.annotation.*;",
+        "public class %1$s {",
+        "    @FunctionName(\"%2$s\")",
+        "    public void run(@TimerTrigger(name = \"timer\", schedule = \"0 */5 * * * *\") String timer, final ExecutionContext context) {",
+        "        context.getLogger().info(timer);",
+        "    }",
+        "}");
+
+    private final File functionsLibrary;
+
+    public ProjectGenerator(final File functionsLibrary) {
+        this.functionsLibrary = functionsLibrary;
+    }
+
+    /**
+     * A single project with `functions` functions (http and timer triggers alternately) and `dependencies` jars of
+     * `jarSizeKb` incompressible KB each
+     */
+    public void generateFunctionsProject(final File directory, final int functions, final int dependencies, final int jarSizeKb) throws IOException {
+        write(directory, "settings.gradle", "rootProject.name = 'functions-" + functions + "'");
+        generateFunctionsModule(directory, "", functions, dependencies, jarSizeKb);
+    }
+
+    /**
+     * A build of `modules` subprojects applying the functions plugin, each with the given shape
+     */
+    public void generateMultiModuleProject(final File directory, final int modules, final int functions, final int dependencies, final int jarSizeKb) throws IOException {
+        final List<String> includes = new ArrayList<>();
+        for (int i = 0; i < modules; i++) {
+            final String name = String.format("module-%03d", i);
+            includes.add("include '" + name + "'");
+            generateFunctionsModule(new File(directory, name), "-" + name, functions, dependencies, jarSizeKb);
+        }
+        write(directory, "settings.gradle", "rootProject.name = 'functions-" + modules + "-modules'\n" + String.join("\n", includes));
+    }
+
+    /**
+     * A `Java SE` web app project with an executable jar, whose size is about `jarSizeKb` KB of incompressible resources
+     */
+    public void generateWebAppProject(final File directory, final String subscription, final String resourceGroup, final String appName,
+                                      final int jarSizeKb) throws IOException {
+        write(directory, "settings.gradle", "rootProject.name = '" + appName + "'");
+        write(directory, "build.gradle", String.join("\n",
+            "plugins {",
+            "    id 'java'",
+            "    id 'com.microsoft.azure.azurewebapp'",
+            "}",
+            "java {",
+            "    sourceCompatibility = JavaVersion.VERSION_1_8",
+            "    targetCompatibility = JavaVersion.VERSION_1_8",
+            "}",
+            "jar {",
+            "    manifest {",
+            "        attributes 'Main-Class': '" + PACKAGE + ".Main'",
+            "    }",
+            "}",
+            "azurewebapp {",
+            "    subscription = '" + subscription + "'",
+            "    resourceGroup = '" + resourceGroup + "'",
+            "    appName = '" + appName + "'",
+            "    region = 'westus'",
+            "    pricingTier = 'P1v2'",
+            "    allowTelemetry = false",
+            "    runtime {",
+            "        os = 'Linux'",
+            "        webContainer = 'Java SE'",
+            "        javaVersion = 'Java 17'",
+            "    }",
+            "    auth {",
+            "        type = 'azure_cli'",
+            "    }",
+            "}"));
+        write(directory, "src/main/java/" + PACKAGE.replace('.', '/') + "/Main.java", String.join("\n",
+            "package " + PACKAGE + ";",
+            "public class Main {",
+            "    public static void main(String[] args) {",
+            "        System.out.println(\"Hello\");",
+            "    }",
+            "}"));
+        final byte[] content = new byte[jarSizeKb * 1024];
+        new Random(appName.hashCode()).nextBytes(content);
+        FileUtils.writeByteArrayToFile(new File(directory, "src/main/resources/data.bin"), content);
+    }
+
+    /**
+     * A build of `projects` empty java projects applying the plugin of the given id, or no Azure plugin if it is null
+     */
+    public void generateConfigurationProject(final File directory, final int projects, final String pluginId) throws IOException {
+        final List<String> includes = new ArrayList<>();
+        for (int i = 0; i < projects; i++) {
+            final String name = String.format("project-%03d", i);
+            includes.add("include '" + name + "'");
+            write(new File(directory, name), "build.gradle", String.join("\n",
+                "plugins {",
+                "    id 'java'",
+                pluginId == null ? "" : "    id '" + pluginId + "'",
+                "}"));
+        }
+        write(directory, "settings.gradle", "rootProject.name = 'configuration-" + projects + "'\n" + String.join("\n", includes));
+    }
+
+    private void generateFunctionsModule(final File directory, final String suffix, final int functions, final int dependencies, final int jarSizeKb) throws IOException {
+        write(directory, "build.gradle", String.join("\n",
+            "plugins {",
+            "    id 'java'",
+            "    id 'com.microsoft.azure.azurefunctions'",
+            "}",
+            "java {",
+            "    sourceCompatibility = JavaVersion.VERSION_1_8",
+            "    targetCompatibility = JavaVersion.VERSION_1_8",
+            "}",
+            "dependencies {",
+            "    implementation files('" + functionsLibrary.getAbsolutePath().replace('\\', '/') + "')",
+            "    implementation fileTree(dir: 'libs', include: '*.jar')",
+            "}",
+            "azurefunctions {",
+            "    appName = 'perf-app" + suffix + "'",
+            "    allowTelemetry = false",
+            "}"));
+        for (int i = 0; i < functions; i++) {
+            final String className = String.format("Function%04d", i);
+            write(directory, "src/main/java/" + PACKAGE.replace('.', '/') + "/" + className + ".java",
+                String.format(i % 2 == 0 ? HTTP_FUNCTION : TIMER_FUNCTION, className, "function" + i));
+        }
+        final Random random = new Random(directory.getName().hashCode());
+        final byte[] content = new byte[jarSizeKb * 1024];
+        for (int i = 0; i < dependencies; i++) {
+            final File jar = new File(directory, String.format("libs/dependency-%04d-1.0.0.jar", i));
+            FileUtils.forceMkdirParent(jar);
+            random.nextBytes(content);
+            try (JarOutputStream output = new JarOutputStream(new FileOutputStream(jar))) {
+                output.putNextEntry(new JarEntry("data.bin"));
+                output.write(content);
+                output.closeEntry();
+            }
+        }
+    }
+
+    private static void write(final File directory, final String path, final String content) throws IOException {
+        FileUtils.write(new File(directory, path), content, StandardCharsets.UTF_8);
+    }
+}
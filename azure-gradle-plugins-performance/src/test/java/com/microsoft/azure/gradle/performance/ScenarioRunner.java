@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.gradle.performance;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.testkit.runner.GradleRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Run a scenario, i.e. tasks of a generated project, with TestKit and measure the wall time of the build and the peak
+ * heap of the daemon running it.
+ * A cold run uses a new TestKit directory, so a new daemon with empty caches, a warm run reuses the daemon of a
+ * previous (warm-up) build. The heap is measured by an init script: the sum of the peaks of the heap pools after a
+ * full GC at the start of the build, so that garbage of previous builds doesn't count.
+ * Every measured build has its own heap file property, so the configuration cache is never reused by a measured build:
+ * with `--configuration-cache`, the configuration is measured along with storing it.
+ */
+public class ScenarioRunner {
+    private static final String HEAP_FILE_PROPERTY = "azure.performance.heapFile";
+    private static final String INIT_SCRIPT = String.join("\n",
+        "import java.lang.management.ManagementFactory",
+        "import java.lang.management.MemoryType",
+        "def heapFile = gradle.startParameter.projectProperties['" + HEAP_FILE_PROPERTY + "']",
+        "if (heapFile) {",
+        "    def pools = ManagementFactory.memoryPoolMXBeans.findAll { it.type == MemoryType.HEAP }",
+        "    System.gc()",
+        "    pools.each { it.resetPeakUsage() }",
+        "    gradle.projectsEvaluated {",
+        "        new File(heapFile).text = pools.sum { it.peakUsage.used }.toString()",
+        "    }",
+        "    gradle.taskGraph.afterTask {",
+        "        new File(heapFile).text = pools.sum { it.peakUsage.used }.toString()",
+        "    }",
+        "}");
+
+    private final List<File> pluginClasspath;
+    private final File workDirectory;
+    private final File initScript;
+    private Map<String, String> environment;
+    private int runs;
+
+    public ScenarioRunner(final List<File> pluginClasspath, final File workDirectory) throws IOException {
+        this.pluginClasspath = pluginClasspath;
+        this.workDirectory = workDirectory;
+        this.initScript = new File(workDirectory, "heap.gradle");
+        FileUtils.write(initScript, INIT_SCRIPT, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Run the builds with these environment variables, instead of the ones of the tests
+     */
+    public void setEnvironment(final Map<String, String> environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Build the project once in the warm daemon without measuring it, e.g. to compile the generated sources
+     */
+    public void prepare(final File projectDir, final String... arguments) {
+        runner(projectDir, getWarmTestKitDir(), Arrays.asList(arguments)).build();
+    }
+
+    public Measurement measureWarm(final String scenario, final File projectDir, final int iterations, final String... arguments) throws IOException {
+        final File testKitDir = getWarmTestKitDir();
+        // the warm-up build, which loads the plugins and fills the caches of the daemon
+        runner(projectDir, testKitDir, Arrays.asList(arguments)).build();
+        final List<Long> wallMillis = new ArrayList<>();
+        long peakHeapBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            final long[] measured = measure(projectDir, testKitDir, arguments);
+            wallMillis.add(measured[0]);
+            peakHeapBytes = Math.max(peakHeapBytes, measured[1]);
+        }
+        return new Measurement(scenario, "warm", median(wallMillis), peakHeapBytes / (1024 * 1024));
+    }
+
+    public Measurement measureCold(final String scenario, final File projectDir, final int iterations, final String... arguments) throws IOException {
+        final List<Long> wallMillis = new ArrayList<>();
+        long peakHeapBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            final long[] measured = measure(projectDir, new File(workDirectory, "testkit-cold-" + (runs++)), arguments);
+            wallMillis.add(measured[0]);
+            peakHeapBytes = Math.max(peakHeapBytes, measured[1]);
+        }
+        return new Measurement(scenario, "cold", median(wallMillis), peakHeapBytes / (1024 * 1024));
+    }
+
+    /**
+     * @return the wall time in ms and the peak heap in bytes of a build
+     */
+    private long[] measure(final File projectDir, final File testKitDir, final String... arguments) throws IOException {
+        final File heapFile = new File(workDirectory, "heap-" + (runs++) + ".txt");
+        final List<String> list = new ArrayList<>(Arrays.asList(arguments));
+        list.add("-P" + HEAP_FILE_PROPERTY + "=" + heapFile.getAbsolutePath());
+        final GradleRunner runner = runner(projectDir, testKitDir, list);
+        final long start = System.nanoTime();
+        runner.build();
+        final long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        final long peakHeapBytes = heapFile.isFile() ? Long.parseLong(FileUtils.readFileToString(heapFile, StandardCharsets.UTF_8).trim()) : 0;
+        return new long[]{wallMillis, peakHeapBytes};
+    }
+
+    private GradleRunner runner(final File projectDir, final File testKitDir, final List<String> arguments) {
+        final List<String> list = new ArrayList<>(Arrays.asList("--offline", "--init-script", initScript.getAbsolutePath()));
+        list.addAll(arguments);
+        return GradleRunner.create()
+            .withProjectDir(projectDir)
+            .withTestKitDir(testKitDir)
+            .withPluginClasspath(pluginClasspath)
+            .withEnvironment(environment)
+            .withArguments(list);
+    }
+
+    private File getWarmTestKitDir() {
+        return new File(workDirectory, "testkit-warm");
+    }
+
+    private static long median(final List<Long> values) {
+        final List<Long> sorted = values.stream().sorted().collect(Collectors.toList());
+        return sorted.isEmpty() ? 0 : sorted.get(sorted.size() / 2);
+    }
+
+    public static List<File> getPluginClasspath() {
+        final String classpath = System.getProperty("azure.performance.pluginClasspath");
+        if (classpath == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(classpath.split(File.pathSeparator)).map(File::new).collect(Collectors.toList());
+    }
+
+    public static class Measurement {
+        private final String scenario;
+        private final String mode;
+        private final long wallMillis;
+        private final long peakHeapMegabytes;
+
+        public Measurement(String scenario, String mode, long wallMillis, long peakHeapMegabytes) {
+            this.scenario = scenario;
+            this.mode = mode;
+            this.wallMillis = wallMillis;
+            this.peakHeapMegabytes = peakHeapMegabytes;
+        }
+
+        public String getScenario() {
+            return scenario;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public long getWallMillis() {
+            return wallMillis;
+        }
+
+        public long getPeakHeapMegabytes() {
+            return peakHeapMegabytes;
+        }
+
+        /**
+         * @return the difference of this measurement with the one of a baseline, e.g. the same build without plugins
+         */
+        public Measurement minus(final String name, final Measurement baseline) {
+            return new Measurement(name, mode, wallMillis - baseline.wallMillis, peakHeapMegabytes - baseline.peakHeapMegabytes);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s): %d ms, %d MB peak heap", scenario, mode, wallMillis, peakHeapMegabytes);
+        }
+    }
+}
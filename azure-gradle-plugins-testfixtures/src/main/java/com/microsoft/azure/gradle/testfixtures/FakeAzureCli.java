@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.testfixtures;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * A fake `az` for the `azure_cli` authentication against a {@link StandInServer}: it answers `az account list`,
+ * `az account show` and `az account get-access-token` with the subscription and the tenant of the server, and a
+ * token which never expires. Put its directory first on the `PATH` of the build, e.g. with `GradleRunner#withEnvironment`.
+ * The directory has both a POSIX `az` script and an `az.cmd` batch file, which is what the Azure SDK and the plugins run
+ * on Windows.
+ */
+public class FakeAzureCli {
+    private FakeAzureCli() {
+    }
+
+    /**
+     * @return the directory of the `az` scripts
+     */
+    public static File install(final File directory, final StandInServer server) throws IOException {
+        final String account = String.format("{\"id\": \"%s\", \"tenantId\": \"%s\", \"homeTenantId\": \"%2$s\", \"name\": \"Stand-in\", " +
+            "\"isDefault\": true, \"state\": \"Enabled\", \"cloudName\": \"AzureCloud\", \"environmentName\": \"AzureCloud\", " +
+            "\"user\": {\"name\": \"user@example.com\", \"type\": \"user\"}}", server.getSubscriptionId(), server.getTenantId());
+        final String token = String.format("{\"accessToken\": \"%s\", \"expiresOn\": \"2099-12-31 00:00:00.000000\", \"expires_on\": 4102358400, " +
+            "\"subscription\": \"%s\", \"tenant\": \"%s\", \"tokenType\": \"Bearer\"}", getToken(server), server.getSubscriptionId(), server.getTenantId());
+        final String version = "{\"azure-cli\": \"2.60.0\", \"azure-cli-core\": \"2.60.0\"}";
+        final File script = new File(directory, "az");
+        FileUtils.write(script, String.join("\n",
+            "#!/bin/sh",
+            "case \"$*\" in",
+            "  *get-access-token*) echo '" + token + "' ;;",
+            "  *account\\ list*) echo '[" + account + "]' ;;",
+            "  *account\\ show*) echo '" + account + "' ;;",
+            "  *version*) echo '" + version + "' ;;",
+            "  *) echo '{}' ;;",
+            "esac",
+            ""), StandardCharsets.UTF_8);
+        if (!script.setExecutable(true)) {
+            throw new IOException("Cannot make " + script.getAbsolutePath() + " executable.");
+        }
+        // the JSON documents have none of the characters which cmd would interpret, i.e. `&|<>^%()`
+        FileUtils.write(new File(directory, "az.cmd"), String.join("\r\n",
+            "@echo off",
+            "echo %* | findstr /c:\"get-access-token\" >nul && goto token",
+            "echo %* | findstr /c:\"account list\" >nul && goto list",
+            "echo %* | findstr /c:\"account show\" >nul && goto show",
+            "echo %* | findstr /c:\"version\" >nul && goto version",
+            "echo {}",
+            "exit /b 0",
+            ":token",
+            "echo " + token,
+            "exit /b 0",
+            ":list",
+            "echo [" + account + "]",
+            "exit /b 0",
+            ":show",
+            "echo " + account,
+            "exit /b 0",
+            ":version",
+            "echo " + version,
+            "exit /b 0",
+            ""), StandardCharsets.UTF_8);
+        return directory;
+    }
+
+    private static String getToken(final StandInServer server) {
+        // an unsigned JWT, whose claims are read by the toolkit to get the tenant and the user
+        final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        final String header = encoder.encodeToString("{\"alg\":\"none\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        final String claims = encoder.encodeToString(String.format("{\"tid\":\"%s\",\"oid\":\"%s\",\"upn\":\"user@example.com\"," +
+            "\"unique_name\":\"user@example.com\",\"exp\":4102358400}", server.getTenantId(), UUID.randomUUID()).getBytes(StandardCharsets.UTF_8));
+        return header + "." + claims + ".stand-in";
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.testfixtures;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Latency, throttling and failures injected by the {@link StandInServer}. Random decisions are made with a seeded
+ * generator, so a sequential run gets the same responses every time.
+ */
+@Getter
+@Setter
+@Accessors(fluent = true)
+public class Faults {
+    private long latencyMillis;
+    private long latencyJitterMillis;
+    // ratio of the requests answered with 429 and a `Retry-After` header
+    private double throttleRate;
+    private int retryAfterSeconds = 1;
+    // ratio of the requests answered with the failure status
+    private double failureRate;
+    private int failureStatus = 500;
+    // requests the throttling and failures apply to, all of them by default
+    private Pattern pathPattern;
+    private long seed = 42;
+
+    private Random random;
+
+    synchronized long nextLatency() {
+        return latencyMillis + (latencyJitterMillis > 0 ? (long) (getRandom().nextDouble() * latencyJitterMillis) : 0);
+    }
+
+    /**
+     * @return the status injected for a request to the path, or 0 to answer it normally
+     */
+    synchronized int nextFault(final String path) {
+        if (pathPattern != null && !pathPattern.matcher(path).find()) {
+            return 0;
+        }
+        final double value = getRandom().nextDouble();
+        if (value < throttleRate) {
+            return 429;
+        }
+        return value < throttleRate + failureRate ? failureStatus : 0;
+    }
+
+    private Random getRandom() {
+        if (random == null) {
+            random = new Random(seed);
+        }
+        return random;
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.testfixtures;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Getter;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An offline stand-in of the ARM and Kudu endpoints called by the deploy tasks, to test and benchmark them without a
+ * subscription. The plugins send their calls to it with `-Dazure.http.endpointOverride=<endpoint>`, which keeps the
+ * path of the calls and passes their original host in the `X-Original-Host` header: hosts like `<app>.scm.<domain>`
+ * are served as Kudu, `management.<domain>` as ARM and other hosts (the apps themselves) with an empty 200.
+ * <p>
+ * ARM resources are kept in memory by id: PUT and PATCH merge the body into the resource, GET returns it, or lists the
+ * resources under a collection, and POST `<id>/list...` returns the resource `<id>`. Kudu deployments (`/api/zipdeploy`,
+ * `/api/publish`, ...) succeed at once. Latency, throttling and failures are injected with {@link #getFaults()}.
+ */
+public class StandInServer implements AutoCloseable {
+    // the header set by EndpointOverridePolicy of the common lib
+    private static final String ORIGINAL_HOST_HEADER = "X-Original-Host";
+    private static final String APPLICATION_JSON = "application/json";
+    private static final String ARM = "arm";
+    private static final String KUDU = "kudu";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Getter
+    private final String subscriptionId = UUID.randomUUID().toString();
+    @Getter
+    private final String tenantId = UUID.randomUUID().toString();
+    @Getter
+    private final Faults faults = new Faults();
+    @Getter
+    private final Statistics statistics = new Statistics();
+
+    private final Map<String, ObjectNode> resources = new ConcurrentHashMap<>();
+    private final AtomicLong deploymentIds = new AtomicLong();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public StandInServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // a thread per request, so that the concurrency of the clients is not limited by the server
+        executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "stand-in-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return the value of `azure.http.endpointOverride` for this server
+     */
+    public String getEndpoint() {
+        return String.format("http://%s:%d", server.getAddress().getHostString(), server.getAddress().getPort());
+    }
+
+    /**
+     * Add a running web app (or function app, with `kind` `functionapp,linux`) and its app service plan
+     */
+    public void addWebApp(final String resourceGroup, final String name, final String region, final String kind, final String linuxFxVersion) {
+        final String group = String.format("/subscriptions/%s/resourceGroups/%s", subscriptionId, resourceGroup);
+        putResource(group, MAPPER.createObjectNode().put("location", region));
+        final String planId = group + "/providers/Microsoft.Web/serverfarms/" + name + "-plan";
+        final ObjectNode plan = MAPPER.createObjectNode().put("location", region).put("kind", "linux");
+        plan.putObject("sku").put("name", "P1v2").put("tier", "PremiumV2").put("size", "P1v2").put("family", "Pv2").put("capacity", 1);
+        plan.putObject("properties").put("reserved", true).put("status", "Ready").put("numberOfSites", 1);
+        putResource(planId, plan);
+
+        final String siteId = group + "/providers/Microsoft.Web/sites/" + name;
+        final ObjectNode site = MAPPER.createObjectNode().put("location", region).put("kind", kind);
+        final ObjectNode properties = site.putObject("properties");
+        final String defaultHostName = name + ".azurewebsites.net";
+        final String scmHostName = name + ".scm.azurewebsites.net";
+        properties.put("state", "Running").put("serverFarmId", planId).put("reserved", true).put("enabled", true)
+            .put("defaultHostName", defaultHostName).put("resourceGroup", resourceGroup).put("httpsOnly", true);
+        properties.putArray("hostNames").add(defaultHostName);
+        properties.putArray("enabledHostNames").add(defaultHostName).add(scmHostName);
+        final ArrayNode hostNameSslStates = properties.putArray("hostNameSslStates");
+        hostNameSslStates.addObject().put("name", defaultHostName).put("hostType", "Standard").put("sslState", "Disabled");
+        hostNameSslStates.addObject().put("name", scmHostName).put("hostType", "Repository").put("sslState", "Disabled");
+        properties.putObject("siteConfig").put("linuxFxVersion", linuxFxVersion);
+        putResource(siteId, site);
+        putResource(siteId + "/config/web", (ObjectNode) MAPPER.createObjectNode().set("properties",
+            MAPPER.createObjectNode().put("linuxFxVersion", linuxFxVersion).put("alwaysOn", true)));
+        putResource(siteId + "/config/appsettings", (ObjectNode) MAPPER.createObjectNode().set("properties", MAPPER.createObjectNode()));
+        putResource(siteId + "/config/publishingcredentials", (ObjectNode) MAPPER.createObjectNode().set("properties",
+            MAPPER.createObjectNode().put("publishingUserName", "$" + name).put("publishingPassword", UUID.randomUUID().toString())
+                .put("scmUri", "https://$" + name + "@" + scmHostName)));
+    }
+
+    public ObjectNode getResource(final String id) {
+        return resources.get(StringUtils.lowerCase(id, Locale.ROOT));
+    }
+
+    public void putResource(final String id, final ObjectNode resource) {
+        final String name = StringUtils.substringAfterLast(id, "/");
+        resource.put("id", id).put("name", name);
+        if (!resource.has("type")) {
+            resource.put("type", getType(id));
+        }
+        resources.put(StringUtils.lowerCase(id, Locale.ROOT), resource);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final String method = exchange.getRequestMethod();
+        final String host = StringUtils.lowerCase(StringUtils.substringBefore(StringUtils.firstNonBlank(
+            exchange.getRequestHeaders().getFirst(ORIGINAL_HOST_HEADER), exchange.getRequestHeaders().getFirst("Host"), "localhost"), ":"), Locale.ROOT);
+        final String path = exchange.getRequestURI().getPath();
+        final String hostType = getHostType(host);
+        statistics.onStart(method, hostType + ":" + path);
+        try {
+            final byte[] body = readBody(exchange.getRequestBody());
+            statistics.onBody(body.length);
+            final long latency = faults.nextLatency();
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            final int fault = faults.nextFault(path);
+            if (fault == 429) {
+                statistics.onFault(fault);
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(faults.retryAfterSeconds()));
+                sendError(exchange, 429, "TooManyRequests", "The request is throttled by the stand-in server.");
+            } else if (fault > 0) {
+                statistics.onFault(fault);
+                sendError(exchange, fault, "InternalServerError", "The failure is injected by the stand-in server.");
+            } else if (KUDU.equals(hostType)) {
+                handleKudu(exchange, host, method, path);
+            } else if (ARM.equals(hostType)) {
+                handleArm(exchange, method, path, body);
+            } else {
+                send(exchange, 200, "text/plain", new byte[0]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "ServiceUnavailable", "The stand-in server is stopping.");
+        } catch (RuntimeException e) {
+            sendError(exchange, 500, "InternalServerError", "The stand-in server failed: " + e);
+        } finally {
+            statistics.onEnd();
+            exchange.close();
+        }
+    }
+
+    private void handleArm(final HttpExchange exchange, final String method, final String path, final byte[] body) throws IOException {
+        final String id = StringUtils.removeEnd(path, "/");
+        final String lowerCaseId = StringUtils.lowerCase(id, Locale.ROOT);
+        final String[] segments = StringUtils.split(id, '/');
+        if ("/subscriptions".equals(lowerCaseId)) {
+            sendJson(exchange, 200, list(MAPPER.createArrayNode().add(getSubscription())));
+        } else if (segments.length == 2 && "subscriptions".equalsIgnoreCase(segments[0])) {
+            sendJson(exchange, 200, getSubscription());
+        } else if ("/tenants".equals(lowerCaseId)) {
+            sendJson(exchange, 200, list(MAPPER.createArrayNode().add(MAPPER.createObjectNode()
+                .put("id", "/tenants/" + tenantId).put("tenantId", tenantId).put("displayName", "Stand-in"))));
+        } else if (segments.length >= 2 && "providers".equalsIgnoreCase(segments[segments.length - 2])) {
+            // resource provider registrations
+            sendJson(exchange, 200, MAPPER.createObjectNode().put("id", id).put("namespace", segments[segments.length - 1])
+                .put("registrationState", "Registered"));
+        } else if ("POST".equals(method)) {
+            // actions, e.g. `<site>/config/appsettings/list` or `<site>/host/default/sync`
+            final ObjectNode resource = getResource(StringUtils.substringBeforeLast(id, "/"));
+            sendJson(exchange, 200, resource == null ? MAPPER.createObjectNode() : resource);
+        } else if ("PUT".equals(method) || "PATCH".equals(method)) {
+            final ObjectNode resource = ObjectUtils.defaultIfNull(getResource(id), MAPPER.createObjectNode());
+            final JsonNode update = body.length == 0 ? MAPPER.createObjectNode() : MAPPER.readTree(body);
+            if (update.isObject()) {
+                merge(resource, (ObjectNode) update);
+            }
+            putResource(id, resource);
+            sendJson(exchange, 200, resource);
+        } else if ("DELETE".equals(method)) {
+            sendJson(exchange, resources.remove(lowerCaseId) == null ? 204 : 200, MAPPER.createObjectNode());
+        } else if (getResource(id) != null) {
+            sendJson(exchange, 200, getResource(id));
+        } else if (segments.length % 2 == 1) {
+            // a collection, e.g. `/subscriptions/<id>/resourceGroups/<name>/providers/Microsoft.Web/sites`
+            final ArrayNode values = MAPPER.createArrayNode();
+            final String prefix = lowerCaseId + "/";
+            resources.forEach((key, value) -> {
+                if (key.startsWith(prefix) && !key.substring(prefix.length()).contains("/")) {
+                    values.add(value);
+                }
+            });
+            sendJson(exchange, 200, list(values));
+        } else {
+            sendError(exchange, 404, "ResourceNotFound", String.format("The resource '%s' was not found.", id));
+        }
+    }
+
+    private void handleKudu(final HttpExchange exchange, final String host, final String method, final String path) throws IOException {
+        final String lowerCasePath = StringUtils.lowerCase(path, Locale.ROOT);
+        if (("POST".equals(method) || "PUT".equals(method)) && StringUtils.containsAny(lowerCasePath, "deploy", "publish")) {
+            statistics.onDeployment();
+            final String deploymentId = String.valueOf(deploymentIds.incrementAndGet());
+            if (StringUtils.contains(exchange.getRequestURI().getQuery(), "isAsync=true")) {
+                exchange.getResponseHeaders().set("Location", String.format("https://%s/api/deployments/%s", host, deploymentId));
+                sendJson(exchange, 202, getDeployment(deploymentId));
+            } else {
+                sendJson(exchange, 200, getDeployment(deploymentId));
+            }
+        } else if ("GET".equals(method) && lowerCasePath.startsWith("/api/deployments/")) {
+            final String deploymentId = StringUtils.substringAfter(lowerCasePath, "/api/deployments/");
+            sendJson(exchange, 200, getDeployment("latest".equals(deploymentId) ? String.valueOf(deploymentIds.get()) : deploymentId));
+        } else {
+            sendJson(exchange, 200, MAPPER.createObjectNode());
+        }
+    }
+
+    private ObjectNode getSubscription() {
+        return MAPPER.createObjectNode().put("id", "/subscriptions/" + subscriptionId).put("subscriptionId", subscriptionId)
+            .put("tenantId", tenantId).put("displayName", "Stand-in").put("state", "Enabled");
+    }
+
+    private static ObjectNode getDeployment(final String id) {
+        // status 4 is `Success` for Kudu
+        return MAPPER.createObjectNode().put("id", id).put("status", 4).put("status_text", "").put("complete", true)
+            .put("active", true).put("provisioningState", "Succeeded").put("message", "Deployed by the stand-in server");
+    }
+
+    private static ObjectNode list(final ArrayNode values) {
+        final ObjectNode result = MAPPER.createObjectNode();
+        result.set("value", values);
+        return result;
+    }
+
+    private static void merge(final ObjectNode target, final ObjectNode update) {
+        update.fields().forEachRemaining(field -> {
+            final JsonNode current = target.get(field.getKey());
+            if (current != null && current.isObject() && field.getValue().isObject()) {
+                merge((ObjectNode) current, (ObjectNode) field.getValue());
+            } else {
+                target.set(field.getKey(), field.getValue());
+            }
+        });
+    }
+
+    private static String getType(final String id) {
+        // e.g. `Microsoft.Web/sites/config` for `.../providers/Microsoft.Web/sites/<name>/config/web`
+        final String[] segments = StringUtils.split(StringUtils.substringAfterLast(id, "/providers/"), '/');
+        if (segments.length < 2) {
+            return StringUtils.containsIgnoreCase(id, "/resourceGroups/") ? "Microsoft.Resources/resourceGroups" : "Microsoft.Resources/subscriptions";
+        }
+        final StringBuilder type = new StringBuilder(segments[0]);
+        for (int i = 1; i < segments.length; i += 2) {
+            type.append('/').append(segments[i]);
+        }
+        return type.toString();
+    }
+
+    private static String getHostType(final String host) {
+        if (host.contains(".scm.")) {
+            return KUDU;
+        }
+        // requests sent to the server directly are served as ARM
+        return host.startsWith("management.") || host.equals("localhost") || host.startsWith("127.") ? ARM : "app";
+    }
+
+    private static byte[] readBody(final InputStream input) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IOUtils.copy(input, output);
+        return output.toByteArray();
+    }
+
+    private static void sendError(final HttpExchange exchange, final int status, final String code, final String message) throws IOException {
+        final ObjectNode error = MAPPER.createObjectNode();
+        error.putObject("error").put("code", code).put("message", message);
+        sendJson(exchange, status, error);
+    }
+
+    private static void sendJson(final HttpExchange exchange, final int status, final JsonNode body) throws IOException {
+        send(exchange, status, APPLICATION_JSON, MAPPER.writeValueAsString(body).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final String contentType, final byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (status == 204) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.testfixtures;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the {@link StandInServer} received: requests per `<method> <path>`, injected faults, deployments, uploaded
+ * bytes and the maximum number of concurrent requests.
+ */
+public class Statistics {
+    private final Map<String, AtomicLong> requests = new ConcurrentHashMap<>();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong deployments = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxConcurrency = new AtomicInteger();
+
+    void onStart(final String method, final String path) {
+        requests.computeIfAbsent(method + " " + path, ignore -> new AtomicLong()).incrementAndGet();
+        maxConcurrency.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    }
+
+    void onEnd() {
+        inFlight.decrementAndGet();
+    }
+
+    void onBody(final long bytes) {
+        bytesReceived.addAndGet(bytes);
+    }
+
+    void onFault(final int status) {
+        (status == 429 ? throttled : failed).incrementAndGet();
+    }
+
+    void onDeployment() {
+        deployments.incrementAndGet();
+    }
+
+    /**
+     * @return the number of requests per `<method> <path>`, sorted
+     */
+    public Map<String, Long> getRequests() {
+        final Map<String, Long> result = new TreeMap<>();
+        requests.forEach((key, value) -> result.put(key, value.get()));
+        return result;
+    }
+
+    public long getRequestCount() {
+        return requests.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getDeployments() {
+        return deployments.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency.get();
+    }
+
+    public void reset() {
+        requests.clear();
+        throttled.set(0);
+        failed.set(0);
+        deployments.set(0);
+        bytesReceived.set(0);
+        maxConcurrency.set(inFlight.get());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests, %d throttled, %d failed, %d deployments, %d bytes received, %d concurrent requests at most",
+            getRequestCount(), getThrottled(), getFailed(), getDeployments(), getBytesReceived(), getMaxConcurrency());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.testfixtures;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FakeAzureCliTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private StandInServer server;
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInServer();
+        directory = FakeAzureCli.install(temporaryFolder.newFolder("az"), server);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testAccount() throws Exception {
+        // the script of the platform the tests run on, `az.cmd` on Windows
+        final String show = az("account", "show", "--output", "json");
+        assertTrue(show.contains("\"id\": \"" + server.getSubscriptionId() + "\""));
+        assertTrue(az("account", "list").trim().startsWith("["));
+        assertTrue(az("account", "get-access-token", "--output", "json").contains("\"tenant\": \"" + server.getTenantId() + "\""));
+        assertEquals("{}", az("extension", "list").trim());
+    }
+
+    private String az(String... arguments) throws Exception {
+        final String[] command = new String[arguments.length + (SystemUtils.IS_OS_WINDOWS ? 3 : 1)];
+        if (SystemUtils.IS_OS_WINDOWS) {
+            command[0] = "cmd.exe";
+            command[1] = "/c";
+            command[2] = new File(directory, "az.cmd").getAbsolutePath();
+        } else {
+            command[0] = new File(directory, "az").getAbsolutePath();
+        }
+        System.arraycopy(arguments, 0, command, command.length - arguments.length, arguments.length);
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        final String output = IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        assertEquals(output, 0, process.exitValue());
+        return output;
+    }
+}
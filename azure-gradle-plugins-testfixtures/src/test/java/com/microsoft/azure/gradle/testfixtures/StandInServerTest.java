@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.gradle.testfixtures;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StandInServerTest {
+    private static final String ARM_HOST = "management.azure.com";
+    private static final String KUDU_HOST = "demo-app.scm.azurewebsites.net";
+
+    private StandInServer server;
+    private String siteId;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new StandInServer();
+        server.addWebApp("demo-group", "demo-app", "westus", "app,linux", "JAVA|17-java17");
+        siteId = String.format("/subscriptions/%s/resourceGroups/demo-group/providers/Microsoft.Web/sites/demo-app", server.getSubscriptionId());
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void testArmResources() throws IOException {
+        assertEquals(200, call("GET", siteId, ARM_HOST, null).status);
+        assertTrue(call("GET", siteId.replace("/sites/demo-app", "/sites"), ARM_HOST, null).body.contains("\"name\":\"demo-app\""));
+        assertEquals(404, call("GET", siteId + "-missing", ARM_HOST, null).status);
+
+        call("PUT", siteId + "/config/appsettings", ARM_HOST, "{\"properties\":{\"key\":\"value\"}}");
+        assertTrue(call("POST", siteId + "/config/appsettings/list", ARM_HOST, "").body.contains("\"key\":\"value\""));
+    }
+
+    @Test
+    public void testKuduDeployment() throws IOException {
+        final Response response = call("POST", "/api/zipdeploy?isAsync=true", KUDU_HOST, "content");
+        assertEquals(202, response.status);
+        assertEquals("https://" + KUDU_HOST + "/api/deployments/1", response.location);
+        assertTrue(call("GET", "/api/deployments/latest", KUDU_HOST, null).body.contains("\"status\":4"));
+        assertEquals(1, server.getStatistics().getDeployments());
+        assertEquals(7, server.getStatistics().getBytesReceived());
+    }
+
+    @Test
+    public void testFaults() throws IOException {
+        server.getFaults().throttleRate(1);
+        final Response throttled = call("GET", siteId, ARM_HOST, null);
+        assertEquals(429, throttled.status);
+        assertEquals("1", throttled.retryAfter);
+
+        server.getFaults().throttleRate(0).failureRate(1).pathPattern(Pattern.compile("/api/"));
+        assertEquals(200, call("GET", siteId, ARM_HOST, null).status);
+        assertEquals(500, call("POST", "/api/zipdeploy", KUDU_HOST, "content").status);
+        assertEquals(1, server.getStatistics().getThrottled());
+        assertEquals(1, server.getStatistics().getFailed());
+    }
+
+    private Response call(String method, String path, String host, String body) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(server.getEndpoint() + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("X-Original-Host", host);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        final Response response = new Response();
+        response.status = connection.getResponseCode();
+        response.location = connection.getHeaderField("Location");
+        response.retryAfter = connection.getHeaderField("Retry-After");
+        try (InputStream input = response.status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            response.body = input == null ? "" : IOUtils.toString(input, StandardCharsets.UTF_8);
+        }
+        return response;
+    }
+
+    private static class Response {
+        private int status;
+        private String location;
+        private String retryAfter;
+        private String body;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.plugin.webapps.gradle;
+
+import com.microsoft.azure.gradle.auth.GradleAuthConfig;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+
+import javax.annotation.Nullable;
+import java.util.stream.Stream;
+
+/**
+ * The `auth` block of `azurewebapp`, see {@link GradleAuthConfig}
+ */
+public abstract class AuthSettings {
+    @Input
+    @Optional
+    public abstract Property<String> getType();
+
+    @Input
+    @Optional
+    public abstract Property<String> getEnvironment();
+
+    @Input
+    @Optional
+    public abstract Property<String> getClient();
+
+    @Input
+    @Optional
+    public abstract Property<String> getTenant();
+
+    @Input
+    @Optional
+    public abstract Property<String> getKey();
+
+    @Input
+    @Optional
+    public abstract Property<String> getCertificate();
+
+    @Input
+    @Optional
+    public abstract Property<String> getCertificatePassword();
+
+    /**
+     * @return the settings, null if none of them is set
+     */
+    @Nullable
+    public GradleAuthConfig toConfig() {
+        if (Stream.of(getType(), getEnvironment(), getClient(), getTenant(), getKey(), getCertificate(), getCertificatePassword())
+            .noneMatch(Provider::isPresent)) {
+            return null;
+        }
+        final GradleAuthConfig config = new GradleAuthConfig();
+        config.setType(getType().getOrNull());
+        config.setEnvironment(getEnvironment().getOrNull());
+        config.setClient(getClient().getOrNull());
+        config.setTenant(getTenant().getOrNull());
+        config.setKey(getKey().getOrNull());
+        config.setCertificate(getCertificate().getOrNull());
+        config.setCertificatePassword(getCertificatePassword().getOrNull());
+        return config;
+    }
+
+    void from(@Nullable GradleAuthConfig config) {
+        getType().set(config == null ? null : config.getType());
+        getEnvironment().set(config == null ? null : config.getEnvironment());
+        getClient().set(config == null ? null : config.getClient());
+        getTenant().set(config == null ? null : config.getTenant());
+        getKey().set(config == null ? null : config.getKey());
+        getCertificate().set(config == null ? null : config.getCertificate());
+        getCertificatePassword().set(config == null ? null : config.getCertificatePassword());
+    }
+}
@@ -5,41 +5,28 @@
 
 package com.microsoft.azure.plugin.webapps.gradle;
 
-import com.azure.core.http.policy.HttpLogDetailLevel;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.dataformat.javaprop.JavaPropsMapper;
-import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
-import com.microsoft.azure.gradle.util.GradleAzureMessager;
-import com.microsoft.azure.toolkit.lib.Azure;
+import com.microsoft.azure.gradle.auth.AzureAuthService;
+import com.microsoft.azure.gradle.cache.AzureCacheService;
+import com.microsoft.azure.gradle.common.AzureToolkitService;
+import com.microsoft.azure.gradle.configuration.GradleRuntimeConfig;
+import com.microsoft.azure.gradle.trace.PerformanceReportTask;
+import com.microsoft.azure.gradle.trace.Profiler;
 import com.microsoft.azure.toolkit.lib.appservice.model.OperatingSystem;
-import com.microsoft.azure.toolkit.lib.common.bundle.AzureString;
-import com.microsoft.azure.toolkit.lib.common.cache.CacheEvict;
-import com.microsoft.azure.toolkit.lib.common.cache.CacheManager;
-import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
-import com.microsoft.azure.toolkit.lib.common.utils.InstallationIdUtils;
-import com.microsoft.azure.toolkit.lib.common.utils.Utils;
-import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
 import org.gradle.api.UnknownTaskException;
-import org.gradle.api.file.FileCollection;
+import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.WarPlugin;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskContainer;
-import org.gradle.api.tasks.TaskOutputs;
 import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
 
-import java.io.IOException;
-import java.util.Optional;
-import java.util.Properties;
-import java.util.UUID;
-import java.util.concurrent.ExecutionException;
-
-import static com.microsoft.azure.gradle.temeletry.TelemetryConstants.INSTALLATION_ID_KEY;
-import static com.microsoft.azure.gradle.temeletry.TelemetryConstants.SESSION_ID_KEY;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.concurrent.Callable;
 
 public class AzureWebappPlugin implements Plugin<Project> {
     public static final String GRADLE_PLUGIN_NAME = "azure-webapp-gradle-plugin";
@@ -48,99 +35,102 @@ public class AzureWebappPlugin implements Plugin<Project> {
     @Override
     public void apply(final Project project) {
         final AzureWebappPluginExtension extension = project.getExtensions().create(GRADLE_FUNCTION_EXTENSION,
-            AzureWebappPluginExtension.class, project);
-        AzureMessager.setDefaultMessager(new GradleAzureMessager(project.getLogger()));
+            AzureWebappPluginExtension.class);
 
-        try {
-            CacheManager.evictCache(CacheEvict.ALL, CacheEvict.ALL);
-        } catch (ExecutionException e) {
-            //ignore
-        }
         final TaskContainer tasks = project.getTasks();
+        final Provider<AzureToolkitService> toolkitService = AzureToolkitService.register(project, GRADLE_PLUGIN_NAME, AzureWebappPlugin.class);
+        final Provider<AzureAuthService> authService = AzureAuthService.register(project);
+        final Provider<AzureCacheService> cacheService = AzureCacheService.register(project);
 
-        final TaskProvider<DeployTask> deployTask = tasks.register("azureWebAppDeploy", DeployTask.class, task -> {
+        tasks.register("azureWebAppDeploy", DeployTask.class, task -> {
             task.setGroup("AzureWebapp");
             task.setDescription("Deploy current project to azure webapp.");
-            task.setAzureWebappExtension(extension);
+            task.getWebAppConfig().set(project.provider(extension::resolveWebAppConfig));
+            task.getAuth().set(project.provider(extension::resolveAuth));
+            task.getAllowTelemetry().set(project.provider(extension::resolveAllowTelemetry));
+            task.getRollbackCacheSize().set(project.provider(extension::resolveRollbackCacheSize));
+            task.setToolkitService(toolkitService);
+            task.usesService(toolkitService);
+            task.setAuthService(authService);
+            task.usesService(authService);
+            task.setCacheService(cacheService);
+            task.usesService(cacheService);
+            // the archive task is looked up once the build script is evaluated, and only configured if the deploy task runs
+            final Provider<TaskProvider<AbstractArchiveTask>> archiveTask = project.provider(() -> getArchiveTaskProvider(project, extension));
+            task.getArtifactFile().set(archiveTask.flatMap(provider -> provider.flatMap(AbstractArchiveTask::getArchiveFile)));
+            task.getBuildDirectory().set(project.getLayout().getBuildDirectory());
+            task.getProjectDirectory().set(project.getLayout().getProjectDirectory());
+            task.getProfile().set(extension.getCommandLineParameters().get(Profiler.ENABLED_KEY).map(Boolean::valueOf));
+            task.dependsOn((Callable<Object>) () -> archiveTask.isPresent() ? archiveTask.get() : Collections.emptyList());
         });
 
-        project.afterEvaluate(projectAfterEvaluation -> {
-            mergeCommandLineParameters(extension);
-
-            AzureMessager.setDefaultMessager(new GradleAzureMessager(project.getLogger()));
-            Azure.az().config().setLogLevel(HttpLogDetailLevel.NONE.name());
-            Azure.az().config().setProduct(GRADLE_PLUGIN_NAME);
-            final String pluginVersion = StringUtils.firstNonBlank(AzureWebappPlugin.class.getPackage().getImplementationVersion(), "develop");
-            Azure.az().config().setVersion(pluginVersion);
-            final boolean enableTelemetry = BooleanUtils.isNotFalse(extension.getAllowTelemetry());
-            Azure.az().config().setTelemetryEnabled(enableTelemetry);
-            final String installationId = InstallationIdUtils.getHashMac();
-            Azure.az().config().setMachineId(installationId);
-            final String sessionId = UUID.randomUUID().toString();
-            Azure.az().config().setSessionId(sessionId);
-            final String userAgent = enableTelemetry ?
-                    String.format("%s/%s %s:%s %s:%s", GRADLE_PLUGIN_NAME, pluginVersion,
-                            INSTALLATION_ID_KEY, installationId, SESSION_ID_KEY, sessionId)
-                    : String.format("%s/%s", GRADLE_PLUGIN_NAME, pluginVersion);
-            Azure.az().config().setUserAgent(userAgent);
-
-            TelemetryAgent.getInstance().showPrivacyStatement();
-            final TaskProvider<Task> warTask = getWarTaskProvider(projectAfterEvaluation);
-            final TaskProvider<Task> bootWarTask = getBootWarTaskProvider(projectAfterEvaluation);
-            final TaskProvider<Task> bootJarTask = getBootJarTaskProvider(projectAfterEvaluation);
-            final TaskProvider<Task> jarTask = projectAfterEvaluation.getTasks().named("jar");
+        tasks.register("azureWebAppRollback", RollbackTask.class, task -> {
+            task.setGroup("AzureWebapp");
+            task.setDescription("Redeploy a previously deployed package from the local rollback cache.");
+            task.getWebAppConfig().set(project.provider(extension::resolveWebAppConfig));
+            task.getAuth().set(project.provider(extension::resolveAuth));
+            task.getAllowTelemetry().set(project.provider(extension::resolveAllowTelemetry));
+            task.getRollbackCacheSize().set(project.provider(extension::resolveRollbackCacheSize));
+            task.setToolkitService(toolkitService);
+            task.usesService(toolkitService);
+            task.setAuthService(authService);
+            task.usesService(authService);
+            task.setCacheService(cacheService);
+            task.usesService(cacheService);
+        });
 
-            deployTask.configure(task -> {
-                boolean isDocker = extension.getRuntime() != null && OperatingSystem.fromString(extension.getRuntime().os()) == OperatingSystem.DOCKER;
-                if (extension.getRuntime() != null && StringUtils.isBlank(extension.getRuntime().os())) {
-                    isDocker = StringUtils.isNotBlank(extension.getRuntime().image());
-                }
-                if (!isDocker) {
-                    TaskProvider<Task> targetTask = ObjectUtils.firstNonNull(bootWarTask, bootJarTask, warTask, jarTask);
-                    task.dependsOn(targetTask);
-                    task.setArtifactFile(Optional.ofNullable(targetTask)
-                        .map(Provider::get).map(Task::getOutputs).map(TaskOutputs::getFiles).map(FileCollection::getAsPath).orElse(null));
-                }
-            });
+        tasks.register("azureWebAppPerformanceReport", PerformanceReportTask.class, task -> {
+            task.setGroup("AzureWebapp");
+            task.setDescription("Report the phases of deploy which got slower than the previous runs.");
+            task.getProjectDirectory().set(project.getLayout().getProjectDirectory());
+            task.getAppName().set(extension.getCommandLineParameters().get("appName").orElse(extension.getAppName()));
+            task.getThreshold().set(extension.getCommandLineParameters().get(PerformanceReportTask.THRESHOLD_KEY).map(Double::valueOf));
+            task.getBaselineSize().set(extension.getCommandLineParameters().get(PerformanceReportTask.BASELINE_SIZE_KEY).map(Integer::valueOf));
+            task.getFailOnRegression().set(extension.getCommandLineParameters().get(PerformanceReportTask.FAIL_ON_REGRESSION_KEY).map(Boolean::valueOf));
         });
     }
 
-    static TaskProvider<Task> getWarTaskProvider(Project project) {
+    /**
+     * @return the task which builds the artifact to deploy, null for docker images
+     */
+    @Nullable
+    static TaskProvider<AbstractArchiveTask> getArchiveTaskProvider(Project project, AzureWebappPluginExtension extension) {
+        final GradleRuntimeConfig runtime = extension.resolveRuntime();
+        boolean isDocker = runtime != null && OperatingSystem.fromString(runtime.os()) == OperatingSystem.DOCKER;
+        if (runtime != null && StringUtils.isBlank(runtime.os())) {
+            isDocker = StringUtils.isNotBlank(runtime.image());
+        }
+        if (isDocker) {
+            return null;
+        }
+        return ObjectUtils.firstNonNull(getBootWarTaskProvider(project), getBootJarTaskProvider(project), getWarTaskProvider(project),
+            project.getTasks().named(JavaPlugin.JAR_TASK_NAME, AbstractArchiveTask.class));
+    }
+
+    static TaskProvider<AbstractArchiveTask> getWarTaskProvider(Project project) {
         if (project.getPlugins().hasPlugin(WarPlugin.class)) {
-            return project.getTasks().named(WarPlugin.WAR_TASK_NAME);
+            return project.getTasks().named(WarPlugin.WAR_TASK_NAME, AbstractArchiveTask.class);
         }
         return null;
     }
 
-    static TaskProvider<Task> getBootJarTaskProvider(Project project) {
+    static TaskProvider<AbstractArchiveTask> getBootJarTaskProvider(Project project) {
         if (project.getPlugins().hasPlugin("org.springframework.boot")) {
             try {
-                return project.getTasks().named("bootJar");
+                return project.getTasks().named("bootJar", AbstractArchiveTask.class);
             } catch (UnknownTaskException ignored) { // fall through
             }
         }
         return null;
     }
 
-    static TaskProvider<Task> getBootWarTaskProvider(Project project) {
+    static TaskProvider<AbstractArchiveTask> getBootWarTaskProvider(Project project) {
         if (project.getPlugins().hasPlugin("org.springframework.boot")) {
             try {
-                return project.getTasks().named("bootWar");
+                return project.getTasks().named("bootWar", AbstractArchiveTask.class);
             } catch (UnknownTaskException ignored) { // fall through
             }
         }
         return null;
     }
-
-    private static void mergeCommandLineParameters(final AzureWebappPluginExtension config) {
-        final JavaPropsMapper mapper = new JavaPropsMapper();
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        final Properties properties = System.getProperties();
-        try {
-            final AzureWebappPluginExtension commandLineParameters = mapper.readPropertiesAs(properties, AzureWebappPluginExtension.class);
-            Utils.copyProperties(config, commandLineParameters, false);
-        } catch (IOException | IllegalAccessException e) {
-            AzureMessager.getMessager().warning(AzureString.format("Failed to read parameters from command line : %s", e.getMessage()));
-        }
-    }
 }
@@ -5,26 +5,39 @@
 
 package com.microsoft.azure.plugin.webapps.gradle;
 
-import com.fasterxml.jackson.annotation.JsonSetter;
 import com.microsoft.azure.gradle.auth.GradleAuthConfig;
+import com.microsoft.azure.gradle.configuration.CommandLineParameters;
 import com.microsoft.azure.gradle.configuration.GradleDeploymentSlotConfig;
 import com.microsoft.azure.gradle.configuration.GradleRuntimeConfig;
+import com.microsoft.azure.gradle.configuration.GradleWebAppConfig;
+import com.microsoft.azure.gradle.deploy.DeploymentCache;
 import com.microsoft.azure.toolkit.lib.appservice.model.OperatingSystem;
 import com.microsoft.azure.toolkit.lib.legacy.appservice.DockerImageType;
 import groovy.lang.Closure;
-import lombok.NoArgsConstructor;
+import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.gradle.api.Project;
+import org.gradle.api.Action;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.Optional;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
-@NoArgsConstructor
-public class AzureWebappPluginExtension {
+/**
+ * Settings of the `azurewebapp` block. Values are resolved lazily when the tasks run, where `-D<name>=<value>` and
+ * `-Pazure.<name>=<value>` on the command line take precedence over the build script.
+ */
+public abstract class AzureWebappPluginExtension {
     public static final String JAVA_VERSION_KEY = "javaVersion";
     public static final String JAVA_WEB_CONTAINER_KEY = "javaWebContainer";
     public static final String DOCKER_IMAGE_TYPE_KEY = "dockerImageType";
@@ -34,240 +47,293 @@ public class AzureWebappPluginExtension {
     public static final String SKIP_CREATE_RESOURCE_KEY = "skipCreateResource";
     public static final String DEPLOY_TO_SLOT_KEY = "isDeployToSlot";
 
-    private Boolean allowTelemetry;
-
-    private String subscription;
-
-    private String resourceGroup;
-
-    private String appName;
-
-    private String region;
-
-    private String pricingTier;
-
-    private String appServicePlanResourceGroup;
-
-    private String appServicePlanName;
+    // stateless, created once instead of for each of the settings it resolves
+    private CommandLineParameters commandLineParameters;
 
-    private GradleAuthConfig auth;
+    @Inject
+    protected abstract ProviderFactory getProviders();
 
-    private GradleRuntimeConfig runtime;
-
-    private GradleDeploymentSlotConfig deploymentSlot;
+    @Input
+    @Optional
+    public abstract Property<Boolean> getAllowTelemetry();
 
-    private Map<String, String> appSettings;
+    @Input
+    @Optional
+    public abstract Property<String> getSubscription();
 
-    private String appInsightsInstance;
+    @Input
+    @Optional
+    public abstract Property<String> getResourceGroup();
 
-    private String appInsightsKey;
-    private Project project;
+    @Input
+    public abstract Property<String> getAppName();
 
     @Input
     @Optional
-    public String getResourceGroup() {
-        return resourceGroup;
-    }
+    public abstract Property<String> getRegion();
 
     @Input
-    public String getAppName() {
-        return appName;
-    }
+    @Optional
+    public abstract Property<String> getPricingTier();
 
     @Input
     @Optional
-    public String getRegion() {
-        return region;
-    }
+    public abstract Property<String> getAppServicePlanName();
 
     @Input
     @Optional
-    public String getSubscription() {
-        return subscription;
-    }
+    public abstract Property<String> getAppServicePlanResourceGroup();
 
     @Input
     @Optional
-    public String getPricingTier() {
-        return pricingTier;
-    }
+    public abstract MapProperty<String, String> getAppSettings();
 
     @Input
     @Optional
-    public String getAppServicePlanName() {
-        return appServicePlanName;
-    }
+    public abstract Property<String> getAppInsightsInstance();
 
     @Input
     @Optional
-    public String getAppServicePlanResourceGroup() {
-        return appServicePlanResourceGroup;
-    }
+    public abstract Property<String> getAppInsightsKey();
 
     @Input
     @Optional
+    public abstract Property<Integer> getRollbackCacheSize();
+
+    @Nested
+    public abstract AuthSettings getAuth();
+
+    @Nested
+    public abstract RuntimeSettings getRuntime();
+
+    @Nested
+    public abstract DeploymentSlotSettings getDeploymentSlot();
+
+    @Internal
     @Deprecated
-    public GradleAuthConfig getAuthentication() {
-        return auth;
+    public AuthSettings getAuthentication() {
+        return getAuth();
     }
 
-    @Input
-    @Optional
-    public GradleAuthConfig getAuth() {
-        return auth;
+    /**
+     * @return settings passed on the command line, which take precedence over the ones above
+     */
+    @Internal
+    public CommandLineParameters getCommandLineParameters() {
+        if (commandLineParameters == null) {
+            commandLineParameters = new CommandLineParameters(getProviders());
+        }
+        return commandLineParameters;
     }
 
-    @Input
-    @Optional
-    public Map<String, String> getAppSettings() {
-        return appSettings;
+    public void auth(Action<? super AuthSettings> action) {
+        action.execute(getAuth());
     }
 
-    @Input
-    @Optional
-    public GradleRuntimeConfig getRuntime() {
-        return runtime;
+    @Deprecated
+    public void authentication(Action<? super AuthSettings> action) {
+        action.execute(getAuth());
     }
 
-    @Input
-    @Optional
-    public Boolean getAllowTelemetry() {
-        return allowTelemetry;
+    public void runtime(Action<? super RuntimeSettings> action) {
+        action.execute(getRuntime());
     }
 
-    @Input
-    @Optional
-    public String getAppInsightsInstance() {
-        return appInsightsInstance;
+    public void deploymentSlot(Action<? super DeploymentSlotSettings> action) {
+        action.execute(getDeploymentSlot());
     }
 
-    @Input
-    @Optional
-    public String getAppInsightsKey() {
-        return appInsightsKey;
+    public void setAppSettings(Closure closure) {
+        getAppSettings().set(toStringMap(configure(closure, new HashMap<>())));
     }
 
-    @Input
-    @Optional
-    public GradleDeploymentSlotConfig getDeploymentSlot() {
-        return deploymentSlot;
+    public boolean resolveAllowTelemetry() {
+        return BooleanUtils.isNotFalse(getCommandLineParameters().resolveBoolean("allowTelemetry", getAllowTelemetry()));
     }
 
-    public void setAllowTelemetry(Boolean allowTelemetry) {
-        this.allowTelemetry = allowTelemetry;
+    @Nullable
+    public GradleAuthConfig resolveAuth() {
+        return getCommandLineParameters().resolve("auth", getAuth().toConfig(), GradleAuthConfig.class);
     }
 
-    public void setResourceGroup(String resourceGroup) {
-        this.resourceGroup = resourceGroup;
+    @Nullable
+    public GradleRuntimeConfig resolveRuntime() {
+        return getCommandLineParameters().resolve("runtime", getRuntime().toConfig(), GradleRuntimeConfig.class);
     }
 
-    public void setAppName(String appName) {
-        this.appName = appName;
+    @Nullable
+    public GradleDeploymentSlotConfig resolveDeploymentSlot() {
+        return getCommandLineParameters().resolve("deploymentSlot", getDeploymentSlot().toConfig(), GradleDeploymentSlotConfig.class);
     }
 
-    public void setRegion(String region) {
-        this.region = region;
+    public int resolveRollbackCacheSize() {
+        return java.util.Optional.ofNullable(getCommandLineParameters().resolveInteger("rollbackCacheSize", getRollbackCacheSize()))
+                .orElse(DeploymentCache.DEFAULT_CAPACITY);
     }
 
-    public void setSubscription(String subscription) {
-        this.subscription = subscription;
+    /**
+     * @return the web app configuration with the command line settings applied, without artifacts
+     */
+    @Nonnull
+    public GradleWebAppConfig resolveWebAppConfig() {
+        final CommandLineParameters parameters = getCommandLineParameters();
+        final GradleDeploymentSlotConfig slot = resolveDeploymentSlot();
+        final GradleWebAppConfig config = new GradleWebAppConfig();
+        config.subscriptionId(parameters.resolve("subscription", getSubscription()));
+        config.resourceGroup(parameters.resolve("resourceGroup", getResourceGroup()));
+        config.appName(parameters.resolve("appName", getAppName()));
+        config.pricingTier(parameters.resolve("pricingTier", getPricingTier()));
+        config.region(parameters.resolve("region", getRegion()));
+        config.runtime(resolveRuntime());
+        final Map<String, String> appSettings = parameters.resolveMap("appSettings", getAppSettings());
+        config.appSettings(appSettings.isEmpty() ? null : appSettings);
+        config.servicePlanName(parameters.resolve("appServicePlanName", getAppServicePlanName()));
+        config.servicePlanResourceGroup(parameters.resolve("appServicePlanResourceGroup", getAppServicePlanResourceGroup()));
+        config.deploymentSlotName(java.util.Optional.ofNullable(slot).map(GradleDeploymentSlotConfig::name).orElse(null));
+        config.deploymentSlotConfigurationSource(java.util.Optional.ofNullable(slot).map(GradleDeploymentSlotConfig::configurationSource).orElse(null));
+        return config;
+    }
+
+    public static Map<String, String> getTelemetryProperties(@Nonnull GradleWebAppConfig config) {
+        final Map<String, String> result = new HashMap<>();
+        final GradleRuntimeConfig runtime = config.runtime();
+        final String os = java.util.Optional.ofNullable(runtime).map(GradleRuntimeConfig::os).orElse(StringUtils.EMPTY);
+        result.put(OS_KEY, os);
+        result.put(JAVA_VERSION_KEY, java.util.Optional.ofNullable(runtime).map(GradleRuntimeConfig::javaVersion).orElse(StringUtils.EMPTY));
+        result.put(JAVA_WEB_CONTAINER_KEY, java.util.Optional.ofNullable(runtime).map(GradleRuntimeConfig::webContainer).orElse(StringUtils.EMPTY));
+        result.put(PRICING_TIER_KEY, java.util.Optional.ofNullable(config.pricingTier()).orElse(StringUtils.EMPTY));
+        result.put(REGION_KEY, java.util.Optional.ofNullable(config.region()).orElse(StringUtils.EMPTY));
+        if (runtime != null && StringUtils.equalsIgnoreCase(os, OperatingSystem.DOCKER.getValue())) {
+            final boolean isCustomRegistry = StringUtils.isNotEmpty(runtime.registryUrl());
+            final DockerImageType imageType;
+            if (isCustomRegistry) {
+                imageType = StringUtils.isEmpty(runtime.password()) ? DockerImageType.PRIVATE_REGISTRY : DockerImageType.UNKNOWN;
+            } else {
+                imageType = StringUtils.isEmpty(runtime.password()) ? DockerImageType.PRIVATE_DOCKER_HUB : DockerImageType.PUBLIC_DOCKER_HUB;
+            }
+            result.put(DOCKER_IMAGE_TYPE_KEY, imageType.name());
+        } else {
+            result.put(DOCKER_IMAGE_TYPE_KEY, DockerImageType.NONE.toString());
+        }
+        result.put(DEPLOY_TO_SLOT_KEY, String.valueOf(StringUtils.isNotEmpty(config.deploymentSlotName())));
+        result.put(SKIP_CREATE_RESOURCE_KEY, System.getProperty("azure.resource.create.skip", "false"));
+        return result;
     }
 
-    public void setPricingTier(String pricingTier) {
-        this.pricingTier = pricingTier;
+    /*
+     * Setters of the settings as they were before the settings became lazy properties, kept for the Kotlin DSL and
+     * the programmatic callers, `get<Name>().set(value)` is preferred.
+     */
+    @Deprecated
+    public void setAllowTelemetry(@Nullable Boolean allowTelemetry) {
+        getAllowTelemetry().set(allowTelemetry);
     }
 
     @Deprecated
-    public void setAuthentication(Closure closure) {
-        this.auth = new GradleAuthConfig();
-        project.configure(auth, closure);
+    public void setSubscription(@Nullable String subscription) {
+        getSubscription().set(subscription);
     }
 
-    public void setAuth(Closure closure) {
-        this.auth = new GradleAuthConfig();
-        project.configure(auth, closure);
+    @Deprecated
+    public void setResourceGroup(@Nullable String resourceGroup) {
+        getResourceGroup().set(resourceGroup);
     }
 
-    public void setRuntime(Closure closure) {
-        runtime = new GradleRuntimeConfig();
-        project.configure(runtime, closure);
+    @Deprecated
+    public void setAppName(@Nullable String appName) {
+        getAppName().set(appName);
     }
 
-    public void setDeploymentSlot(Closure closure) {
-        deploymentSlot = new GradleDeploymentSlotConfig();
-        project.configure(deploymentSlot, closure);
+    @Deprecated
+    public void setRegion(@Nullable String region) {
+        getRegion().set(region);
     }
 
-    public void setAppServicePlanName(String appServicePlanName) {
-        this.appServicePlanName = appServicePlanName;
+    @Deprecated
+    public void setPricingTier(@Nullable String pricingTier) {
+        getPricingTier().set(pricingTier);
     }
 
-    public void setAppServicePlanResourceGroup(String appServicePlanResourceGroup) {
-        this.appServicePlanResourceGroup = appServicePlanResourceGroup;
+    @Deprecated
+    public void setAppServicePlanName(@Nullable String appServicePlanName) {
+        getAppServicePlanName().set(appServicePlanName);
     }
 
-    public void setAppSettings(Closure closure) {
-        this.appSettings = new HashMap<>();
-        project.configure(appSettings, closure);
+    @Deprecated
+    public void setAppServicePlanResourceGroup(@Nullable String appServicePlanResourceGroup) {
+        getAppServicePlanResourceGroup().set(appServicePlanResourceGroup);
     }
 
+    @Deprecated
     public void setAppInsightsInstance(@Nullable String appInsightsInstance) {
-        this.appInsightsInstance = appInsightsInstance;
+        getAppInsightsInstance().set(appInsightsInstance);
     }
 
+    @Deprecated
     public void setAppInsightsKey(@Nullable String appInsightsKey) {
-        this.appInsightsKey = appInsightsKey;
+        getAppInsightsKey().set(appInsightsKey);
     }
 
-    @JsonSetter
-    public void setAuth(GradleAuthConfig auth) {
-        this.auth = auth;
+    @Deprecated
+    public void setRollbackCacheSize(@Nullable Integer rollbackCacheSize) {
+        getRollbackCacheSize().set(rollbackCacheSize);
     }
 
-    @JsonSetter
-    public void setRuntime(GradleRuntimeConfig runtime) {
-        this.runtime = runtime;
+    @Deprecated
+    public void setAppSettings(@Nullable Map<String, String> appSettings) {
+        getAppSettings().set(appSettings == null ? null : toStringMap(appSettings));
     }
 
-    @JsonSetter
-    public void setDeploymentSlot(GradleDeploymentSlotConfig deploymentSlot) {
-        this.deploymentSlot = deploymentSlot;
+    @Deprecated
+    public void setAuthentication(Closure closure) {
+        getAuth().from(configure(closure, new GradleAuthConfig()));
     }
 
-    @JsonSetter
-    public void setAppSettings(Map<String, String> appSettings) {
-        this.appSettings = appSettings;
+    @Deprecated
+    public void setAuth(Closure closure) {
+        getAuth().from(configure(closure, new GradleAuthConfig()));
     }
 
-    public AzureWebappPluginExtension(@Nonnull Project project) {
-        this.project = project;
+    @Deprecated
+    public void setRuntime(Closure closure) {
+        getRuntime().from(configure(closure, new GradleRuntimeConfig()));
     }
 
-    public Map<String, String> getTelemetryProperties() {
-        final Map<String, String> result = new HashMap<>();
-        final GradleRuntimeConfig runtime = getRuntime();
-        final String os = java.util.Optional.ofNullable(runtime).map(GradleRuntimeConfig::os).orElse(StringUtils.EMPTY);
-        result.put(OS_KEY, os);
-        result.put(JAVA_VERSION_KEY, java.util.Optional.ofNullable(runtime).map(GradleRuntimeConfig::javaVersion).orElse(StringUtils.EMPTY));
-        result.put(JAVA_WEB_CONTAINER_KEY, java.util.Optional.ofNullable(runtime).map(GradleRuntimeConfig::webContainer).orElse(StringUtils.EMPTY));
-        result.put(PRICING_TIER_KEY, java.util.Optional.ofNullable(pricingTier).orElse(StringUtils.EMPTY));
-        result.put(REGION_KEY, java.util.Optional.ofNullable(region).orElse(StringUtils.EMPTY));
-        if (runtime != null && StringUtils.equalsIgnoreCase(os, OperatingSystem.DOCKER.getValue())) {
-            final boolean isCustomRegistry = StringUtils.isNotEmpty(runtime.registryUrl());
-            final DockerImageType imageType;
-            if (isCustomRegistry) {
-                imageType = StringUtils.isEmpty(runtime.password()) ? DockerImageType.PRIVATE_REGISTRY : DockerImageType.UNKNOWN;
-            } else {
-                imageType = StringUtils.isEmpty(runtime.password()) ? DockerImageType.PRIVATE_DOCKER_HUB : DockerImageType.PUBLIC_DOCKER_HUB;
-            }
-            result.put(DOCKER_IMAGE_TYPE_KEY, imageType.name());
+    @Deprecated
+    public void setDeploymentSlot(Closure closure) {
+        getDeploymentSlot().from(configure(closure, new GradleDeploymentSlotConfig()));
+    }
+
+    @Deprecated
+    public void setAuth(@Nullable GradleAuthConfig auth) {
+        getAuth().from(auth);
+    }
+
+    @Deprecated
+    public void setRuntime(@Nullable GradleRuntimeConfig runtime) {
+        getRuntime().from(runtime);
+    }
+
+    @Deprecated
+    public void setDeploymentSlot(@Nullable GradleDeploymentSlotConfig deploymentSlot) {
+        getDeploymentSlot().from(deploymentSlot);
+    }
+
+    private static <T> T configure(final Closure<?> closure, final T target) {
+        final Closure<?> copy = (Closure<?>) closure.clone();
+        copy.setResolveStrategy(Closure.DELEGATE_FIRST);
+        copy.setDelegate(target);
+        if (copy.getMaximumNumberOfParameters() == 0) {
+            copy.call();
         } else {
-            result.put(DOCKER_IMAGE_TYPE_KEY, DockerImageType.NONE.toString());
+            copy.call(target);
         }
-        final boolean isDeployToSlot = java.util.Optional.ofNullable(getDeploymentSlot()).map(GradleDeploymentSlotConfig::name)
-                .map(StringUtils::isNotEmpty).orElse(false);
-        result.put(DEPLOY_TO_SLOT_KEY, String.valueOf(isDeployToSlot));
-        result.put(SKIP_CREATE_RESOURCE_KEY, System.getProperty("azure.resource.create.skip", "false"));
-        return result;
+        return target;
+    }
+
+    private static Map<String, String> toStringMap(final Map<?, ?> map) {
+        // values of a map property cannot be null
+        return map.entrySet().stream().filter(e -> e.getValue() != null)
+                .collect(Collectors.toMap(e -> Objects.toString(e.getKey()), e -> Objects.toString(e.getValue())));
     }
 }
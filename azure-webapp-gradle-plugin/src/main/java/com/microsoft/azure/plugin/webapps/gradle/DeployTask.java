@@ -5,11 +5,22 @@
 
 package com.microsoft.azure.plugin.webapps.gradle;
 
+import com.microsoft.azure.gradle.auth.AzureAuthService;
+import com.microsoft.azure.gradle.auth.GradleAuthConfig;
 import com.microsoft.azure.gradle.auth.GradleAuthHelper;
-import com.microsoft.azure.gradle.configuration.GradleDeploymentSlotConfig;
+import com.microsoft.azure.gradle.cache.AzureCacheService;
+import com.microsoft.azure.gradle.common.AzureToolkitService;
 import com.microsoft.azure.gradle.configuration.GradleRuntimeConfig;
 import com.microsoft.azure.gradle.configuration.GradleWebAppConfig;
+import com.microsoft.azure.gradle.deploy.DeploymentCache;
+import com.microsoft.azure.gradle.deploy.DeploymentCacheEntry;
+import com.microsoft.azure.gradle.http.HttpMetrics;
 import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
+import com.microsoft.azure.gradle.trace.BuildHistory;
+import com.microsoft.azure.gradle.trace.Profiler;
+import com.microsoft.azure.gradle.trace.Span;
+import com.microsoft.azure.gradle.trace.Tracer;
+import com.microsoft.azure.gradle.util.GradleUploadProgress;
 import com.microsoft.azure.toolkit.lib.Azure;
 import com.microsoft.azure.toolkit.lib.appservice.config.AppServiceConfig;
 import com.microsoft.azure.toolkit.lib.appservice.config.RuntimeConfig;
@@ -42,10 +53,20 @@ import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.internal.logging.progress.ProgressLoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -57,38 +78,137 @@ import static com.microsoft.azure.toolkit.lib.appservice.utils.AppServiceConfigU
 import static com.microsoft.azure.toolkit.lib.appservice.utils.AppServiceConfigUtils.mergeAppServiceConfig;
 
 @Setter
-public class DeployTask extends DefaultTask {
+public abstract class DeployTask extends DefaultTask {
     private static final String PROXY = "proxy";
     private static final String INVALID_PARAMETER_ERROR_MESSAGE = "Invalid values found in configuration, please correct the value with messages below:";
 
-    private AzureWebappPluginExtension azureWebappExtension;
+    private Provider<AzureToolkitService> toolkitService;
 
-    private String artifactFile;
+    private Provider<AzureAuthService> authService;
+
+    private Provider<AzureCacheService> cacheService;
+
+    /**
+     * Settings of the `azurewebapp` block with the command line settings applied, resolved when the task runs (or when
+     * the configuration cache is stored) rather than read from the extension by the task action
+     */
+    @Internal
+    public abstract Property<GradleWebAppConfig> getWebAppConfig();
+
+    @Internal
+    public abstract Property<GradleAuthConfig> getAuth();
+
+    @Internal
+    public abstract Property<Boolean> getAllowTelemetry();
+
+    @Internal
+    public abstract Property<Integer> getRollbackCacheSize();
+
+    /**
+     * The archive to deploy, mapped from the output of the archive task so that the task is only configured when needed
+     */
+    @Internal
+    public abstract RegularFileProperty getArtifactFile();
+
+    /**
+     * The trace of the deployment is written to `reports/azure` of it
+     */
+    @Internal
+    public abstract DirectoryProperty getBuildDirectory();
+
+    @Internal
+    public abstract DirectoryProperty getProjectDirectory();
+
+    /**
+     * Whether the task is profiled, `-Pazure.profile=true`, see {@link Profiler}
+     */
+    @Internal
+    public abstract Property<Boolean> getProfile();
+
+    /**
+     * Internal API of Gradle, the only one showing progress in the console
+     */
+    @Inject
+    protected abstract ProgressLoggerFactory getProgressLoggerFactory();
 
     @TaskAction
     @AzureOperation(name = "user/webapp.deploy_app")
     public void deploy() throws GradleException {
+        final Tracer tracer = Tracer.start(getName());
+        final Profiler profiler = getProfile().getOrElse(false) ? Profiler.start(getName()) : Profiler.NOOP;
+        final HttpMetrics metrics = HttpMetrics.start(getName());
+        String appName = null;
         try {
+            if (toolkitService != null) {
+                toolkitService.get().initialize(getAllowTelemetry().getOrElse(true), getLogger());
+            }
             ProxyManager.getInstance().applyProxy();
             OperationContext.current().setTelemetryProperty(PROXY, String.valueOf(ProxyManager.getInstance().isProxyEnabled()));
-            OperationContext.current().setTelemetryProperties(azureWebappExtension.getTelemetryProperties());
-            TelemetryAgent.getInstance().trackTaskStart(this.getClass());
             final GradleWebAppConfig config = parseConfiguration();
+            OperationContext.current().setTelemetryProperties(AzureWebappPluginExtension.getTelemetryProperties(config));
+            TelemetryAgent.getInstance().trackTaskStart(this.getClass());
+            if (cacheService != null) {
+                // applies the evictions requested on the command line once per build
+                cacheService.get();
+            }
             normalizeConfigValue(config);
-            validate(config);
-            config.subscriptionId(GradleAuthHelper.login(azureWebappExtension.getAuth(), config.subscriptionId()));
-            azureWebappExtension.setSubscription(config.subscriptionId());
-            ((WebAppServiceSubscription) Azure.az(AzureWebApp.class).webApps(config.subscriptionId()).getParent()).loadRuntimes();
-            validateOnline(config);
-            final WebAppBase<?, ?, ?> target = createOrUpdateWebapp(config);
-            deployArtifact(target, config);
+            try (final Span ignored = Tracer.span("validation")) {
+                validate(config);
+            }
+            final GradleAuthConfig auth = getAuth().getOrNull();
+            try (final Span ignored = Tracer.span("auth")) {
+                config.subscriptionId(authService != null ? authService.get().login(this, auth, config.subscriptionId()) :
+                        GradleAuthHelper.login(auth, config.subscriptionId()));
+            }
+            if (cacheService != null) {
+                cacheService.get().beforeRead(Azure.az(AzureWebApp.class).webApps(config.subscriptionId()));
+            }
+            try (final Span ignored = Tracer.span("runtime load")) {
+                ((WebAppServiceSubscription) Azure.az(AzureWebApp.class).webApps(config.subscriptionId()).getParent()).loadRuntimes();
+            }
+            try (final Span ignored = Tracer.span("online validation")) {
+                validateOnline(config);
+            }
+            appName = config.appName();
+            final WebAppBase<?, ?, ?> target;
+            try (final Span ignored = Tracer.span("create/update")) {
+                target = createOrUpdateWebapp(config);
+            }
+            try (final Span span = Tracer.span("upload");
+                 final GradleUploadProgress ignored = GradleUploadProgress.watch(getProgressLoggerFactory(), getLogger(), appName, config.deploymentSlotName())) {
+                final List<WebAppArtifact> artifacts = Optional.ofNullable(config.webAppArtifacts()).orElse(Collections.emptyList());
+                final long bytes = artifacts.stream().map(WebAppArtifact::getFile).filter(Objects::nonNull).mapToLong(File::length).sum();
+                span.count(artifacts.size()).bytes(bytes);
+                Tracer.metric("packageBytes", bytes);
+                deployArtifact(target, config);
+            }
+            AzureCacheService.afterWrite(target);
+            cacheDeployedPackage(config);
             AzureMessager.getMessager().info(AzureString.format("Application url: %s", "https://" + target.getHostName()));
             TelemetryAgent.getInstance().trackTaskSuccess(this.getClass());
         } catch (Exception e) {
+            tracer.fail(e);
             AzureMessager.getMessager().error(e);
             TelemetryAgent.getInstance().traceException(this.getClass(), e);
             throw new GradleException("Cannot deploy web app due to error: " + e.getMessage(), e);
+        } finally {
+            if (authService != null) {
+                authService.get().release(this);
+            }
+            metrics.stop();
+            metrics.report(getBuildDirectory().get().getAsFile());
+            writeTrace(tracer, appName);
+            profiler.stop(getBuildDirectory().get().getAsFile())
+                .forEach(file -> getLogger().lifecycle("Profile of task {} is written to {}", getName(), file.getAbsolutePath()));
+        }
+    }
+
+    private void writeTrace(Tracer tracer, @Nullable String appName) {
+        final File file = tracer.stop(getBuildDirectory().get().getAsFile());
+        if (file != null) {
+            getLogger().info("Trace of task {} is written to {}", getName(), file.getAbsolutePath());
         }
+        BuildHistory.record(tracer, getProjectDirectory().get().getAsFile(), appName);
     }
 
     protected void validateConfiguration(Consumer<ValidationMessage> validationMessageConsumer, Object rawConfig) {
@@ -105,6 +225,28 @@ public class DeployTask extends DefaultTask {
         new DeployWebAppTask(target, config.webAppArtifacts(), true).execute();
     }
 
+    private void cacheDeployedPackage(GradleWebAppConfig config) {
+        final int capacity = getRollbackCacheSize().getOrElse(DeploymentCache.DEFAULT_CAPACITY);
+        final File artifact = getArtifact();
+        if (capacity <= 0 || artifact == null) {
+            return;
+        }
+        try {
+            final DeploymentCache cache = DeploymentCache.forApp(config.subscriptionId(), config.resourceGroup(), config.appName(),
+                    config.deploymentSlotName(), capacity);
+            final DeploymentCacheEntry metadata = new DeploymentCacheEntry();
+            metadata.setSubscriptionId(config.subscriptionId());
+            metadata.setResourceGroup(config.resourceGroup());
+            metadata.setAppName(config.appName());
+            metadata.setDeploymentSlot(config.deploymentSlotName());
+            final DeploymentCacheEntry entry = cache.record(artifact, metadata);
+            AzureMessager.getMessager().info(AzureString.format("Package %s has been cached for rollback.", entry.getId()));
+        } catch (IOException | RuntimeException e) {
+            // never fail a deployment because of the rollback cache
+            AzureMessager.getMessager().warning(AzureString.format("Failed to cache the deployed package for rollback: %s", e.getMessage()));
+        }
+    }
+
     private void validateOnline(GradleWebAppConfig config) {
         // check online regions
         final List<String> validRegions =
@@ -144,7 +286,7 @@ public class DeployTask extends DefaultTask {
     }
 
     private AppServiceConfig buildDefaultConfig(String subscriptionId, String resourceGroup, String appName) {
-        final String packaging = FilenameUtils.getExtension(StringUtils.firstNonBlank(this.artifactFile, ""));
+        final String packaging = Optional.ofNullable(getArtifact()).map(File::getName).map(FilenameUtils::getExtension).orElse("");
         // get java version according to project java version
         return AppServiceConfigUtils.buildDefaultWebAppConfig(subscriptionId, resourceGroup, appName, packaging);
     }
@@ -185,22 +327,9 @@ public class DeployTask extends DefaultTask {
     }
 
     private GradleWebAppConfig parseConfiguration() {
-        final AzureWebappPluginExtension ctx = this.azureWebappExtension;
-        GradleWebAppConfig config = new GradleWebAppConfig();
-        config.subscriptionId(ctx.getSubscription());
-        config.resourceGroup(ctx.getResourceGroup());
-        config.appName(ctx.getAppName());
-        config.pricingTier(ctx.getPricingTier());
-        config.region(ctx.getRegion());
-        config.runtime(ctx.getRuntime());
-        config.appSettings(ctx.getAppSettings());
-        config.servicePlanName(ctx.getAppServicePlanName());
-        config.servicePlanResourceGroup(ctx.getAppServicePlanResourceGroup());
-        config.deploymentSlotName(Optional.ofNullable(ctx.getDeploymentSlot()).map(GradleDeploymentSlotConfig::name).orElse(null));
-        config.deploymentSlotConfigurationSource(Optional.ofNullable(ctx.getDeploymentSlot())
-                .map(GradleDeploymentSlotConfig::configurationSource).orElse(null));
-        if (StringUtils.isNotBlank(this.artifactFile)) {
-            File file = new File(this.artifactFile);
+        final GradleWebAppConfig config = getWebAppConfig().get();
+        final File file = getArtifact();
+        if (file != null) {
             if (!file.exists()) {
                 throw new AzureToolkitRuntimeException(String.format("artifact file(%s) cannot be found.", file.getAbsolutePath()));
             }
@@ -213,6 +342,11 @@ public class DeployTask extends DefaultTask {
         return config;
     }
 
+    @Nullable
+    private File getArtifact() {
+        return getArtifactFile().map(RegularFile::getAsFile).getOrNull();
+    }
+
     private void normalizeConfigValue(GradleWebAppConfig config) {
         if (StringUtils.isNotBlank(config.region())) {
             config.region(Region.fromName(config.region()).getName());
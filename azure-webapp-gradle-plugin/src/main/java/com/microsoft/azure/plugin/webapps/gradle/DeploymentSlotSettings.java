@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.plugin.webapps.gradle;
+
+import com.microsoft.azure.gradle.configuration.GradleDeploymentSlotConfig;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+
+import javax.annotation.Nullable;
+
+/**
+ * The `deploymentSlot` block of `azurewebapp`, see {@link GradleDeploymentSlotConfig}
+ */
+public abstract class DeploymentSlotSettings {
+    @Input
+    @Optional
+    public abstract Property<String> getName();
+
+    @Input
+    @Optional
+    public abstract Property<String> getConfigurationSource();
+
+    /**
+     * @return the settings, null if none of them is set
+     */
+    @Nullable
+    public GradleDeploymentSlotConfig toConfig() {
+        if (!getName().isPresent() && !getConfigurationSource().isPresent()) {
+            return null;
+        }
+        return new GradleDeploymentSlotConfig().name(getName().getOrNull()).configurationSource(getConfigurationSource().getOrNull());
+    }
+
+    void from(@Nullable GradleDeploymentSlotConfig config) {
+        getName().set(config == null ? null : config.name());
+        getConfigurationSource().set(config == null ? null : config.configurationSource());
+    }
+}
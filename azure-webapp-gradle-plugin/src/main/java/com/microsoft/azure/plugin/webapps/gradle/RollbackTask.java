@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.plugin.webapps.gradle;
+
+import com.microsoft.azure.gradle.auth.AzureAuthService;
+import com.microsoft.azure.gradle.auth.GradleAuthConfig;
+import com.microsoft.azure.gradle.auth.GradleAuthHelper;
+import com.microsoft.azure.gradle.cache.AzureCacheService;
+import com.microsoft.azure.gradle.common.AzureToolkitService;
+import com.microsoft.azure.gradle.configuration.GradleWebAppConfig;
+import com.microsoft.azure.gradle.deploy.DeploymentCache;
+import com.microsoft.azure.gradle.deploy.DeploymentCacheEntry;
+import com.microsoft.azure.gradle.temeletry.TelemetryAgent;
+import com.microsoft.azure.toolkit.lib.Azure;
+import com.microsoft.azure.toolkit.lib.appservice.model.WebAppArtifact;
+import com.microsoft.azure.toolkit.lib.appservice.task.DeployWebAppTask;
+import com.microsoft.azure.toolkit.lib.appservice.utils.Utils;
+import com.microsoft.azure.toolkit.lib.appservice.webapp.AzureWebApp;
+import com.microsoft.azure.toolkit.lib.appservice.webapp.WebApp;
+import com.microsoft.azure.toolkit.lib.appservice.webapp.WebAppBase;
+import com.microsoft.azure.toolkit.lib.appservice.webapp.WebAppDeploymentSlot;
+import com.microsoft.azure.toolkit.lib.common.bundle.AzureString;
+import com.microsoft.azure.toolkit.lib.common.exception.AzureToolkitRuntimeException;
+import com.microsoft.azure.toolkit.lib.common.messager.AzureMessager;
+import com.microsoft.azure.toolkit.lib.common.operation.AzureOperation;
+import com.microsoft.azure.toolkit.lib.common.proxy.ProxyManager;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+@Setter
+public abstract class RollbackTask extends DefaultTask {
+    private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    private Provider<AzureToolkitService> toolkitService;
+
+    private Provider<AzureAuthService> authService;
+
+    private Provider<AzureCacheService> cacheService;
+
+    /**
+     * Settings of the `azurewebapp` block with the command line settings applied, see {@link DeployTask#getWebAppConfig()}
+     */
+    @Internal
+    public abstract Property<GradleWebAppConfig> getWebAppConfig();
+
+    @Internal
+    public abstract Property<GradleAuthConfig> getAuth();
+
+    @Internal
+    public abstract Property<Boolean> getAllowTelemetry();
+
+    @Internal
+    public abstract Property<Integer> getRollbackCacheSize();
+
+    @Internal
+    @Option(option = "package", description = "Id of the cached package to redeploy, defaults to the previously deployed package")
+    public abstract Property<String> getPackageId();
+
+    @Internal
+    @Option(option = "list", description = "List the cached packages instead of redeploying one of them")
+    public abstract Property<Boolean> getList();
+
+    @TaskAction
+    @AzureOperation(name = "user/webapp.rollback_app")
+    public void rollback() throws GradleException {
+        try {
+            if (toolkitService != null) {
+                toolkitService.get().initialize(getAllowTelemetry().getOrElse(true), getLogger());
+            }
+            ProxyManager.getInstance().applyProxy();
+            TelemetryAgent.getInstance().trackTaskStart(this.getClass());
+            if (cacheService != null) {
+                // applies the evictions requested on the command line once per build
+                cacheService.get();
+            }
+            final GradleWebAppConfig config = getWebAppConfig().get();
+            final GradleAuthConfig auth = getAuth().getOrNull();
+            final String subscriptionId = authService != null ? authService.get().login(this, auth, config.subscriptionId()) :
+                    GradleAuthHelper.login(auth, config.subscriptionId());
+            if (cacheService != null) {
+                cacheService.get().beforeRead(Azure.az(AzureWebApp.class).webApps(subscriptionId));
+            }
+            final DeploymentCache cache = DeploymentCache.forApp(subscriptionId, config.resourceGroup(), config.appName(),
+                    config.deploymentSlotName(), getRollbackCacheSize().getOrElse(DeploymentCache.DEFAULT_CAPACITY));
+            if (getList().getOrElse(false)) {
+                listCachedPackages(cache, config.appName());
+            } else {
+                redeploy(cache, getExistingDeployTarget(subscriptionId, config));
+            }
+            TelemetryAgent.getInstance().trackTaskSuccess(this.getClass());
+        } catch (Exception e) {
+            AzureMessager.getMessager().error(e);
+            TelemetryAgent.getInstance().traceException(this.getClass(), e);
+            throw new GradleException("Cannot rollback web app due to error: " + e.getMessage(), e);
+        } finally {
+            if (authService != null) {
+                authService.get().release(this);
+            }
+        }
+    }
+
+    private void redeploy(@Nonnull DeploymentCache cache, @Nonnull WebAppBase<?, ?, ?> target) throws IOException {
+        final String packageId = getPackageId().getOrNull();
+        final DeploymentCacheEntry entry = StringUtils.isBlank(packageId) ?
+                cache.getPrevious().orElseThrow(() -> new AzureToolkitRuntimeException(String.format(
+                        "No previously deployed package found in the local rollback cache of web app %s.", target.getName()))) :
+                cache.find(packageId).orElseThrow(() -> new AzureToolkitRuntimeException(String.format("Package %s cannot be found in the local " +
+                        "rollback cache, run 'gradle azureWebAppRollback --list' to see the cached packages.", packageId)));
+        AzureMessager.getMessager().info(AzureString.format("Trying to redeploy package %s (deployed at %s)...", entry.getId(), formatTime(entry.getDeployedAt())));
+        final File file = cache.getPackage(entry);
+        final WebAppArtifact artifact = WebAppArtifact.builder()
+                .deployType(Utils.getDeployTypeByFileExtension(file))
+                .file(file).build();
+        new DeployWebAppTask(target, Collections.singletonList(artifact), true).execute();
+        AzureCacheService.afterWrite(target);
+        cache.markDeployed(entry);
+        AzureMessager.getMessager().info(AzureString.format("Application url: %s", "https://" + target.getHostName()));
+    }
+
+    private void listCachedPackages(@Nonnull DeploymentCache cache, String appName) {
+        final List<DeploymentCacheEntry> entries = cache.list();
+        if (entries.isEmpty()) {
+            AzureMessager.getMessager().info(AzureString.format("No cached packages found for web app %s.", appName));
+            return;
+        }
+        AzureMessager.getMessager().info(AzureString.format("Cached packages of web app %s (the most recently deployed first):", appName));
+        entries.forEach(entry -> AzureMessager.getMessager().info(String.format("\t %s%s  %s  %s  %d bytes", entry.getId(),
+                StringUtils.equals(entry.getFingerprint(), cache.getCurrent()) ? " (current)" : StringUtils.EMPTY,
+                formatTime(entry.getDeployedAt()), entry.getFileName(), entry.getSize())));
+    }
+
+    private WebAppBase<?, ?, ?> getExistingDeployTarget(String subscriptionId, GradleWebAppConfig config) {
+        final String resourceGroup = config.resourceGroup();
+        final String appName = config.appName();
+        final String slotName = config.deploymentSlotName();
+        final WebApp app = Azure.az(AzureWebApp.class).webApps(subscriptionId).get(appName, resourceGroup);
+        if (app == null || !app.exists()) {
+            throw new AzureToolkitRuntimeException(String.format("Web app %s cannot be found in resource group %s, " +
+                    "rollback is only supported for existing apps.", appName, resourceGroup));
+        }
+        if (StringUtils.isBlank(slotName)) {
+            return app;
+        }
+        final WebAppDeploymentSlot slot = app.slots().get(slotName, resourceGroup);
+        if (slot == null || !slot.exists()) {
+            throw new AzureToolkitRuntimeException(String.format("Deployment slot %s of web app %s cannot be found.", slotName, appName));
+        }
+        return slot;
+    }
+
+    private static String formatTime(long timestamp) {
+        return new SimpleDateFormat(DATE_FORMAT).format(new Date(timestamp));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+
+package com.microsoft.azure.plugin.webapps.gradle;
+
+import com.microsoft.azure.gradle.configuration.GradleRuntimeConfig;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+
+import javax.annotation.Nullable;
+import java.util.stream.Stream;
+
+/**
+ * The `runtime` block of `azurewebapp`, see {@link GradleRuntimeConfig}
+ */
+public abstract class RuntimeSettings {
+    @Input
+    @Optional
+    public abstract Property<String> getOs();
+
+    @Input
+    @Optional
+    public abstract Property<String> getJavaVersion();
+
+    @Input
+    @Optional
+    public abstract Property<String> getWebContainer();
+
+    @Input
+    @Optional
+    public abstract Property<String> getImage();
+
+    @Input
+    @Optional
+    public abstract Property<String> getRegistryUrl();
+
+    @Input
+    @Optional
+    public abstract Property<String> getUsername();
+
+    @Input
+    @Optional
+    public abstract Property<String> getPassword();
+
+    @Input
+    @Optional
+    public abstract Property<String> getStartUpCommand();
+
+    /**
+     * @return the settings, null if none of them is set
+     */
+    @Nullable
+    public GradleRuntimeConfig toConfig() {
+        if (Stream.of(getOs(), getJavaVersion(), getWebContainer(), getImage(), getRegistryUrl(), getUsername(), getPassword(), getStartUpCommand())
+            .noneMatch(Provider::isPresent)) {
+            return null;
+        }
+        return new GradleRuntimeConfig()
+            .os(getOs().getOrNull())
+            .javaVersion(getJavaVersion().getOrNull())
+            .webContainer(getWebContainer().getOrNull())
+            .image(getImage().getOrNull())
+            .registryUrl(getRegistryUrl().getOrNull())
+            .username(getUsername().getOrNull())
+            .password(getPassword().getOrNull())
+            .startUpCommand(getStartUpCommand().getOrNull());
+    }
+
+    void from(@Nullable GradleRuntimeConfig config) {
+        getOs().set(config == null ? null : config.os());
+        getJavaVersion().set(config == null ? null : config.javaVersion());
+        getWebContainer().set(config == null ? null : config.webContainer());
+        getImage().set(config == null ? null : config.image());
+        getRegistryUrl().set(config == null ? null : config.registryUrl());
+        getUsername().set(config == null ? null : config.username());
+        getPassword().set(config == null ? null : config.password());
+        getStartUpCommand().set(config == null ? null : config.startUpCommand());
+    }
+}
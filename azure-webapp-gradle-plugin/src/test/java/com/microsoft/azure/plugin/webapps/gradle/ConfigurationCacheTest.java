@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) Microsoft Corporation. All rights reserved.
+ * Licensed under the MIT License. See License.txt in the project root for license information.
+ */
+package com.microsoft.azure.plugin.webapps.gradle;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+public class ConfigurationCacheTest {
+    // isolated projects implies the configuration cache
+    private static final String ISOLATED_PROJECTS = "-Dorg.gradle.unsafe.isolated-projects=true";
+    private static final String STORED = "Configuration cache entry stored";
+    private static final String REUSED = "Reusing configuration cache";
+
+    @Rule
+    public TemporaryFolder projectDir = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws IOException {
+        write("settings.gradle", "rootProject.name = 'webapp-demo'");
+        write("build.gradle", String.join("\n",
+                "plugins {",
+                "    id 'java'",
+                "    id 'com.microsoft.azure.azurewebapp'",
+                "}",
+                "azurewebapp {",
+                "    subscription = '00000000-0000-0000-0000-000000000000'",
+                "    resourceGroup = 'demo-group'",
+                "    appName = 'demo-app'",
+                "    allowTelemetry = false",
+                "    runtime {",
+                "        os = 'Linux'",
+                "        webContainer = 'Java SE'",
+                "        javaVersion = 'Java 17'",
+                "    }",
+                "    deploymentSlot {",
+                "        name = 'staging'",
+                "    }",
+                "    auth {",
+                "        type = 'azure_cli'",
+                "    }",
+                "}"));
+    }
+
+    @Test
+    public void testDeployIsReused() {
+        // the task graph of a deployment is configured, but none of its tasks run
+        final BuildResult first = run("azureWebAppDeploy", "--dry-run", "--configuration-cache");
+        assertTrue(first.getOutput().contains(STORED));
+        assertTrue(first.getOutput().contains(":jar SKIPPED"));
+        assertTrue(first.getOutput().contains(":azureWebAppDeploy SKIPPED"));
+
+        final BuildResult second = run("azureWebAppDeploy", "--dry-run", "--configuration-cache");
+        assertTrue(second.getOutput().contains(REUSED));
+
+        // the settings of the command line are inputs of the configuration
+        final BuildResult override = run("azureWebAppDeploy", "--dry-run", "--configuration-cache", "-Pazure.appName=other-app");
+        assertTrue(override.getOutput().contains(STORED));
+    }
+
+    @Test
+    public void testRollbackIsReused() {
+        final BuildResult first = run("azureWebAppRollback", "--list", "--dry-run", "--configuration-cache");
+        assertTrue(first.getOutput().contains(STORED));
+        assertTrue(first.getOutput().contains(":azureWebAppRollback SKIPPED"));
+
+        // the options of the command line are stored with the task
+        final BuildResult second = run("azureWebAppRollback", "--list", "--dry-run", "--configuration-cache");
+        assertTrue(second.getOutput().contains(REUSED));
+        final BuildResult other = run("azureWebAppRollback", "--package", "2cf24dba5fb0", "--dry-run", "--configuration-cache");
+        assertTrue(other.getOutput().contains(STORED));
+    }
+
+    @Test
+    public void testIsolatedProjects() {
+        final BuildResult deploy = run("azureWebAppDeploy", "--dry-run", ISOLATED_PROJECTS);
+        assertTrue(deploy.getOutput().contains(STORED));
+        assertTrue(deploy.getOutput().contains(":azureWebAppDeploy SKIPPED"));
+
+        final BuildResult rollback = run("azureWebAppRollback", "--list", "--dry-run", ISOLATED_PROJECTS);
+        assertTrue(rollback.getOutput().contains(STORED));
+        assertTrue(rollback.getOutput().contains(":azureWebAppRollback SKIPPED"));
+    }
+
+    private BuildResult run(String... arguments) {
+        final List<String> offline = new ArrayList<>(Arrays.asList(arguments));
+        offline.add("--offline");
+        return GradleRunner.create()
+                .withProjectDir(projectDir.getRoot())
+                .withPluginClasspath()
+                .withArguments(offline)
+                .build();
+    }
+
+    private void write(String path, String content) throws IOException {
+        FileUtils.write(new File(projectDir.getRoot(), path), content, StandardCharsets.UTF_8);
+    }
+}